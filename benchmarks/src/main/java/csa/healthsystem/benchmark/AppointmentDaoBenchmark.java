@@ -0,0 +1,72 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.benchmark;
+
+/**
+ *
+ * @author Maryam
+ */
+import csa.healthsystem.dao.AppointmentDAO;
+import csa.healthsystem.model.Appointment;
+import csa.healthsystem.model.BatchResult;
+import java.util.List;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * CRUD operations of the {@link AppointmentDAO}, including booking and releasing the doctor's slots.
+ */
+@State(Scope.Benchmark)
+public class AppointmentDaoBenchmark extends DaoBenchmark<Appointment> {
+    private final AppointmentDAO dao = new AppointmentDAO();
+    private int patientId;
+    private int doctorId;
+
+    @Override
+    protected void prepare() {
+        patientId = BenchmarkData.firstPatientId();
+        doctorId = BenchmarkData.firstDoctorId();
+    }
+
+    @Override
+    protected Appointment create(int index) {
+        return BenchmarkData.appointment(index, patientId, doctorId);
+    }
+
+    @Override
+    protected List<BatchResult> addAll(List<Appointment> batch) {
+        return dao.addAppointments(batch);
+    }
+
+    @Override
+    protected void add(Appointment entity) {
+        dao.addAppointment(entity);
+    }
+
+    @Override
+    protected int idOf(Appointment entity) {
+        return entity.getId();
+    }
+
+    @Override
+    protected Appointment get(int id) {
+        return dao.getAppointmentById(id);
+    }
+
+    @Override
+    protected List<Appointment> page(int afterId, int limit) {
+        return dao.getAppointments(afterId, limit);
+    }
+
+    @Override
+    protected void update(int id, Appointment entity) {
+        dao.updateAppointment(id, entity);
+    }
+
+    @Override
+    protected void delete(int id) {
+        dao.deleteAppointment(id);
+    }
+}
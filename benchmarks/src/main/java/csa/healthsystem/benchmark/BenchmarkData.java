@@ -0,0 +1,84 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.benchmark;
+
+/**
+ *
+ * @author Maryam
+ */
+import csa.healthsystem.dao.DoctorDAO;
+import csa.healthsystem.dao.PatientDAO;
+import csa.healthsystem.model.Appointment;
+import csa.healthsystem.model.Billing;
+import csa.healthsystem.model.Doctor;
+import csa.healthsystem.model.MedicalRecord;
+import csa.healthsystem.model.Patient;
+import csa.healthsystem.model.Person;
+import csa.healthsystem.model.Prescription;
+import java.time.LocalDate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Valid sample entities for the benchmarks, and the settings every benchmark shares.
+ */
+final class BenchmarkData {
+    // Appointments are spread over half-hour slots from this day on, so none overlap
+    private static final LocalDate FIRST_DAY = LocalDate.of(2030, 1, 1);
+    private static final int SLOTS_PER_DAY = 48;
+
+    // Held here so the level is not lost when the logger is garbage collected
+    private static final Logger SERVICE_LOGGER = Logger.getLogger("csa.healthsystem");
+
+    private BenchmarkData() {}
+
+    /**
+     * Turns off the INFO events the DAOs log for every call, which would otherwise dominate.
+     */
+    static void quietLogging() {
+        SERVICE_LOGGER.setLevel(Level.WARNING);
+    }
+
+    static int firstPatientId() {
+        return new PatientDAO().getPatients(0, 1).get(0).getId();
+    }
+
+    static int firstDoctorId() {
+        return new DoctorDAO().getDoctors(0, 1).get(0).getId();
+    }
+
+    static Person person(int i) {
+        return new Person(0, "Person " + i, "0123456789", i + " Main St");
+    }
+
+    static Patient patient(int i) {
+        return new Patient(0, "Patient " + i, "0123456789", i + " Main St", "No known conditions", "Stable");
+    }
+
+    static Doctor doctor(int i) {
+        return new Doctor(0, "Dr. " + i, "0123456789", i + " Main St", "General practice");
+    }
+
+    // The i-th half-hour slot; distinct values of i never overlap
+    static Appointment appointment(int i, int patientId, int doctorId) {
+        int minutes = (i % SLOTS_PER_DAY) * 30;
+        String time = String.format("%02d:%02d", minutes / 60, minutes % 60);
+        Appointment appointment = new Appointment(0, FIRST_DAY.plusDays(i / SLOTS_PER_DAY).toString(), time, patientId, doctorId);
+        appointment.setDurationMinutes(30);
+        return appointment;
+    }
+
+    static MedicalRecord medicalRecord(int i, int patientId) {
+        return new MedicalRecord(0, patientId, "Seasonal influenza, visit " + i, "Rest and fluids");
+    }
+
+    static Prescription prescription(int i, int patientId, int doctorId) {
+        return new Prescription(0, patientId, doctorId, "Amoxicillin", "500 mg", "Three times a day after meals, visit " + i, 7);
+    }
+
+    static Billing billing(int i, int patientId, int doctorId) {
+        return new Billing(0, patientId, doctorId, 150.0 + i % 100, 100.0, 50.0 + i % 100);
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.benchmark;
+
+/**
+ *
+ * @author Maryam
+ */
+import csa.healthsystem.dao.BillingDAO;
+import csa.healthsystem.model.BatchResult;
+import csa.healthsystem.model.Billing;
+import java.util.List;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * CRUD operations of the {@link BillingDAO}.
+ */
+@State(Scope.Benchmark)
+public class BillingDaoBenchmark extends DaoBenchmark<Billing> {
+    private final BillingDAO dao = new BillingDAO();
+    private int patientId;
+    private int doctorId;
+
+    @Override
+    protected void prepare() {
+        patientId = BenchmarkData.firstPatientId();
+        doctorId = BenchmarkData.firstDoctorId();
+    }
+
+    @Override
+    protected Billing create(int index) {
+        return BenchmarkData.billing(index, patientId, doctorId);
+    }
+
+    @Override
+    protected List<BatchResult> addAll(List<Billing> batch) {
+        return dao.addBillings(batch);
+    }
+
+    @Override
+    protected void add(Billing entity) {
+        dao.addBilling(entity);
+    }
+
+    @Override
+    protected int idOf(Billing entity) {
+        return entity.getId();
+    }
+
+    @Override
+    protected Billing get(int id) {
+        return dao.getBillingById(id);
+    }
+
+    @Override
+    protected List<Billing> page(int afterId, int limit) {
+        return dao.getBillings(afterId, limit);
+    }
+
+    @Override
+    protected void update(int id, Billing entity) {
+        dao.updateBilling(id, entity);
+    }
+
+    @Override
+    protected void delete(int id) {
+        dao.deleteBilling(id);
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.benchmark;
+
+/**
+ *
+ * @author Maryam
+ */
+import csa.healthsystem.dao.BillingColumns;
+import csa.healthsystem.model.Billing;
+import csa.healthsystem.model.BillingSummary;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Totals of the billings whose outstanding balance lies in a range, scanned from a list of
+ * billing objects and from {@link BillingColumns}. The list is shuffled, as the objects of a
+ * long-running store end up scattered over the heap.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BillingScanBenchmark {
+    private static final double MIN_OUTSTANDING = 75.0;
+    private static final double MAX_OUTSTANDING = 125.0;
+
+    @Param({"100000", "1000000"})
+    public int size;
+
+    private List<Billing> billings;
+    private BillingColumns columns;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkData.quietLogging();
+        billings = new ArrayList<>(size);
+        columns = new BillingColumns();
+        for (int i = 1; i <= size; i++) {
+            Billing billing = BenchmarkData.billing(i, 1 + i % 1000, 1 + i % 100);
+            billing.setId(i);
+            billings.add(billing);
+            columns.put(billing);
+        }
+        Collections.shuffle(billings, new Random(42));
+    }
+
+    @Benchmark
+    public double[] objectScan() {
+        long count = 0;
+        double invoice = 0;
+        double payment = 0;
+        double outstanding = 0;
+        for (Billing billing : billings) {
+            double balance = billing.getOutstandingBalance();
+            if (balance >= MIN_OUTSTANDING && balance <= MAX_OUTSTANDING) {
+                count++;
+                invoice += billing.getInvoiceAmount();
+                payment += billing.getPaymentAmount();
+                outstanding += balance;
+            }
+        }
+        return new double[]{count, invoice, payment, outstanding};
+    }
+
+    @Benchmark
+    public BillingSummary columnScan() {
+        return columns.total(0, 0, 7500, 12500);
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.benchmark;
+
+/**
+ *
+ * @author Maryam
+ */
+import csa.healthsystem.model.BatchResult;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * CRUD operations of one DAO against a store holding {@link #size} entities.
+ * Every parameter combination runs in a fresh JVM, so the DAO's static store starts with only
+ * its sample data and is filled to the requested size before measuring. The operations keep
+ * the size stable: updates replace existing entities, and creates are deleted again at once.
+ * @param <T> The entity type
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public abstract class DaoBenchmark<T> {
+    private static final int SEED_BATCH_SIZE = 1000;
+    private static final int PAGE_SIZE = 100;
+
+    @Param({"1000", "10000", "100000"})
+    public int size;
+
+    // IDs of the seeded entities; the entity at index i was created by create(i)
+    private int[] ids;
+
+    /**
+     * Fills the store through the DAO's batch method.
+     */
+    @Setup(Level.Trial)
+    public void seed() {
+        BenchmarkData.quietLogging();
+        prepare();
+        ids = new int[size];
+        for (int start = 0; start < size; start += SEED_BATCH_SIZE) {
+            List<T> batch = new ArrayList<>(SEED_BATCH_SIZE);
+            for (int i = start; i < Math.min(size, start + SEED_BATCH_SIZE); i++) {
+                batch.add(create(i));
+            }
+            List<BatchResult> results = addAll(batch);
+            for (int i = 0; i < results.size(); i++) {
+                if (!results.get(i).isSucceeded()) {
+                    throw new IllegalStateException("Seeding failed: " + results.get(i).getError());
+                }
+                ids[start + i] = results.get(i).getId();
+            }
+        }
+    }
+
+    @Benchmark
+    public T readById() {
+        return get(ids[randomIndex()]);
+    }
+
+    @Benchmark
+    public List<T> readPage() {
+        return page(ids[randomIndex()], PAGE_SIZE);
+    }
+
+    @Benchmark
+    public void updateById() {
+        int index = randomIndex();
+        update(ids[index], create(index));
+    }
+
+    @Benchmark
+    public void createAndDelete() {
+        // Index size is past every seeded entity, so it never collides with one
+        T entity = create(size);
+        add(entity);
+        delete(idOf(entity));
+    }
+
+    /**
+     * Looks up what the entities refer to, such as a patient and a doctor; called before seeding.
+     */
+    protected void prepare() {
+    }
+
+    /**
+     * Creates a valid entity without an ID.
+     * @param index Distinguishes the entity; entities with distinct indexes never conflict
+     * @return The entity
+     */
+    protected abstract T create(int index);
+
+    protected abstract List<BatchResult> addAll(List<T> batch);
+
+    protected abstract void add(T entity);
+
+    protected abstract int idOf(T entity);
+
+    protected abstract T get(int id);
+
+    protected abstract List<T> page(int afterId, int limit);
+
+    protected abstract void update(int id, T entity);
+
+    protected abstract void delete(int id);
+
+    private int randomIndex() {
+        return ThreadLocalRandom.current().nextInt(ids.length);
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.benchmark;
+
+/**
+ *
+ * @author Maryam
+ */
+import csa.healthsystem.dao.DoctorDAO;
+import csa.healthsystem.model.BatchResult;
+import csa.healthsystem.model.Doctor;
+import java.util.List;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * CRUD operations of the {@link DoctorDAO}.
+ */
+@State(Scope.Benchmark)
+public class DoctorDaoBenchmark extends DaoBenchmark<Doctor> {
+    private final DoctorDAO dao = new DoctorDAO();
+
+    @Override
+    protected Doctor create(int index) {
+        return BenchmarkData.doctor(index);
+    }
+
+    @Override
+    protected List<BatchResult> addAll(List<Doctor> batch) {
+        return dao.addDoctors(batch);
+    }
+
+    @Override
+    protected void add(Doctor entity) {
+        dao.addDoctor(entity);
+    }
+
+    @Override
+    protected int idOf(Doctor entity) {
+        return entity.getId();
+    }
+
+    @Override
+    protected Doctor get(int id) {
+        return dao.getDoctorById(id);
+    }
+
+    @Override
+    protected List<Doctor> page(int afterId, int limit) {
+        return dao.getDoctors(afterId, limit);
+    }
+
+    @Override
+    protected void update(int id, Doctor entity) {
+        dao.updateDoctor(id, entity);
+    }
+
+    @Override
+    protected void delete(int id) {
+        dao.deleteDoctor(id);
+    }
+}
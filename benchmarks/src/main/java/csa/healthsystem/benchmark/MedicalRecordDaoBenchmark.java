@@ -0,0 +1,70 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.benchmark;
+
+/**
+ *
+ * @author Maryam
+ */
+import csa.healthsystem.dao.MedicalRecordDAO;
+import csa.healthsystem.model.BatchResult;
+import csa.healthsystem.model.MedicalRecord;
+import java.util.List;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * CRUD operations of the {@link MedicalRecordDAO}.
+ */
+@State(Scope.Benchmark)
+public class MedicalRecordDaoBenchmark extends DaoBenchmark<MedicalRecord> {
+    private final MedicalRecordDAO dao = new MedicalRecordDAO();
+    private int patientId;
+
+    @Override
+    protected void prepare() {
+        patientId = BenchmarkData.firstPatientId();
+    }
+
+    @Override
+    protected MedicalRecord create(int index) {
+        return BenchmarkData.medicalRecord(index, patientId);
+    }
+
+    @Override
+    protected List<BatchResult> addAll(List<MedicalRecord> batch) {
+        return dao.addMedicalRecords(batch);
+    }
+
+    @Override
+    protected void add(MedicalRecord entity) {
+        dao.addMedicalRecord(entity);
+    }
+
+    @Override
+    protected int idOf(MedicalRecord entity) {
+        return entity.getId();
+    }
+
+    @Override
+    protected MedicalRecord get(int id) {
+        return dao.getMedicalRecordById(id);
+    }
+
+    @Override
+    protected List<MedicalRecord> page(int afterId, int limit) {
+        return dao.getMedicalRecords(afterId, limit);
+    }
+
+    @Override
+    protected void update(int id, MedicalRecord entity) {
+        dao.updateMedicalRecord(id, entity);
+    }
+
+    @Override
+    protected void delete(int id) {
+        dao.deleteMedicalRecord(id);
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.benchmark;
+
+/**
+ *
+ * @author Maryam
+ */
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import csa.healthsystem.model.Billing;
+import csa.healthsystem.model.References;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Jackson encoding and decoding of 100,000 billings, with the model's getters and audited setters
+ * and with {@link LoggingBilling}, a copy of the billing model as it was before, which logged every
+ * getter and setter call at INFO. Its log records go to a handler that drops them, so the baseline
+ * pays for building the messages and records but not for writing them to the console.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ModelAccessBenchmark {
+    private static final int COUNT = 100000;
+    private static final Logger BASELINE_LOGGER = Logger.getLogger(LoggingBilling.class.getName());
+
+    private List<Billing> billings;
+    private List<LoggingBilling> loggingBillings;
+    private ObjectWriter writer;
+    private ObjectReader billingsReader;
+    private ObjectReader loggingBillingsReader;
+    private byte[] billingsJson;
+    private byte[] loggingBillingsJson;
+
+    @Setup
+    public void setUp() throws IOException {
+        BenchmarkData.quietLogging();
+        BASELINE_LOGGER.setUseParentHandlers(false);
+        BASELINE_LOGGER.setLevel(Level.INFO);
+        BASELINE_LOGGER.addHandler(new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+
+        ObjectMapper mapper = new ObjectMapper();
+        // Without the patient and doctor lookups, which the baseline model did not have
+        writer = mapper.writerWithView(References.IdsOnly.class);
+        billingsReader = mapper.readerFor(new TypeReference<List<Billing>>() {});
+        loggingBillingsReader = mapper.readerFor(new TypeReference<List<LoggingBilling>>() {});
+        billings = new ArrayList<>(COUNT);
+        loggingBillings = new ArrayList<>(COUNT);
+        for (int i = 0; i < COUNT; i++) {
+            Billing billing = BenchmarkData.billing(i, 1, 1);
+            billing.setId(i + 1);
+            billings.add(billing);
+            loggingBillings.add(new LoggingBilling(i + 1, billing.getInvoiceAmount(), billing.getPaymentAmount(),
+                    billing.getOutstandingBalance()));
+        }
+        billingsJson = writer.writeValueAsBytes(billings);
+        loggingBillingsJson = writer.writeValueAsBytes(loggingBillings);
+    }
+
+    @Benchmark
+    public byte[] writeBillings() throws IOException {
+        return writer.writeValueAsBytes(billings);
+    }
+
+    @Benchmark
+    public byte[] writeLoggingBillings() throws IOException {
+        return writer.writeValueAsBytes(loggingBillings);
+    }
+
+    @Benchmark
+    public List<Billing> readBillings() throws IOException {
+        return billingsReader.readValue(billingsJson);
+    }
+
+    @Benchmark
+    public List<LoggingBilling> readLoggingBillings() throws IOException {
+        return loggingBillingsReader.readValue(loggingBillingsJson);
+    }
+
+    /**
+     * The billing model before per-access logging was dropped, reduced to its scalar fields.
+     */
+    public static class LoggingBilling {
+        private int id;
+        private double invoiceAmount;
+        private double paymentAmount;
+        private double outstandingBalance;
+
+        public LoggingBilling() {}
+
+        LoggingBilling(int id, double invoiceAmount, double paymentAmount, double outstandingBalance) {
+            this.id = id;
+            this.invoiceAmount = invoiceAmount;
+            this.paymentAmount = paymentAmount;
+            this.outstandingBalance = outstandingBalance;
+        }
+
+        public int getId() {
+            BASELINE_LOGGER.log(Level.INFO, "Getting ID: " + id);
+            return id;
+        }
+
+        public void setId(int id) {
+            BASELINE_LOGGER.log(Level.INFO, "Setting ID: " + id);
+            this.id = id;
+        }
+
+        public double getInvoiceAmount() {
+            BASELINE_LOGGER.log(Level.INFO, "Getting invoice amount: " + invoiceAmount);
+            return invoiceAmount;
+        }
+
+        public void setInvoiceAmount(double invoiceAmount) {
+            BASELINE_LOGGER.log(Level.INFO, "Setting invoice amount: " + invoiceAmount);
+            this.invoiceAmount = invoiceAmount;
+        }
+
+        public double getPaymentAmount() {
+            BASELINE_LOGGER.log(Level.INFO, "Getting payment amount: " + paymentAmount);
+            return paymentAmount;
+        }
+
+        public void setPaymentAmount(double paymentAmount) {
+            BASELINE_LOGGER.log(Level.INFO, "Setting payment amount: " + paymentAmount);
+            this.paymentAmount = paymentAmount;
+        }
+
+        public double getOutstandingBalance() {
+            BASELINE_LOGGER.log(Level.INFO, "Getting outstanding balance: " + outstandingBalance);
+            return outstandingBalance;
+        }
+
+        public void setOutstandingBalance(double outstandingBalance) {
+            BASELINE_LOGGER.log(Level.INFO, "Setting outstanding balance: " + outstandingBalance);
+            this.outstandingBalance = outstandingBalance;
+        }
+    }
+}
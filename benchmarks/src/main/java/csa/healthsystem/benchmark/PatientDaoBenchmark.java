@@ -0,0 +1,64 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.benchmark;
+
+/**
+ *
+ * @author Maryam
+ */
+import csa.healthsystem.dao.PatientDAO;
+import csa.healthsystem.model.BatchResult;
+import csa.healthsystem.model.Patient;
+import java.util.List;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * CRUD operations of the {@link PatientDAO}.
+ */
+@State(Scope.Benchmark)
+public class PatientDaoBenchmark extends DaoBenchmark<Patient> {
+    private final PatientDAO dao = new PatientDAO();
+
+    @Override
+    protected Patient create(int index) {
+        return BenchmarkData.patient(index);
+    }
+
+    @Override
+    protected List<BatchResult> addAll(List<Patient> batch) {
+        return dao.addPatients(batch);
+    }
+
+    @Override
+    protected void add(Patient entity) {
+        dao.addPatient(entity);
+    }
+
+    @Override
+    protected int idOf(Patient entity) {
+        return entity.getId();
+    }
+
+    @Override
+    protected Patient get(int id) {
+        return dao.getPatientById(id);
+    }
+
+    @Override
+    protected List<Patient> page(int afterId, int limit) {
+        return dao.getPatients(afterId, limit);
+    }
+
+    @Override
+    protected void update(int id, Patient entity) {
+        dao.updatePatient(id, entity);
+    }
+
+    @Override
+    protected void delete(int id) {
+        dao.deletePatient(id);
+    }
+}
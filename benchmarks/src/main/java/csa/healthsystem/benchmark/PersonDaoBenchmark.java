@@ -0,0 +1,64 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.benchmark;
+
+/**
+ *
+ * @author Maryam
+ */
+import csa.healthsystem.dao.PersonDAO;
+import csa.healthsystem.model.BatchResult;
+import csa.healthsystem.model.Person;
+import java.util.List;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * CRUD operations of the {@link PersonDAO}.
+ */
+@State(Scope.Benchmark)
+public class PersonDaoBenchmark extends DaoBenchmark<Person> {
+    private final PersonDAO dao = new PersonDAO();
+
+    @Override
+    protected Person create(int index) {
+        return BenchmarkData.person(index);
+    }
+
+    @Override
+    protected List<BatchResult> addAll(List<Person> batch) {
+        return dao.addPersons(batch);
+    }
+
+    @Override
+    protected void add(Person entity) {
+        dao.addPerson(entity);
+    }
+
+    @Override
+    protected int idOf(Person entity) {
+        return entity.getId();
+    }
+
+    @Override
+    protected Person get(int id) {
+        return dao.getPersonById(id);
+    }
+
+    @Override
+    protected List<Person> page(int afterId, int limit) {
+        return dao.getPersons(afterId, limit);
+    }
+
+    @Override
+    protected void update(int id, Person entity) {
+        dao.updatePerson(id, entity);
+    }
+
+    @Override
+    protected void delete(int id) {
+        dao.deletePerson(id);
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.benchmark;
+
+/**
+ *
+ * @author Maryam
+ */
+import csa.healthsystem.dao.PrescriptionDAO;
+import csa.healthsystem.model.BatchResult;
+import csa.healthsystem.model.Prescription;
+import java.util.List;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * CRUD operations of the {@link PrescriptionDAO}.
+ */
+@State(Scope.Benchmark)
+public class PrescriptionDaoBenchmark extends DaoBenchmark<Prescription> {
+    private final PrescriptionDAO dao = new PrescriptionDAO();
+    private int patientId;
+    private int doctorId;
+
+    @Override
+    protected void prepare() {
+        patientId = BenchmarkData.firstPatientId();
+        doctorId = BenchmarkData.firstDoctorId();
+    }
+
+    @Override
+    protected Prescription create(int index) {
+        return BenchmarkData.prescription(index, patientId, doctorId);
+    }
+
+    @Override
+    protected List<BatchResult> addAll(List<Prescription> batch) {
+        return dao.addPrescriptions(batch);
+    }
+
+    @Override
+    protected void add(Prescription entity) {
+        dao.addPrescription(entity);
+    }
+
+    @Override
+    protected int idOf(Prescription entity) {
+        return entity.getId();
+    }
+
+    @Override
+    protected Prescription get(int id) {
+        return dao.getPrescriptionById(id);
+    }
+
+    @Override
+    protected List<Prescription> page(int afterId, int limit) {
+        return dao.getPrescriptions(afterId, limit);
+    }
+
+    @Override
+    protected void update(int id, Prescription entity) {
+        dao.updatePrescription(id, entity);
+    }
+
+    @Override
+    protected void delete(int id) {
+        dao.deletePrescription(id);
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.benchmark;
+
+/**
+ *
+ * @author Maryam
+ */
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import csa.healthsystem.model.Appointment;
+import csa.healthsystem.model.Billing;
+import csa.healthsystem.model.MedicalRecord;
+import csa.healthsystem.model.Prescription;
+import csa.healthsystem.model.References;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Jackson encoding and decoding of the entities the service reads and writes most.
+ * Entities are written the way responses write them, with referenced patients and doctors
+ * either expanded or reduced to their IDs; they are read from request bodies holding IDs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+    @Param({"false", "true"})
+    public boolean expand;
+
+    private ObjectWriter writer;
+    private ObjectReader billingReader;
+    private ObjectReader appointmentReader;
+    private ObjectReader prescriptionReader;
+    private ObjectReader medicalRecordReader;
+
+    private Billing billing;
+    private Appointment appointment;
+    private Prescription prescription;
+    private MedicalRecord medicalRecord;
+
+    private byte[] billingJson;
+    private byte[] appointmentJson;
+    private byte[] prescriptionJson;
+    private byte[] medicalRecordJson;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        BenchmarkData.quietLogging();
+        ObjectMapper mapper = new ObjectMapper();
+        ObjectWriter idsOnly = mapper.writerWithView(References.IdsOnly.class);
+        writer = expand ? mapper.writer() : idsOnly;
+        billingReader = mapper.readerFor(Billing.class);
+        appointmentReader = mapper.readerFor(Appointment.class);
+        prescriptionReader = mapper.readerFor(Prescription.class);
+        medicalRecordReader = mapper.readerFor(MedicalRecord.class);
+
+        int patientId = BenchmarkData.firstPatientId();
+        int doctorId = BenchmarkData.firstDoctorId();
+        billing = BenchmarkData.billing(1, patientId, doctorId);
+        billing.setId(1);
+        appointment = BenchmarkData.appointment(1, patientId, doctorId);
+        appointment.setId(1);
+        prescription = BenchmarkData.prescription(1, patientId, doctorId);
+        prescription.setId(1);
+        medicalRecord = BenchmarkData.medicalRecord(1, patientId);
+        medicalRecord.setId(1);
+
+        billingJson = idsOnly.writeValueAsBytes(billing);
+        appointmentJson = idsOnly.writeValueAsBytes(appointment);
+        prescriptionJson = idsOnly.writeValueAsBytes(prescription);
+        medicalRecordJson = idsOnly.writeValueAsBytes(medicalRecord);
+    }
+
+    @Benchmark
+    public byte[] writeBilling() throws IOException {
+        return writer.writeValueAsBytes(billing);
+    }
+
+    @Benchmark
+    public byte[] writeAppointment() throws IOException {
+        return writer.writeValueAsBytes(appointment);
+    }
+
+    @Benchmark
+    public byte[] writePrescription() throws IOException {
+        return writer.writeValueAsBytes(prescription);
+    }
+
+    @Benchmark
+    public byte[] writeMedicalRecord() throws IOException {
+        return writer.writeValueAsBytes(medicalRecord);
+    }
+
+    @Benchmark
+    public Billing readBilling() throws IOException {
+        return billingReader.readValue(billingJson);
+    }
+
+    @Benchmark
+    public Appointment readAppointment() throws IOException {
+        return appointmentReader.readValue(appointmentJson);
+    }
+
+    @Benchmark
+    public Prescription readPrescription() throws IOException {
+        return prescriptionReader.readValue(prescriptionJson);
+    }
+
+    @Benchmark
+    public MedicalRecord readMedicalRecord() throws IOException {
+        return medicalRecordReader.readValue(medicalRecordJson);
+    }
+}
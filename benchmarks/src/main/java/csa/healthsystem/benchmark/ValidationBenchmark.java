@@ -0,0 +1,155 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.benchmark;
+
+/**
+ *
+ * @author Maryam
+ */
+import csa.healthsystem.model.Appointment;
+import csa.healthsystem.model.Billing;
+import csa.healthsystem.model.Doctor;
+import csa.healthsystem.model.MedicalRecord;
+import csa.healthsystem.model.Patient;
+import csa.healthsystem.model.Person;
+import csa.healthsystem.model.Prescription;
+import csa.healthsystem.validation.Validator;
+import csa.healthsystem.validation.Validators;
+import csa.healthsystem.validation.Violation;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Validation of each entity type, for a valid entity and for one that breaks several rules.
+ * A valid entity runs every rule; an invalid one also builds the violation message.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValidationBenchmark {
+    private Person validPerson;
+    private Person invalidPerson;
+    private Patient validPatient;
+    private Patient invalidPatient;
+    private Doctor validDoctor;
+    private Doctor invalidDoctor;
+    private Appointment validAppointment;
+    private Appointment invalidAppointment;
+    private MedicalRecord validMedicalRecord;
+    private MedicalRecord invalidMedicalRecord;
+    private Prescription validPrescription;
+    private Prescription invalidPrescription;
+    private Billing validBilling;
+    private Billing invalidBilling;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkData.quietLogging();
+        validPerson = BenchmarkData.person(1);
+        invalidPerson = new Person(0, "", "12345", null);
+        validPatient = BenchmarkData.patient(1);
+        invalidPatient = new Patient(0, "", "12345", null, null, "Stable");
+        validDoctor = BenchmarkData.doctor(1);
+        invalidDoctor = new Doctor(0, "", "12345", null, null);
+        validAppointment = BenchmarkData.appointment(1, 1, 1);
+        invalidAppointment = new Appointment(0, "01/01/2030", "9am", 1, 1);
+        validMedicalRecord = BenchmarkData.medicalRecord(1, 1);
+        invalidMedicalRecord = new MedicalRecord(0, 1, "", "");
+        validPrescription = BenchmarkData.prescription(1, 1, 1);
+        invalidPrescription = new Prescription(0, 1, 1, "", "", "", 0);
+        validBilling = BenchmarkData.billing(1, 1, 1);
+        invalidBilling = new Billing(0, 1, 1, -10.0, 0.0, 0.0);
+    }
+
+    @Benchmark
+    public String validPerson() {
+        return describe(Validators.PERSON, validPerson);
+    }
+
+    @Benchmark
+    public String invalidPerson() {
+        return describe(Validators.PERSON, invalidPerson);
+    }
+
+    @Benchmark
+    public String validPatient() {
+        return describe(Validators.PATIENT, validPatient);
+    }
+
+    @Benchmark
+    public String invalidPatient() {
+        return describe(Validators.PATIENT, invalidPatient);
+    }
+
+    @Benchmark
+    public String validDoctor() {
+        return describe(Validators.DOCTOR, validDoctor);
+    }
+
+    @Benchmark
+    public String invalidDoctor() {
+        return describe(Validators.DOCTOR, invalidDoctor);
+    }
+
+    @Benchmark
+    public String validAppointment() {
+        return describe(Validators.APPOINTMENT, validAppointment);
+    }
+
+    @Benchmark
+    public String invalidAppointment() {
+        return describe(Validators.APPOINTMENT, invalidAppointment);
+    }
+
+    @Benchmark
+    public String validMedicalRecord() {
+        return describe(Validators.MEDICAL_RECORD, validMedicalRecord);
+    }
+
+    @Benchmark
+    public String invalidMedicalRecord() {
+        return describe(Validators.MEDICAL_RECORD, invalidMedicalRecord);
+    }
+
+    @Benchmark
+    public String validPrescription() {
+        return describe(Validators.PRESCRIPTION, validPrescription);
+    }
+
+    @Benchmark
+    public String invalidPrescription() {
+        return describe(Validators.PRESCRIPTION, invalidPrescription);
+    }
+
+    @Benchmark
+    public String validBilling() {
+        return describe(Validators.BILLING, validBilling);
+    }
+
+    @Benchmark
+    public String invalidBilling() {
+        return describe(Validators.BILLING, invalidBilling);
+    }
+
+    // The message of the violations, or null for a valid entity, as the resources build it
+    private static <T> String describe(Validator<T> validator, T entity) {
+        List<Violation> violations = validator.validate(entity);
+        return violations.isEmpty() ? null : validator.describe(violations);
+    }
+}
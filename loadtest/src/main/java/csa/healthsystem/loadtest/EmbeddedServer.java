@@ -0,0 +1,53 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.loadtest;
+
+/**
+ *
+ * @author Maryam
+ */
+import csa.healthsystem.application.HealthSystemApplication;
+import java.net.URI;
+import org.glassfish.grizzly.http.server.HttpServer;
+import org.glassfish.jersey.grizzly2.httpserver.GrizzlyHttpServerFactory;
+
+/**
+ * The application served in-process by Grizzly, with the same resources, filters and
+ * settings that {@code web.xml} gives the servlet container.
+ */
+final class EmbeddedServer implements AutoCloseable {
+    private final HttpServer server;
+    private final String baseUrl;
+
+    private EmbeddedServer(HttpServer server, String baseUrl) {
+        this.server = server;
+        this.baseUrl = baseUrl;
+    }
+
+    /**
+     * Starts the server.
+     * @param port The port to listen on, or 0 for any free port
+     * @return The running server
+     */
+    static EmbeddedServer start(int port) {
+        HttpServer server = GrizzlyHttpServerFactory.createHttpServer(
+                URI.create("http://localhost:" + port + "/rest/"), new HealthSystemApplication());
+        int boundPort = server.getListeners().iterator().next().getPort();
+        return new EmbeddedServer(server, "http://localhost:" + boundPort + "/rest");
+    }
+
+    /**
+     * Gets the URL the application is served under.
+     * @return The service root, such as http://localhost:8080/rest
+     */
+    String getBaseUrl() {
+        return baseUrl;
+    }
+
+    @Override
+    public void close() {
+        server.shutdownNow();
+    }
+}
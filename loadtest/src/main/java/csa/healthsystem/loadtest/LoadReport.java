@@ -0,0 +1,146 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.loadtest;
+
+/**
+ *
+ * @author Maryam
+ */
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import csa.healthsystem.metrics.LatencyHistogram;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.List;
+
+/**
+ * Outcome of a measured run: throughput, and response time percentiles per kind of request.
+ */
+final class LoadReport {
+    private static final double[] PERCENTILES = {50.0, 99.0, 99.9, 100.0};
+    private static final String[] PERCENTILE_NAMES = {"p50", "p99", "p999", "max"};
+
+    private final String scenario;
+    private final double targetRate;
+    private final long scheduled;
+    private final long measuredNanos;
+    private final int maxBacklog;
+    private final List<OperationStats> operations;
+    private final OperationStats total;
+
+    LoadReport(String scenario, double targetRate, long scheduled, long measuredNanos, int maxBacklog,
+               List<OperationStats> operations, OperationStats total) {
+        this.scenario = scenario;
+        this.targetRate = targetRate;
+        this.scheduled = scheduled;
+        this.measuredNanos = measuredNanos;
+        this.maxBacklog = maxBacklog;
+        this.operations = operations;
+        this.total = total;
+    }
+
+    /**
+     * Gets the rate at which measured requests completed.
+     * @return Requests per second
+     */
+    double achievedRate() {
+        return total.responseTimes().getCount() / (measuredNanos / 1e9);
+    }
+
+    /**
+     * Gets a response time percentile over all requests.
+     * @param percentile The percentile, such as 99.0
+     * @return The response time in milliseconds
+     */
+    double responseTimeMillis(double percentile) {
+        return total.responseTimes().valueAtPercentile(percentile) / 1e6;
+    }
+
+    /**
+     * Gets the share of measured requests that failed.
+     * @return The error rate between 0 and 1
+     */
+    double errorRate() {
+        long count = total.responseTimes().getCount();
+        return count == 0 ? 0.0 : (double) total.getErrors() / count;
+    }
+
+    /**
+     * Prints the report as a table.
+     * @param out Where to print
+     */
+    void print(PrintStream out) {
+        out.printf("Scenario %s: %d requests due at %.1f/s, %.1f/s completed, %d errors%n",
+                scenario, scheduled, targetRate, achievedRate(), total.getErrors());
+        out.printf("Response time in ms, from when each request was due:%n");
+        out.printf("%-28s %9s %7s %9s %9s %9s %9s%n", "Request", "Count", "Errors", "p50", "p99", "p999", "max");
+        for (OperationStats operation : operations) {
+            printRow(out, operation.getName(), operation, operation.responseTimes());
+        }
+        printRow(out, "total", total, total.responseTimes());
+        printRow(out, "total (service time)", total, total.serviceTimes());
+        if (maxBacklog > 0) {
+            out.printf("Up to %d requests waited for a free connection%n", maxBacklog);
+        }
+        if (achievedRate() < 0.95 * targetRate) {
+            out.printf("The service did not keep up with the target rate%n");
+        }
+        for (OperationStats operation : operations) {
+            if (operation.getLastError() != null) {
+                out.printf("Last error of %s: %s%n", operation.getName(), operation.getLastError());
+            }
+        }
+    }
+
+    /**
+     * Writes the report as JSON, for comparing runs.
+     * @param file The file to write
+     * @throws IOException if the file cannot be written
+     */
+    void write(File file) throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        ObjectNode root = mapper.createObjectNode();
+        root.put("scenario", scenario);
+        root.put("targetRate", targetRate);
+        root.put("achievedRate", achievedRate());
+        root.put("scheduled", scheduled);
+        root.put("measuredSeconds", measuredNanos / 1e9);
+        root.put("maxBacklog", maxBacklog);
+        ArrayNode list = root.putArray("operations");
+        for (OperationStats operation : operations) {
+            list.add(toJson(mapper, operation));
+        }
+        root.set("total", toJson(mapper, total));
+        mapper.writerWithDefaultPrettyPrinter().writeValue(file, root);
+    }
+
+    private static void printRow(PrintStream out, String name, OperationStats operation, LatencyHistogram.Snapshot times) {
+        out.printf("%-28s %9d %7d", name, times.getCount(), operation.getErrors());
+        for (double percentile : PERCENTILES) {
+            out.printf(" %9.2f", times.valueAtPercentile(percentile) / 1e6);
+        }
+        out.println();
+    }
+
+    private static ObjectNode toJson(ObjectMapper mapper, OperationStats operation) {
+        ObjectNode node = mapper.createObjectNode();
+        node.put("name", operation.getName());
+        node.put("count", operation.responseTimes().getCount());
+        node.put("errors", operation.getErrors());
+        node.set("responseTimeMillis", percentiles(mapper, operation.responseTimes()));
+        node.set("serviceTimeMillis", percentiles(mapper, operation.serviceTimes()));
+        return node;
+    }
+
+    private static ObjectNode percentiles(ObjectMapper mapper, LatencyHistogram.Snapshot times) {
+        ObjectNode node = mapper.createObjectNode();
+        for (int i = 0; i < PERCENTILES.length; i++) {
+            node.put(PERCENTILE_NAMES[i], times.valueAtPercentile(PERCENTILES[i]) / 1e6);
+        }
+        return node;
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.loadtest;
+
+/**
+ *
+ * @author Maryam
+ */
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs a load test: starts the application on an embedded server, or targets a running one,
+ * seeds it, drives a scenario at a constant rate and prints the response times.
+ * Exits with status 1 if a limit given with {@code --max-p99-ms} or {@code --max-error-rate}
+ * is exceeded, and with status 2 on a usage error.
+ */
+public final class LoadTest {
+    private static final List<String> OPTIONS = Arrays.asList(
+            "url", "port", "scenario", "rate", "warmup", "duration", "threads", "seed", "report", "max-p99-ms", "max-error-rate");
+
+    private static final String USAGE = String.join(System.lineSeparator(),
+            "Usage: java -jar loadtest.jar [options]",
+            "  --scenario <name|file>    bundled scenario or scenario file (default: default)",
+            "  --rate <n>                requests per second (default: 200)",
+            "  --warmup <seconds>        unmeasured warm-up (default: 10)",
+            "  --duration <seconds>      measured run (default: 30)",
+            "  --threads <n>             sending threads and connections (default: 64)",
+            "  --seed <n>                entities created per seeded collection (default: 1000)",
+            "  --url <url>               test a running service, e.g. http://localhost:8080/rest",
+            "  --port <n>                port of the embedded server (default: any free port)",
+            "  --report <file>           also write the report as JSON",
+            "  --max-p99-ms <ms>         fail if the p99 response time is higher",
+            "  --max-error-rate <share>  fail if more of the requests failed, e.g. 0.01");
+
+    // Held here so the level is not lost when the logger is garbage collected
+    private static final Logger SERVICE_LOGGER = Logger.getLogger("csa.healthsystem");
+
+    private LoadTest() {}
+
+    /**
+     * Runs the load test.
+     * @param args The options
+     * @throws Exception if the test cannot be run
+     */
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        if (options == null) {
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+        String scenarioName = options.getOrDefault("scenario", "default");
+        double rate = Double.parseDouble(options.getOrDefault("rate", "200"));
+        int warmup = Integer.parseInt(options.getOrDefault("warmup", "10"));
+        int duration = Integer.parseInt(options.getOrDefault("duration", "30"));
+        int threads = Integer.parseInt(options.getOrDefault("threads", "64"));
+        int seedCount = Integer.parseInt(options.getOrDefault("seed", "1000"));
+
+        // Idle connections the JDK keeps per host; by default only 5 would be reused
+        System.setProperty("http.maxConnections", String.valueOf(threads));
+        Scenario scenario = Scenario.load(scenarioName);
+
+        EmbeddedServer server = null;
+        String url = options.get("url");
+        if (url == null) {
+            // The service logs every call at INFO, which would bury the report
+            SERVICE_LOGGER.setLevel(Level.WARNING);
+            server = EmbeddedServer.start(Integer.parseInt(options.getOrDefault("port", "0")));
+            url = server.getBaseUrl();
+        }
+        try {
+            ServiceClient client = new ServiceClient(url);
+            AtomicLong seq = new AtomicLong();
+            System.out.printf("Seeding %d entities into %d collections at %s%n", seedCount, scenario.getSeeds().size(), client.getBaseUrl());
+            SeededIds ids = Seeder.seed(client, scenario, seedCount, seq);
+            // Fails now, not on every request, if a template refers to a collection that was not seeded
+            for (Scenario.Step step : scenario.getSteps()) {
+                step.path.expand(0, ids, new Random());
+                if (step.body != null) {
+                    step.body.expand(0, ids, new Random());
+                }
+            }
+
+            System.out.printf("Running %s for %d s after a %d s warm-up, at %.1f requests/s over %d connections%n",
+                    scenario.getName(), duration, warmup, rate, threads);
+            LoadReport report = new OpenLoadGenerator(client, scenario, ids, seq, threads).run(rate, warmup, duration);
+            report.print(System.out);
+            if (options.containsKey("report")) {
+                report.write(new File(options.get("report")));
+            }
+
+            boolean failed = false;
+            if (options.containsKey("max-p99-ms") && report.responseTimeMillis(99.0) > Double.parseDouble(options.get("max-p99-ms"))) {
+                System.out.printf("FAILED: p99 response time %.2f ms is above %s ms%n", report.responseTimeMillis(99.0), options.get("max-p99-ms"));
+                failed = true;
+            }
+            if (options.containsKey("max-error-rate") && report.errorRate() > Double.parseDouble(options.get("max-error-rate"))) {
+                System.out.printf("FAILED: error rate %.4f is above %s%n", report.errorRate(), options.get("max-error-rate"));
+                failed = true;
+            }
+            if (failed) {
+                System.exit(1);
+            }
+        } finally {
+            if (server != null) {
+                server.close();
+            }
+        }
+    }
+
+    // Options by name, or null if the arguments are malformed
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i += 2) {
+            String name = args[i].startsWith("--") ? args[i].substring(2) : "";
+            if (!OPTIONS.contains(name) || i + 1 == args.length) {
+                return null;
+            }
+            options.put(name, args[i + 1]);
+        }
+        return options;
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.loadtest;
+
+/**
+ *
+ * @author Maryam
+ */
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives a scenario at a constant arrival rate, as an open model.
+ * Requests are due at fixed intervals whether or not earlier ones have completed; when the
+ * service slows down, due requests queue up for the sending threads instead of being sent
+ * later. Latency is measured from when each request was due, so a stall shows up in every
+ * request it delayed, not only the one that was stuck (no coordinated omission).
+ */
+final class OpenLoadGenerator {
+    // How long to wait for queued requests once the run is over; beyond the client timeout
+    private static final long DRAIN_SECONDS = 35;
+
+    private final ServiceClient client;
+    private final Scenario scenario;
+    private final SeededIds ids;
+    private final AtomicLong seq;
+    private final int threads;
+
+    private final Map<Scenario.Step, OperationStats> stats = new IdentityHashMap<>();
+    private final OperationStats total = new OperationStats("total");
+    private final AtomicLong lastCompletion = new AtomicLong(Long.MIN_VALUE);
+
+    /**
+     * Creates a generator.
+     * @param client The client
+     * @param scenario The requests to send
+     * @param ids The seeded IDs the requests refer to
+     * @param seq Source of the numbers unique to each request
+     * @param threads Number of threads sending requests, which bounds the open connections
+     */
+    OpenLoadGenerator(ServiceClient client, Scenario scenario, SeededIds ids, AtomicLong seq, int threads) {
+        this.client = client;
+        this.scenario = scenario;
+        this.ids = ids;
+        this.seq = seq;
+        this.threads = threads;
+        for (Scenario.Step step : scenario.getSteps()) {
+            stats.put(step, new OperationStats(step.name));
+        }
+    }
+
+    /**
+     * Runs the load. Requests due during the warm-up are sent but not measured.
+     * @param rate Requests per second
+     * @param warmupSeconds Length of the warm-up
+     * @param durationSeconds Length of the measured run
+     * @return The report of the measured run
+     * @throws InterruptedException if interrupted while waiting
+     */
+    LoadReport run(double rate, int warmupSeconds, int durationSeconds) throws InterruptedException {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "load-sender");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.prestartAllCoreThreads();
+        Random random = new Random();
+        double intervalNanos = 1e9 / rate;
+        long start = System.nanoTime();
+        long measureFrom = start + TimeUnit.SECONDS.toNanos(warmupSeconds);
+        long end = measureFrom + TimeUnit.SECONDS.toNanos(durationSeconds);
+        long scheduled = 0;
+        int maxBacklog = 0;
+        for (long i = 0; ; i++) {
+            long due = start + (long) (i * intervalNanos);
+            if (due >= end) {
+                break;
+            }
+            long wait;
+            while ((wait = due - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            boolean measured = due >= measureFrom;
+            executor.execute(new Call(scenario.pick(random), due, measured, seq.getAndIncrement()));
+            if (measured) {
+                scheduled++;
+                maxBacklog = Math.max(maxBacklog, executor.getQueue().size());
+            }
+        }
+
+        executor.shutdown();
+        if (!executor.awaitTermination(DRAIN_SECONDS, TimeUnit.SECONDS)) {
+            // Requests never sent still count, with the time they have waited so far
+            long now = System.nanoTime();
+            for (Runnable pending : executor.shutdownNow()) {
+                Call call = (Call) pending;
+                if (call.measured) {
+                    record(call.step, now - call.due, -1, "not sent before the run ended");
+                }
+            }
+        }
+        long measuredNanos = Math.max(lastCompletion.get(), end) - measureFrom;
+
+        List<OperationStats> operations = new ArrayList<>();
+        for (Scenario.Step step : scenario.getSteps()) {
+            operations.add(stats.get(step));
+        }
+        return new LoadReport(scenario.getName(), rate, scheduled, measuredNanos, maxBacklog, operations, total);
+    }
+
+    private void record(Scenario.Step step, long responseNanos, long serviceNanos, String error) {
+        stats.get(step).record(responseNanos, serviceNanos, error);
+        total.record(responseNanos, serviceNanos, error);
+    }
+
+    // A request due at a given time
+    private final class Call implements Runnable {
+        final Scenario.Step step;
+        final long due;
+        final boolean measured;
+        final long number;
+
+        Call(Scenario.Step step, long due, boolean measured, long number) {
+            this.step = step;
+            this.due = due;
+            this.measured = measured;
+            this.number = number;
+        }
+
+        @Override
+        public void run() {
+            Random random = ThreadLocalRandom.current();
+            String error = null;
+            long sent = System.nanoTime();
+            try {
+                String path = step.path.expand(number, ids, random);
+                String body = step.body == null ? null : step.body.expand(number, ids, random);
+                sent = System.nanoTime();
+                int status = client.send(step.method, path, body);
+                if (status >= 400) {
+                    error = step.method + " " + path + " returned " + status;
+                }
+            } catch (IOException | RuntimeException e) {
+                error = e.toString();
+            }
+            long completed = System.nanoTime();
+            if (measured) {
+                record(step, completed - due, completed - sent, error);
+                lastCompletion.accumulateAndGet(completed, Math::max);
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.loadtest;
+
+/**
+ *
+ * @author Maryam
+ */
+import csa.healthsystem.metrics.LatencyHistogram;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencies and errors of one kind of request, or of all of them.
+ * The response time runs from when the request was due to be sent to when its response was
+ * read, so time spent waiting behind earlier requests counts. The service time starts when
+ * the request was actually sent, and leaves that waiting out.
+ */
+final class OperationStats {
+    private final String name;
+    private final LatencyHistogram responseTimes = new LatencyHistogram();
+    private final LatencyHistogram serviceTimes = new LatencyHistogram();
+    private final LongAdder errors = new LongAdder();
+    private volatile String lastError;
+
+    OperationStats(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Records a completed or abandoned request.
+     * @param responseNanos Time from when the request was due
+     * @param serviceNanos Time from when the request was sent, or -1 if it never was
+     * @param error What went wrong, or null if the request succeeded
+     */
+    void record(long responseNanos, long serviceNanos, String error) {
+        responseTimes.record(responseNanos);
+        if (serviceNanos >= 0) {
+            serviceTimes.record(serviceNanos);
+        }
+        if (error != null) {
+            errors.increment();
+            lastError = error;
+        }
+    }
+
+    String getName() {
+        return name;
+    }
+
+    LatencyHistogram.Snapshot responseTimes() {
+        return responseTimes.snapshot();
+    }
+
+    LatencyHistogram.Snapshot serviceTimes() {
+        return serviceTimes.snapshot();
+    }
+
+    long getErrors() {
+        return errors.sum();
+    }
+
+    String getLastError() {
+        return lastError;
+    }
+}
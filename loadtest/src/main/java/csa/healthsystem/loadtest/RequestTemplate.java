@@ -0,0 +1,100 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.loadtest;
+
+/**
+ *
+ * @author Maryam
+ */
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Text with placeholders, such as a path or a JSON body, parsed once and filled in per request.
+ * <ul>
+ * <li>{@code {seq}} is a number unique to the request.</li>
+ * <li>{@code {date}} and {@code {time}} give a half-hour slot unique to the request, so
+ * appointments never conflict.</li>
+ * <li>{@code {persons}}, {@code {patients}}, {@code {doctors}}, {@code {appointments}},
+ * {@code {medical-records}}, {@code {prescriptions}} and {@code {billings}} pick the ID of a
+ * random seeded entity of that collection.</li>
+ * </ul>
+ */
+final class RequestTemplate {
+    // Slots start far enough ahead not to meet the sample appointments
+    private static final LocalDate FIRST_DAY = LocalDate.of(2031, 1, 1);
+    private static final int SLOTS_PER_DAY = 48;
+
+    private final String text;
+    // Literal text at even indexes, placeholder names at odd ones
+    private final List<String> parts = new ArrayList<>();
+
+    /**
+     * Parses a template.
+     * @param text The template
+     * @throws IllegalArgumentException if it holds an unknown placeholder
+     */
+    RequestTemplate(String text) {
+        this.text = text;
+        StringBuilder literal = new StringBuilder();
+        int i = 0;
+        while (i < text.length()) {
+            int close = text.charAt(i) == '{' ? text.indexOf('}', i) : -1;
+            // Braces around anything but a lowercase name, such as JSON objects, are literal text
+            if (close > 0 && text.substring(i + 1, close).matches("[a-z-]+")) {
+                String name = text.substring(i + 1, close);
+                if (!isPlaceholder(name)) {
+                    throw new IllegalArgumentException("Unknown placeholder {" + name + "} in " + text);
+                }
+                parts.add(literal.toString());
+                literal.setLength(0);
+                parts.add(name);
+                i = close + 1;
+            } else {
+                literal.append(text.charAt(i++));
+            }
+        }
+        parts.add(literal.toString());
+    }
+
+    /**
+     * Fills in the placeholders.
+     * @param seq The number unique to the request
+     * @param ids The seeded IDs
+     * @param random Source of the random IDs
+     * @return The text
+     */
+    String expand(long seq, SeededIds ids, Random random) {
+        StringBuilder out = new StringBuilder(text.length() + 16);
+        for (int i = 0; i < parts.size(); i++) {
+            String part = parts.get(i);
+            if (i % 2 == 0) {
+                out.append(part);
+            } else if ("seq".equals(part)) {
+                out.append(seq);
+            } else if ("date".equals(part)) {
+                out.append(FIRST_DAY.plusDays(seq / SLOTS_PER_DAY));
+            } else if ("time".equals(part)) {
+                int minutes = (int) (seq % SLOTS_PER_DAY) * 30;
+                out.append(minutes / 600).append(minutes / 60 % 10).append(':')
+                        .append(minutes % 60 / 10).append('0');
+            } else {
+                out.append(ids.random(part, random));
+            }
+        }
+        return out.toString();
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+
+    private static boolean isPlaceholder(String name) {
+        return "seq".equals(name) || "date".equals(name) || "time".equals(name) || SeededIds.COLLECTIONS.contains(name);
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.loadtest;
+
+/**
+ *
+ * @author Maryam
+ */
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A mix of requests to run, read from a scenario script. Each line is one of
+ * <pre>
+ * seed &lt;collection&gt; &lt;body&gt;
+ * &lt;weight&gt; &lt;name&gt; &lt;method&gt; &lt;path&gt; [&lt;body&gt;]
+ * </pre>
+ * Seed lines give the entity posted to fill a collection before the run. Every other line is
+ * a request, chosen with a probability proportional to its weight; its path is relative to
+ * the service root, such as {@code /doctors/{doctors}}. Paths and bodies may hold the
+ * placeholders of {@link RequestTemplate}. Blank lines and lines starting with # are ignored.
+ */
+final class Scenario {
+    private static final List<String> METHODS = Arrays.asList("GET", "POST", "PUT", "DELETE");
+
+    private final String name;
+    private final List<Seed> seeds;
+    private final List<Step> steps;
+    private final int[] cumulativeWeights;
+
+    private Scenario(String name, List<Seed> seeds, List<Step> steps) {
+        this.name = name;
+        this.seeds = Collections.unmodifiableList(seeds);
+        this.steps = Collections.unmodifiableList(steps);
+        this.cumulativeWeights = new int[steps.size()];
+        int total = 0;
+        for (int i = 0; i < steps.size(); i++) {
+            total += steps.get(i).weight;
+            cumulativeWeights[i] = total;
+        }
+    }
+
+    /**
+     * Loads a scenario from a file, or else one of the scenarios bundled under {@code scenarios/}.
+     * @param nameOrPath A file path, or the name of a bundled scenario such as "default"
+     * @return The scenario
+     * @throws IOException if the scenario cannot be read
+     * @throws IllegalArgumentException if the scenario is malformed
+     */
+    static Scenario load(String nameOrPath) throws IOException {
+        InputStream in;
+        try {
+            in = new FileInputStream(nameOrPath);
+        } catch (FileNotFoundException e) {
+            in = Scenario.class.getResourceAsStream("/scenarios/" + nameOrPath + ".txt");
+            if (in == null) {
+                throw new FileNotFoundException("No scenario file or bundled scenario named " + nameOrPath);
+            }
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            return parse(nameOrPath, reader);
+        }
+    }
+
+    private static Scenario parse(String name, BufferedReader reader) throws IOException {
+        List<Seed> seeds = new ArrayList<>();
+        List<Step> steps = new ArrayList<>();
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            try {
+                if (line.startsWith("seed ")) {
+                    String[] fields = line.split("\\s+", 3);
+                    if (fields.length < 3 || !SeededIds.COLLECTIONS.contains(fields[1])) {
+                        throw new IllegalArgumentException("expected: seed <collection> <body>, with one of " + SeededIds.COLLECTIONS);
+                    }
+                    seeds.add(new Seed(fields[1], new RequestTemplate(fields[2])));
+                } else {
+                    steps.add(parseStep(line));
+                }
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException(name + ", line " + lineNumber + ": " + e.getMessage(), e);
+            }
+        }
+        if (steps.isEmpty()) {
+            throw new IllegalArgumentException(name + " holds no requests");
+        }
+        // Seed in dependency order, whatever the order of the lines
+        seeds.sort((a, b) -> SeededIds.COLLECTIONS.indexOf(a.collection) - SeededIds.COLLECTIONS.indexOf(b.collection));
+        return new Scenario(name, seeds, steps);
+    }
+
+    private static Step parseStep(String line) {
+        String[] fields = line.split("\\s+", 5);
+        if (fields.length < 4) {
+            throw new IllegalArgumentException("expected: <weight> <name> <method> <path> [<body>]");
+        }
+        int weight;
+        try {
+            weight = Integer.parseInt(fields[0]);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("weight is not a number: " + fields[0]);
+        }
+        if (weight <= 0) {
+            throw new IllegalArgumentException("weight must be positive: " + weight);
+        }
+        String method = fields[2].toUpperCase();
+        if (!METHODS.contains(method)) {
+            throw new IllegalArgumentException("method must be one of " + METHODS + ": " + fields[2]);
+        }
+        if (!fields[3].startsWith("/")) {
+            throw new IllegalArgumentException("path must start with /: " + fields[3]);
+        }
+        RequestTemplate body = fields.length == 5 ? new RequestTemplate(fields[4]) : null;
+        return new Step(fields[1], weight, method, new RequestTemplate(fields[3]), body);
+    }
+
+    String getName() {
+        return name;
+    }
+
+    List<Seed> getSeeds() {
+        return seeds;
+    }
+
+    List<Step> getSteps() {
+        return steps;
+    }
+
+    /**
+     * Chooses a request by weight.
+     * @param random Source of the choice
+     * @return The step
+     */
+    Step pick(Random random) {
+        int target = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        int index = Arrays.binarySearch(cumulativeWeights, target + 1);
+        return steps.get(index >= 0 ? index : -index - 1);
+    }
+
+    /**
+     * The entity posted to fill a collection before the run.
+     */
+    static final class Seed {
+        final String collection;
+        final RequestTemplate body;
+
+        Seed(String collection, RequestTemplate body) {
+            this.collection = collection;
+            this.body = body;
+        }
+    }
+
+    /**
+     * One kind of request in the mix.
+     */
+    static final class Step {
+        final String name;
+        final int weight;
+        final String method;
+        final RequestTemplate path;
+        final RequestTemplate body;
+
+        Step(String name, int weight, String method, RequestTemplate path, RequestTemplate body) {
+            this.name = name;
+            this.weight = weight;
+            this.method = method;
+            this.path = path;
+            this.body = body;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.loadtest;
+
+/**
+ *
+ * @author Maryam
+ */
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * IDs of the entities created before the run, by collection, for templates to refer to.
+ */
+final class SeededIds {
+    /**
+     * The collections, in the order they are seeded; later ones refer to patients and doctors.
+     */
+    static final List<String> COLLECTIONS = Collections.unmodifiableList(Arrays.asList(
+            "persons", "patients", "doctors", "appointments", "medical-records", "prescriptions", "billings"));
+
+    private final Map<String, int[]> ids = new ConcurrentHashMap<>();
+
+    /**
+     * Stores the IDs of a collection.
+     * @param collection The collection, such as "patients"
+     * @param collectionIds The IDs
+     */
+    void put(String collection, int[] collectionIds) {
+        ids.put(collection, collectionIds);
+    }
+
+    /**
+     * Counts the IDs of a collection.
+     * @param collection The collection
+     * @return The number of IDs
+     */
+    int count(String collection) {
+        int[] collectionIds = ids.get(collection);
+        return collectionIds == null ? 0 : collectionIds.length;
+    }
+
+    /**
+     * Picks a random ID of a collection.
+     * @param collection The collection
+     * @param random Source of the choice
+     * @return The ID
+     * @throws IllegalStateException if nothing was seeded into the collection
+     */
+    int random(String collection, Random random) {
+        int[] collectionIds = ids.get(collection);
+        if (collectionIds == null || collectionIds.length == 0) {
+            throw new IllegalStateException("No " + collection + " were seeded; add a seed line for them to the scenario");
+        }
+        return collectionIds[random.nextInt(collectionIds.length)];
+    }
+}
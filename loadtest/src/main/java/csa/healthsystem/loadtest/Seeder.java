@@ -0,0 +1,62 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.loadtest;
+
+/**
+ *
+ * @author Maryam
+ */
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fills the collections of a scenario through the batch endpoints before the run.
+ */
+final class Seeder {
+    private static final int BATCH_SIZE = 500;
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private Seeder() {}
+
+    /**
+     * Posts the scenario's seed entities.
+     * @param client The client
+     * @param scenario The scenario
+     * @param count Number of entities per seeded collection
+     * @param seq Source of the numbers unique to each entity
+     * @return The IDs of the created entities
+     * @throws IOException if a batch request fails
+     * @throws IllegalStateException if the service rejects a seed entity
+     */
+    static SeededIds seed(ServiceClient client, Scenario scenario, int count, AtomicLong seq) throws IOException {
+        SeededIds ids = new SeededIds();
+        Random random = new Random(42);
+        for (Scenario.Seed seed : scenario.getSeeds()) {
+            int[] created = new int[count];
+            for (int start = 0; start < count; start += BATCH_SIZE) {
+                int size = Math.min(BATCH_SIZE, count - start);
+                StringBuilder batch = new StringBuilder("[");
+                for (int i = 0; i < size; i++) {
+                    batch.append(i == 0 ? "" : ",").append(seed.body.expand(seq.getAndIncrement(), ids, random));
+                }
+                String response = client.fetch("POST", "/" + seed.collection + "/batch", batch.append(']').toString());
+                JsonNode results = MAPPER.readTree(response);
+                for (int i = 0; i < size; i++) {
+                    JsonNode result = results.get(i);
+                    if (!result.path("succeeded").asBoolean()) {
+                        throw new IllegalStateException("Seeding " + seed.collection + " failed: " + result.path("error").asText()
+                                + " (" + seed.body + ")");
+                    }
+                    created[start + i] = result.path("id").asInt();
+                }
+            }
+            ids.put(seed.collection, created);
+        }
+        return ids;
+    }
+}
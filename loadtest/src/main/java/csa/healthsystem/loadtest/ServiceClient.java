@@ -0,0 +1,102 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.loadtest;
+
+/**
+ *
+ * @author Maryam
+ */
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Sends requests to the service over keep-alive connections.
+ * The JDK pools idle connections per host; raise {@code http.maxConnections} to at least the
+ * number of threads sending, or connections are closed after each request.
+ */
+final class ServiceClient {
+    private static final int TIMEOUT_MILLIS = 30_000;
+
+    private final String baseUrl;
+
+    /**
+     * Creates a client.
+     * @param baseUrl The service root, such as http://localhost:8080/rest
+     */
+    ServiceClient(String baseUrl) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+    }
+
+    String getBaseUrl() {
+        return baseUrl;
+    }
+
+    /**
+     * Sends a request and reads the response body, discarding it.
+     * @param method The HTTP method
+     * @param path The path relative to the service root
+     * @param body The JSON body, or null
+     * @return The response status
+     * @throws IOException if the request fails
+     */
+    int send(String method, String path, String body) throws IOException {
+        return exchange(method, path, body, null);
+    }
+
+    /**
+     * Sends a request and returns the response body.
+     * @param method The HTTP method
+     * @param path The path relative to the service root
+     * @param body The JSON body, or null
+     * @return The response body
+     * @throws IOException if the request fails or is answered with an error status
+     */
+    String fetch(String method, String path, String body) throws IOException {
+        ByteArrayOutputStream response = new ByteArrayOutputStream();
+        int status = exchange(method, path, body, response);
+        String text = new String(response.toByteArray(), StandardCharsets.UTF_8);
+        if (status >= 400) {
+            throw new IOException(method + " " + path + " failed with " + status + ": " + text);
+        }
+        return text;
+    }
+
+    private int exchange(String method, String path, String body, OutputStream sink) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+        connection.setConnectTimeout(TIMEOUT_MILLIS);
+        connection.setReadTimeout(TIMEOUT_MILLIS);
+        connection.setRequestMethod(method);
+        connection.setRequestProperty("Accept", "application/json");
+        if (body != null) {
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "application/json");
+            connection.setFixedLengthStreamingMode(bytes.length);
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(bytes);
+            }
+        }
+        int status = connection.getResponseCode();
+        // The body must be read to the end for the connection to be reused
+        InputStream in = status >= 400 ? connection.getErrorStream() : connection.getInputStream();
+        if (in != null) {
+            try (InputStream response = in) {
+                byte[] buffer = new byte[8192];
+                int read;
+                while ((read = response.read(buffer)) >= 0) {
+                    if (sink != null) {
+                        sink.write(buffer, 0, read);
+                    }
+                }
+            }
+        }
+        return status;
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.application;
+
+/**
+ *
+ * @author Maryam
+ */
+import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.server.ServerProperties;
+import csa.healthsystem.diagnostics.DiagnosticsFilter;
+import csa.healthsystem.diagnostics.PhaseTimingFilter;
+import csa.healthsystem.metrics.MetricsFilter;
+import csa.healthsystem.resource.AppointmentResource;
+import csa.healthsystem.resource.BillingResource;
+import csa.healthsystem.resource.CacheResource;
+import csa.healthsystem.resource.DoctorResource;
+import csa.healthsystem.resource.ExceptionMappers;
+import csa.healthsystem.resource.MedicalRecordResource;
+import csa.healthsystem.resource.MetricsResource;
+import csa.healthsystem.resource.PatientResource;
+import csa.healthsystem.resource.PersonResource;
+import csa.healthsystem.resource.PrescriptionResource;
+
+/**
+ * The application, registering every resource.
+ * Jersey tracing is off, since it collects trace data for every request; slow requests are
+ * instead diagnosed one at a time with the {@code X-Diagnostics} header, see {@link DiagnosticsFilter}.
+ */
+public class HealthSystemApplication extends ResourceConfig {
+    public HealthSystemApplication() {
+        register(PersonResource.class);
+        register(PatientResource.class);
+        register(DoctorResource.class);
+        register(AppointmentResource.class);
+        register(MedicalRecordResource.class);
+        register(PrescriptionResource.class);
+        register(BillingResource.class);
+        register(CacheResource.class);
+        register(MetricsResource.class);
+
+        register(ExceptionMappers.NotFound.class);
+        register(ExceptionMappers.InvalidData.class);
+        register(ExceptionMappers.Duplicate.class);
+        register(ExceptionMappers.Conflict.class);
+        register(ExceptionMappers.VersionConflict.class);
+        register(ExceptionMappers.PayloadTooLarge.class);
+        register(ExceptionMappers.Database.class);
+
+        register(MetricsFilter.class);
+        register(DiagnosticsFilter.class);
+        register(PhaseTimingFilter.class);
+
+        register(StoreShutdown.class);
+
+        property(ServerProperties.TRACING, "OFF");
+    }
+}
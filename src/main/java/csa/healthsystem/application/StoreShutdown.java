@@ -0,0 +1,32 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.application;
+
+/**
+ *
+ * @author Maryam
+ */
+import csa.healthsystem.store.EntityStore;
+import org.glassfish.jersey.server.spi.Container;
+import org.glassfish.jersey.server.spi.ContainerLifecycleListener;
+
+/**
+ * Closes the durable stores when the application is undeployed or redeployed, so their logs are
+ * written out and their writer threads and files do not outlive it.
+ */
+public class StoreShutdown implements ContainerLifecycleListener {
+    @Override
+    public void onStartup(Container container) {
+    }
+
+    @Override
+    public void onReload(Container container) {
+    }
+
+    @Override
+    public void onShutdown(Container container) {
+        EntityStore.closeAll();
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.cache;
+
+/**
+ *
+ * @author Maryam
+ */
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+/**
+ * Counters of a {@link ResponseCache} at one point in time, serialized as its report.
+ */
+@JsonPropertyOrder({"maxBytes", "bytes", "entries", "hits", "misses", "hitRate", "evictions", "rejections"})
+public final class CacheStats {
+    private final long maxBytes;
+    private final long bytes;
+    private final int entries;
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final long rejections;
+
+    CacheStats(long maxBytes, long bytes, int entries, long hits, long misses, long evictions, long rejections) {
+        this.maxBytes = maxBytes;
+        this.bytes = bytes;
+        this.entries = entries;
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.rejections = rejections;
+    }
+
+    /**
+     * Gets the capacity of the cache.
+     * @return The capacity in bytes
+     */
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Gets the approximate size of the cached responses.
+     * @return The size in bytes
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Gets the number of cached responses.
+     * @return The number of entries
+     */
+    public int getEntries() {
+        return entries;
+    }
+
+    /**
+     * Gets the number of lookups that found a current response.
+     * @return The number of hits
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * Gets the number of lookups that found no response, or one for an older version.
+     * @return The number of misses
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Gets the share of lookups that were hits.
+     * @return The hit rate between 0 and 1, or 0 if nothing was looked up
+     */
+    public double getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0.0 : (double) hits / lookups;
+    }
+
+    /**
+     * Gets the number of admitted responses removed to make room.
+     * @return The number of evictions
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Gets the number of responses turned away, because they were too large or used less
+     * often than the responses they would have replaced.
+     * @return The number of rejections
+     */
+    public long getRejections() {
+        return rejections;
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.cache;
+
+/**
+ *
+ * @author Maryam
+ */
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * An encoded response body held by the {@link ResponseCache}, together with the entity tag
+ * it was encoded for and the headers that belong to it. Bodies of at least
+ * {@link #GZIP_MIN_BYTES} are also kept gzip-compressed.
+ */
+public final class CachedResponse {
+    /**
+     * Smallest body that is also stored compressed; smaller bodies barely shrink.
+     */
+    public static final int GZIP_MIN_BYTES = 1024;
+
+    private final String tag;
+    private final byte[] body;
+    private final byte[] gzipped;
+    private final Map<String, String> headers;
+
+    private CachedResponse(String tag, byte[] body, byte[] gzipped, Map<String, String> headers) {
+        this.tag = tag;
+        this.body = body;
+        this.gzipped = gzipped;
+        this.headers = headers;
+    }
+
+    /**
+     * Creates a cached response, compressing the body if it is large enough.
+     * @param tag The entity tag the body was encoded for
+     * @param body The UTF-8 encoded body
+     * @param headers Further headers of the response, such as a link to the next page
+     * @return The cached response
+     */
+    public static CachedResponse of(String tag, byte[] body, Map<String, String> headers) {
+        byte[] gzipped = body.length >= GZIP_MIN_BYTES ? gzip(body) : null;
+        return new CachedResponse(tag, body, gzipped, headers.isEmpty() ? Collections.emptyMap() : headers);
+    }
+
+    /**
+     * Gets the entity tag the body was encoded for.
+     * @return The value of the tag, without quotes
+     */
+    public String getTag() {
+        return tag;
+    }
+
+    /**
+     * Gets the body.
+     * @return The UTF-8 encoded body; must not be modified
+     */
+    public byte[] getBody() {
+        return body;
+    }
+
+    /**
+     * Gets the gzip-compressed body.
+     * @return The compressed body, or null if the body is too small to be compressed; must not be modified
+     */
+    public byte[] getGzipped() {
+        return gzipped;
+    }
+
+    /**
+     * Gets the further headers of the response.
+     * @return Header values by name
+     */
+    public Map<String, String> getHeaders() {
+        return headers;
+    }
+
+    // Approximate heap footprint, used to bound the cache by bytes
+    int weight() {
+        int weight = 96 + 2 * tag.length() + body.length + (gzipped == null ? 0 : gzipped.length);
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            weight += 64 + 2 * (header.getKey().length() + header.getValue().length());
+        }
+        return weight;
+    }
+
+    private static byte[] gzip(byte[] body) {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(body.length / 4 + 64);
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return compressed.toByteArray();
+    }
+}
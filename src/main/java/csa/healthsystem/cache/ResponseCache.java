@@ -0,0 +1,363 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.cache;
+
+/**
+ *
+ * @author Maryam
+ */
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Cache of encoded responses, bounded by the bytes it holds.
+ * Each entry is stored under a request key together with the entity tag it was encoded
+ * for; a lookup names the current tag and only an entry with that tag is a hit. Since the
+ * tag changes with every write to the entity or collection, an entry is invalidated exactly
+ * by the writes that affect it, whichever DAO method made them.
+ * Eviction follows W-TinyLFU: new entries enter a small LRU window, and an entry leaving
+ * the window only replaces an entry of the main area if a {@link FrequencySketch} says it
+ * was used more often. A scan of many cold entries therefore cycles through the window
+ * without pushing out hot entries such as the doctor list. The main area is a segmented
+ * LRU whose protected part holds entries that were hit again after admission.
+ * Lookups never lock: hits are recorded in a lossy buffer that is applied to the policy
+ * by whichever thread next gets the eviction lock.
+ */
+public final class ResponseCache {
+    /**
+     * Capacity of the shared cache in bytes; 0 disables caching.
+     */
+    public static final long MAX_BYTES = Long.getLong("healthsystem.cache.maxBytes", 32L * 1024 * 1024);
+
+    private static final ResponseCache SHARED = new ResponseCache(MAX_BYTES);
+
+    private static final double WINDOW_SHARE = 0.01;
+    private static final double PROTECTED_SHARE = 0.8;
+    private static final int MAX_ENTRY_SHARE = 8;
+    private static final int AVERAGE_ENTRY_BYTES = 512;
+    private static final int READ_BUFFER_SIZE = 256;
+    private static final int DRAIN_INTERVAL = 32;
+
+    private static final byte WINDOW = 0;
+    private static final byte PROBATION = 1;
+    private static final byte PROTECTED = 2;
+    private static final byte REMOVED = 3;
+
+    private final ConcurrentHashMap<String, Node> entries = new ConcurrentHashMap<>();
+    private final long maxBytes;
+    private final long maxEntryBytes;
+    private final long windowMax;
+    private final long protectedMax;
+
+    // Policy state, guarded by the eviction lock
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final FrequencySketch sketch;
+    private final Node window = Node.sentinel();
+    private final Node probation = Node.sentinel();
+    private final Node protectedArea = Node.sentinel();
+    private long windowBytes;
+    private long probationBytes;
+    private long protectedBytes;
+    private long readHead;
+
+    private final AtomicReferenceArray<Node> readBuffer = new AtomicReferenceArray<>(READ_BUFFER_SIZE);
+    private final AtomicLong readTail = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+
+    /**
+     * Creates a cache.
+     * @param maxBytes Capacity in bytes; 0 disables caching
+     */
+    public ResponseCache(long maxBytes) {
+        this.maxBytes = Math.max(0, maxBytes);
+        this.maxEntryBytes = this.maxBytes / MAX_ENTRY_SHARE;
+        this.windowMax = Math.max(1, (long) (this.maxBytes * WINDOW_SHARE));
+        this.protectedMax = (long) ((this.maxBytes - windowMax) * PROTECTED_SHARE);
+        this.sketch = new FrequencySketch((int) Math.min(this.maxBytes / AVERAGE_ENTRY_BYTES, 1 << 22));
+    }
+
+    /**
+     * Gets the cache shared by the resources.
+     * @return The shared cache
+     */
+    public static ResponseCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * Checks whether the cache can hold anything.
+     * @return False if caching is disabled
+     */
+    public boolean isEnabled() {
+        return maxBytes > 0;
+    }
+
+    /**
+     * Gets the largest body the cache admits; larger responses are not captured.
+     * @return The largest entry in bytes
+     */
+    public long maxEntryBytes() {
+        return maxEntryBytes;
+    }
+
+    /**
+     * Looks up a response.
+     * @param key The request key, such as the path and query
+     * @param tag The current entity tag
+     * @return The response, or null if none is cached for this tag
+     */
+    public CachedResponse get(String key, String tag) {
+        Node node = entries.get(key);
+        if (node == null || !node.value.getTag().equals(tag)) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        recordHit(node);
+        return node.value;
+    }
+
+    /**
+     * Stores a response, replacing any response stored under the key.
+     * The response may be turned away at once if it is too large, or later by the admission policy.
+     * @param key The request key
+     * @param value The response
+     */
+    public void put(String key, CachedResponse value) {
+        long weight = value.weight() + 2L * key.length();
+        if (weight > maxEntryBytes) {
+            rejections.increment();
+            return;
+        }
+        Node node = new Node(key, value, weight);
+        evictionLock.lock();
+        try {
+            drainHits();
+            sketch.increment(key.hashCode());
+            Node previous = entries.put(key, node);
+            if (previous != null) {
+                unlink(previous);
+            }
+            node.area = WINDOW;
+            window.append(node);
+            windowBytes += weight;
+            evict();
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Removes the response stored under a key.
+     * @param key The request key
+     */
+    public void invalidate(String key) {
+        evictionLock.lock();
+        try {
+            Node node = entries.remove(key);
+            if (node != null) {
+                unlink(node);
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Removes every response.
+     */
+    public void clear() {
+        evictionLock.lock();
+        try {
+            for (Node node : entries.values()) {
+                unlink(node);
+            }
+            entries.clear();
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Gets the counters of the cache.
+     * @return A snapshot of the counters
+     */
+    public CacheStats stats() {
+        long bytes;
+        evictionLock.lock();
+        try {
+            bytes = windowBytes + probationBytes + protectedBytes;
+        } finally {
+            evictionLock.unlock();
+        }
+        return new CacheStats(maxBytes, bytes, entries.size(), hits.sum(), misses.sum(), evictions.sum(), rejections.sum());
+    }
+
+    private void recordHit(Node node) {
+        long tail = readTail.getAndIncrement();
+        readBuffer.lazySet((int) (tail & (READ_BUFFER_SIZE - 1)), node);
+        if ((tail & (DRAIN_INTERVAL - 1)) == 0 && evictionLock.tryLock()) {
+            try {
+                drainHits();
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+    }
+
+    // Applies the buffered hits; hits overwritten before they were applied are lost
+    private void drainHits() {
+        long tail = readTail.get();
+        long head = Math.max(readHead, tail - READ_BUFFER_SIZE);
+        for (; head < tail; head++) {
+            Node node = readBuffer.getAndSet((int) (head & (READ_BUFFER_SIZE - 1)), null);
+            if (node != null) {
+                onHit(node);
+            }
+        }
+        readHead = tail;
+    }
+
+    private void onHit(Node node) {
+        sketch.increment(node.key.hashCode());
+        switch (node.area) {
+            case WINDOW:
+                node.unlink();
+                window.append(node);
+                break;
+            case PROBATION:
+                // A second use after admission makes the entry protected
+                node.unlink();
+                probationBytes -= node.weight;
+                node.area = PROTECTED;
+                protectedArea.append(node);
+                protectedBytes += node.weight;
+                while (protectedBytes > protectedMax) {
+                    Node demoted = protectedArea.next;
+                    demoted.unlink();
+                    protectedBytes -= demoted.weight;
+                    demoted.area = PROBATION;
+                    probation.append(demoted);
+                    probationBytes += demoted.weight;
+                }
+                break;
+            case PROTECTED:
+                node.unlink();
+                protectedArea.append(node);
+                break;
+            default:
+                // Removed since the hit
+                break;
+        }
+    }
+
+    private void evict() {
+        // Entries leaving the window become candidates at the most recent end of probation
+        Node firstCandidate = null;
+        while (windowBytes > windowMax && window.next != window) {
+            Node candidate = window.next;
+            candidate.unlink();
+            windowBytes -= candidate.weight;
+            candidate.area = PROBATION;
+            probation.append(candidate);
+            probationBytes += candidate.weight;
+            if (firstCandidate == null) {
+                firstCandidate = candidate;
+            }
+        }
+        while (windowBytes + probationBytes + protectedBytes > maxBytes) {
+            Node victim = probation.next != probation ? probation.next
+                    : protectedArea.next != protectedArea ? protectedArea.next : window.next;
+            if (firstCandidate == null) {
+                remove(victim);
+            } else if (victim == firstCandidate) {
+                // Only candidates are left on probation; the oldest goes first
+                firstCandidate = victim.next == probation ? null : victim.next;
+                remove(victim);
+            } else {
+                Node candidate = probation.previous;
+                if (sketch.frequency(candidate.key.hashCode()) > sketch.frequency(victim.key.hashCode())) {
+                    remove(victim);
+                } else {
+                    if (candidate == firstCandidate) {
+                        firstCandidate = null;
+                    }
+                    // Turned away by the admission policy
+                    entries.remove(candidate.key, candidate);
+                    unlink(candidate);
+                    rejections.increment();
+                }
+            }
+        }
+    }
+
+    private void remove(Node node) {
+        entries.remove(node.key, node);
+        unlink(node);
+        evictions.increment();
+    }
+
+    private void unlink(Node node) {
+        switch (node.area) {
+            case WINDOW:
+                windowBytes -= node.weight;
+                break;
+            case PROBATION:
+                probationBytes -= node.weight;
+                break;
+            case PROTECTED:
+                protectedBytes -= node.weight;
+                break;
+            default:
+                return;
+        }
+        node.unlink();
+        node.area = REMOVED;
+    }
+
+    // Entry of a doubly linked LRU list; the sentinel's next entry is the least recently used
+    private static final class Node {
+        final String key;
+        final CachedResponse value;
+        final long weight;
+        byte area = REMOVED;
+        Node previous;
+        Node next;
+
+        Node(String key, CachedResponse value, long weight) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+        }
+
+        static Node sentinel() {
+            Node sentinel = new Node(null, null, 0);
+            sentinel.previous = sentinel;
+            sentinel.next = sentinel;
+            return sentinel;
+        }
+
+        void append(Node node) {
+            node.previous = previous;
+            node.next = this;
+            previous.next = node;
+            previous = node;
+        }
+
+        void unlink() {
+            previous.next = next;
+            next.previous = previous;
+            previous = null;
+            next = null;
+        }
+    }
+}
@@ -9,37 +9,54 @@ package csa.healthsystem.dao;
  * @author Maryam
  */
 import csa.healthsystem.model.Appointment;
-import csa.healthsystem.model.Doctor;
-import csa.healthsystem.model.Patient;
+import csa.healthsystem.model.TimeSlot;
 import csa.healthsystem.exception.NotFoundException;
+import csa.healthsystem.exception.VersionConflictException;
+import csa.healthsystem.exception.ConflictException;
 import csa.healthsystem.exception.DuplicateException;
 import csa.healthsystem.exception.InvalidDataException;
-import csa.healthsystem.exception.ValidationCheckerException;
+import csa.healthsystem.model.BatchResult;
+import csa.healthsystem.store.EntityStore;
+import csa.healthsystem.store.Versioned;
+import csa.healthsystem.validation.Validators;
+import csa.healthsystem.validation.Violation;
+import csa.healthsystem.store.SecondaryIndex;
+import csa.healthsystem.schedule.EpochMinutes;
+import csa.healthsystem.schedule.Schedule;
+import csa.healthsystem.logging.Log;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
-import java.util.logging.Logger;
 
 public class AppointmentDAO {
-    private static final Logger LOGGER = Logger.getLogger(AppointmentDAO.class.getName());
+    private static final Log LOGGER = Log.get(AppointmentDAO.class);
+    private static final PatientDAO patientDAO = new PatientDAO();
+    private static final DoctorDAO doctorDAO = new DoctorDAO();
 
-    private static final List<Appointment> appointments = new ArrayList<>();
-    private static final AtomicInteger nextId = new AtomicInteger(1);
+    private static final EntityStore<Appointment> appointments = new EntityStore<>("appointments", Appointment.class, Appointment::getId);
+    private static final SecondaryIndex<Appointment> appointmentsByPatient = appointments.addIndex(Appointment::getPatientId);
+    private static final SecondaryIndex<Appointment> appointmentsByDoctor = appointments.addIndex(Appointment::getDoctorId);
+    private static final AtomicInteger nextId = new AtomicInteger(Math.max(1, appointments.maxId() + 1));
+    private static final Schedule schedule = new Schedule();
+    private static final BatchWriter<Appointment> batchWriter = new BatchWriter<>(appointments, "Appointment",
+            Appointment::getId, Appointment::setId, nextId, AppointmentDAO::book, AppointmentDAO::unbook, AppointmentDAO::unbookMoved);
 
     static {
-        // Sample appointments with associated doctor and patient instances
-        Doctor doctor1 = new Doctor(1, "Dr. Smith", "0768899123", "456 Elm St", "Cardiologist");
-        Patient patient1 = new Patient(1000, "John Doe", "0768899123", "123 Main St", "Allergic to penicillin", "Stable");
-        appointments.add(new Appointment(nextId.getAndIncrement(), "2024-05-05", "09:00", patient1, doctor1));
-
-        Doctor doctor2 = new Doctor(2, "Dr. Johnson", "0768899124", "789 Oak St", "Dermatologist");
-        Patient patient2 = new Patient(1001, "Alice Smith", "0768899124", "456 Elm St", "Asthmatic", "Critical");
-        appointments.add(new Appointment(nextId.getAndIncrement(), "2024-05-06", "10:30", patient2, doctor2));
-
-        Doctor doctor3 = new Doctor(3, "Dr. Brown", "0768899125", "987 Maple St", "Pediatrician");
-        Patient patient3 = new Patient(1002, "Bob Johnson", "0768899125", "789 Oak St", "Diabetic", "Stable");
-        appointments.add(new Appointment(nextId.getAndIncrement(), "2024-05-07", "11:45", patient3, doctor3));
+        if (!appointments.isRestored()) {
+            // Sample appointments for the sample patients and doctors
+            appointments.put(new Appointment(nextId.getAndIncrement(), "2024-05-05", "09:00", 1000, 1));
+            appointments.put(new Appointment(nextId.getAndIncrement(), "2024-05-06", "10:30", 1001, 2));
+            appointments.put(new Appointment(nextId.getAndIncrement(), "2024-05-07", "11:45", 1002, 3));
+        }
+        // Rebuild the doctors' schedules from the stored appointments
+        for (Appointment appointment : appointments.values()) {
+            try {
+                book(appointment);
+            } catch (InvalidDataException | ConflictException e) {
+                LOGGER.log(Level.WARNING, "Appointment left out of the schedule", "id", appointment.getId(), "error", e.getMessage());
+            }
+        }
     }
 
     /**
@@ -48,7 +65,65 @@ public class AppointmentDAO {
      */
     public List<Appointment> getAllAppointments() {
         LOGGER.log(Level.INFO, "Retrieving all appointments");
-        return new ArrayList<>(appointments); // Return a copy of the list to prevent modification
+        return appointments.values(); // Returns a new list, so callers cannot modify the store
+    }
+
+    /**
+     * Retrieves a page of appointments ordered by ID.
+     * @param afterId Only appointments with an ID greater than this are returned
+     * @param limit Maximum number of appointments to return
+     * @return List of at most {@code limit} appointments
+     */
+    public List<Appointment> getAppointments(int afterId, int limit) {
+        LOGGER.log(Level.INFO, "Retrieving appointments page", "afterId", afterId, "limit", limit);
+        return appointments.page(afterId, limit);
+    }
+
+    /**
+     * Retrieves the appointments of a patient.
+     * @param patientId ID of the patient
+     * @return List of the patient's appointments ordered by ID
+     */
+    public List<Appointment> getAppointmentsByPatient(int patientId) {
+        LOGGER.log(Level.INFO, "Retrieving appointments for patient", "patientId", patientId);
+        return appointmentsByPatient.find(patientId);
+    }
+
+    /**
+     * Retrieves the appointments of a doctor.
+     * @param doctorId ID of the doctor
+     * @return List of the doctor's appointments ordered by ID
+     */
+    public List<Appointment> getAppointmentsByDoctor(int doctorId) {
+        LOGGER.log(Level.INFO, "Retrieving appointments for doctor", "doctorId", doctorId);
+        return appointmentsByDoctor.find(doctorId);
+    }
+
+    /**
+     * Retrieves the free slots of a doctor within a time range.
+     * @param doctorId ID of the doctor
+     * @param from Start of the range, in the format YYYY-MM-DDTHH:MM
+     * @param to End of the range, in the format YYYY-MM-DDTHH:MM
+     * @param minMinutes Shortest free slot to include, in minutes
+     * @return List of free slots in ascending order
+     * @throws InvalidDataException if the range is malformed or empty
+     */
+    public List<TimeSlot> getAvailability(int doctorId, String from, String to, int minMinutes) {
+        LOGGER.log(Level.INFO, "Retrieving availability", "doctorId", doctorId, "from", from, "to", to);
+        int start = EpochMinutes.parse(from);
+        int end = EpochMinutes.parse(to);
+        if (end <= start) {
+            throw new InvalidDataException("Invalid time range: to must be after from");
+        }
+        if (minMinutes <= 0) {
+            throw new InvalidDataException("Invalid time range: duration must be greater than 0 minutes");
+        }
+        List<int[]> free = schedule.freeSlots(doctorId, start, end, minMinutes);
+        List<TimeSlot> slots = new ArrayList<>(free.size());
+        for (int[] slot : free) {
+            slots.add(new TimeSlot(EpochMinutes.format(slot[0]), EpochMinutes.format(slot[1])));
+        }
+        return slots;
     }
 
     /**
@@ -58,35 +133,74 @@ public class AppointmentDAO {
      * @throws NotFoundException if no appointment with the specified ID is found
      */
     public Appointment getAppointmentById(int id) {
-        LOGGER.log(Level.INFO, "Retrieving appointment by ID: " + id);
-        for (Appointment appointment : appointments) {
-            if (appointment.getId() == id) {
-                LOGGER.log(Level.INFO, "Appointment with ID " + id + " found: " + appointment);
-                return appointment;
-            }
+        LOGGER.log(Level.INFO, "Retrieving appointment", "id", id);
+        Appointment appointment = appointments.get(id);
+        if (appointment != null) {
+            LOGGER.log(Level.INFO, "Appointment found", "id", id, "appointment", appointment);
+            return appointment;
         }
-        LOGGER.log(Level.WARNING, "Appointment with ID " + id + " not found");
+        LOGGER.log(Level.WARNING, "Appointment not found", "id", id);
         throw new NotFoundException("Appointment with ID " + id + " not found");
     }
 
+    /**
+     * Retrieves a appointment by ID together with its version.
+     * @param id ID of the appointment to retrieve
+     * @return The appointment with the specified ID and its version
+     * @throws NotFoundException if no appointment with the specified ID is found
+     */
+    public Versioned<Appointment> getVersionedAppointmentById(int id) {
+        LOGGER.log(Level.INFO, "Retrieving appointment", "id", id);
+        Versioned<Appointment> entry = appointments.getVersioned(id);
+        if (entry != null) {
+            return entry;
+        }
+        LOGGER.log(Level.WARNING, "Appointment not found", "id", id);
+        throw new NotFoundException("Appointment with ID " + id + " not found");
+    }
+
+    /**
+     * Gets the version of the appointment collection, which changes with every write to it.
+     * @return The collection version
+     */
+    public long getAppointmentsVersion() {
+        return appointments.version();
+    }
+
+    /**
+     * Gets the time of the latest write to the appointment collection.
+     * @return Milliseconds since the epoch
+     */
+    public long getAppointmentsLastModified() {
+        return appointments.lastModified();
+    }
+
     /**
      * Adds a new appointment.
      * @param appointment The appointment to add
      * @throws DuplicateException if an appointment with the same ID already exists
      * @throws InvalidDataException if the appointment data is invalid
+     * @throws ConflictException if the doctor is already booked at that time
      */
     public void addAppointment(Appointment appointment) {
-        LOGGER.log(Level.INFO, "Adding new appointment: " + appointment);
-        String validationError = ValidationCheckerException.validateAppointment(appointment);
-        if (validationError != null) {
-            LOGGER.warning("Invalid appointment data: " + validationError);
-            throw new InvalidDataException(validationError);
+        LOGGER.log(Level.INFO, "Adding new appointment", "appointment", appointment);
+        checkReferences(appointment);
+        List<Violation> violations = Validators.APPOINTMENT.validate(appointment);
+        if (!violations.isEmpty()) {
+            LOGGER.log(Level.WARNING, "Invalid appointment data", "violations", violations);
+            throw Validators.APPOINTMENT.failure(violations);
         }
         if (isDuplicateAppointment(appointment.getId())) {
             throw new DuplicateException("Appointment with ID " + appointment.getId() + " already exists");
         }
         appointment.setId(nextId.getAndIncrement());
-        appointments.add(appointment);
+        book(appointment);
+        try {
+            appointments.put(appointment);
+        } catch (RuntimeException e) {
+            unbook(appointment);
+            throw e;
+        }
     }
 
     /**
@@ -95,20 +209,47 @@ public class AppointmentDAO {
      * @param updatedAppointment Updated appointment information
      * @throws NotFoundException if the specified appointment is not found
      * @throws InvalidDataException if the updated appointment data is invalid
+     * @throws ConflictException if the doctor is already booked at the new time
      */
     public void updateAppointment(int id, Appointment updatedAppointment) {
-        LOGGER.log(Level.INFO, "Updating appointment with ID: " + id);
-        Appointment existingAppointment = getAppointmentById(id);
-        String validationError = ValidationCheckerException.validateAppointment(updatedAppointment);
-        if (validationError != null) {
-            LOGGER.warning("Invalid appointment data: " + validationError);
-            throw new InvalidDataException(validationError);
+        updateAppointment(id, updatedAppointment, EntityStore.ANY_VERSION);
+    }
+
+    /**
+     * Updates an existing appointment if it still has the expected version.
+     * @param id ID of the appointment to update
+     * @param updatedAppointment Updated appointment information
+     * @param expectedVersion Version the stored appointment must have, or {@link EntityStore#ANY_VERSION}
+     * @throws NotFoundException if the specified appointment is not found
+     * @throws InvalidDataException if the updated appointment data is invalid
+     * @throws ConflictException if the doctor is already booked at the new time
+     * @throws VersionConflictException if the appointment has another version
+     */
+    public void updateAppointment(int id, Appointment updatedAppointment, long expectedVersion) {
+        LOGGER.log(Level.INFO, "Updating appointment", "id", id);
+        getAppointmentById(id);
+        checkReferences(updatedAppointment);
+        List<Violation> violations = Validators.APPOINTMENT.validate(updatedAppointment);
+        if (!violations.isEmpty()) {
+            LOGGER.log(Level.WARNING, "Invalid appointment data", "violations", violations);
+            throw Validators.APPOINTMENT.failure(violations);
         }
-        existingAppointment.setDate(updatedAppointment.getDate());
-        existingAppointment.setTime(updatedAppointment.getTime());
-        existingAppointment.setPatient(updatedAppointment.getPatient());
-        existingAppointment.setDoctor(updatedAppointment.getDoctor());
-        LOGGER.log(Level.INFO, "Appointment updated: " + existingAppointment);
+        // Swap in the updated object so concurrent readers never see a half-applied update
+        updatedAppointment.setId(id);
+        book(updatedAppointment);
+        Appointment previous;
+        try {
+            previous = appointments.replace(id, updatedAppointment, expectedVersion);
+        } catch (RuntimeException e) {
+            unbookRejected(updatedAppointment);
+            throw e;
+        }
+        if (previous == null) {
+            unbookRejected(updatedAppointment);
+            throw new NotFoundException("Appointment with ID " + id + " not found");
+        }
+        unbookMoved(previous, updatedAppointment);
+        LOGGER.log(Level.INFO, "Appointment updated", "appointment", updatedAppointment);
     }
 
     /**
@@ -117,14 +258,139 @@ public class AppointmentDAO {
      * @throws NotFoundException if the specified appointment is not found
      */
     public void deleteAppointment(int id) {
-        LOGGER.log(Level.INFO, "Deleting appointment with ID: " + id);
-        Appointment appointmentToDelete = getAppointmentById(id);
-        appointments.remove(appointmentToDelete);
-        LOGGER.log(Level.INFO, "Appointment deleted: " + appointmentToDelete);
+        deleteAppointment(id, EntityStore.ANY_VERSION);
+    }
+
+    /**
+     * Deletes an appointment by ID if it still has the expected version.
+     * @param id ID of the appointment to delete
+     * @param expectedVersion Version the stored appointment must have, or {@link EntityStore#ANY_VERSION}
+     * @throws NotFoundException if the specified appointment is not found
+     * @throws VersionConflictException if the appointment has another version
+     */
+    public void deleteAppointment(int id, long expectedVersion) {
+        LOGGER.log(Level.INFO, "Deleting appointment", "id", id);
+        Appointment appointmentToDelete = appointments.remove(id, expectedVersion);
+        if (appointmentToDelete == null) {
+            LOGGER.log(Level.WARNING, "Appointment not found", "id", id);
+            throw new NotFoundException("Appointment with ID " + id + " not found");
+        }
+        unbook(appointmentToDelete);
+        LOGGER.log(Level.INFO, "Appointment deleted", "appointment", appointmentToDelete);
+    }
+
+    /**
+     * Adds several appointments at once.
+     * Each appointment is checked as by {@link #addAppointment(Appointment)}, and the valid ones are stored together.
+     * @param batch The appointments to add
+     * @return One result per appointment, in the order of {@code batch}
+     */
+    public List<BatchResult> addAppointments(List<Appointment> batch) {
+        LOGGER.log(Level.INFO, "Adding batch of appointments", "count", batch.size());
+        return batchWriter.add(batch, this::checkNewAppointment);
+    }
+
+    /**
+     * Updates several appointments at once. Each appointment carries the ID of the appointment it replaces.
+     * Each appointment is checked as by {@link #updateAppointment(int, Appointment)}, and the valid ones are stored together.
+     * @param batch The updated appointments
+     * @return One result per appointment, in the order of {@code batch}
+     */
+    public List<BatchResult> updateAppointments(List<Appointment> batch) {
+        LOGGER.log(Level.INFO, "Updating batch of appointments", "count", batch.size());
+        return batchWriter.update(batch, this::checkUpdatedAppointment);
+    }
+
+    /**
+     * Deletes several appointments at once.
+     * @param ids IDs of the appointments to delete
+     * @return One result per ID, in the order of {@code ids}
+     */
+    public List<BatchResult> deleteAppointments(int[] ids) {
+        LOGGER.log(Level.INFO, "Deleting batch of appointments", "count", ids.length);
+        return batchWriter.delete(ids);
+    }
+
+    // Checks a appointment of an add batch like addAppointment, without logging every item
+    private void checkNewAppointment(Appointment appointment) {
+        checkReferences(appointment);
+        Validators.APPOINTMENT.check(appointment);
+        if (isDuplicateAppointment(appointment.getId())) {
+            throw new DuplicateException("Appointment with ID " + appointment.getId() + " already exists");
+        }
+    }
+
+    // Checks a appointment of an update batch like updateAppointment; the appointment carries its own ID
+    private void checkUpdatedAppointment(Appointment appointment) {
+        if (appointment != null && !appointments.contains(appointment.getId())) {
+            throw new NotFoundException("Appointment with ID " + appointment.getId() + " not found");
+        }
+        checkReferences(appointment);
+        Validators.APPOINTMENT.check(appointment);
+    }
+
+    // Appointments refer to their patient and doctor by ID, so both must exist
+    private void checkReferences(Appointment appointment) {
+        if (appointment == null) {
+            return;
+        }
+        if (!patientDAO.patientExists(appointment.getPatientId())) {
+            LOGGER.log(Level.WARNING, "Patient not found", "patientId", appointment.getPatientId());
+            throw new InvalidDataException("Patient with ID " + appointment.getPatientId() + " not found");
+        }
+        if (!doctorDAO.doctorExists(appointment.getDoctorId())) {
+            LOGGER.log(Level.WARNING, "Doctor not found", "doctorId", appointment.getDoctorId());
+            throw new InvalidDataException("Doctor with ID " + appointment.getDoctorId() + " not found");
+        }
+    }
+
+    // Books the appointment's slot with its doctor; throws ConflictException if the slot is taken
+    private static void book(Appointment appointment) {
+        int start = startOf(appointment);
+        int duration = appointment.getDurationMinutes() > 0 ? appointment.getDurationMinutes() : Schedule.DEFAULT_DURATION_MINUTES;
+        schedule.reserve(appointment.getDoctorId(), start, start + duration, appointment.getId());
+    }
+
+    private static void unbook(Appointment appointment) {
+        try {
+            schedule.release(appointment.getDoctorId(), startOf(appointment), appointment.getId());
+        } catch (InvalidDataException e) {
+            // Never booked, its date or time is malformed
+        }
+    }
+
+    // Undoes the booking of an update that was not stored. Booking it replaced the stored
+    // appointment's booking where the two overlapped, so that booking is made again
+    private static void unbookRejected(Appointment rejected) {
+        unbook(rejected);
+        Appointment stored = appointments.get(rejected.getId());
+        if (stored == null) {
+            return;
+        }
+        try {
+            book(stored);
+        } catch (InvalidDataException | ConflictException e) {
+            LOGGER.log(Level.WARNING, "Appointment left out of the schedule", "id", stored.getId(), "error", e.getMessage());
+        }
+    }
+
+    // A slot that did not move now belongs to the new booking and must stay booked
+    private static void unbookMoved(Appointment previous, Appointment updated) {
+        try {
+            if (previous.getDoctorId() != updated.getDoctorId() || startOf(previous) != startOf(updated)) {
+                schedule.release(previous.getDoctorId(), startOf(previous), previous.getId());
+            }
+        } catch (InvalidDataException e) {
+            // The previous appointment was never booked
+        }
+    }
+
+    private static int startOf(Appointment appointment) {
+        return EpochMinutes.of(appointment.getDate(), appointment.getTime());
     }
 
     // Helper method to check if an appointment with the given ID already exists
     private boolean isDuplicateAppointment(int id) {
-        return appointments.stream().anyMatch(appointment -> appointment.getId() == id);
+        return appointments.contains(id);
     }
 }
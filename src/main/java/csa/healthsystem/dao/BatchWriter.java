@@ -0,0 +1,231 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.dao;
+
+/**
+ *
+ * @author Maryam
+ */
+import csa.healthsystem.exception.ConflictException;
+import csa.healthsystem.exception.DuplicateException;
+import csa.healthsystem.exception.InvalidDataException;
+import csa.healthsystem.exception.NotFoundException;
+import csa.healthsystem.logging.Log;
+import csa.healthsystem.model.BatchResult;
+import csa.healthsystem.store.EntityStore;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
+import java.util.function.ToIntFunction;
+import java.util.logging.Level;
+import java.util.stream.IntStream;
+
+/**
+ * Applies batches of adds, updates and deletes to the store of one DAO.
+ * Every item is checked on its own, in parallel for large batches, and an item that fails
+ * only fails its own result. The items that pass are then written with one store call, so
+ * each lock stripe is taken once and the whole batch shares one write to the log.
+ * @param <T> The type of the stored entities
+ */
+final class BatchWriter<T> {
+    private static final Log LOGGER = Log.get(BatchWriter.class);
+    private static final int PARALLEL_THRESHOLD = 256;
+
+    private final EntityStore<T> store;
+    private final String entityName;
+    private final ToIntFunction<T> idOf;
+    private final ObjIntConsumer<T> setId;
+    private final AtomicInteger nextId;
+    private final Consumer<T> reserve;
+    private final Consumer<T> release;
+    private final BiConsumer<T, T> replaced;
+
+    /**
+     * Creates a writer for a store without side effects outside the store.
+     * @param store The store to write to
+     * @param entityName Name of the entity type used in messages, such as "Billing"
+     * @param idOf Function returning the ID of an entity
+     * @param setId Function setting the ID of an entity
+     * @param nextId Source of the IDs of added entities
+     */
+    BatchWriter(EntityStore<T> store, String entityName, ToIntFunction<T> idOf, ObjIntConsumer<T> setId, AtomicInteger nextId) {
+        this(store, entityName, idOf, setId, nextId, entity -> {}, entity -> {}, (previous, current) -> {});
+    }
+
+    /**
+     * Creates a writer for a store whose entities also hold resources elsewhere, such as bookings.
+     * @param store The store to write to
+     * @param entityName Name of the entity type used in messages, such as "Appointment"
+     * @param idOf Function returning the ID of an entity
+     * @param setId Function setting the ID of an entity
+     * @param nextId Source of the IDs of added entities
+     * @param reserve Claims the resources of an entity before it is stored; throws to reject the entity
+     * @param release Gives back the resources of an entity that was not stored or was deleted
+     * @param replaced Called with the previous and the new entity after an update
+     */
+    BatchWriter(EntityStore<T> store, String entityName, ToIntFunction<T> idOf, ObjIntConsumer<T> setId, AtomicInteger nextId,
+                Consumer<T> reserve, Consumer<T> release, BiConsumer<T, T> replaced) {
+        this.store = store;
+        this.entityName = entityName;
+        this.idOf = idOf;
+        this.setId = setId;
+        this.nextId = nextId;
+        this.reserve = reserve;
+        this.release = release;
+        this.replaced = replaced;
+    }
+
+    /**
+     * Adds the entities that pass their check, giving each a new ID.
+     * @param batch The entities to add
+     * @param check Throws to reject an entity, as the single add would
+     * @return One result per entity, in the order of {@code batch}
+     */
+    List<BatchResult> add(List<T> batch, Consumer<T> check) {
+        BatchResult[] results = check(batch, check);
+        List<T> accepted = new ArrayList<>(batch.size());
+        int[] positions = new int[batch.size()];
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] != null) {
+                continue;
+            }
+            T entity = batch.get(i);
+            setId.accept(entity, nextId.getAndIncrement());
+            if (claim(i, entity, results)) {
+                positions[accepted.size()] = i;
+                accepted.add(entity);
+            }
+        }
+        try {
+            store.putAll(accepted);
+        } catch (RuntimeException e) {
+            accepted.forEach(this::unclaimRejected);
+            throw e;
+        }
+        for (int j = 0; j < accepted.size(); j++) {
+            results[positions[j]] = BatchResult.succeeded(positions[j], idOf.applyAsInt(accepted.get(j)), 201);
+        }
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Replaces the stored entities with the entities that pass their check; each entity carries its ID.
+     * @param batch The updated entities
+     * @param check Throws to reject an entity, as the single update would
+     * @return One result per entity, in the order of {@code batch}
+     */
+    List<BatchResult> update(List<T> batch, Consumer<T> check) {
+        BatchResult[] results = check(batch, check);
+        List<T> accepted = new ArrayList<>(batch.size());
+        int[] positions = new int[batch.size()];
+        for (int i = 0; i < results.length; i++) {
+            T entity = batch.get(i);
+            if (results[i] == null && claim(i, entity, results)) {
+                positions[accepted.size()] = i;
+                accepted.add(entity);
+            }
+        }
+        List<T> previous;
+        try {
+            previous = store.replaceAll(accepted);
+        } catch (RuntimeException e) {
+            accepted.forEach(this::unclaimRejected);
+            throw e;
+        }
+        for (int j = 0; j < accepted.size(); j++) {
+            int i = positions[j];
+            T entity = accepted.get(j);
+            int id = idOf.applyAsInt(entity);
+            if (previous.get(j) == null) {
+                // Deleted after it was checked
+                unclaimRejected(entity);
+                results[i] = failed(i, id, new NotFoundException(entityName + " with ID " + id + " not found"));
+            } else {
+                replaced.accept(previous.get(j), entity);
+                results[i] = BatchResult.succeeded(i, id, 200);
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Deletes entities by ID.
+     * @param ids IDs of the entities to delete
+     * @return One result per ID, in the order of {@code ids}
+     */
+    List<BatchResult> delete(int[] ids) {
+        List<T> removed = store.removeAll(ids);
+        BatchResult[] results = new BatchResult[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            T entity = removed.get(i);
+            if (entity == null) {
+                results[i] = failed(i, ids[i], new NotFoundException(entityName + " with ID " + ids[i] + " not found"));
+            } else {
+                release.accept(entity);
+                results[i] = BatchResult.succeeded(i, ids[i], 200);
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    // Runs the checks, which only read, and records a failure for every rejected item
+    private BatchResult[] check(List<T> batch, Consumer<T> check) {
+        BatchResult[] results = new BatchResult[batch.size()];
+        IntStream range = IntStream.range(0, results.length);
+        if (results.length >= PARALLEL_THRESHOLD) {
+            range = range.parallel();
+        }
+        range.forEach(i -> {
+            T entity = batch.get(i);
+            try {
+                check.accept(entity);
+            } catch (InvalidDataException | DuplicateException | NotFoundException e) {
+                results[i] = failed(i, entity == null ? 0 : idOf.applyAsInt(entity), e);
+            }
+        });
+        return results;
+    }
+
+    // Reservations change shared state, so they are made one item at a time in batch order
+    private boolean claim(int index, T entity, BatchResult[] results) {
+        try {
+            reserve.accept(entity);
+            return true;
+        } catch (InvalidDataException | ConflictException e) {
+            results[index] = failed(index, idOf.applyAsInt(entity), e);
+            return false;
+        }
+    }
+
+    // Undoes the claim of an entity that was not stored. A claim replaces the stored entity's
+    // where the two overlap, so whatever the store holds under the ID claims its resources again
+    private void unclaimRejected(T rejected) {
+        release.accept(rejected);
+        T stored = store.get(idOf.applyAsInt(rejected));
+        if (stored == null) {
+            return;
+        }
+        try {
+            reserve.accept(stored);
+        } catch (InvalidDataException | ConflictException e) {
+            LOGGER.log(Level.WARNING, "Stored entity lost its reservation", "entity", entityName,
+                    "id", idOf.applyAsInt(stored), "error", e.getMessage());
+        }
+    }
+
+    private static BatchResult failed(int index, int id, RuntimeException e) {
+        if (e instanceof InvalidDataException) {
+            return new BatchResult(index, id, 400, e.getMessage(), ((InvalidDataException) e).getViolations());
+        }
+        if (e instanceof NotFoundException) {
+            return new BatchResult(index, id, 404, e.getMessage(), null);
+        }
+        return new BatchResult(index, id, 409, e.getMessage(), null);
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.dao;
+
+/**
+ *
+ * @author Maryam
+ */
+import csa.healthsystem.model.Billing;
+import csa.healthsystem.model.BillingSummary;
+import csa.healthsystem.model.Money;
+import csa.healthsystem.store.EntityStore;
+import csa.healthsystem.store.SecondaryIndex;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToIntFunction;
+
+/**
+ * Running totals of the billings of each patient or each doctor, kept up to date by a
+ * listener on the billing store. Every write adjusts the totals of the groups it touches in
+ * constant time, so a summary costs time proportional to the number of groups, not billings.
+ * <p>
+ * Amounts are summed in cents, as billings hold them, so adding and removing billings never
+ * accumulates rounding errors. A group's count, sums and maximum change together under the
+ * group's lock, and a summary copies them under it, so it never mixes totals from before and
+ * after a write. The largest outstanding balance cannot be undone by a subtraction;
+ * when the billing holding it goes away, the group's maximum is recomputed from its
+ * billings the next time it is read.
+ */
+final class BillingAggregates {
+    private final SecondaryIndex<Billing> index;
+    private final ToIntFunction<Billing> keyOf;
+    private final Map<Integer, Group> groups = new ConcurrentHashMap<>();
+
+    private BillingAggregates(SecondaryIndex<Billing> index, ToIntFunction<Billing> keyOf) {
+        this.index = index;
+        this.keyOf = keyOf;
+    }
+
+    /**
+     * Creates the totals of a billing store, grouped by a key such as the patient ID.
+     * @param store The billing store; its billings are counted before this method returns
+     * @param index Index of the store by the same key, used to recompute maximums
+     * @param keyOf Function returning the key of a billing
+     * @return The totals
+     */
+    static BillingAggregates attach(EntityStore<Billing> store, SecondaryIndex<Billing> index, ToIntFunction<Billing> keyOf) {
+        BillingAggregates aggregates = new BillingAggregates(index, keyOf);
+        store.addListener((id, previous, current) -> {
+            if (previous != null) {
+                aggregates.group(keyOf.applyAsInt(previous)).remove(previous);
+            }
+            if (current != null) {
+                aggregates.group(keyOf.applyAsInt(current)).add(current);
+            }
+        });
+        return aggregates;
+    }
+
+    /**
+     * Summarizes the billings of every group that has any.
+     * @param byPatient Whether the groups are patients rather than doctors, which names the key in the summaries
+     * @return The summaries in ascending key order
+     */
+    List<BillingSummary> summaries(boolean byPatient) {
+        List<BillingSummary> summaries = new ArrayList<>();
+        for (Group group : groups.values()) {
+            BillingSummary summary = summarize(group, byPatient);
+            if (summary != null) {
+                summaries.add(summary);
+            }
+        }
+        summaries.sort((a, b) -> Integer.compare(byPatient ? a.getPatientId() : a.getDoctorId(),
+                byPatient ? b.getPatientId() : b.getDoctorId()));
+        return summaries;
+    }
+
+    private Group group(int key) {
+        return groups.computeIfAbsent(key, Group::new);
+    }
+
+    // Summarizes a group, first recomputing a maximum that was removed; retried if the group changes meanwhile
+    private BillingSummary summarize(Group group, boolean byPatient) {
+        while (true) {
+            long changes;
+            synchronized (group) {
+                if (!group.maxStale) {
+                    return group.summary(byPatient);
+                }
+                changes = group.changes;
+            }
+            // Read outside the group's lock: writers hold the store's lock when they take it
+            long max = 0;
+            int holders = 0;
+            for (Billing billing : index.find(group.key)) {
+                long outstanding = billing.getOutstandingCents();
+                if (holders == 0 || outstanding > max) {
+                    max = outstanding;
+                    holders = 1;
+                } else if (outstanding == max) {
+                    holders++;
+                }
+            }
+            synchronized (group) {
+                if (group.changes == changes) {
+                    group.maxOutstanding = max;
+                    group.maxHolders = holders;
+                    group.maxStale = false;
+                    return group.summary(byPatient);
+                }
+            }
+        }
+    }
+
+
+    // The totals of one patient or doctor
+    private static final class Group {
+        final int key;
+
+        // Guarded by this
+        long count;
+        long invoiceCents;
+        long paymentCents;
+        long outstandingCents;
+        long maxOutstanding;
+        int maxHolders;
+        boolean maxStale;
+        long changes;
+
+        Group(int key) {
+            this.key = key;
+        }
+
+        synchronized void add(Billing billing) {
+            long outstanding = billing.getOutstandingCents();
+            count++;
+            invoiceCents += billing.getInvoiceCents();
+            paymentCents += billing.getPaymentCents();
+            outstandingCents += outstanding;
+            changes++;
+            if (maxStale) {
+                return;
+            }
+            if (maxHolders == 0 || outstanding > maxOutstanding) {
+                maxOutstanding = outstanding;
+                maxHolders = 1;
+            } else if (outstanding == maxOutstanding) {
+                maxHolders++;
+            }
+        }
+
+        synchronized void remove(Billing billing) {
+            long outstanding = billing.getOutstandingCents();
+            count--;
+            invoiceCents -= billing.getInvoiceCents();
+            paymentCents -= billing.getPaymentCents();
+            outstandingCents -= outstanding;
+            changes++;
+            if (!maxStale && outstanding == maxOutstanding && --maxHolders == 0) {
+                maxStale = true;
+            }
+        }
+
+        // Under the lock, with the maximum up to date; null if the group has no billings
+        BillingSummary summary(boolean byPatient) {
+            if (count == 0) {
+                return null;
+            }
+            return new BillingSummary(byPatient ? key : null, byPatient ? null : key, count,
+                    Money.toAmount(invoiceCents), Money.toAmount(paymentCents),
+                    Money.toAmount(outstandingCents), Money.toAmount(maxOutstanding));
+        }
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.dao;
+
+/**
+ *
+ * @author Maryam
+ */
+import csa.healthsystem.model.Billing;
+import csa.healthsystem.model.BillingSummary;
+import csa.healthsystem.model.Money;
+import csa.healthsystem.store.EntityStore;
+import java.util.Arrays;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Copy of the billing ledger in primitive columns, one array per field, for scans over every
+ * billing. A scan reads a few contiguous arrays of {@code long} cents instead of following a
+ * pointer to each billing object, and its loop has no branches, so the JIT can unroll it and,
+ * where the CPU allows, vectorize it.
+ * <p>
+ * Rows are kept dense: removing a billing moves the last row into its place. Scans run under
+ * an optimistic read and only block writers if a write gets in the way.
+ */
+public final class BillingColumns {
+    private static final int INITIAL_CAPACITY = 1024;
+    // Bounds of a range filter, far enough from the ends of long that the scan cannot overflow
+    private static final long MIN_BOUND = -(1L << 62);
+    private static final long MAX_BOUND = 1L << 62;
+
+    private final StampedLock lock = new StampedLock();
+
+    // Guarded by lock; rows 0 to size - 1 hold billings
+    private int[] ids = new int[INITIAL_CAPACITY];
+    private int[] patientIds = new int[INITIAL_CAPACITY];
+    private int[] doctorIds = new int[INITIAL_CAPACITY];
+    private long[] invoiceCents = new long[INITIAL_CAPACITY];
+    private long[] paymentCents = new long[INITIAL_CAPACITY];
+    private long[] outstandingCents = new long[INITIAL_CAPACITY];
+    private int size;
+    // Row of each billing ID plus one; 0 for IDs without a billing
+    private int[] rowOfId = new int[INITIAL_CAPACITY];
+
+    /**
+     * Creates empty columns, filled with {@link #put(Billing)}.
+     */
+    public BillingColumns() {}
+
+    /**
+     * Creates columns holding the billings of a store, kept up to date with every write to it.
+     * @param store The billing store; its billings are copied before this method returns
+     * @return The columns
+     */
+    static BillingColumns attach(EntityStore<Billing> store) {
+        BillingColumns columns = new BillingColumns();
+        store.addListener((id, previous, current) -> {
+            if (current == null) {
+                columns.remove(id);
+            } else {
+                columns.put(current);
+            }
+        });
+        return columns;
+    }
+
+    /**
+     * Adds a billing, or replaces the billing with the same ID.
+     * @param billing The billing; its ID must not be negative
+     */
+    public void put(Billing billing) {
+        int id = billing.getId();
+        long stamp = lock.writeLock();
+        try {
+            if (id >= rowOfId.length) {
+                rowOfId = Arrays.copyOf(rowOfId, Math.max(id + 1, rowOfId.length * 2));
+            }
+            int row = rowOfId[id] - 1;
+            if (row < 0) {
+                if (size == ids.length) {
+                    grow();
+                }
+                row = size++;
+                rowOfId[id] = row + 1;
+            }
+            ids[row] = id;
+            patientIds[row] = billing.getPatientId();
+            doctorIds[row] = billing.getDoctorId();
+            invoiceCents[row] = billing.getInvoiceCents();
+            paymentCents[row] = billing.getPaymentCents();
+            outstandingCents[row] = billing.getOutstandingCents();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Removes a billing.
+     * @param id ID of the billing
+     */
+    public void remove(int id) {
+        long stamp = lock.writeLock();
+        try {
+            if (id < 0 || id >= rowOfId.length || rowOfId[id] == 0) {
+                return;
+            }
+            int row = rowOfId[id] - 1;
+            int last = --size;
+            if (row != last) {
+                ids[row] = ids[last];
+                patientIds[row] = patientIds[last];
+                doctorIds[row] = doctorIds[last];
+                invoiceCents[row] = invoiceCents[last];
+                paymentCents[row] = paymentCents[last];
+                outstandingCents[row] = outstandingCents[last];
+                rowOfId[ids[row]] = row + 1;
+            }
+            rowOfId[id] = 0;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Gets the number of billings.
+     * @return The number of billings
+     */
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Totals the billings of a patient or doctor whose outstanding balance lies in a range.
+     * @param patientId ID of the patient whose billings are included, or 0 for every patient
+     * @param doctorId ID of the doctor whose billings are included, or 0 for every doctor
+     * @param minOutstandingCents Smallest outstanding balance included, in cents
+     * @param maxOutstandingCents Largest outstanding balance included, in cents
+     * @return The count and sums of the billings included, with the patient and doctor IDs filtered by
+     */
+    public BillingSummary total(int patientId, int doctorId, long minOutstandingCents, long maxOutstandingCents) {
+        long min = Math.max(minOutstandingCents, MIN_BOUND);
+        long max = Math.min(maxOutstandingCents, MAX_BOUND);
+        long[] totals = new long[5];
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            scan(patientId, doctorId, min, max, totals);
+        }
+        if (stamp == 0 || !lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                scan(patientId, doctorId, min, max, totals);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return new BillingSummary(patientId == 0 ? null : patientId, doctorId == 0 ? null : doctorId, totals[0],
+                Money.toAmount(totals[1]), Money.toAmount(totals[2]), Money.toAmount(totals[3]),
+                totals[0] == 0 ? 0 : Money.toAmount(totals[4]));
+    }
+
+    // May run concurrently with a write, whose result is then discarded; it must not fail on torn state
+    private void scan(int patientId, int doctorId, long min, long max, long[] totals) {
+        int[] patients = patientIds;
+        int[] doctors = doctorIds;
+        long[] invoice = invoiceCents;
+        long[] payment = paymentCents;
+        long[] outstanding = outstandingCents;
+        int n = Math.min(Math.min(size, Math.min(patients.length, doctors.length)),
+                Math.min(invoice.length, Math.min(payment.length, outstanding.length)));
+        // Zero where the filter is off, so every ID passes
+        long patientFilter = patientId == 0 ? 0 : 1;
+        long doctorFilter = doctorId == 0 ? 0 : 1;
+        long count = 0;
+        long invoiceSum = 0;
+        long paymentSum = 0;
+        long outstandingSum = 0;
+        long maxOutstanding = Long.MIN_VALUE;
+        for (int row = 0; row < n; row++) {
+            long balance = outstanding[row];
+            long otherPatient = (patients[row] ^ patientId) * patientFilter;
+            long otherDoctor = (doctors[row] ^ doctorId) * doctorFilter;
+            // All ones if the billing is filtered out, otherwise zero
+            long outside = ((balance - min) | (max - balance) | otherPatient | -otherPatient | otherDoctor | -otherDoctor) >> 63;
+            long inside = ~outside;
+            count += inside & 1;
+            invoiceSum += invoice[row] & inside;
+            paymentSum += payment[row] & inside;
+            outstandingSum += balance & inside;
+            maxOutstanding = Math.max(maxOutstanding, (balance & inside) | (Long.MIN_VALUE & outside));
+        }
+        totals[0] = count;
+        totals[1] = invoiceSum;
+        totals[2] = paymentSum;
+        totals[3] = outstandingSum;
+        totals[4] = maxOutstanding;
+    }
+
+    // Under the write lock
+    private void grow() {
+        int capacity = ids.length * 2;
+        ids = Arrays.copyOf(ids, capacity);
+        patientIds = Arrays.copyOf(patientIds, capacity);
+        doctorIds = Arrays.copyOf(doctorIds, capacity);
+        invoiceCents = Arrays.copyOf(invoiceCents, capacity);
+        paymentCents = Arrays.copyOf(paymentCents, capacity);
+        outstandingCents = Arrays.copyOf(outstandingCents, capacity);
+    }
+}
@@ -9,41 +9,47 @@ package csa.healthsystem.dao;
  * @author Maryam
  */
 import csa.healthsystem.model.Billing;
-import csa.healthsystem.model.Doctor;
-import csa.healthsystem.model.Patient;
 import csa.healthsystem.exception.NotFoundException;
+import csa.healthsystem.exception.VersionConflictException;
 import csa.healthsystem.exception.DuplicateException;
 import csa.healthsystem.exception.InvalidDataException;
-import csa.healthsystem.exception.ValidationCheckerException;
 import csa.healthsystem.exception.DatabaseException;
-import java.util.ArrayList;
+import csa.healthsystem.model.BatchResult;
+import csa.healthsystem.model.BillingSummary;
+import csa.healthsystem.store.EntityStore;
+import csa.healthsystem.store.Versioned;
+import csa.healthsystem.validation.Validators;
+import csa.healthsystem.validation.Violation;
+import csa.healthsystem.store.SecondaryIndex;
+import csa.healthsystem.logging.Log;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
-import java.util.logging.Logger;
 
 /**
  * Data Access Object (DAO) for managing Billing entities.
  */
 public class BillingDAO {
-    private static final Logger LOGGER = Logger.getLogger(BillingDAO.class.getName());
+    private static final Log LOGGER = Log.get(BillingDAO.class);
+    private static final PatientDAO patientDAO = new PatientDAO();
+    private static final DoctorDAO doctorDAO = new DoctorDAO();
 
-    private static final List<Billing> billings = new ArrayList<>();
-    private static final AtomicInteger nextId = new AtomicInteger(1);
+    private static final EntityStore<Billing> billings = new EntityStore<>("billings", Billing.class, Billing::getId);
+    private static final SecondaryIndex<Billing> billingsByPatient = billings.addIndex(Billing::getPatientId);
+    private static final SecondaryIndex<Billing> billingsByDoctor = billings.addIndex(Billing::getDoctorId);
+    private static final BillingAggregates totalsByPatient = BillingAggregates.attach(billings, billingsByPatient, Billing::getPatientId);
+    private static final BillingAggregates totalsByDoctor = BillingAggregates.attach(billings, billingsByDoctor, Billing::getDoctorId);
+    private static final BillingColumns ledger = BillingColumns.attach(billings);
+    private static final AtomicInteger nextId = new AtomicInteger(Math.max(1, billings.maxId() + 1));
+    private static final BatchWriter<Billing> batchWriter = new BatchWriter<>(billings, "Billing", Billing::getId, Billing::setId, nextId);
 
     static {
-        // Sample billings
-        Patient patient1 = new Patient(1000, "John Doe", "0768899123", "123 Main St", "Allergic to penicillin", "Stable");
-        Doctor doctor1 = new Doctor(1, "Dr. Smith", "0768899124", "456 Elm St", "Cardiologist");
-        billings.add(new Billing(nextId.getAndIncrement(), patient1, doctor1, 500.0, 200.0, 300.0));
-        
-        Patient patient2 = new Patient(1001, "Alice Smith", "0768899125", "456 Oak St", "Asthmatic", "Critical");
-        Doctor doctor2 = new Doctor(2, "Dr. Johnson", "0768899126", "789 Oak St", "Dermatologist");
-        billings.add(new Billing(nextId.getAndIncrement(), patient2, doctor2, 750.0, 300.0, 450.0));
-        
-        Patient patient3 = new Patient(1002, "Bob Johnson", "0768899127", "789 Pine St", "Diabetic", "Stable");
-        Doctor doctor3 = new Doctor(3, "Dr. Brown", "0768899128", "987 Maple St", "Pediatrician");
-        billings.add(new Billing(nextId.getAndIncrement(), patient3, doctor3, 300.0, 0.0, 300.0));
+        if (!billings.isRestored()) {
+            // Sample billings for the sample patients and doctors
+            billings.put(new Billing(nextId.getAndIncrement(), 1000, 1, 500.0, 200.0, 300.0));
+            billings.put(new Billing(nextId.getAndIncrement(), 1001, 2, 750.0, 300.0, 450.0));
+            billings.put(new Billing(nextId.getAndIncrement(), 1002, 3, 300.0, 0.0, 300.0));
+        }
     }
 
     /**
@@ -52,7 +58,38 @@ public class BillingDAO {
      */
     public List<Billing> getAllBillings() {
         LOGGER.log(Level.INFO, "Retrieving all billings");
-        return new ArrayList<>(billings); // Return a copy of the list to prevent modification
+        return billings.values(); // Returns a new list, so callers cannot modify the store
+    }
+
+    /**
+     * Retrieves a page of billings ordered by ID.
+     * @param afterId Only billings with an ID greater than this are returned
+     * @param limit Maximum number of billings to return
+     * @return List of at most {@code limit} billings
+     */
+    public List<Billing> getBillings(int afterId, int limit) {
+        LOGGER.log(Level.INFO, "Retrieving billings page", "afterId", afterId, "limit", limit);
+        return billings.page(afterId, limit);
+    }
+
+    /**
+     * Retrieves the billings of a patient.
+     * @param patientId ID of the patient
+     * @return List of the patient's billings ordered by ID
+     */
+    public List<Billing> getBillingsByPatient(int patientId) {
+        LOGGER.log(Level.INFO, "Retrieving billings for patient", "patientId", patientId);
+        return billingsByPatient.find(patientId);
+    }
+
+    /**
+     * Retrieves the billings of a doctor.
+     * @param doctorId ID of the doctor
+     * @return List of the doctor's billings ordered by ID
+     */
+    public List<Billing> getBillingsByDoctor(int doctorId) {
+        LOGGER.log(Level.INFO, "Retrieving billings for doctor", "doctorId", doctorId);
+        return billingsByDoctor.find(doctorId);
     }
 
     /**
@@ -62,17 +99,80 @@ public class BillingDAO {
      * @throws NotFoundException if no billing with the specified ID is found
      */
     public Billing getBillingById(int id) {
-        LOGGER.log(Level.INFO, "Retrieving billing by ID: " + id);
-        for (Billing billing : billings) {
-            if (billing.getId() == id) {
-                LOGGER.log(Level.INFO, "Billing with ID " + id + " found: " + billing);
-                return billing;
-            }
+        LOGGER.log(Level.INFO, "Retrieving billing", "id", id);
+        Billing billing = billings.get(id);
+        if (billing != null) {
+            LOGGER.log(Level.INFO, "Billing found", "id", id, "billing", billing);
+            return billing;
         }
-        LOGGER.log(Level.WARNING, "Billing with ID " + id + " not found");
+        LOGGER.log(Level.WARNING, "Billing not found", "id", id);
         throw new NotFoundException("Billing with ID " + id + " not found");
     }
 
+    /**
+     * Retrieves a billing by ID together with its version.
+     * @param id ID of the billing to retrieve
+     * @return The billing with the specified ID and its version
+     * @throws NotFoundException if no billing with the specified ID is found
+     */
+    public Versioned<Billing> getVersionedBillingById(int id) {
+        LOGGER.log(Level.INFO, "Retrieving billing", "id", id);
+        Versioned<Billing> entry = billings.getVersioned(id);
+        if (entry != null) {
+            return entry;
+        }
+        LOGGER.log(Level.WARNING, "Billing not found", "id", id);
+        throw new NotFoundException("Billing with ID " + id + " not found");
+    }
+
+    /**
+     * Retrieves the billing totals of every patient that has billings.
+     * @return List of summaries ordered by patient ID
+     */
+    public List<BillingSummary> getBillingSummariesByPatient() {
+        LOGGER.log(Level.INFO, "Retrieving billing summaries by patient");
+        return totalsByPatient.summaries(true);
+    }
+
+    /**
+     * Retrieves the billing totals of every doctor that has billings.
+     * @return List of summaries ordered by doctor ID
+     */
+    public List<BillingSummary> getBillingSummariesByDoctor() {
+        LOGGER.log(Level.INFO, "Retrieving billing summaries by doctor");
+        return totalsByDoctor.summaries(false);
+    }
+
+    /**
+     * Totals the billings of a patient or doctor whose outstanding balance lies in a range,
+     * scanning every billing.
+     * @param patientId ID of the patient, or 0 for every patient
+     * @param doctorId ID of the doctor, or 0 for every doctor
+     * @param minOutstandingCents Smallest outstanding balance included, in cents
+     * @param maxOutstandingCents Largest outstanding balance included, in cents
+     * @return The totals of the billings included
+     */
+    public BillingSummary getBillingTotals(int patientId, int doctorId, long minOutstandingCents, long maxOutstandingCents) {
+        LOGGER.log(Level.INFO, "Totalling billings", "patientId", patientId, "doctorId", doctorId);
+        return ledger.total(patientId, doctorId, minOutstandingCents, maxOutstandingCents);
+    }
+
+    /**
+     * Gets the version of the billing collection, which changes with every write to it.
+     * @return The collection version
+     */
+    public long getBillingsVersion() {
+        return billings.version();
+    }
+
+    /**
+     * Gets the time of the latest write to the billing collection.
+     * @return Milliseconds since the epoch
+     */
+    public long getBillingsLastModified() {
+        return billings.lastModified();
+    }
+
     /**
      * Adds a new billing.
      * @param billing The billing to add
@@ -81,22 +181,38 @@ public class BillingDAO {
      * @throws DatabaseException if a database error occurs
      */
     public void addBilling(Billing billing) {
-        LOGGER.log(Level.INFO, "Adding new billing: " + billing);
-        String validationError = ValidationCheckerException.validateBilling(billing);
-        if (validationError != null) {
-            LOGGER.warning("Invalid billing data: " + validationError);
-            throw new InvalidDataException(validationError);
+        LOGGER.log(Level.INFO, "Adding new billing", "billing", billing);
+        checkReferences(billing);
+        List<Violation> violations = Validators.BILLING.validate(billing);
+        if (!violations.isEmpty()) {
+            LOGGER.log(Level.WARNING, "Invalid billing data", "violations", violations);
+            throw Validators.BILLING.failure(violations);
         }
         if (isDuplicateBilling(billing.getId())) {
             throw new DuplicateException("Billing with ID " + billing.getId() + " already exists");
         }
         billing.setId(nextId.getAndIncrement());
-        billings.add(billing);
+        billings.put(billing);
     }
     
+    // Billings refer to their patient and doctor by ID, so both must exist
+    private void checkReferences(Billing billing) {
+        if (billing == null) {
+            return;
+        }
+        if (!patientDAO.patientExists(billing.getPatientId())) {
+            LOGGER.log(Level.WARNING, "Patient not found", "patientId", billing.getPatientId());
+            throw new InvalidDataException("Patient with ID " + billing.getPatientId() + " not found");
+        }
+        if (!doctorDAO.doctorExists(billing.getDoctorId())) {
+            LOGGER.log(Level.WARNING, "Doctor not found", "doctorId", billing.getDoctorId());
+            throw new InvalidDataException("Doctor with ID " + billing.getDoctorId() + " not found");
+        }
+    }
+
     // Helper method to check if a billing with the given ID already exists
     private boolean isDuplicateBilling(int id) {
-        return billings.stream().anyMatch(billing -> billing.getId() == id);
+        return billings.contains(id);
     }
 
     /**
@@ -108,19 +224,34 @@ public class BillingDAO {
      * @throws DatabaseException if a database error occurs
      */
     public void updateBilling(int id, Billing updatedBilling) {
-        LOGGER.log(Level.INFO, "Updating billing with ID: " + id);
-        Billing existingBilling = getBillingById(id);
-        String validationError = ValidationCheckerException.validateBilling(updatedBilling);
-        if (validationError != null) {
-            LOGGER.warning("Invalid billing data: " + validationError);
-            throw new InvalidDataException(validationError);
+        updateBilling(id, updatedBilling, EntityStore.ANY_VERSION);
+    }
+
+    /**
+     * Updates an existing billing if it still has the expected version.
+     * @param id ID of the billing to update
+     * @param updatedBilling Updated billing information
+     * @param expectedVersion Version the stored billing must have, or {@link EntityStore#ANY_VERSION}
+     * @throws NotFoundException if the specified billing is not found
+     * @throws InvalidDataException if the updated billing data is invalid
+     * @throws DatabaseException if a database error occurs
+     * @throws VersionConflictException if the billing has another version
+     */
+    public void updateBilling(int id, Billing updatedBilling, long expectedVersion) {
+        LOGGER.log(Level.INFO, "Updating billing", "id", id);
+        getBillingById(id);
+        checkReferences(updatedBilling);
+        List<Violation> violations = Validators.BILLING.validate(updatedBilling);
+        if (!violations.isEmpty()) {
+            LOGGER.log(Level.WARNING, "Invalid billing data", "violations", violations);
+            throw Validators.BILLING.failure(violations);
         }
-        existingBilling.setPatient(updatedBilling.getPatient());
-        existingBilling.setDoctor(updatedBilling.getDoctor());
-        existingBilling.setInvoiceAmount(updatedBilling.getInvoiceAmount());
-        existingBilling.setPaymentAmount(updatedBilling.getPaymentAmount());
-        existingBilling.setOutstandingBalance(updatedBilling.getOutstandingBalance());
-        LOGGER.log(Level.INFO, "Billing updated: " + existingBilling);
+        // Swap in the updated object so concurrent readers never see a half-applied update
+        updatedBilling.setId(id);
+        if (billings.replace(id, updatedBilling, expectedVersion) == null) {
+            throw new NotFoundException("Billing with ID " + id + " not found");
+        }
+        LOGGER.log(Level.INFO, "Billing updated", "billing", updatedBilling);
     }
 
     /**
@@ -130,9 +261,77 @@ public class BillingDAO {
      * @throws DatabaseException if a database error occurs
      */
     public void deleteBilling(int id) {
-        LOGGER.log(Level.INFO, "Deleting billing with ID: " + id);
-        Billing billingToDelete = getBillingById(id);
-        billings.remove(billingToDelete);
-        LOGGER.log(Level.INFO, "Billing deleted: " + billingToDelete);
+        deleteBilling(id, EntityStore.ANY_VERSION);
+    }
+
+    /**
+     * Deletes a billing by ID if it still has the expected version.
+     * @param id ID of the billing to delete
+     * @param expectedVersion Version the stored billing must have, or {@link EntityStore#ANY_VERSION}
+     * @throws NotFoundException if the specified billing is not found
+     * @throws DatabaseException if a database error occurs
+     * @throws VersionConflictException if the billing has another version
+     */
+    public void deleteBilling(int id, long expectedVersion) {
+        LOGGER.log(Level.INFO, "Deleting billing", "id", id);
+        Billing billingToDelete = billings.remove(id, expectedVersion);
+        if (billingToDelete == null) {
+            LOGGER.log(Level.WARNING, "Billing not found", "id", id);
+            throw new NotFoundException("Billing with ID " + id + " not found");
+        }
+        LOGGER.log(Level.INFO, "Billing deleted", "billing", billingToDelete);
+    }
+
+    /**
+     * Adds several billings at once.
+     * Each billing is checked as by {@link #addBilling(Billing)}, and the valid ones are stored together.
+     * @param batch The billings to add
+     * @return One result per billing, in the order of {@code batch}
+     * @throws DatabaseException if a database error occurs
+     */
+    public List<BatchResult> addBillings(List<Billing> batch) {
+        LOGGER.log(Level.INFO, "Adding batch of billings", "count", batch.size());
+        return batchWriter.add(batch, this::checkNewBilling);
+    }
+
+    /**
+     * Updates several billings at once. Each billing carries the ID of the billing it replaces.
+     * Each billing is checked as by {@link #updateBilling(int, Billing)}, and the valid ones are stored together.
+     * @param batch The updated billings
+     * @return One result per billing, in the order of {@code batch}
+     * @throws DatabaseException if a database error occurs
+     */
+    public List<BatchResult> updateBillings(List<Billing> batch) {
+        LOGGER.log(Level.INFO, "Updating batch of billings", "count", batch.size());
+        return batchWriter.update(batch, this::checkUpdatedBilling);
+    }
+
+    /**
+     * Deletes several billings at once.
+     * @param ids IDs of the billings to delete
+     * @return One result per ID, in the order of {@code ids}
+     * @throws DatabaseException if a database error occurs
+     */
+    public List<BatchResult> deleteBillings(int[] ids) {
+        LOGGER.log(Level.INFO, "Deleting batch of billings", "count", ids.length);
+        return batchWriter.delete(ids);
+    }
+
+    // Checks a billing of an add batch like addBilling, without logging every item
+    private void checkNewBilling(Billing billing) {
+        checkReferences(billing);
+        Validators.BILLING.check(billing);
+        if (isDuplicateBilling(billing.getId())) {
+            throw new DuplicateException("Billing with ID " + billing.getId() + " already exists");
+        }
+    }
+
+    // Checks a billing of an update batch like updateBilling; the billing carries its own ID
+    private void checkUpdatedBilling(Billing billing) {
+        if (billing != null && !billings.contains(billing.getId())) {
+            throw new NotFoundException("Billing with ID " + billing.getId() + " not found");
+        }
+        checkReferences(billing);
+        Validators.BILLING.check(billing);
     }
 }
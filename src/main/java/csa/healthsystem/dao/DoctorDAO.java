@@ -9,30 +9,45 @@ package csa.healthsystem.dao;
  * @author Maryam
  */
 import csa.healthsystem.model.Doctor;
+import csa.healthsystem.model.References;
 import csa.healthsystem.exception.NotFoundException;
+import csa.healthsystem.exception.VersionConflictException;
 import csa.healthsystem.exception.DuplicateException;
 import csa.healthsystem.exception.InvalidDataException;
-import csa.healthsystem.exception.ValidationCheckerException;
+import csa.healthsystem.model.BatchResult;
+import csa.healthsystem.search.NameIndex;
+import csa.healthsystem.store.BitmapIndex;
+import csa.healthsystem.store.EntityStore;
+import csa.healthsystem.store.Versioned;
+import csa.healthsystem.validation.Validators;
+import csa.healthsystem.validation.Violation;
+import csa.healthsystem.logging.Log;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
-import java.util.logging.Logger;
 
 /**
  * Data Access Object (DAO) for managing Doctor entities.
  */
 public class DoctorDAO {
-    private static final Logger LOGGER = Logger.getLogger(DoctorDAO.class.getName());
+    private static final Log LOGGER = Log.get(DoctorDAO.class);
 
-    private static final List<Doctor> doctors = new ArrayList<>();
-    private static final AtomicInteger nextId = new AtomicInteger(1);
+    private static final EntityStore<Doctor> doctors = new EntityStore<>("doctors", Doctor.class, Doctor::getId);
+    private static final NameIndex doctorsByName = NameIndex.attach(doctors, Doctor::getName, Doctor::getContactInformation);
+    private static final BitmapIndex<Doctor> doctorsBySpecialization = BitmapIndex.attach(doctors, Doctor.SPECIALIZATIONS, Doctor::getSpecialization);
+    private static final AtomicInteger nextId = new AtomicInteger(Math.max(1, doctors.maxId() + 1));
+    private static final BatchWriter<Doctor> batchWriter = new BatchWriter<>(doctors, "Doctor", Doctor::getId, Doctor::setId, nextId);
 
     static {
-        // Adding sample doctors
-        doctors.add(new Doctor(nextId.getAndIncrement(), "Dr. John Doe", "123-456-7890", "123 Main St", "Cardiologist"));
-        doctors.add(new Doctor(nextId.getAndIncrement(), "Dr. Alice Smith", "456-789-0123", "456 Oak St", "Dermatologist"));
-        doctors.add(new Doctor(nextId.getAndIncrement(), "Dr. Bob Johnson", "789-012-3456", "789 Pine St", "Pediatrician"));
+        // Billings and other records resolve their doctor IDs against this store
+        References.registerDoctors(doctors::get, doctors::version, doctors::lastModified);
+        if (!doctors.isRestored()) {
+            // Adding sample doctors
+            doctors.put(new Doctor(nextId.getAndIncrement(), "Dr. John Doe", "123-456-7890", "123 Main St", "Cardiologist"));
+            doctors.put(new Doctor(nextId.getAndIncrement(), "Dr. Alice Smith", "456-789-0123", "456 Oak St", "Dermatologist"));
+            doctors.put(new Doctor(nextId.getAndIncrement(), "Dr. Bob Johnson", "789-012-3456", "789 Pine St", "Pediatrician"));
+        }
     }
 
     /**
@@ -41,7 +56,49 @@ public class DoctorDAO {
      */
     public List<Doctor> getAllDoctors() {
         LOGGER.log(Level.INFO, "Retrieving all doctors");
-        return new ArrayList<>(doctors); // Return a copy of the list to prevent modification
+        return doctors.values(); // Returns a new list, so callers cannot modify the store
+    }
+
+    /**
+     * Retrieves a page of doctors ordered by ID.
+     * @param afterId Only doctors with an ID greater than this are returned
+     * @param limit Maximum number of doctors to return
+     * @return List of at most {@code limit} doctors
+     */
+    public List<Doctor> getDoctors(int afterId, int limit) {
+        LOGGER.log(Level.INFO, "Retrieving doctors page", "afterId", afterId, "limit", limit);
+        return doctors.page(afterId, limit);
+    }
+
+    /**
+     * Retrieves a page of the doctors with any of some specializations, ordered by ID.
+     * @param specializations The specializations to match exactly
+     * @param afterId Only doctors with an ID greater than this are returned
+     * @param limit Maximum number of doctors to return
+     * @return List of at most {@code limit} doctors
+     */
+    public List<Doctor> getDoctorsBySpecialization(List<String> specializations, int afterId, int limit) {
+        LOGGER.log(Level.INFO, "Retrieving doctors page by specialization", "specializations", specializations, "afterId", afterId, "limit", limit);
+        return doctorsBySpecialization.find(specializations, afterId, limit);
+    }
+
+    /**
+     * Finds doctors by the start of their name or phone number, tolerating small typos in names.
+     * @param prefix Start of one or more words of the name, in any order, or of the phone number
+     * @param limit Maximum number of doctors to return
+     * @return List of at most {@code limit} doctors, best match first
+     */
+    public List<Doctor> findDoctors(String prefix, int limit) {
+        LOGGER.log(Level.INFO, "Finding doctors by prefix", "prefix", prefix, "limit", limit);
+        int[] ids = doctorsByName.search(prefix, limit);
+        List<Doctor> found = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            Doctor doctor = doctors.get(id);
+            if (doctor != null) { // Deleted since the search
+                found.add(doctor);
+            }
+        }
+        return found;
     }
 
     /**
@@ -51,17 +108,57 @@ public class DoctorDAO {
      * @throws NotFoundException if no doctor with the specified ID is found
      */
     public Doctor getDoctorById(int id) {
-        LOGGER.log(Level.INFO, "Retrieving doctor by ID: " + id);
-        for (Doctor doctor : doctors) {
-            if (doctor.getId() == id) {
-                LOGGER.log(Level.INFO, "Doctor with ID " + id + " found: " + doctor);
-                return doctor;
-            }
+        LOGGER.log(Level.INFO, "Retrieving doctor", "id", id);
+        Doctor doctor = doctors.get(id);
+        if (doctor != null) {
+            LOGGER.log(Level.INFO, "Doctor found", "id", id, "doctor", doctor);
+            return doctor;
+        }
+        LOGGER.log(Level.WARNING, "Doctor not found", "id", id);
+        throw new NotFoundException("Doctor with ID " + id + " not found");
+    }
+
+    /**
+     * Retrieves a doctor by ID together with its version.
+     * @param id ID of the doctor to retrieve
+     * @return The doctor with the specified ID and its version
+     * @throws NotFoundException if no doctor with the specified ID is found
+     */
+    public Versioned<Doctor> getVersionedDoctorById(int id) {
+        LOGGER.log(Level.INFO, "Retrieving doctor", "id", id);
+        Versioned<Doctor> entry = doctors.getVersioned(id);
+        if (entry != null) {
+            return entry;
         }
-        LOGGER.log(Level.WARNING, "Doctor with ID " + id + " not found");
+        LOGGER.log(Level.WARNING, "Doctor not found", "id", id);
         throw new NotFoundException("Doctor with ID " + id + " not found");
     }
 
+    /**
+     * Gets the version of the doctor collection, which changes with every write to it.
+     * @return The collection version
+     */
+    public long getDoctorsVersion() {
+        return doctors.version();
+    }
+
+    /**
+     * Gets the time of the latest write to the doctor collection.
+     * @return Milliseconds since the epoch
+     */
+    public long getDoctorsLastModified() {
+        return doctors.lastModified();
+    }
+
+    /**
+     * Checks whether a doctor exists.
+     * @param id ID of the doctor
+     * @return True if a doctor with the specified ID exists, otherwise false
+     */
+    public boolean doctorExists(int id) {
+        return doctors.contains(id);
+    }
+
     /**
      * Adds a new doctor.
      * @param doctor The doctor to add
@@ -69,17 +166,17 @@ public class DoctorDAO {
      * @throws InvalidDataException if the doctor data is invalid
      */
     public void addDoctor(Doctor doctor) {
-        LOGGER.log(Level.INFO, "Adding new doctor: " + doctor);
-        String validationError = ValidationCheckerException.validateDoctor(doctor);
-        if (validationError != null) {
-            LOGGER.warning("Invalid doctor data: " + validationError);
-            throw new InvalidDataException(validationError);
+        LOGGER.log(Level.INFO, "Adding new doctor", "doctor", doctor);
+        List<Violation> violations = Validators.DOCTOR.validate(doctor);
+        if (!violations.isEmpty()) {
+            LOGGER.log(Level.WARNING, "Invalid doctor data", "violations", violations);
+            throw Validators.DOCTOR.failure(violations);
         }
         if (isDuplicateDoctor(doctor.getId())) {
             throw new DuplicateException("Doctor with ID " + doctor.getId() + " already exists");
         }
         doctor.setId(nextId.getAndIncrement());
-        doctors.add(doctor);
+        doctors.put(doctor);
     }
 
     /**
@@ -90,18 +187,32 @@ public class DoctorDAO {
      * @throws InvalidDataException if the updated doctor data is invalid
      */
     public void updateDoctor(int id, Doctor updatedDoctor) {
-        LOGGER.log(Level.INFO, "Updating doctor with ID: " + id);
-        Doctor existingDoctor = getDoctorById(id);
-        String validationError = ValidationCheckerException.validateDoctor(updatedDoctor);
-        if (validationError != null) {
-            LOGGER.warning("Invalid updated doctor data: " + validationError);
-            throw new InvalidDataException(validationError);
+        updateDoctor(id, updatedDoctor, EntityStore.ANY_VERSION);
+    }
+
+    /**
+     * Updates an existing doctor if it still has the expected version.
+     * @param id ID of the doctor to update
+     * @param updatedDoctor Updated doctor information
+     * @param expectedVersion Version the stored doctor must have, or {@link EntityStore#ANY_VERSION}
+     * @throws NotFoundException if the specified doctor is not found
+     * @throws InvalidDataException if the updated doctor data is invalid
+     * @throws VersionConflictException if the doctor has another version
+     */
+    public void updateDoctor(int id, Doctor updatedDoctor, long expectedVersion) {
+        LOGGER.log(Level.INFO, "Updating doctor", "id", id);
+        getDoctorById(id);
+        List<Violation> violations = Validators.DOCTOR.validate(updatedDoctor);
+        if (!violations.isEmpty()) {
+            LOGGER.log(Level.WARNING, "Invalid updated doctor data", "violations", violations);
+            throw Validators.DOCTOR.failure(violations);
+        }
+        // Swap in the updated object so concurrent readers never see a half-applied update
+        updatedDoctor.setId(id);
+        if (doctors.replace(id, updatedDoctor, expectedVersion) == null) {
+            throw new NotFoundException("Doctor with ID " + id + " not found");
         }
-        existingDoctor.setName(updatedDoctor.getName());
-        existingDoctor.setContactInformation(updatedDoctor.getContactInformation());
-        existingDoctor.setAddress(updatedDoctor.getAddress());
-        existingDoctor.setSpecialization(updatedDoctor.getSpecialization());
-        LOGGER.log(Level.INFO, "Doctor updated: " + existingDoctor);
+        LOGGER.log(Level.INFO, "Doctor updated", "doctor", updatedDoctor);
     }
 
     /**
@@ -110,14 +221,76 @@ public class DoctorDAO {
      * @throws NotFoundException if the specified doctor is not found
      */
     public void deleteDoctor(int id) {
-        LOGGER.log(Level.INFO, "Deleting doctor with ID: " + id);
-        Doctor doctorToDelete = getDoctorById(id);
-        doctors.remove(doctorToDelete);
-        LOGGER.log(Level.INFO, "Doctor deleted: " + doctorToDelete);
+        deleteDoctor(id, EntityStore.ANY_VERSION);
+    }
+
+    /**
+     * Deletes a doctor by ID if it still has the expected version.
+     * @param id ID of the doctor to delete
+     * @param expectedVersion Version the stored doctor must have, or {@link EntityStore#ANY_VERSION}
+     * @throws NotFoundException if the specified doctor is not found
+     * @throws VersionConflictException if the doctor has another version
+     */
+    public void deleteDoctor(int id, long expectedVersion) {
+        LOGGER.log(Level.INFO, "Deleting doctor", "id", id);
+        Doctor doctorToDelete = doctors.remove(id, expectedVersion);
+        if (doctorToDelete == null) {
+            LOGGER.log(Level.WARNING, "Doctor not found", "id", id);
+            throw new NotFoundException("Doctor with ID " + id + " not found");
+        }
+        LOGGER.log(Level.INFO, "Doctor deleted", "doctor", doctorToDelete);
+    }
+
+    /**
+     * Adds several doctors at once.
+     * Each doctor is checked as by {@link #addDoctor(Doctor)}, and the valid ones are stored together.
+     * @param batch The doctors to add
+     * @return One result per doctor, in the order of {@code batch}
+     */
+    public List<BatchResult> addDoctors(List<Doctor> batch) {
+        LOGGER.log(Level.INFO, "Adding batch of doctors", "count", batch.size());
+        return batchWriter.add(batch, this::checkNewDoctor);
+    }
+
+    /**
+     * Updates several doctors at once. Each doctor carries the ID of the doctor it replaces.
+     * Each doctor is checked as by {@link #updateDoctor(int, Doctor)}, and the valid ones are stored together.
+     * @param batch The updated doctors
+     * @return One result per doctor, in the order of {@code batch}
+     */
+    public List<BatchResult> updateDoctors(List<Doctor> batch) {
+        LOGGER.log(Level.INFO, "Updating batch of doctors", "count", batch.size());
+        return batchWriter.update(batch, this::checkUpdatedDoctor);
+    }
+
+    /**
+     * Deletes several doctors at once.
+     * @param ids IDs of the doctors to delete
+     * @return One result per ID, in the order of {@code ids}
+     */
+    public List<BatchResult> deleteDoctors(int[] ids) {
+        LOGGER.log(Level.INFO, "Deleting batch of doctors", "count", ids.length);
+        return batchWriter.delete(ids);
+    }
+
+    // Checks a doctor of an add batch like addDoctor, without logging every item
+    private void checkNewDoctor(Doctor doctor) {
+        Validators.DOCTOR.check(doctor);
+        if (isDuplicateDoctor(doctor.getId())) {
+            throw new DuplicateException("Doctor with ID " + doctor.getId() + " already exists");
+        }
+    }
+
+    // Checks a doctor of an update batch like updateDoctor; the doctor carries its own ID
+    private void checkUpdatedDoctor(Doctor doctor) {
+        if (doctor != null && !doctors.contains(doctor.getId())) {
+            throw new NotFoundException("Doctor with ID " + doctor.getId() + " not found");
+        }
+        Validators.DOCTOR.check(doctor);
     }
 
     // Helper method to check if a doctor with the given ID already exists
     private boolean isDuplicateDoctor(int id) {
-        return doctors.stream().anyMatch(doctor -> doctor.getId() == id);
+        return doctors.contains(id);
     }
 }
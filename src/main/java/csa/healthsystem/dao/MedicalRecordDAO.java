@@ -9,37 +9,47 @@ package csa.healthsystem.dao;
  * @author Maryam
  */
 import csa.healthsystem.model.MedicalRecord;
-import csa.healthsystem.model.Patient;
 import csa.healthsystem.exception.NotFoundException;
+import csa.healthsystem.exception.VersionConflictException;
 import csa.healthsystem.exception.DuplicateException;
 import csa.healthsystem.exception.InvalidDataException;
-import csa.healthsystem.exception.ValidationCheckerException;
 import csa.healthsystem.exception.DatabaseException;
+import csa.healthsystem.model.BatchResult;
+import csa.healthsystem.model.SearchHit;
+import csa.healthsystem.model.SearchResults;
+import csa.healthsystem.search.Matches;
+import csa.healthsystem.search.TextIndex;
+import csa.healthsystem.store.EntityStore;
+import csa.healthsystem.store.Versioned;
+import csa.healthsystem.validation.Validators;
+import csa.healthsystem.validation.Violation;
+import csa.healthsystem.store.SecondaryIndex;
+import csa.healthsystem.logging.Log;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
-import java.util.logging.Logger;
 
 /**
  * Data Access Object (DAO) for managing MedicalRecord entities.
  */
 public class MedicalRecordDAO {
-    private static final Logger LOGGER = Logger.getLogger(MedicalRecordDAO.class.getName());
+    private static final Log LOGGER = Log.get(MedicalRecordDAO.class);
+    private static final PatientDAO patientDAO = new PatientDAO();
 
-    private static final List<MedicalRecord> medicalRecords = new ArrayList<>();
-    private static final AtomicInteger nextId = new AtomicInteger(1);
+    private static final EntityStore<MedicalRecord> medicalRecords = new EntityStore<>("medical-records", MedicalRecord.class, MedicalRecord::getId);
+    private static final SecondaryIndex<MedicalRecord> medicalRecordsByPatient = medicalRecords.addIndex(MedicalRecord::getPatientId);
+    private static final TextIndex medicalRecordsText = TextIndex.attach(medicalRecords, "medical-records", MedicalRecordDAO::searchText);
+    private static final AtomicInteger nextId = new AtomicInteger(Math.max(1, medicalRecords.maxId() + 1));
+    private static final BatchWriter<MedicalRecord> batchWriter = new BatchWriter<>(medicalRecords, "Medical record", MedicalRecord::getId, MedicalRecord::setId, nextId);
 
     static {
-        // Sample medical records
-        Patient patient1 = new Patient(1000, "John Doe", "0768899123", "123 Main St", "Allergic to penicillin", "Stable");
-        medicalRecords.add(new MedicalRecord(nextId.getAndIncrement(), patient1, "Flu", "Prescription: Rest and plenty of fluids"));
-
-        Patient patient2 = new Patient(1001, "Alice Smith", "0768899124", "456 Oak St", "Asthmatic", "Critical");
-        medicalRecords.add(new MedicalRecord(nextId.getAndIncrement(), patient2, "Broken arm", "Treatment: Cast applied"));
-
-        Patient patient3 = new Patient(1002, "Bob Johnson", "0768899125", "789 Pine St", "Diabetic", "Stable");
-        medicalRecords.add(new MedicalRecord(nextId.getAndIncrement(), patient3, "Headache", "Prescription: Pain reliever"));
+        if (!medicalRecords.isRestored()) {
+            // Sample medical records for the sample patients
+            medicalRecords.put(new MedicalRecord(nextId.getAndIncrement(), 1000, "Flu", "Prescription: Rest and plenty of fluids"));
+            medicalRecords.put(new MedicalRecord(nextId.getAndIncrement(), 1001, "Broken arm", "Treatment: Cast applied"));
+            medicalRecords.put(new MedicalRecord(nextId.getAndIncrement(), 1002, "Headache", "Prescription: Pain reliever"));
+        }
     }
 
     /**
@@ -48,7 +58,47 @@ public class MedicalRecordDAO {
      */
     public List<MedicalRecord> getAllMedicalRecords() {
         LOGGER.log(Level.INFO, "Retrieving all medical records");
-        return new ArrayList<>(medicalRecords); // Return a copy of the list to prevent modification
+        return medicalRecords.values(); // Returns a new list, so callers cannot modify the store
+    }
+
+    /**
+     * Retrieves a page of medical records ordered by ID.
+     * @param afterId Only medical records with an ID greater than this are returned
+     * @param limit Maximum number of medical records to return
+     * @return List of at most {@code limit} medical records
+     */
+    public List<MedicalRecord> getMedicalRecords(int afterId, int limit) {
+        LOGGER.log(Level.INFO, "Retrieving medical records page", "afterId", afterId, "limit", limit);
+        return medicalRecords.page(afterId, limit);
+    }
+
+    /**
+     * Retrieves the medical records of a patient.
+     * @param patientId ID of the patient
+     * @return List of the patient's medical records ordered by ID
+     */
+    public List<MedicalRecord> getMedicalRecordsByPatient(int patientId) {
+        LOGGER.log(Level.INFO, "Retrieving medical records for patient", "patientId", patientId);
+        return medicalRecordsByPatient.find(patientId);
+    }
+
+    /**
+     * Searches the diagnoses and treatments of the medical records.
+     * @param query Words to search for; a medical record matches if it holds all of them
+     * @param count Maximum number of hits to return
+     * @return The best matching medical records, best first
+     */
+    public SearchResults searchMedicalRecords(String query, int count) {
+        LOGGER.log(Level.INFO, "Searching medical records", "query", query, "count", count);
+        Matches matches = medicalRecordsText.search(query, count);
+        List<SearchHit> hits = new ArrayList<>(matches.size());
+        for (int rank = 0; rank < matches.size(); rank++) {
+            MedicalRecord medicalRecord = medicalRecords.get(matches.id(rank));
+            if (medicalRecord != null) { // Deleted since the search
+                hits.add(SearchHit.of(medicalRecord, matches.score(rank)));
+            }
+        }
+        return new SearchResults(query, matches.getTotal(), matches.isTotalExact(), 0, count, hits);
     }
 
     /**
@@ -58,17 +108,48 @@ public class MedicalRecordDAO {
      * @throws NotFoundException if no medical record with the specified ID is found
      */
     public MedicalRecord getMedicalRecordById(int id) {
-        LOGGER.log(Level.INFO, "Retrieving medical record by ID: " + id);
-        for (MedicalRecord medicalRecord : medicalRecords) {
-            if (medicalRecord.getId() == id) {
-                LOGGER.log(Level.INFO, "Medical record with ID " + id + " found: " + medicalRecord);
-                return medicalRecord;
-            }
+        LOGGER.log(Level.INFO, "Retrieving medical record", "id", id);
+        MedicalRecord medicalRecord = medicalRecords.get(id);
+        if (medicalRecord != null) {
+            LOGGER.log(Level.INFO, "Medical record found", "id", id, "medicalRecord", medicalRecord);
+            return medicalRecord;
         }
-        LOGGER.log(Level.WARNING, "Medical record with ID " + id + " not found");
+        LOGGER.log(Level.WARNING, "Medical record not found", "id", id);
         throw new NotFoundException("Medical record with ID " + id + " not found");
     }
 
+    /**
+     * Retrieves a medical record by ID together with its version.
+     * @param id ID of the medical record to retrieve
+     * @return The medical record with the specified ID and its version
+     * @throws NotFoundException if no medical record with the specified ID is found
+     */
+    public Versioned<MedicalRecord> getVersionedMedicalRecordById(int id) {
+        LOGGER.log(Level.INFO, "Retrieving medical record", "id", id);
+        Versioned<MedicalRecord> entry = medicalRecords.getVersioned(id);
+        if (entry != null) {
+            return entry;
+        }
+        LOGGER.log(Level.WARNING, "Medical record not found", "id", id);
+        throw new NotFoundException("Medical record with ID " + id + " not found");
+    }
+
+    /**
+     * Gets the version of the medical record collection, which changes with every write to it.
+     * @return The collection version
+     */
+    public long getMedicalRecordsVersion() {
+        return medicalRecords.version();
+    }
+
+    /**
+     * Gets the time of the latest write to the medical record collection.
+     * @return Milliseconds since the epoch
+     */
+    public long getMedicalRecordsLastModified() {
+        return medicalRecords.lastModified();
+    }
+
     /**
      * Adds a new medical record.
      * @param medicalRecord The medical record to add
@@ -77,22 +158,34 @@ public class MedicalRecordDAO {
      * @throws DatabaseException if a database error occurs
      */
     public void addMedicalRecord(MedicalRecord medicalRecord) {
-        LOGGER.log(Level.INFO, "Adding new medical record: " + medicalRecord);
-        String validationError = ValidationCheckerException.validateMedicalRecord(medicalRecord);
-        if (validationError != null) {
-            LOGGER.warning("Invalid medical record data: " + validationError);
-            throw new InvalidDataException(validationError);
+        LOGGER.log(Level.INFO, "Adding new medical record", "medicalRecord", medicalRecord);
+        checkReferences(medicalRecord);
+        List<Violation> violations = Validators.MEDICAL_RECORD.validate(medicalRecord);
+        if (!violations.isEmpty()) {
+            LOGGER.log(Level.WARNING, "Invalid medical record data", "violations", violations);
+            throw Validators.MEDICAL_RECORD.failure(violations);
         }
         if (isDuplicateMedicalRecord(medicalRecord.getId())) {
             throw new DuplicateException("Medical record with ID " + medicalRecord.getId() + " already exists");
         }
         medicalRecord.setId(nextId.getAndIncrement());
-        medicalRecords.add(medicalRecord);
+        medicalRecords.put(medicalRecord);
     }
     
+    // Medical records refer to their patient by ID, so it must exist
+    private void checkReferences(MedicalRecord medicalRecord) {
+        if (medicalRecord == null) {
+            return;
+        }
+        if (!patientDAO.patientExists(medicalRecord.getPatientId())) {
+            LOGGER.log(Level.WARNING, "Patient not found", "patientId", medicalRecord.getPatientId());
+            throw new InvalidDataException("Patient with ID " + medicalRecord.getPatientId() + " not found");
+        }
+    }
+
     // Helper method to check if a medical record with the given ID already exists
     private boolean isDuplicateMedicalRecord(int id) {
-        return medicalRecords.stream().anyMatch(record -> record.getId() == id);
+        return medicalRecords.contains(id);
     }
 
     /**
@@ -104,17 +197,34 @@ public class MedicalRecordDAO {
      * @throws DatabaseException if a database error occurs
      */
     public void updateMedicalRecord(int id, MedicalRecord updatedRecord) {
-        LOGGER.log(Level.INFO, "Updating medical record with ID: " + id);
-        MedicalRecord existingRecord = getMedicalRecordById(id);
-        String validationError = ValidationCheckerException.validateMedicalRecord(updatedRecord);
-        if (validationError != null) {
-            LOGGER.warning("Invalid medical record data: " + validationError);
-            throw new InvalidDataException(validationError);
+        updateMedicalRecord(id, updatedRecord, EntityStore.ANY_VERSION);
+    }
+
+    /**
+     * Updates an existing medical record if it still has the expected version.
+     * @param id ID of the medical record to update
+     * @param updatedRecord Updated medical record information
+     * @param expectedVersion Version the stored medical record must have, or {@link EntityStore#ANY_VERSION}
+     * @throws NotFoundException if the specified medical record is not found
+     * @throws InvalidDataException if the updated medical record data is invalid
+     * @throws DatabaseException if a database error occurs
+     * @throws VersionConflictException if the medical record has another version
+     */
+    public void updateMedicalRecord(int id, MedicalRecord updatedRecord, long expectedVersion) {
+        LOGGER.log(Level.INFO, "Updating medical record", "id", id);
+        getMedicalRecordById(id);
+        checkReferences(updatedRecord);
+        List<Violation> violations = Validators.MEDICAL_RECORD.validate(updatedRecord);
+        if (!violations.isEmpty()) {
+            LOGGER.log(Level.WARNING, "Invalid medical record data", "violations", violations);
+            throw Validators.MEDICAL_RECORD.failure(violations);
         }
-        existingRecord.setPatient(updatedRecord.getPatient());
-        existingRecord.setDiagnoses(updatedRecord.getDiagnoses());
-        existingRecord.setTreatments(updatedRecord.getTreatments());
-        LOGGER.log(Level.INFO, "Medical record updated: " + existingRecord);
+        // Swap in the updated object so concurrent readers never see a half-applied update
+        updatedRecord.setId(id);
+        if (medicalRecords.replace(id, updatedRecord, expectedVersion) == null) {
+            throw new NotFoundException("Medical record with ID " + id + " not found");
+        }
+        LOGGER.log(Level.INFO, "Medical record updated", "medicalRecord", updatedRecord);
     }
 
     /**
@@ -124,9 +234,84 @@ public class MedicalRecordDAO {
      * @throws DatabaseException if a database error occurs
      */
     public void deleteMedicalRecord(int id) {
-        LOGGER.log(Level.INFO, "Deleting medical record with ID: " + id);
-        MedicalRecord recordToDelete = getMedicalRecordById(id);
-        medicalRecords.remove(recordToDelete);
-        LOGGER.log(Level.INFO, "Medical record deleted: " + recordToDelete);
+        deleteMedicalRecord(id, EntityStore.ANY_VERSION);
+    }
+
+    /**
+     * Deletes a medical record by ID if it still has the expected version.
+     * @param id ID of the medical record to delete
+     * @param expectedVersion Version the stored medical record must have, or {@link EntityStore#ANY_VERSION}
+     * @throws NotFoundException if the specified medical record is not found
+     * @throws DatabaseException if a database error occurs
+     * @throws VersionConflictException if the medical record has another version
+     */
+    public void deleteMedicalRecord(int id, long expectedVersion) {
+        LOGGER.log(Level.INFO, "Deleting medical record", "id", id);
+        MedicalRecord recordToDelete = medicalRecords.remove(id, expectedVersion);
+        if (recordToDelete == null) {
+            LOGGER.log(Level.WARNING, "Medical record not found", "id", id);
+            throw new NotFoundException("Medical record with ID " + id + " not found");
+        }
+        LOGGER.log(Level.INFO, "Medical record deleted", "medicalRecord", recordToDelete);
+    }
+
+    /**
+     * Adds several medical records at once.
+     * Each medical record is checked as by {@link #addMedicalRecord(MedicalRecord)}, and the valid ones are stored together.
+     * @param batch The medical records to add
+     * @return One result per medical record, in the order of {@code batch}
+     * @throws DatabaseException if a database error occurs
+     */
+    public List<BatchResult> addMedicalRecords(List<MedicalRecord> batch) {
+        LOGGER.log(Level.INFO, "Adding batch of medical records", "count", batch.size());
+        return batchWriter.add(batch, this::checkNewMedicalRecord);
+    }
+
+    /**
+     * Updates several medical records at once. Each medical record carries the ID of the medical record it replaces.
+     * Each medical record is checked as by {@link #updateMedicalRecord(int, MedicalRecord)}, and the valid ones are stored together.
+     * @param batch The updated medical records
+     * @return One result per medical record, in the order of {@code batch}
+     * @throws DatabaseException if a database error occurs
+     */
+    public List<BatchResult> updateMedicalRecords(List<MedicalRecord> batch) {
+        LOGGER.log(Level.INFO, "Updating batch of medical records", "count", batch.size());
+        return batchWriter.update(batch, this::checkUpdatedMedicalRecord);
+    }
+
+    /**
+     * Deletes several medical records at once.
+     * @param ids IDs of the medical records to delete
+     * @return One result per ID, in the order of {@code ids}
+     * @throws DatabaseException if a database error occurs
+     */
+    public List<BatchResult> deleteMedicalRecords(int[] ids) {
+        LOGGER.log(Level.INFO, "Deleting batch of medical records", "count", ids.length);
+        return batchWriter.delete(ids);
+    }
+
+    // Checks a medical record of an add batch like addMedicalRecord, without logging every item
+    private void checkNewMedicalRecord(MedicalRecord medicalRecord) {
+        checkReferences(medicalRecord);
+        Validators.MEDICAL_RECORD.check(medicalRecord);
+        if (isDuplicateMedicalRecord(medicalRecord.getId())) {
+            throw new DuplicateException("Medical record with ID " + medicalRecord.getId() + " already exists");
+        }
+    }
+
+    // Checks a medical record of an update batch like updateMedicalRecord; the medical record carries its own ID
+    private void checkUpdatedMedicalRecord(MedicalRecord medicalRecord) {
+        if (medicalRecord != null && !medicalRecords.contains(medicalRecord.getId())) {
+            throw new NotFoundException("Medical record with ID " + medicalRecord.getId() + " not found");
+        }
+        checkReferences(medicalRecord);
+        Validators.MEDICAL_RECORD.check(medicalRecord);
+    }
+
+    private static String searchText(MedicalRecord medicalRecord) {
+        if (medicalRecord.getDiagnoses() == null || medicalRecord.getTreatments() == null) {
+            return medicalRecord.getDiagnoses() == null ? medicalRecord.getTreatments() : medicalRecord.getDiagnoses();
+        }
+        return medicalRecord.getDiagnoses() + " " + medicalRecord.getTreatments();
     }
 }
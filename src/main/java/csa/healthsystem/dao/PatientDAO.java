@@ -9,30 +9,50 @@ package csa.healthsystem.dao;
  * @author Maryam
  */
 import csa.healthsystem.model.Patient;
+import csa.healthsystem.model.References;
 import csa.healthsystem.exception.NotFoundException;
+import csa.healthsystem.exception.VersionConflictException;
 import csa.healthsystem.exception.DuplicateException;
 import csa.healthsystem.exception.InvalidDataException;
-import csa.healthsystem.exception.ValidationCheckerException;
+import csa.healthsystem.model.BatchResult;
+import csa.healthsystem.model.SearchHit;
+import csa.healthsystem.model.SearchResults;
+import csa.healthsystem.search.Matches;
+import csa.healthsystem.search.TextIndex;
+import csa.healthsystem.search.NameIndex;
+import csa.healthsystem.store.BitmapIndex;
+import csa.healthsystem.store.EntityStore;
+import csa.healthsystem.store.Versioned;
+import csa.healthsystem.validation.Validators;
+import csa.healthsystem.validation.Violation;
+import csa.healthsystem.logging.Log;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
-import java.util.logging.Logger;
 
 /**
  * Data Access Object (DAO) for managing Patient entities.
  */
 public class PatientDAO {
-    private static final Logger LOGGER = Logger.getLogger(PatientDAO.class.getName());
+    private static final Log LOGGER = Log.get(PatientDAO.class);
 
-    private static final List<Patient> patients = new ArrayList<>();
-    private static final AtomicInteger nextId = new AtomicInteger(1000); // Start ID from 1000 for patients
+    private static final EntityStore<Patient> patients = new EntityStore<>("patients", Patient.class, Patient::getId);
+    private static final NameIndex patientsByName = NameIndex.attach(patients, Patient::getName, Patient::getContactInformation);
+    private static final TextIndex patientsText = TextIndex.attach(patients, "patients", Patient::getMedicalHistory);
+    private static final BitmapIndex<Patient> patientsByStatus = BitmapIndex.attach(patients, Patient.HEALTH_STATUSES, Patient::getCurrentHealthStatus);
+    private static final AtomicInteger nextId = new AtomicInteger(Math.max(1000, patients.maxId() + 1)); // Start ID from 1000 for patients
+    private static final BatchWriter<Patient> batchWriter = new BatchWriter<>(patients, "Patient", Patient::getId, Patient::setId, nextId);
 
     static {
-        // Adding sample patients
-        patients.add(new Patient(nextId.getAndIncrement(), "John Doe", "123-456-7890", "123 Main St", "Heart condition", "Stable"));
-        patients.add(new Patient(nextId.getAndIncrement(), "Alice Smith", "456-789-0123", "456 Oak St", "Diabetes", "Under treatment"));
-        patients.add(new Patient(nextId.getAndIncrement(), "Bob Johnson", "789-012-3456", "789 Elm St", "Allergy", "Recovering"));
+        // Billings and other records resolve their patient IDs against this store
+        References.registerPatients(patients::get, patients::version, patients::lastModified);
+        if (!patients.isRestored()) {
+            // Adding sample patients
+            patients.put(new Patient(nextId.getAndIncrement(), "John Doe", "123-456-7890", "123 Main St", "Heart condition", "Stable"));
+            patients.put(new Patient(nextId.getAndIncrement(), "Alice Smith", "456-789-0123", "456 Oak St", "Diabetes", "Under treatment"));
+            patients.put(new Patient(nextId.getAndIncrement(), "Bob Johnson", "789-012-3456", "789 Elm St", "Allergy", "Recovering"));
+        }
     }
 
     /**
@@ -41,7 +61,68 @@ public class PatientDAO {
      */
     public List<Patient> getAllPatients() {
         LOGGER.log(Level.INFO, "Retrieving all patients");
-        return new ArrayList<>(patients); // Return a copy of the list to prevent modification
+        return patients.values(); // Returns a new list, so callers cannot modify the store
+    }
+
+    /**
+     * Retrieves a page of patients ordered by ID.
+     * @param afterId Only patients with an ID greater than this are returned
+     * @param limit Maximum number of patients to return
+     * @return List of at most {@code limit} patients
+     */
+    public List<Patient> getPatients(int afterId, int limit) {
+        LOGGER.log(Level.INFO, "Retrieving patients page", "afterId", afterId, "limit", limit);
+        return patients.page(afterId, limit);
+    }
+
+    /**
+     * Retrieves a page of the patients with any of some health statuses, ordered by ID.
+     * @param statuses The health statuses to match exactly
+     * @param afterId Only patients with an ID greater than this are returned
+     * @param limit Maximum number of patients to return
+     * @return List of at most {@code limit} patients
+     */
+    public List<Patient> getPatientsByStatus(List<String> statuses, int afterId, int limit) {
+        LOGGER.log(Level.INFO, "Retrieving patients page by health status", "statuses", statuses, "afterId", afterId, "limit", limit);
+        return patientsByStatus.find(statuses, afterId, limit);
+    }
+
+    /**
+     * Searches the medical histories of the patients.
+     * @param query Words to search for; a patient matches if the history holds all of them
+     * @param count Maximum number of hits to return
+     * @return The best matching patients, best first
+     */
+    public SearchResults searchPatients(String query, int count) {
+        LOGGER.log(Level.INFO, "Searching patients", "query", query, "count", count);
+        Matches matches = patientsText.search(query, count);
+        List<SearchHit> hits = new ArrayList<>(matches.size());
+        for (int rank = 0; rank < matches.size(); rank++) {
+            Patient patient = patients.get(matches.id(rank));
+            if (patient != null) { // Deleted since the search
+                hits.add(SearchHit.of(patient, matches.score(rank)));
+            }
+        }
+        return new SearchResults(query, matches.getTotal(), matches.isTotalExact(), 0, count, hits);
+    }
+
+    /**
+     * Finds patients by the start of their name or phone number, tolerating small typos in names.
+     * @param prefix Start of one or more words of the name, in any order, or of the phone number
+     * @param limit Maximum number of patients to return
+     * @return List of at most {@code limit} patients, best match first
+     */
+    public List<Patient> findPatients(String prefix, int limit) {
+        LOGGER.log(Level.INFO, "Finding patients by prefix", "prefix", prefix, "limit", limit);
+        int[] ids = patientsByName.search(prefix, limit);
+        List<Patient> found = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            Patient patient = patients.get(id);
+            if (patient != null) { // Deleted since the search
+                found.add(patient);
+            }
+        }
+        return found;
     }
 
     /**
@@ -51,17 +132,57 @@ public class PatientDAO {
      * @throws NotFoundException if no patient with the specified ID is found
      */
     public Patient getPatientById(int id) {
-        LOGGER.log(Level.INFO, "Retrieving patient by ID: " + id);
-        for (Patient patient : patients) {
-            if (patient.getId() == id) {
-                LOGGER.log(Level.INFO, "Patient with ID " + id + " found: " + patient);
-                return patient;
-            }
+        LOGGER.log(Level.INFO, "Retrieving patient", "id", id);
+        Patient patient = patients.get(id);
+        if (patient != null) {
+            LOGGER.log(Level.INFO, "Patient found", "id", id, "patient", patient);
+            return patient;
+        }
+        LOGGER.log(Level.WARNING, "Patient not found", "id", id);
+        throw new NotFoundException("Patient with ID " + id + " not found");
+    }
+
+    /**
+     * Retrieves a patient by ID together with its version.
+     * @param id ID of the patient to retrieve
+     * @return The patient with the specified ID and its version
+     * @throws NotFoundException if no patient with the specified ID is found
+     */
+    public Versioned<Patient> getVersionedPatientById(int id) {
+        LOGGER.log(Level.INFO, "Retrieving patient", "id", id);
+        Versioned<Patient> entry = patients.getVersioned(id);
+        if (entry != null) {
+            return entry;
         }
-        LOGGER.log(Level.WARNING, "Patient with ID " + id + " not found");
+        LOGGER.log(Level.WARNING, "Patient not found", "id", id);
         throw new NotFoundException("Patient with ID " + id + " not found");
     }
 
+    /**
+     * Gets the version of the patient collection, which changes with every write to it.
+     * @return The collection version
+     */
+    public long getPatientsVersion() {
+        return patients.version();
+    }
+
+    /**
+     * Gets the time of the latest write to the patient collection.
+     * @return Milliseconds since the epoch
+     */
+    public long getPatientsLastModified() {
+        return patients.lastModified();
+    }
+
+    /**
+     * Checks whether a patient exists.
+     * @param id ID of the patient
+     * @return True if a patient with the specified ID exists, otherwise false
+     */
+    public boolean patientExists(int id) {
+        return patients.contains(id);
+    }
+
     /**
      * Adds a new patient.
      * @param patient The patient to add
@@ -69,22 +190,22 @@ public class PatientDAO {
      * @throws InvalidDataException if the patient data is invalid
      */
     public void addPatient(Patient patient) {
-        LOGGER.log(Level.INFO, "Adding new patient: " + patient);
-        String validationError = ValidationCheckerException.validatePatient(patient);
-        if (validationError != null) {
-            LOGGER.warning("Invalid patient data: " + validationError);
-            throw new InvalidDataException(validationError);
+        LOGGER.log(Level.INFO, "Adding new patient", "patient", patient);
+        List<Violation> violations = Validators.PATIENT.validate(patient);
+        if (!violations.isEmpty()) {
+            LOGGER.log(Level.WARNING, "Invalid patient data", "violations", violations);
+            throw Validators.PATIENT.failure(violations);
         }
         if (isDuplicatePatient(patient.getId())) {
             throw new DuplicateException("Patient with ID " + patient.getId() + " already exists");
         }
         patient.setId(nextId.getAndIncrement());
-        patients.add(patient);
+        patients.put(patient);
     }
     
     // Helper method to check if a patient with the given ID already exists
     private boolean isDuplicatePatient(int id) {
-        return patients.stream().anyMatch(patient -> patient.getId() == id);
+        return patients.contains(id);
     }
 
     /**
@@ -95,19 +216,32 @@ public class PatientDAO {
      * @throws InvalidDataException if the updated patient data is invalid
      */
     public void updatePatient(int id, Patient updatedPatient) {
-        LOGGER.log(Level.INFO, "Updating patient with ID: " + id);
-        Patient existingPatient = getPatientById(id);
-        String validationError = ValidationCheckerException.validatePatient(updatedPatient);
-        if (validationError != null) {
-            LOGGER.warning("Invalid updated patient data: " + validationError);
-            throw new InvalidDataException(validationError);
+        updatePatient(id, updatedPatient, EntityStore.ANY_VERSION);
+    }
+
+    /**
+     * Updates an existing patient if it still has the expected version.
+     * @param id ID of the patient to update
+     * @param updatedPatient Updated patient information
+     * @param expectedVersion Version the stored patient must have, or {@link EntityStore#ANY_VERSION}
+     * @throws NotFoundException if the specified patient is not found
+     * @throws InvalidDataException if the updated patient data is invalid
+     * @throws VersionConflictException if the patient has another version
+     */
+    public void updatePatient(int id, Patient updatedPatient, long expectedVersion) {
+        LOGGER.log(Level.INFO, "Updating patient", "id", id);
+        getPatientById(id);
+        List<Violation> violations = Validators.PATIENT.validate(updatedPatient);
+        if (!violations.isEmpty()) {
+            LOGGER.log(Level.WARNING, "Invalid updated patient data", "violations", violations);
+            throw Validators.PATIENT.failure(violations);
+        }
+        // Swap in the updated object so concurrent readers never see a half-applied update
+        updatedPatient.setId(id);
+        if (patients.replace(id, updatedPatient, expectedVersion) == null) {
+            throw new NotFoundException("Patient with ID " + id + " not found");
         }
-        existingPatient.setName(updatedPatient.getName());
-        existingPatient.setContactInformation(updatedPatient.getContactInformation());
-        existingPatient.setAddress(updatedPatient.getAddress());
-        existingPatient.setMedicalHistory(updatedPatient.getMedicalHistory());
-        existingPatient.setCurrentHealthStatus(updatedPatient.getCurrentHealthStatus());
-        LOGGER.log(Level.INFO, "Patient updated: " + existingPatient);
+        LOGGER.log(Level.INFO, "Patient updated", "patient", updatedPatient);
     }
 
     /**
@@ -116,9 +250,71 @@ public class PatientDAO {
      * @throws NotFoundException if the specified patient is not found
      */
     public void deletePatient(int id) {
-        LOGGER.log(Level.INFO, "Deleting patient with ID: " + id);
-        Patient patientToDelete = getPatientById(id);
-        patients.remove(patientToDelete);
-        LOGGER.log(Level.INFO, "Patient deleted: " + patientToDelete);
+        deletePatient(id, EntityStore.ANY_VERSION);
+    }
+
+    /**
+     * Deletes a patient by ID if it still has the expected version.
+     * @param id ID of the patient to delete
+     * @param expectedVersion Version the stored patient must have, or {@link EntityStore#ANY_VERSION}
+     * @throws NotFoundException if the specified patient is not found
+     * @throws VersionConflictException if the patient has another version
+     */
+    public void deletePatient(int id, long expectedVersion) {
+        LOGGER.log(Level.INFO, "Deleting patient", "id", id);
+        Patient patientToDelete = patients.remove(id, expectedVersion);
+        if (patientToDelete == null) {
+            LOGGER.log(Level.WARNING, "Patient not found", "id", id);
+            throw new NotFoundException("Patient with ID " + id + " not found");
+        }
+        LOGGER.log(Level.INFO, "Patient deleted", "patient", patientToDelete);
+    }
+
+    /**
+     * Adds several patients at once.
+     * Each patient is checked as by {@link #addPatient(Patient)}, and the valid ones are stored together.
+     * @param batch The patients to add
+     * @return One result per patient, in the order of {@code batch}
+     */
+    public List<BatchResult> addPatients(List<Patient> batch) {
+        LOGGER.log(Level.INFO, "Adding batch of patients", "count", batch.size());
+        return batchWriter.add(batch, this::checkNewPatient);
+    }
+
+    /**
+     * Updates several patients at once. Each patient carries the ID of the patient it replaces.
+     * Each patient is checked as by {@link #updatePatient(int, Patient)}, and the valid ones are stored together.
+     * @param batch The updated patients
+     * @return One result per patient, in the order of {@code batch}
+     */
+    public List<BatchResult> updatePatients(List<Patient> batch) {
+        LOGGER.log(Level.INFO, "Updating batch of patients", "count", batch.size());
+        return batchWriter.update(batch, this::checkUpdatedPatient);
+    }
+
+    /**
+     * Deletes several patients at once.
+     * @param ids IDs of the patients to delete
+     * @return One result per ID, in the order of {@code ids}
+     */
+    public List<BatchResult> deletePatients(int[] ids) {
+        LOGGER.log(Level.INFO, "Deleting batch of patients", "count", ids.length);
+        return batchWriter.delete(ids);
+    }
+
+    // Checks a patient of an add batch like addPatient, without logging every item
+    private void checkNewPatient(Patient patient) {
+        Validators.PATIENT.check(patient);
+        if (isDuplicatePatient(patient.getId())) {
+            throw new DuplicateException("Patient with ID " + patient.getId() + " already exists");
+        }
+    }
+
+    // Checks a patient of an update batch like updatePatient; the patient carries its own ID
+    private void checkUpdatedPatient(Patient patient) {
+        if (patient != null && !patients.contains(patient.getId())) {
+            throw new NotFoundException("Patient with ID " + patient.getId() + " not found");
+        }
+        Validators.PATIENT.check(patient);
     }
 }
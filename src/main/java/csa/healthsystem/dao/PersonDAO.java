@@ -10,32 +10,42 @@ package csa.healthsystem.dao;
  */
 import csa.healthsystem.model.Person;
 import csa.healthsystem.exception.NotFoundException;
+import csa.healthsystem.exception.VersionConflictException;
 import csa.healthsystem.exception.DuplicateException;
 import csa.healthsystem.exception.InvalidDataException;
-import csa.healthsystem.exception.ValidationCheckerException;
+import csa.healthsystem.model.BatchResult;
+import csa.healthsystem.search.NameIndex;
+import csa.healthsystem.store.EntityStore;
+import csa.healthsystem.store.Versioned;
+import csa.healthsystem.validation.Validators;
+import csa.healthsystem.validation.Violation;
+import csa.healthsystem.logging.Log;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
-import java.util.logging.Logger;
 
 /**
  * Data Access Object (DAO) for managing Person entities.
  */
 public class PersonDAO {
-    private static final Logger LOGGER = Logger.getLogger(PersonDAO.class.getName());
+    private static final Log LOGGER = Log.get(PersonDAO.class);
 
-    private static final List<Person> persons = new ArrayList<>();
-    private static final AtomicInteger nextId = new AtomicInteger(1);
+    private static final EntityStore<Person> persons = new EntityStore<>("persons", Person.class, Person::getId);
+    private static final NameIndex personsByName = NameIndex.attach(persons, Person::getName, Person::getContactInformation);
+    private static final AtomicInteger nextId = new AtomicInteger(Math.max(1, persons.maxId() + 1));
+    private static final BatchWriter<Person> batchWriter = new BatchWriter<>(persons, "Person", Person::getId, Person::setId, nextId);
 
     static {
-        // Adding sample persons
-        Person person1 = new Person(nextId.getAndIncrement(), "John Doe", "1234567890", "123 Main St");
-        Person person2 = new Person(nextId.getAndIncrement(), "Alice Smith", "2345678901", "456 Elm St");
-        Person person3 = new Person(nextId.getAndIncrement(), "Bob Johnson", "3456789012", "789 Oak St");
-        persons.add(person1);
-        persons.add(person2);
-        persons.add(person3);
+        if (!persons.isRestored()) {
+            // Adding sample persons
+            Person person1 = new Person(nextId.getAndIncrement(), "John Doe", "1234567890", "123 Main St");
+            Person person2 = new Person(nextId.getAndIncrement(), "Alice Smith", "2345678901", "456 Elm St");
+            Person person3 = new Person(nextId.getAndIncrement(), "Bob Johnson", "3456789012", "789 Oak St");
+            persons.put(person1);
+            persons.put(person2);
+            persons.put(person3);
+        }
     }
 
     /**
@@ -44,7 +54,37 @@ public class PersonDAO {
      */
     public List<Person> getAllPersons() {
         LOGGER.log(Level.INFO, "Retrieving all persons");
-        return new ArrayList<>(persons); // Return a copy of the list to prevent modification
+        return persons.values(); // Returns a new list, so callers cannot modify the store
+    }
+
+    /**
+     * Retrieves a page of persons ordered by ID.
+     * @param afterId Only persons with an ID greater than this are returned
+     * @param limit Maximum number of persons to return
+     * @return List of at most {@code limit} persons
+     */
+    public List<Person> getPersons(int afterId, int limit) {
+        LOGGER.log(Level.INFO, "Retrieving persons page", "afterId", afterId, "limit", limit);
+        return persons.page(afterId, limit);
+    }
+
+    /**
+     * Finds persons by the start of their name or phone number, tolerating small typos in names.
+     * @param prefix Start of one or more words of the name, in any order, or of the phone number
+     * @param limit Maximum number of persons to return
+     * @return List of at most {@code limit} persons, best match first
+     */
+    public List<Person> findPersons(String prefix, int limit) {
+        LOGGER.log(Level.INFO, "Finding persons by prefix", "prefix", prefix, "limit", limit);
+        int[] ids = personsByName.search(prefix, limit);
+        List<Person> found = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            Person person = persons.get(id);
+            if (person != null) { // Deleted since the search
+                found.add(person);
+            }
+        }
+        return found;
     }
 
     /**
@@ -54,17 +94,48 @@ public class PersonDAO {
      * @throws NotFoundException if no person with the specified ID is found
      */
     public Person getPersonById(int id) {
-        LOGGER.log(Level.INFO, "Retrieving person by ID: " + id);
-        for (Person person : persons) {
-            if (person.getId() == id) {
-                LOGGER.log(Level.INFO, "Person with ID " + id + " found: " + person);
-                return person;
-            }
+        LOGGER.log(Level.INFO, "Retrieving person", "id", id);
+        Person person = persons.get(id);
+        if (person != null) {
+            LOGGER.log(Level.INFO, "Person found", "id", id, "person", person);
+            return person;
+        }
+        LOGGER.log(Level.WARNING, "Person not found", "id", id);
+        throw new NotFoundException("Person with ID " + id + " not found");
+    }
+
+    /**
+     * Retrieves a person by ID together with its version.
+     * @param id ID of the person to retrieve
+     * @return The person with the specified ID and its version
+     * @throws NotFoundException if no person with the specified ID is found
+     */
+    public Versioned<Person> getVersionedPersonById(int id) {
+        LOGGER.log(Level.INFO, "Retrieving person", "id", id);
+        Versioned<Person> entry = persons.getVersioned(id);
+        if (entry != null) {
+            return entry;
         }
-        LOGGER.log(Level.WARNING, "Person with ID " + id + " not found");
+        LOGGER.log(Level.WARNING, "Person not found", "id", id);
         throw new NotFoundException("Person with ID " + id + " not found");
     }
 
+    /**
+     * Gets the version of the person collection, which changes with every write to it.
+     * @return The collection version
+     */
+    public long getPersonsVersion() {
+        return persons.version();
+    }
+
+    /**
+     * Gets the time of the latest write to the person collection.
+     * @return Milliseconds since the epoch
+     */
+    public long getPersonsLastModified() {
+        return persons.lastModified();
+    }
+
     /**
      * Adds a new person.
      * @param person The person to add
@@ -72,22 +143,22 @@ public class PersonDAO {
      * @throws InvalidDataException if the person data is invalid
      */
     public void addPerson(Person person) {
-        LOGGER.log(Level.INFO, "Adding new person: " + person);
-        String validationError = ValidationCheckerException.validatePerson(person);
-        if (validationError != null) {
-            LOGGER.warning("Invalid person data: " + validationError);
-            throw new InvalidDataException(validationError);
+        LOGGER.log(Level.INFO, "Adding new person", "person", person);
+        List<Violation> violations = Validators.PERSON.validate(person);
+        if (!violations.isEmpty()) {
+            LOGGER.log(Level.WARNING, "Invalid person data", "violations", violations);
+            throw Validators.PERSON.failure(violations);
         }
         if (isDuplicatePerson(person.getId())) {
             throw new DuplicateException("Person with ID " + person.getId() + " already exists");
         }
         person.setId(nextId.getAndIncrement());
-        persons.add(person);
+        persons.put(person);
     }
     
     // Helper method to check if a person with the given ID already exists
     private boolean isDuplicatePerson(int id) {
-        return persons.stream().anyMatch(person -> person.getId() == id);
+        return persons.contains(id);
     }
 
     /**
@@ -98,17 +169,32 @@ public class PersonDAO {
      * @throws InvalidDataException if the updated person data is invalid
      */
     public void updatePerson(int id, Person updatedPerson) {
-        LOGGER.log(Level.INFO, "Updating person with ID: " + id);
-        Person existingPerson = getPersonById(id);
-        String validationError = ValidationCheckerException.validatePerson(updatedPerson);
-        if (validationError != null) {
-            LOGGER.warning("Invalid updated person data: " + validationError);
-            throw new InvalidDataException(validationError);
+        updatePerson(id, updatedPerson, EntityStore.ANY_VERSION);
+    }
+
+    /**
+     * Updates an existing person if it still has the expected version.
+     * @param id ID of the person to update
+     * @param updatedPerson Updated person information
+     * @param expectedVersion Version the stored person must have, or {@link EntityStore#ANY_VERSION}
+     * @throws NotFoundException if the specified person is not found
+     * @throws InvalidDataException if the updated person data is invalid
+     * @throws VersionConflictException if the person has another version
+     */
+    public void updatePerson(int id, Person updatedPerson, long expectedVersion) {
+        LOGGER.log(Level.INFO, "Updating person", "id", id);
+        getPersonById(id);
+        List<Violation> violations = Validators.PERSON.validate(updatedPerson);
+        if (!violations.isEmpty()) {
+            LOGGER.log(Level.WARNING, "Invalid updated person data", "violations", violations);
+            throw Validators.PERSON.failure(violations);
         }
-        existingPerson.setName(updatedPerson.getName());
-        existingPerson.setContactInformation(updatedPerson.getContactInformation());
-        existingPerson.setAddress(updatedPerson.getAddress());
-        LOGGER.log(Level.INFO, "Person updated: " + existingPerson);
+        // Swap in the updated object so concurrent readers never see a half-applied update
+        updatedPerson.setId(id);
+        if (persons.replace(id, updatedPerson, expectedVersion) == null) {
+            throw new NotFoundException("Person with ID " + id + " not found");
+        }
+        LOGGER.log(Level.INFO, "Person updated", "person", updatedPerson);
     }
 
     /**
@@ -117,9 +203,71 @@ public class PersonDAO {
      * @throws NotFoundException if the specified person is not found
      */
     public void deletePerson(int id) {
-        LOGGER.log(Level.INFO, "Deleting person with ID: " + id);
-        Person personToDelete = getPersonById(id);
-        persons.remove(personToDelete);
-        LOGGER.log(Level.INFO, "Person deleted: " + personToDelete);
+        deletePerson(id, EntityStore.ANY_VERSION);
+    }
+
+    /**
+     * Deletes a person by ID if it still has the expected version.
+     * @param id ID of the person to delete
+     * @param expectedVersion Version the stored person must have, or {@link EntityStore#ANY_VERSION}
+     * @throws NotFoundException if the specified person is not found
+     * @throws VersionConflictException if the person has another version
+     */
+    public void deletePerson(int id, long expectedVersion) {
+        LOGGER.log(Level.INFO, "Deleting person", "id", id);
+        Person personToDelete = persons.remove(id, expectedVersion);
+        if (personToDelete == null) {
+            LOGGER.log(Level.WARNING, "Person not found", "id", id);
+            throw new NotFoundException("Person with ID " + id + " not found");
+        }
+        LOGGER.log(Level.INFO, "Person deleted", "person", personToDelete);
+    }
+
+    /**
+     * Adds several persons at once.
+     * Each person is checked as by {@link #addPerson(Person)}, and the valid ones are stored together.
+     * @param batch The persons to add
+     * @return One result per person, in the order of {@code batch}
+     */
+    public List<BatchResult> addPersons(List<Person> batch) {
+        LOGGER.log(Level.INFO, "Adding batch of persons", "count", batch.size());
+        return batchWriter.add(batch, this::checkNewPerson);
+    }
+
+    /**
+     * Updates several persons at once. Each person carries the ID of the person it replaces.
+     * Each person is checked as by {@link #updatePerson(int, Person)}, and the valid ones are stored together.
+     * @param batch The updated persons
+     * @return One result per person, in the order of {@code batch}
+     */
+    public List<BatchResult> updatePersons(List<Person> batch) {
+        LOGGER.log(Level.INFO, "Updating batch of persons", "count", batch.size());
+        return batchWriter.update(batch, this::checkUpdatedPerson);
+    }
+
+    /**
+     * Deletes several persons at once.
+     * @param ids IDs of the persons to delete
+     * @return One result per ID, in the order of {@code ids}
+     */
+    public List<BatchResult> deletePersons(int[] ids) {
+        LOGGER.log(Level.INFO, "Deleting batch of persons", "count", ids.length);
+        return batchWriter.delete(ids);
+    }
+
+    // Checks a person of an add batch like addPerson, without logging every item
+    private void checkNewPerson(Person person) {
+        Validators.PERSON.check(person);
+        if (isDuplicatePerson(person.getId())) {
+            throw new DuplicateException("Person with ID " + person.getId() + " already exists");
+        }
+    }
+
+    // Checks a person of an update batch like updatePerson; the person carries its own ID
+    private void checkUpdatedPerson(Person person) {
+        if (person != null && !persons.contains(person.getId())) {
+            throw new NotFoundException("Person with ID " + person.getId() + " not found");
+        }
+        Validators.PERSON.check(person);
     }
 }
@@ -9,43 +9,43 @@ package csa.healthsystem.dao;
  * @author Maryam 
  */
 import csa.healthsystem.model.Prescription;
-import csa.healthsystem.model.Doctor;
-import csa.healthsystem.model.Patient;
 import csa.healthsystem.exception.NotFoundException;
+import csa.healthsystem.exception.VersionConflictException;
 import csa.healthsystem.exception.DuplicateException;
 import csa.healthsystem.exception.InvalidDataException;
-import csa.healthsystem.exception.ValidationCheckerException;
 import csa.healthsystem.exception.DatabaseException;
-import java.util.ArrayList;
+import csa.healthsystem.model.BatchResult;
+import csa.healthsystem.store.EntityStore;
+import csa.healthsystem.store.Versioned;
+import csa.healthsystem.validation.Validators;
+import csa.healthsystem.validation.Violation;
+import csa.healthsystem.store.SecondaryIndex;
+import csa.healthsystem.logging.Log;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
-import java.util.logging.Logger;
 
 /**
  * Data Access Object (DAO) for managing Prescription entities.
  */
 public class PrescriptionDAO {
-    private static final Logger LOGGER = Logger.getLogger(PrescriptionDAO.class.getName());
+    private static final Log LOGGER = Log.get(PrescriptionDAO.class);
+    private static final PatientDAO patientDAO = new PatientDAO();
+    private static final DoctorDAO doctorDAO = new DoctorDAO();
 
-    private static final List<Prescription> prescriptions = new ArrayList<>();
-    private static final AtomicInteger nextId = new AtomicInteger(1);
+    private static final EntityStore<Prescription> prescriptions = new EntityStore<>("prescriptions", Prescription.class, Prescription::getId);
+    private static final SecondaryIndex<Prescription> prescriptionsByPatient = prescriptions.addIndex(Prescription::getPatientId);
+    private static final SecondaryIndex<Prescription> prescriptionsByDoctor = prescriptions.addIndex(Prescription::getDoctorId);
+    private static final AtomicInteger nextId = new AtomicInteger(Math.max(1, prescriptions.maxId() + 1));
+    private static final BatchWriter<Prescription> batchWriter = new BatchWriter<>(prescriptions, "Prescription", Prescription::getId, Prescription::setId, nextId);
 
-    static{
-        Patient patient1 = new Patient(1000, "John Doe", "0768899123", "123 Main St", "Allergic to penicillin", "Stable");
-        Doctor doctor1 = new Doctor(1, "Dr. Smith", "0768899124", "456 Elm St", "Cardiologist");
-        Prescription prescription1 = new Prescription(nextId.getAndIncrement(), patient1, doctor1, "Aspirin", "10mg", "Take once daily with food", 30);
-        prescriptions.add(prescription1);
-
-        Patient patient2 = new Patient(1001, "Alice Smith", "0768899125", "456 Oak St", "Asthmatic", "Critical");
-        Doctor doctor2 = new Doctor(2, "Dr. Johnson", "0768899126", "789 Oak St", "Dermatologist");
-        Prescription prescription2 = new Prescription(nextId.getAndIncrement(), patient2, doctor2, "Lipitor", "20mg", "Take at bedtime", 60);
-        prescriptions.add(prescription2);
-
-        Patient patient3 = new Patient(1002, "Bob Johnson", "0768899127", "789 Pine St", "Diabetic", "Stable");
-        Doctor doctor3 = new Doctor(3, "Dr. Brown", "0768899128", "987 Maple St", "Pediatrician");
-        Prescription prescription3 = new Prescription(nextId.getAndIncrement(), patient3, doctor3, "Insulin", "10 units", "Inject subcutaneously before meals", 90);
-        prescriptions.add(prescription3);
+    static {
+        if (!prescriptions.isRestored()) {
+            // Sample prescriptions for the sample patients and doctors
+            prescriptions.put(new Prescription(nextId.getAndIncrement(), 1000, 1, "Aspirin", "10mg", "Take once daily with food", 30));
+            prescriptions.put(new Prescription(nextId.getAndIncrement(), 1001, 2, "Lipitor", "20mg", "Take at bedtime", 60));
+            prescriptions.put(new Prescription(nextId.getAndIncrement(), 1002, 3, "Insulin", "10 units", "Inject subcutaneously before meals", 90));
+        }
     }
     /**
      * Retrieves all prescriptions.
@@ -53,7 +53,38 @@ public class PrescriptionDAO {
      */
     public List<Prescription> getAllPrescriptions() {
         LOGGER.log(Level.INFO, "Retrieving all prescriptions");
-        return new ArrayList<>(prescriptions); // Return a copy of the list to prevent modification
+        return prescriptions.values(); // Returns a new list, so callers cannot modify the store
+    }
+
+    /**
+     * Retrieves a page of prescriptions ordered by ID.
+     * @param afterId Only prescriptions with an ID greater than this are returned
+     * @param limit Maximum number of prescriptions to return
+     * @return List of at most {@code limit} prescriptions
+     */
+    public List<Prescription> getPrescriptions(int afterId, int limit) {
+        LOGGER.log(Level.INFO, "Retrieving prescriptions page", "afterId", afterId, "limit", limit);
+        return prescriptions.page(afterId, limit);
+    }
+
+    /**
+     * Retrieves the prescriptions of a patient.
+     * @param patientId ID of the patient
+     * @return List of the patient's prescriptions ordered by ID
+     */
+    public List<Prescription> getPrescriptionsByPatient(int patientId) {
+        LOGGER.log(Level.INFO, "Retrieving prescriptions for patient", "patientId", patientId);
+        return prescriptionsByPatient.find(patientId);
+    }
+
+    /**
+     * Retrieves the prescriptions of a doctor.
+     * @param doctorId ID of the doctor
+     * @return List of the doctor's prescriptions ordered by ID
+     */
+    public List<Prescription> getPrescriptionsByDoctor(int doctorId) {
+        LOGGER.log(Level.INFO, "Retrieving prescriptions for doctor", "doctorId", doctorId);
+        return prescriptionsByDoctor.find(doctorId);
     }
 
     /**
@@ -63,17 +94,48 @@ public class PrescriptionDAO {
      * @throws NotFoundException if no prescription with the specified ID is found
      */
     public Prescription getPrescriptionById(int id) {
-        LOGGER.log(Level.INFO, "Retrieving prescription by ID: " + id);
-        for (Prescription prescription : prescriptions) {
-            if (prescription.getId() == id) {
-                LOGGER.log(Level.INFO, "Prescription with ID " + id + " found: " + prescription);
-                return prescription;
-            }
+        LOGGER.log(Level.INFO, "Retrieving prescription", "id", id);
+        Prescription prescription = prescriptions.get(id);
+        if (prescription != null) {
+            LOGGER.log(Level.INFO, "Prescription found", "id", id, "prescription", prescription);
+            return prescription;
         }
-        LOGGER.log(Level.WARNING, "Prescription with ID " + id + " not found");
+        LOGGER.log(Level.WARNING, "Prescription not found", "id", id);
         throw new NotFoundException("Prescription with ID " + id + " not found");
     }
 
+    /**
+     * Retrieves a prescription by ID together with its version.
+     * @param id ID of the prescription to retrieve
+     * @return The prescription with the specified ID and its version
+     * @throws NotFoundException if no prescription with the specified ID is found
+     */
+    public Versioned<Prescription> getVersionedPrescriptionById(int id) {
+        LOGGER.log(Level.INFO, "Retrieving prescription", "id", id);
+        Versioned<Prescription> entry = prescriptions.getVersioned(id);
+        if (entry != null) {
+            return entry;
+        }
+        LOGGER.log(Level.WARNING, "Prescription not found", "id", id);
+        throw new NotFoundException("Prescription with ID " + id + " not found");
+    }
+
+    /**
+     * Gets the version of the prescription collection, which changes with every write to it.
+     * @return The collection version
+     */
+    public long getPrescriptionsVersion() {
+        return prescriptions.version();
+    }
+
+    /**
+     * Gets the time of the latest write to the prescription collection.
+     * @return Milliseconds since the epoch
+     */
+    public long getPrescriptionsLastModified() {
+        return prescriptions.lastModified();
+    }
+
     /**
      * Adds a new prescription.
      * @param prescription The prescription to add
@@ -82,22 +144,38 @@ public class PrescriptionDAO {
      * @throws DatabaseException if a database error occurs
      */
     public void addPrescription(Prescription prescription) {
-        LOGGER.log(Level.INFO, "Adding new prescription: " + prescription);
-        String validationError = ValidationCheckerException.validatePrescription(prescription);
-        if (validationError != null) {
-            LOGGER.warning("Invalid prescription data: " + validationError);
-            throw new InvalidDataException(validationError);
+        LOGGER.log(Level.INFO, "Adding new prescription", "prescription", prescription);
+        checkReferences(prescription);
+        List<Violation> violations = Validators.PRESCRIPTION.validate(prescription);
+        if (!violations.isEmpty()) {
+            LOGGER.log(Level.WARNING, "Invalid prescription data", "violations", violations);
+            throw Validators.PRESCRIPTION.failure(violations);
         }
         if (isDuplicatePrescription(prescription.getId())) {
             throw new DuplicateException("Prescription with ID " + prescription.getId() + " already exists");
         }
         prescription.setId(nextId.getAndIncrement());
-        prescriptions.add(prescription);
+        prescriptions.put(prescription);
     }
     
+    // Prescriptions refer to their patient and doctor by ID, so both must exist
+    private void checkReferences(Prescription prescription) {
+        if (prescription == null) {
+            return;
+        }
+        if (!patientDAO.patientExists(prescription.getPatientId())) {
+            LOGGER.log(Level.WARNING, "Patient not found", "patientId", prescription.getPatientId());
+            throw new InvalidDataException("Patient with ID " + prescription.getPatientId() + " not found");
+        }
+        if (!doctorDAO.doctorExists(prescription.getDoctorId())) {
+            LOGGER.log(Level.WARNING, "Doctor not found", "doctorId", prescription.getDoctorId());
+            throw new InvalidDataException("Doctor with ID " + prescription.getDoctorId() + " not found");
+        }
+    }
+
     // Helper method to check if a prescription with the given ID already exists
     private boolean isDuplicatePrescription(int id) {
-        return prescriptions.stream().anyMatch(prescription -> prescription.getId() == id);
+        return prescriptions.contains(id);
     }
 
     /**
@@ -109,20 +187,34 @@ public class PrescriptionDAO {
      * @throws DatabaseException if a database error occurs
      */
     public void updatePrescription(int id, Prescription updatedPrescription) {
-        LOGGER.log(Level.INFO, "Updating prescription with ID: " + id);
-        Prescription existingPrescription = getPrescriptionById(id);
-        String validationError = ValidationCheckerException.validatePrescription(updatedPrescription);
-        if (validationError != null) {
-            LOGGER.warning("Invalid prescription data: " + validationError);
-            throw new InvalidDataException(validationError);
+        updatePrescription(id, updatedPrescription, EntityStore.ANY_VERSION);
+    }
+
+    /**
+     * Updates an existing prescription if it still has the expected version.
+     * @param id ID of the prescription to update
+     * @param updatedPrescription Updated prescription information
+     * @param expectedVersion Version the stored prescription must have, or {@link EntityStore#ANY_VERSION}
+     * @throws NotFoundException if the specified prescription is not found
+     * @throws InvalidDataException if the updated prescription data is invalid
+     * @throws DatabaseException if a database error occurs
+     * @throws VersionConflictException if the prescription has another version
+     */
+    public void updatePrescription(int id, Prescription updatedPrescription, long expectedVersion) {
+        LOGGER.log(Level.INFO, "Updating prescription", "id", id);
+        getPrescriptionById(id);
+        checkReferences(updatedPrescription);
+        List<Violation> violations = Validators.PRESCRIPTION.validate(updatedPrescription);
+        if (!violations.isEmpty()) {
+            LOGGER.log(Level.WARNING, "Invalid prescription data", "violations", violations);
+            throw Validators.PRESCRIPTION.failure(violations);
+        }
+        // Swap in the updated object so concurrent readers never see a half-applied update
+        updatedPrescription.setId(id);
+        if (prescriptions.replace(id, updatedPrescription, expectedVersion) == null) {
+            throw new NotFoundException("Prescription with ID " + id + " not found");
         }
-        existingPrescription.setPatient(updatedPrescription.getPatient());
-        existingPrescription.setDoctor(updatedPrescription.getDoctor());
-        existingPrescription.setMedication(updatedPrescription.getMedication());
-        existingPrescription.setDosage(updatedPrescription.getDosage());
-        existingPrescription.setInstructions(updatedPrescription.getInstructions());
-        existingPrescription.setDurationInDays(updatedPrescription.getDurationInDays());
-        LOGGER.log(Level.INFO, "Prescription updated: " + existingPrescription);
+        LOGGER.log(Level.INFO, "Prescription updated", "prescription", updatedPrescription);
     }
 
     /**
@@ -132,9 +224,77 @@ public class PrescriptionDAO {
      * @throws DatabaseException if a database error occurs
      */
     public void deletePrescription(int id) {
-        LOGGER.log(Level.INFO, "Deleting prescription with ID: " + id);
-        Prescription prescriptionToDelete = getPrescriptionById(id);
-        prescriptions.remove(prescriptionToDelete);
-        LOGGER.log(Level.INFO, "Prescription deleted: " + prescriptionToDelete);
+        deletePrescription(id, EntityStore.ANY_VERSION);
+    }
+
+    /**
+     * Deletes a prescription by ID if it still has the expected version.
+     * @param id ID of the prescription to delete
+     * @param expectedVersion Version the stored prescription must have, or {@link EntityStore#ANY_VERSION}
+     * @throws NotFoundException if the specified prescription is not found
+     * @throws DatabaseException if a database error occurs
+     * @throws VersionConflictException if the prescription has another version
+     */
+    public void deletePrescription(int id, long expectedVersion) {
+        LOGGER.log(Level.INFO, "Deleting prescription", "id", id);
+        Prescription prescriptionToDelete = prescriptions.remove(id, expectedVersion);
+        if (prescriptionToDelete == null) {
+            LOGGER.log(Level.WARNING, "Prescription not found", "id", id);
+            throw new NotFoundException("Prescription with ID " + id + " not found");
+        }
+        LOGGER.log(Level.INFO, "Prescription deleted", "prescription", prescriptionToDelete);
+    }
+
+    /**
+     * Adds several prescriptions at once.
+     * Each prescription is checked as by {@link #addPrescription(Prescription)}, and the valid ones are stored together.
+     * @param batch The prescriptions to add
+     * @return One result per prescription, in the order of {@code batch}
+     * @throws DatabaseException if a database error occurs
+     */
+    public List<BatchResult> addPrescriptions(List<Prescription> batch) {
+        LOGGER.log(Level.INFO, "Adding batch of prescriptions", "count", batch.size());
+        return batchWriter.add(batch, this::checkNewPrescription);
+    }
+
+    /**
+     * Updates several prescriptions at once. Each prescription carries the ID of the prescription it replaces.
+     * Each prescription is checked as by {@link #updatePrescription(int, Prescription)}, and the valid ones are stored together.
+     * @param batch The updated prescriptions
+     * @return One result per prescription, in the order of {@code batch}
+     * @throws DatabaseException if a database error occurs
+     */
+    public List<BatchResult> updatePrescriptions(List<Prescription> batch) {
+        LOGGER.log(Level.INFO, "Updating batch of prescriptions", "count", batch.size());
+        return batchWriter.update(batch, this::checkUpdatedPrescription);
+    }
+
+    /**
+     * Deletes several prescriptions at once.
+     * @param ids IDs of the prescriptions to delete
+     * @return One result per ID, in the order of {@code ids}
+     * @throws DatabaseException if a database error occurs
+     */
+    public List<BatchResult> deletePrescriptions(int[] ids) {
+        LOGGER.log(Level.INFO, "Deleting batch of prescriptions", "count", ids.length);
+        return batchWriter.delete(ids);
+    }
+
+    // Checks a prescription of an add batch like addPrescription, without logging every item
+    private void checkNewPrescription(Prescription prescription) {
+        checkReferences(prescription);
+        Validators.PRESCRIPTION.check(prescription);
+        if (isDuplicatePrescription(prescription.getId())) {
+            throw new DuplicateException("Prescription with ID " + prescription.getId() + " already exists");
+        }
+    }
+
+    // Checks a prescription of an update batch like updatePrescription; the prescription carries its own ID
+    private void checkUpdatedPrescription(Prescription prescription) {
+        if (prescription != null && !prescriptions.contains(prescription.getId())) {
+            throw new NotFoundException("Prescription with ID " + prescription.getId() + " not found");
+        }
+        checkReferences(prescription);
+        Validators.PRESCRIPTION.check(prescription);
     }
 }
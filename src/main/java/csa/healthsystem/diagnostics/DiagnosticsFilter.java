@@ -0,0 +1,64 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.diagnostics;
+
+/**
+ *
+ * @author Maryam
+ */
+import csa.healthsystem.logging.Log;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import javax.annotation.Priority;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.PreMatching;
+import javax.ws.rs.ext.Provider;
+
+/**
+ * Starts the diagnostics of a request that asks for it with {@code X-Diagnostics: true}.
+ * Diagnosed requests are limited to {@link #MAX_PER_MINUTE} per minute; further requests are
+ * served normally and answered with {@code X-Diagnostics: rate-limited}. The phases are
+ * timed by {@link PhaseTimingFilter}.
+ */
+@Provider
+@PreMatching
+@Priority(Priorities.AUTHENTICATION - 100)
+public class DiagnosticsFilter implements ContainerRequestFilter {
+    /**
+     * Request header that asks for diagnostics, and response header naming the trace in the log.
+     */
+    public static final String HEADER = "X-Diagnostics";
+
+    /**
+     * Requests that may be diagnosed per minute; 0 disables diagnostics.
+     */
+    public static final int MAX_PER_MINUTE = Integer.getInteger("healthsystem.diagnostics.maxPerMinute", 60);
+
+    static final String TRACE_PROPERTY = RequestTrace.class.getName();
+    static final String RATE_LIMITED_PROPERTY = TRACE_PROPERTY + ".rateLimited";
+
+    private static final Log LOGGER = Log.get(DiagnosticsFilter.class);
+    private static final DiagnosticsLimiter LIMITER = new DiagnosticsLimiter(MAX_PER_MINUTE);
+    private static final AtomicLong NEXT_ID = new AtomicLong(1);
+
+    @Override
+    public void filter(ContainerRequestContext requestContext) {
+        long start = System.nanoTime();
+        // A request that failed before its response was filtered may have left its trace bound
+        RequestTrace.bind(null);
+        if (!"true".equalsIgnoreCase(requestContext.getHeaderString(HEADER))) {
+            return;
+        }
+        if (!LIMITER.tryAcquire()) {
+            LOGGER.log(Level.FINE, "Diagnostics rate limit reached, serving request without diagnostics");
+            requestContext.setProperty(RATE_LIMITED_PROPERTY, Boolean.TRUE);
+            return;
+        }
+        String request = requestContext.getMethod() + " /" + requestContext.getUriInfo().getPath();
+        requestContext.setProperty(TRACE_PROPERTY, new RequestTrace(NEXT_ID.getAndIncrement(), request, start));
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.diagnostics;
+
+/**
+ *
+ * @author Maryam
+ */
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket limiting how many requests per minute may be diagnosed, so the diagnostics
+ * header cannot be used to slow down every request.
+ */
+final class DiagnosticsLimiter {
+    private final long nanosPerPermit;
+    private final double maxPermits;
+    private double permits;
+    private long refilledAt;
+
+    /**
+     * Creates a limiter that starts with a full bucket.
+     * @param perMinute Requests allowed per minute, which is also the largest burst; 0 allows none
+     */
+    DiagnosticsLimiter(int perMinute) {
+        this.maxPermits = Math.max(0, perMinute);
+        this.nanosPerPermit = perMinute > 0 ? TimeUnit.MINUTES.toNanos(1) / perMinute : Long.MAX_VALUE;
+        this.permits = maxPermits;
+        this.refilledAt = System.nanoTime();
+    }
+
+    /**
+     * Takes a permit if one is left.
+     * @return Whether the request may be diagnosed
+     */
+    synchronized boolean tryAcquire() {
+        long now = System.nanoTime();
+        permits = Math.min(maxPermits, permits + (now - refilledAt) / (double) nanosPerPermit);
+        refilledAt = now;
+        if (permits < 1) {
+            return false;
+        }
+        permits--;
+        return true;
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.diagnostics;
+
+/**
+ *
+ * @author Maryam
+ */
+
+/**
+ * Phases of a request timed by the diagnostics mode, in the order they happen.
+ */
+public enum Phase {
+    /** Finding the resource method for the request URI. */
+    MATCHING("matching"),
+    /** Reading the request entity. */
+    DESERIALIZATION("deserialization"),
+    /** Checking entities against their validation rules. */
+    VALIDATION("validation"),
+    /** Running the resource method and its DAO calls, apart from the phases above. */
+    DAO("dao"),
+    /** Writing the response entity. */
+    SERIALIZATION("serialization");
+
+    private final String metricName;
+
+    Phase(String metricName) {
+        this.metricName = metricName;
+    }
+
+    /**
+     * Gets the name of the phase in the {@code Server-Timing} header and the log.
+     * @return The name
+     */
+    public String getMetricName() {
+        return metricName;
+    }
+}
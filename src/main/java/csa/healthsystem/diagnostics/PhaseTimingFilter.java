@@ -0,0 +1,106 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.diagnostics;
+
+/**
+ *
+ * @author Maryam
+ */
+import csa.healthsystem.logging.Log;
+import java.io.IOException;
+import java.util.logging.Level;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.ext.Provider;
+import javax.ws.rs.ext.ReaderInterceptor;
+import javax.ws.rs.ext.ReaderInterceptorContext;
+import javax.ws.rs.ext.WriterInterceptor;
+import javax.ws.rs.ext.WriterInterceptorContext;
+
+/**
+ * Times the phases of a request started by {@link DiagnosticsFilter}.
+ * Matching ends when this filter sees the matched request, and the resource method runs
+ * between this filter and the response; request reading and validation are timed on their
+ * own and the rest of the method is counted as DAO time. The phases up to the response are
+ * sent back in a {@code Server-Timing} header; once the response is written the full trace,
+ * including serialization, is logged under the ID given in the {@code X-Diagnostics} header.
+ * Requests that are not diagnosed only pay for a property lookup per filter.
+ */
+@Provider
+public class PhaseTimingFilter implements ContainerRequestFilter, ContainerResponseFilter,
+        ReaderInterceptor, WriterInterceptor {
+    private static final String SERVER_TIMING_HEADER = "Server-Timing";
+    private static final Log LOGGER = Log.get(PhaseTimingFilter.class);
+
+    @Override
+    public void filter(ContainerRequestContext requestContext) {
+        RequestTrace trace = (RequestTrace) requestContext.getProperty(DiagnosticsFilter.TRACE_PROPERTY);
+        if (trace == null) {
+            return;
+        }
+        long now = System.nanoTime();
+        trace.add(Phase.MATCHING, now - trace.startNanos());
+        trace.resourceStarted(now);
+        RequestTrace.bind(trace);
+    }
+
+    @Override
+    public Object aroundReadFrom(ReaderInterceptorContext context) throws IOException {
+        RequestTrace trace = (RequestTrace) context.getProperty(DiagnosticsFilter.TRACE_PROPERTY);
+        if (trace == null) {
+            return context.proceed();
+        }
+        long start = System.nanoTime();
+        try {
+            return context.proceed();
+        } finally {
+            trace.add(Phase.DESERIALIZATION, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext) {
+        RequestTrace trace = (RequestTrace) requestContext.getProperty(DiagnosticsFilter.TRACE_PROPERTY);
+        if (trace == null) {
+            if (requestContext.getProperty(DiagnosticsFilter.RATE_LIMITED_PROPERTY) != null) {
+                responseContext.getHeaders().putSingle(DiagnosticsFilter.HEADER, "rate-limited");
+            }
+            return;
+        }
+        RequestTrace.bind(null);
+        long now = System.nanoTime();
+        if (trace.resourceStartNanos() != 0) {
+            long resource = now - trace.resourceStartNanos();
+            trace.add(Phase.DAO, Math.max(0, resource - trace.nanos(Phase.DESERIALIZATION) - trace.nanos(Phase.VALIDATION)));
+        } else {
+            // No resource matched, so everything so far was matching
+            trace.add(Phase.MATCHING, now - trace.startNanos());
+        }
+        responseContext.getHeaders().putSingle(DiagnosticsFilter.HEADER, Long.toString(trace.id()));
+        responseContext.getHeaders().putSingle(SERVER_TIMING_HEADER, trace.serverTiming());
+        if (!responseContext.hasEntity()) {
+            LOGGER.logFields(Level.INFO, "Request diagnostics", trace.fields(now));
+        }
+    }
+
+    @Override
+    public void aroundWriteTo(WriterInterceptorContext context) throws IOException {
+        RequestTrace trace = (RequestTrace) context.getProperty(DiagnosticsFilter.TRACE_PROPERTY);
+        if (trace == null) {
+            context.proceed();
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            context.proceed();
+        } finally {
+            long end = System.nanoTime();
+            trace.add(Phase.SERIALIZATION, end - start);
+            LOGGER.logFields(Level.INFO, "Request diagnostics", trace.fields(end));
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.diagnostics;
+
+/**
+ *
+ * @author Maryam
+ */
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Phase timings of one request in diagnostics mode.
+ * While the resource method runs the trace is bound to the request thread, so code below the
+ * resources, such as validation, can add its time with {@link #current()} without knowing
+ * about requests. Outside diagnostics mode {@link #current()} returns null and timing code
+ * is skipped.
+ */
+public final class RequestTrace {
+    private static final ThreadLocal<RequestTrace> CURRENT = new ThreadLocal<>();
+
+    private final long id;
+    private final String request;
+    private final long startNanos;
+    private final long[] phaseNanos = new long[Phase.values().length];
+    private long resourceStartNanos;
+
+    RequestTrace(long id, String request, long startNanos) {
+        this.id = id;
+        this.request = request;
+        this.startNanos = startNanos;
+    }
+
+    /**
+     * Gets the trace of the request running on this thread.
+     * @return The trace, or null if the request is not being diagnosed
+     */
+    public static RequestTrace current() {
+        return CURRENT.get();
+    }
+
+    static void bind(RequestTrace trace) {
+        if (trace == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(trace);
+        }
+    }
+
+    /**
+     * Adds time spent in a phase; a phase may be entered several times.
+     * @param phase The phase
+     * @param nanos The time spent in nanoseconds
+     */
+    public void add(Phase phase, long nanos) {
+        phaseNanos[phase.ordinal()] += nanos;
+    }
+
+    long id() {
+        return id;
+    }
+
+    long startNanos() {
+        return startNanos;
+    }
+
+    long resourceStartNanos() {
+        return resourceStartNanos;
+    }
+
+    void resourceStarted(long nanos) {
+        resourceStartNanos = nanos;
+    }
+
+    long nanos(Phase phase) {
+        return phaseNanos[phase.ordinal()];
+    }
+
+    /**
+     * Formats the phases timed so far as a {@code Server-Timing} header value.
+     * @return The header value, such as {@code matching;dur=0.041, dao;dur=1.205}
+     */
+    String serverTiming() {
+        StringBuilder value = new StringBuilder();
+        for (Phase phase : Phase.values()) {
+            if (phase == Phase.SERIALIZATION) {
+                // Not known yet when the headers are written
+                continue;
+            }
+            if (value.length() > 0) {
+                value.append(", ");
+            }
+            value.append(phase.getMetricName()).append(";dur=").append(millis(nanos(phase)));
+        }
+        return value.toString();
+    }
+
+    /**
+     * Lists the trace ID, the request, every phase and the total time as log fields.
+     * @param endNanos The time the response was complete
+     * @return Field names, each followed by its value; times are in milliseconds
+     */
+    Object[] fields(long endNanos) {
+        Phase[] phases = Phase.values();
+        Object[] fields = new Object[2 * phases.length + 6];
+        fields[0] = "id";
+        fields[1] = id;
+        fields[2] = "request";
+        fields[3] = request;
+        int i = 4;
+        for (Phase phase : phases) {
+            fields[i++] = phase.getMetricName() + "Ms";
+            fields[i++] = millis(nanos(phase));
+        }
+        fields[i++] = "totalMs";
+        fields[i] = millis(endNanos - startNanos);
+        return fields;
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / (double) TimeUnit.MILLISECONDS.toNanos(1));
+    }
+}
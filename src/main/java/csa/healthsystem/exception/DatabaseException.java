@@ -9,6 +9,8 @@ package csa.healthsystem.exception;
  * @author Maryam
  */
 public class DatabaseException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
     public DatabaseException(String message) {
         super(message);
     }
@@ -9,6 +9,8 @@ package csa.healthsystem.exception;
  * @author User
  */
 public class DuplicateException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
     public DuplicateException(String message) {
         super(message);
     }
@@ -8,8 +8,35 @@ package csa.healthsystem.exception;
  *
  * @author Maryam
  */
+import csa.healthsystem.validation.Violation;
+import java.util.Collections;
+import java.util.List;
+
 public class InvalidDataException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final List<Violation> violations;
+
     public InvalidDataException(String message) {
         super(message);
+        this.violations = Collections.emptyList();
+    }
+
+    /**
+     * Creates an exception reporting validation failures.
+     * @param message Description of every failure
+     * @param violations Every rule the data breaks
+     */
+    public InvalidDataException(String message, List<Violation> violations) {
+        super(message);
+        this.violations = Collections.unmodifiableList(violations);
+    }
+
+    /**
+     * Gets the broken validation rules.
+     * @return The violations, or an empty list if the problem was not found by a validator
+     */
+    public List<Violation> getViolations() {
+        return violations;
     }
 }
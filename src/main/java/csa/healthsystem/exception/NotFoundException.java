@@ -9,6 +9,8 @@ package csa.healthsystem.exception;
  * @author User
  */
 public class NotFoundException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
     public NotFoundException(String message) {
         super(message);
     }
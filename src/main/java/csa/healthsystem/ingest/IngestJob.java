@@ -0,0 +1,218 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.ingest;
+
+/**
+ *
+ * @author Maryam
+ */
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import csa.healthsystem.validation.Violation;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress and outcome of one streaming ingest, serialized as its report.
+ * The counters are updated by the ingest threads while clients read them, so every
+ * getter returns a current value. Only the first {@link #MAX_REPORTED_REJECTIONS}
+ * rejected lines are kept; all of them are counted.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonPropertyOrder({"id", "entity", "state", "startedAt", "elapsedMillis", "linesRead", "accepted", "rejected",
+        "backpressureMillis", "error", "rejections"})
+public final class IngestJob {
+    /**
+     * Number of rejected lines kept for the report.
+     */
+    public static final int MAX_REPORTED_REJECTIONS = 100;
+
+    /**
+     * State of a job.
+     */
+    public enum State { RUNNING, COMPLETED, FAILED }
+
+    private final int id;
+    private final String entityName;
+    private final Instant startedAt = Instant.now();
+    private final long startNanos = System.nanoTime();
+    private final AtomicLong linesRead = new AtomicLong();
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong backpressureNanos = new AtomicLong();
+    private final List<Rejection> rejections = new ArrayList<>();
+    private volatile State state = State.RUNNING;
+    private volatile long finishNanos;
+    private volatile String error;
+
+    IngestJob(int id, String entityName) {
+        this.id = id;
+        this.entityName = entityName;
+    }
+
+    /**
+     * Gets the ID of the job.
+     * @return The job ID
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Gets the kind of entities ingested.
+     * @return The entity name, such as "medical records"
+     */
+    public String getEntity() {
+        return entityName;
+    }
+
+    /**
+     * Gets the state of the job.
+     * @return The current state
+     */
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * Gets the time the job started.
+     * @return The start time in ISO-8601 format
+     */
+    public String getStartedAt() {
+        return startedAt.toString();
+    }
+
+    /**
+     * Gets the running time of the job.
+     * @return Milliseconds since the start, or the total duration once finished
+     */
+    public long getElapsedMillis() {
+        long end = state == State.RUNNING ? System.nanoTime() : finishNanos;
+        return TimeUnit.NANOSECONDS.toMillis(end - startNanos);
+    }
+
+    /**
+     * Gets the number of lines read so far, blank lines included.
+     * @return The number of lines read
+     */
+    public long getLinesRead() {
+        return linesRead.get();
+    }
+
+    /**
+     * Gets the number of entities stored so far.
+     * @return The number of accepted entities
+     */
+    public long getAccepted() {
+        return accepted.get();
+    }
+
+    /**
+     * Gets the number of lines rejected so far.
+     * @return The number of rejected lines
+     */
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    /**
+     * Gets the time the reader spent waiting because the store fell behind.
+     * @return Milliseconds of backpressure
+     */
+    public long getBackpressureMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(backpressureNanos.get());
+    }
+
+    /**
+     * Gets the first rejected lines.
+     * @return Copy of at most {@link #MAX_REPORTED_REJECTIONS} rejections in line order
+     */
+    public List<Rejection> getRejections() {
+        synchronized (rejections) {
+            List<Rejection> copy = new ArrayList<>(rejections);
+            Collections.sort(copy, (a, b) -> Long.compare(a.line, b.line));
+            return copy;
+        }
+    }
+
+    /**
+     * Gets the reason the job failed.
+     * @return The error message, or null unless the job failed
+     */
+    public String getError() {
+        return error;
+    }
+
+    void lineRead() {
+        linesRead.incrementAndGet();
+    }
+
+    void accepted(int count) {
+        accepted.addAndGet(count);
+    }
+
+    void reject(long line, String message, List<Violation> violations) {
+        rejected.incrementAndGet();
+        synchronized (rejections) {
+            if (rejections.size() < MAX_REPORTED_REJECTIONS) {
+                rejections.add(new Rejection(line, message, violations.isEmpty() ? null : violations));
+            }
+        }
+    }
+
+    void waited(long nanos) {
+        backpressureNanos.addAndGet(nanos);
+    }
+
+    void finish(String failure) {
+        finishNanos = System.nanoTime();
+        error = failure;
+        state = failure == null ? State.COMPLETED : State.FAILED;
+    }
+
+    /**
+     * One rejected line of the input.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static final class Rejection {
+        private final long line;
+        private final String error;
+        private final List<Violation> violations;
+
+        Rejection(long line, String error, List<Violation> violations) {
+            this.line = line;
+            this.error = error;
+            this.violations = violations;
+        }
+
+        /**
+         * Gets the number of the rejected line.
+         * @return The line number, starting at 1
+         */
+        public long getLine() {
+            return line;
+        }
+
+        /**
+         * Gets the reason the line was rejected.
+         * @return The error message
+         */
+        public String getError() {
+            return error;
+        }
+
+        /**
+         * Gets the validation rules the entity on the line breaks.
+         * @return The violations, or null if the line failed for another reason
+         */
+        public List<Violation> getViolations() {
+            return violations;
+        }
+    }
+}
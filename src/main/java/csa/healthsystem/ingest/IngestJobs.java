@@ -0,0 +1,79 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.ingest;
+
+/**
+ *
+ * @author Maryam
+ */
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The running and recently finished ingest jobs of one entity type, so clients can follow
+ * the progress of an ingest from another connection. Finished jobs beyond
+ * {@link #MAX_FINISHED_JOBS} are forgotten, oldest first.
+ */
+public final class IngestJobs {
+    /**
+     * Number of finished jobs kept.
+     */
+    public static final int MAX_FINISHED_JOBS = 20;
+
+    private final String entityName;
+    private final LinkedHashMap<Integer, IngestJob> jobs = new LinkedHashMap<>();
+    private int nextId = 1;
+
+    /**
+     * Creates an empty registry.
+     * @param entityName The kind of entities ingested, such as "medical records"
+     */
+    public IngestJobs(String entityName) {
+        this.entityName = entityName;
+    }
+
+    /**
+     * Starts tracking a new job.
+     * @return The job, in the running state
+     */
+    public synchronized IngestJob start() {
+        IngestJob job = new IngestJob(nextId++, entityName);
+        jobs.put(job.getId(), job);
+        int finished = 0;
+        for (IngestJob existing : jobs.values()) {
+            if (existing.getState() != IngestJob.State.RUNNING) {
+                finished++;
+            }
+        }
+        Iterator<Map.Entry<Integer, IngestJob>> oldest = jobs.entrySet().iterator();
+        while (finished > MAX_FINISHED_JOBS && oldest.hasNext()) {
+            if (oldest.next().getValue().getState() != IngestJob.State.RUNNING) {
+                oldest.remove();
+                finished--;
+            }
+        }
+        return job;
+    }
+
+    /**
+     * Gets a job by ID.
+     * @param id ID of the job
+     * @return The job, or null if it is unknown or was forgotten
+     */
+    public synchronized IngestJob get(int id) {
+        return jobs.get(id);
+    }
+
+    /**
+     * Lists the known jobs.
+     * @return The jobs, oldest first
+     */
+    public synchronized List<IngestJob> list() {
+        return new ArrayList<>(jobs.values());
+    }
+}
@@ -0,0 +1,336 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.ingest;
+
+/**
+ *
+ * @author Maryam
+ */
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import csa.healthsystem.logging.Log;
+import csa.healthsystem.model.BatchResult;
+import csa.healthsystem.validation.Violation;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.logging.Level;
+
+/**
+ * Streams newline-delimited JSON into a DAO without holding the input in memory.
+ * The request thread reads the body line by line and parses each line with its own Jackson
+ * parser, so a malformed line is rejected on its own. Parsed entities are grouped into
+ * batches and handed to a writer thread through a bounded queue; when the store falls
+ * behind the queue fills up and the reader stops reading, which pushes back on the client
+ * through TCP flow control. Progress and rejected lines are recorded in an {@link IngestJob}.
+ * @param <T> The type of the ingested entities
+ */
+public final class NdjsonIngest<T> {
+    private static final Log LOGGER = Log.get(NdjsonIngest.class);
+
+    /**
+     * Number of entities stored per DAO call.
+     */
+    public static final int BATCH_SIZE = 1000;
+
+    /**
+     * Number of parsed batches that may wait for the writer.
+     */
+    public static final int QUEUED_BATCHES = 4;
+
+    /**
+     * Longest accepted line; longer lines are rejected without being buffered.
+     */
+    public static final int MAX_LINE_BYTES = 1 << 20;
+
+    private static final int PROGRESS_INTERVAL = 100000;
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    // Error locations would otherwise quote the whole read buffer, not just the line
+    private static final JsonFactory FACTORY = MAPPER.getFactory().disable(JsonParser.Feature.INCLUDE_SOURCE_IN_LOCATION);
+    private static final List<Violation> NO_VIOLATIONS = Collections.emptyList();
+    private static final AtomicInteger WRITER_COUNT = new AtomicInteger();
+    private static final ExecutorService WRITERS = Executors.newCachedThreadPool(task -> {
+        Thread thread = new Thread(task, "ingest-writer-" + WRITER_COUNT.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final ObjectReader reader;
+    private final Function<List<T>, List<BatchResult>> sink;
+
+    /**
+     * Creates an ingest for one entity type.
+     * @param type The class of the entities
+     * @param sink Stores a batch and returns one result per entity, such as a DAO batch add
+     */
+    public NdjsonIngest(Class<T> type, Function<List<T>, List<BatchResult>> sink) {
+        this.reader = MAPPER.readerFor(type);
+        this.sink = sink;
+    }
+
+    /**
+     * Reads a body and stores its entities. Returns once every line is processed or the
+     * ingest failed; the job holds the outcome.
+     * @param body One entity per line
+     * @param job Receives the progress and outcome
+     */
+    public void run(InputStream body, IngestJob job) {
+        BlockingQueue<Batch<T>> queue = new ArrayBlockingQueue<>(QUEUED_BATCHES);
+        AtomicReference<String> writeFailure = new AtomicReference<>();
+        Future<?> writer = WRITERS.submit(() -> drain(queue, job, writeFailure));
+        String failure = null;
+        try {
+            Batch<T> batch = new Batch<>();
+            LineReader lines = new LineReader(body);
+            while (lines.next() && !writer.isDone()) {
+                job.lineRead();
+                if (lines.number() % PROGRESS_INTERVAL == 0) {
+                    LOGGER.logFields(Level.INFO, "Ingest progress", "job", job.getId(), "entity", job.getEntity(),
+                            "linesRead", lines.number(), "stored", job.getAccepted(), "rejected", job.getRejected());
+                }
+                T entity = parse(lines, job);
+                if (entity != null) {
+                    batch.add(entity, lines.number());
+                    if (batch.size() == BATCH_SIZE) {
+                        hand(queue, batch, job, writer);
+                        batch = new Batch<>();
+                    }
+                }
+            }
+            if (batch.size() > 0) {
+                hand(queue, batch, job, writer);
+            }
+        } catch (IOException | RuntimeException e) {
+            failure = "Failed to read the request body: " + e.getMessage();
+        } finally {
+            hand(queue, Batch.end(), job, writer);
+        }
+        try {
+            writer.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure = "Interrupted while waiting for the writer";
+        } catch (ExecutionException e) {
+            failure = "Failed to store " + job.getEntity() + ": " + e.getCause().getMessage();
+        }
+        if (writeFailure.get() != null) {
+            failure = writeFailure.get();
+        }
+        job.finish(failure);
+        if (failure == null) {
+            LOGGER.logFields(Level.INFO, "Ingest finished", "job", job.getId(), "entity", job.getEntity(), "state", job.getState(),
+                    "linesRead", job.getLinesRead(), "stored", job.getAccepted(), "rejected", job.getRejected());
+        } else {
+            LOGGER.logFields(Level.SEVERE, "Ingest failed", "job", job.getId(), "entity", job.getEntity(), "state", job.getState(),
+                    "linesRead", job.getLinesRead(), "stored", job.getAccepted(), "rejected", job.getRejected(), "error", failure);
+        }
+    }
+
+    // Returns the entity on the current line, or null if the line is blank or rejected
+    private T parse(LineReader lines, IngestJob job) throws IOException {
+        if (lines.tooLong()) {
+            job.reject(lines.number(), "Line is longer than " + MAX_LINE_BYTES + " bytes", NO_VIOLATIONS);
+            return null;
+        }
+        if (lines.isBlank()) {
+            return null;
+        }
+        try (JsonParser parser = FACTORY.createParser(lines.buffer(), lines.start(), lines.length())) {
+            T entity = reader.readValue(parser);
+            if (entity == null) {
+                job.reject(lines.number(), "Line holds no entity", NO_VIOLATIONS);
+                return null;
+            }
+            if (parser.nextToken() != null) {
+                job.reject(lines.number(), "Unexpected content after the entity", NO_VIOLATIONS);
+                return null;
+            }
+            return entity;
+        } catch (JsonProcessingException e) {
+            job.reject(lines.number(), "Invalid JSON: " + e.getOriginalMessage(), NO_VIOLATIONS);
+            return null;
+        }
+    }
+
+    // Blocks while the queue is full, unless the writer has stopped
+    private static <T> void hand(BlockingQueue<Batch<T>> queue, Batch<T> batch, IngestJob job, Future<?> writer) {
+        try {
+            if (queue.offer(batch)) {
+                return;
+            }
+            long start = System.nanoTime();
+            try {
+                while (!queue.offer(batch, 100, TimeUnit.MILLISECONDS)) {
+                    if (writer.isDone()) {
+                        return;
+                    }
+                }
+            } finally {
+                job.waited(System.nanoTime() - start);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            writer.cancel(true);
+        }
+    }
+
+    private void drain(BlockingQueue<Batch<T>> queue, IngestJob job, AtomicReference<String> failure) {
+        try {
+            while (true) {
+                Batch<T> batch = queue.take();
+                if (batch.isEnd()) {
+                    return;
+                }
+                List<BatchResult> results = sink.apply(batch.entities);
+                int stored = 0;
+                for (int i = 0; i < results.size(); i++) {
+                    BatchResult result = results.get(i);
+                    if (result.isSucceeded()) {
+                        stored++;
+                    } else {
+                        job.reject(batch.lines[i], result.getError(), result.getViolations());
+                    }
+                }
+                job.accepted(stored);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            failure.set("Failed to store " + job.getEntity() + ": " + e.getMessage());
+        }
+    }
+
+    // Entities of one batch with the numbers of the lines they came from
+    private static final class Batch<T> {
+        private static final Batch<Object> END = new Batch<>();
+
+        final List<T> entities = new ArrayList<>(BATCH_SIZE);
+        final long[] lines = new long[BATCH_SIZE];
+
+        @SuppressWarnings("unchecked")
+        static <T> Batch<T> end() {
+            return (Batch<T>) END;
+        }
+
+        boolean isEnd() {
+            return this == END;
+        }
+
+        void add(T entity, long line) {
+            lines[entities.size()] = line;
+            entities.add(entity);
+        }
+
+        int size() {
+            return entities.size();
+        }
+    }
+
+    // Splits a stream into lines in place, without decoding them into strings
+    private static final class LineReader {
+        private final InputStream in;
+        private byte[] buffer = new byte[1 << 16];
+        private int position;
+        private int limit;
+        private int start;
+        private int end;
+        private long number;
+        private boolean eof;
+        private boolean tooLong;
+
+        LineReader(InputStream in) {
+            this.in = in;
+        }
+
+        boolean next() throws IOException {
+            tooLong = false;
+            int scan = position;
+            while (true) {
+                for (int i = scan; i < limit; i++) {
+                    if (buffer[i] == '\n') {
+                        return line(i, i + 1);
+                    }
+                }
+                if (eof) {
+                    return position < limit || tooLong ? line(limit, limit) : false;
+                }
+                if (limit - position >= MAX_LINE_BYTES) {
+                    // Drop what was read of the line and keep looking for its end
+                    tooLong = true;
+                    position = 0;
+                    limit = 0;
+                } else if (position > 0) {
+                    System.arraycopy(buffer, position, buffer, 0, limit - position);
+                    limit -= position;
+                    position = 0;
+                }
+                if (limit == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, buffer.length << 1);
+                }
+                scan = limit;
+                int read = in.read(buffer, limit, buffer.length - limit);
+                if (read < 0) {
+                    eof = true;
+                } else {
+                    limit += read;
+                }
+            }
+        }
+
+        private boolean line(int lineEnd, int next) {
+            start = position;
+            end = lineEnd > start && buffer[lineEnd - 1] == '\r' ? lineEnd - 1 : lineEnd;
+            position = next;
+            number++;
+            return true;
+        }
+
+        boolean isBlank() {
+            for (int i = start; i < end; i++) {
+                byte b = buffer[i];
+                if (b != ' ' && b != '\t') {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        boolean tooLong() {
+            return tooLong;
+        }
+
+        long number() {
+            return number;
+        }
+
+        byte[] buffer() {
+            return buffer;
+        }
+
+        int start() {
+            return start;
+        }
+
+        int length() {
+            return end - start;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.logging;
+
+/**
+ *
+ * @author Maryam
+ */
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Hands log events from request threads to a single writer thread through a bounded ring.
+ * Publishing claims a slot with one compare-and-set and never blocks. Once the ring is three
+ * quarters full only one in {@link #OVERLOAD_SAMPLE} events below WARNING is kept, and once it
+ * is full every further event is dropped, so a slow log destination costs log lines rather
+ * than request latency. The writer reports how many events were dropped.
+ */
+final class AsyncLogWriter {
+    /**
+     * Capacity of the ring, rounded up to a power of two.
+     */
+    static final int BUFFER_SIZE = Integer.getInteger("healthsystem.log.bufferSize", 8192);
+
+    private static final int OVERLOAD_SAMPLE = 16;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long DROP_REPORT_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long SHUTDOWN_DRAIN_NANOS = TimeUnit.SECONDS.toNanos(2);
+    private static final Logger LOGGER = Logger.getLogger(AsyncLogWriter.class.getName());
+
+    private static final AsyncLogWriter SHARED = new AsyncLogWriter(BUFFER_SIZE);
+
+    private final AtomicReferenceArray<LogEvent> slots;
+    private final int mask;
+    private final long overloadThreshold;
+    // Next sequence to claim, and next sequence the writer consumes
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+    private volatile boolean sleeping;
+    private final AtomicLong overloadCount = new AtomicLong();
+    private final LongAdder dropped = new LongAdder();
+    private final Thread writer;
+
+    private AsyncLogWriter(int bufferSize) {
+        int capacity = Integer.highestOneBit(Math.max(bufferSize, 16) - 1) << 1;
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+        this.overloadThreshold = capacity - capacity / 4;
+        this.writer = new Thread(this::run, "log-writer");
+        writer.setDaemon(true);
+        writer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::drain, "log-writer-drain"));
+    }
+
+    static AsyncLogWriter shared() {
+        return SHARED;
+    }
+
+    long dropped() {
+        return dropped.sum();
+    }
+
+    void publish(LogEvent event) {
+        long sequence;
+        do {
+            sequence = tail.get();
+            long used = sequence - head;
+            if (used > mask) {
+                dropped.increment();
+                return;
+            }
+            if (used >= overloadThreshold && event.level().intValue() < Level.WARNING.intValue()
+                    && overloadCount.getAndIncrement() % OVERLOAD_SAMPLE != 0) {
+                dropped.increment();
+                return;
+            }
+        } while (!tail.compareAndSet(sequence, sequence + 1));
+        slots.set((int) (sequence & mask), event);
+        if (sleeping) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    private void run() {
+        long reportedDrops = 0;
+        long reportedAt = System.nanoTime();
+        while (true) {
+            long sequence = head;
+            int index = (int) (sequence & mask);
+            LogEvent event = slots.get(index);
+            if (event != null) {
+                slots.lazySet(index, null);
+                head = sequence + 1;
+                write(event);
+                continue;
+            }
+            if (tail.get() != sequence) {
+                // Claimed, but the producer has not stored the event yet
+                Thread.yield();
+                continue;
+            }
+            long drops = dropped.sum();
+            if (drops != reportedDrops && System.nanoTime() - reportedAt >= DROP_REPORT_INTERVAL_NANOS) {
+                LOGGER.log(Level.WARNING, "Log events dropped count=" + (drops - reportedDrops) + " total=" + drops);
+                reportedDrops = drops;
+                reportedAt = System.nanoTime();
+            }
+            sleeping = true;
+            // Producers check the flag after storing, so an event stored now either is seen here or unparks us
+            if (tail.get() == sequence) {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            }
+            sleeping = false;
+        }
+    }
+
+    private static void write(LogEvent event) {
+        try {
+            event.logger().log(event.toRecord());
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Failed to write log event", e);
+        }
+    }
+
+    // Gives the writer a moment to empty the ring before the JVM exits
+    private void drain() {
+        long deadline = System.nanoTime() + SHUTDOWN_DRAIN_NANOS;
+        while (head != tail.get() && System.nanoTime() < deadline) {
+            LockSupport.unpark(writer);
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+    }
+}
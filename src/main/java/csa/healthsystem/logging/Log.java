@@ -0,0 +1,147 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.logging;
+
+/**
+ *
+ * @author Maryam
+ */
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Structured, asynchronous logger.
+ * A call names an event with a short message and attaches key/value fields, such as
+ * {@code LOGGER.log(Level.INFO, "Adding billing", "billing", billing)}, instead of concatenating
+ * them into one string. If the level is disabled the call returns after one level check,
+ * without allocating or formatting anything. Otherwise the event is handed to
+ * {@link AsyncLogWriter}, which formats it as {@code message key=value ...} on its own thread
+ * and passes it to the {@code java.util.logging} logger of the same name, so levels and
+ * handlers are still configured through {@code java.util.logging}.
+ * Field values are rendered on the writer thread and must not change after they are logged;
+ * stored entities never do.
+ */
+public final class Log {
+    private static final Object[] NO_FIELDS = {};
+
+    private final Logger logger;
+
+    private Log(Logger logger) {
+        this.logger = logger;
+    }
+
+    /**
+     * Gets the logger of a class.
+     * @param type The class that logs
+     * @return The logger
+     */
+    public static Log get(Class<?> type) {
+        return new Log(Logger.getLogger(type.getName()));
+    }
+
+    /**
+     * Gets the number of events dropped because the writer fell behind.
+     * @return The number of dropped events since startup
+     */
+    public static long droppedEvents() {
+        return AsyncLogWriter.shared().dropped();
+    }
+
+    /**
+     * Checks whether events of a level are logged, to guard fields that are costly to compute.
+     * @param level The level
+     * @return True if events of the level are logged
+     */
+    public boolean isEnabled(Level level) {
+        return logger.isLoggable(level);
+    }
+
+    /**
+     * Logs an event without fields.
+     * @param level The level
+     * @param message The event
+     */
+    public void log(Level level, String message) {
+        if (logger.isLoggable(level)) {
+            publish(level, message, null, NO_FIELDS);
+        }
+    }
+
+    /**
+     * Logs an event with one field.
+     * @param level The level
+     * @param message The event
+     * @param key The field name
+     * @param value The field value
+     */
+    public void log(Level level, String message, String key, Object value) {
+        if (logger.isLoggable(level)) {
+            publish(level, message, null, new Object[]{key, value});
+        }
+    }
+
+    /**
+     * Logs an event with two fields.
+     * @param level The level
+     * @param message The event
+     * @param key1 The first field name
+     * @param value1 The first field value
+     * @param key2 The second field name
+     * @param value2 The second field value
+     */
+    public void log(Level level, String message, String key1, Object value1, String key2, Object value2) {
+        if (logger.isLoggable(level)) {
+            publish(level, message, null, new Object[]{key1, value1, key2, value2});
+        }
+    }
+
+    /**
+     * Logs an event with three fields.
+     * @param level The level
+     * @param message The event
+     * @param key1 The first field name
+     * @param value1 The first field value
+     * @param key2 The second field name
+     * @param value2 The second field value
+     * @param key3 The third field name
+     * @param value3 The third field value
+     */
+    public void log(Level level, String message, String key1, Object value1, String key2, Object value2,
+                    String key3, Object value3) {
+        if (logger.isLoggable(level)) {
+            publish(level, message, null, new Object[]{key1, value1, key2, value2, key3, value3});
+        }
+    }
+
+    /**
+     * Logs an event with any number of fields.
+     * @param level The level
+     * @param message The event
+     * @param keysAndValues Field names, each followed by its value
+     */
+    public void logFields(Level level, String message, Object... keysAndValues) {
+        if (logger.isLoggable(level)) {
+            publish(level, message, null, keysAndValues);
+        }
+    }
+
+    /**
+     * Logs a failure with its stack trace and one field.
+     * @param level The level
+     * @param message The event
+     * @param thrown The cause of the failure
+     * @param key The field name
+     * @param value The field value
+     */
+    public void log(Level level, String message, Throwable thrown, String key, Object value) {
+        if (logger.isLoggable(level)) {
+            publish(level, message, thrown, new Object[]{key, value});
+        }
+    }
+
+    private void publish(Level level, String message, Throwable thrown, Object[] fields) {
+        AsyncLogWriter.shared().publish(new LogEvent(logger, level, message, thrown, fields));
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.logging;
+
+/**
+ *
+ * @author Maryam
+ */
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+/**
+ * One logged event on its way to the writer thread.
+ * Everything that can be read on the request thread cheaply is captured here; formatting
+ * is left to {@link #toRecord()}, which runs on the writer thread.
+ */
+final class LogEvent {
+    private final Logger logger;
+    private final Level level;
+    private final String message;
+    private final Throwable thrown;
+    private final Object[] fields;
+    // Created here so it carries the time of the event, not of the write
+    private final LogRecord record;
+    private final String thread;
+
+    LogEvent(Logger logger, Level level, String message, Throwable thrown, Object[] fields) {
+        this.logger = logger;
+        this.level = level;
+        this.message = message;
+        this.thrown = thrown;
+        this.fields = fields;
+        this.record = new LogRecord(level, message);
+        this.thread = Thread.currentThread().getName();
+    }
+
+    Logger logger() {
+        return logger;
+    }
+
+    Level level() {
+        return level;
+    }
+
+    // Formats the event as "message key=value ..." with logfmt quoting
+    LogRecord toRecord() {
+        StringBuilder line = new StringBuilder(message.length() + 16 * fields.length + 32).append(message);
+        for (int i = 0; i + 1 < fields.length; i += 2) {
+            line.append(' ').append(fields[i]).append('=');
+            appendValue(line, fields[i + 1]);
+        }
+        line.append(" thread=");
+        appendValue(line, thread);
+        record.setMessage(line.toString());
+        record.setLoggerName(logger.getName());
+        record.setSourceClassName(logger.getName());
+        record.setThrown(thrown);
+        return record;
+    }
+
+    private static void appendValue(StringBuilder line, Object value) {
+        String text = String.valueOf(value);
+        boolean quote = text.isEmpty();
+        for (int i = 0; i < text.length() && !quote; i++) {
+            char c = text.charAt(i);
+            quote = c <= ' ' || c == '"' || c == '=' || c == '\\';
+        }
+        if (!quote) {
+            line.append(text);
+            return;
+        }
+        line.append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '"':
+                case '\\':
+                    line.append('\\').append(c);
+                    break;
+                case '\n':
+                    line.append("\\n");
+                    break;
+                case '\r':
+                    line.append("\\r");
+                    break;
+                case '\t':
+                    line.append("\\t");
+                    break;
+                default:
+                    line.append(c);
+            }
+        }
+        line.append('"');
+    }
+}
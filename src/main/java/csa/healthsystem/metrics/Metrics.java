@@ -0,0 +1,83 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.metrics;
+
+/**
+ *
+ * @author Maryam
+ */
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntSupplier;
+
+/**
+ * Registry of the service's metrics, written out by {@link #writePrometheus(Writer)}.
+ * Routes and stores register on first use and are kept for the life of the process. While a
+ * request is served its {@link RequestMetrics} is bound to the thread, so exceptions raised
+ * below the resources are attributed to the route once it is known.
+ */
+public final class Metrics {
+    private static final ConcurrentHashMap<String, RouteMetrics> ROUTES = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, StoreMetrics> STORES = new ConcurrentHashMap<>();
+    private static final ThreadLocal<RequestMetrics> CURRENT = new ThreadLocal<>();
+
+    // Exceptions raised outside any request, such as while loading stores
+    private static final RouteMetrics BACKGROUND = route("none", "none");
+
+    private Metrics() {}
+
+    /**
+     * Gets the metrics of a route, registering it if needed.
+     * @param method The HTTP method
+     * @param route The path template, such as {@code /doctors/{id}}
+     * @return The route's metrics
+     */
+    public static RouteMetrics route(String method, String route) {
+        return ROUTES.computeIfAbsent(method + " " + route, key -> new RouteMetrics(method, route));
+    }
+
+    /**
+     * Registers the metrics of an entity store, replacing any registered under the same name.
+     * @param name The store name
+     * @param size Returns the number of stored entities
+     * @return The store's metrics
+     */
+    public static StoreMetrics store(String name, IntSupplier size) {
+        StoreMetrics metrics = new StoreMetrics(name, size);
+        STORES.put(name, metrics);
+        return metrics;
+    }
+
+    /**
+     * Records that an exception was turned into an error response, against the request being served on this thread.
+     * @param type The exception class
+     */
+    public static void exceptionRaised(Class<?> type) {
+        RequestMetrics request = CURRENT.get();
+        if (request != null) {
+            request.exceptionRaised(type);
+        } else {
+            BACKGROUND.recordException(type);
+        }
+    }
+
+    /**
+     * Writes every metric in the Prometheus text exposition format.
+     * @param out The writer
+     * @throws IOException if writing fails
+     */
+    public static void writePrometheus(Writer out) throws IOException {
+        new PrometheusFormat(out).write(ROUTES.values(), STORES.values());
+    }
+
+    static void bind(RequestMetrics request) {
+        if (request == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(request);
+        }
+    }
+}
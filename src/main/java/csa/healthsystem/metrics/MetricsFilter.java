@@ -0,0 +1,102 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.metrics;
+
+/**
+ *
+ * @author Maryam
+ */
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.Priority;
+import javax.ws.rs.Path;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.container.PreMatching;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.ext.Provider;
+import javax.ws.rs.ext.WriterInterceptor;
+import javax.ws.rs.ext.WriterInterceptorContext;
+
+/**
+ * Records the count, status and latency of every request against its route.
+ * The clock starts before matching and stops once the response entity is written, so
+ * serialization and streaming are included. Routes are named by the path templates of the
+ * matched resource method, so {@code /doctors/1} and {@code /doctors/2} share one route;
+ * requests that match no method are recorded under {@code unmatched}.
+ */
+@Provider
+@PreMatching
+@Priority(Priorities.AUTHENTICATION - 200)
+public class MetricsFilter implements ContainerRequestFilter, ContainerResponseFilter, WriterInterceptor {
+    private static final String PROPERTY = RequestMetrics.class.getName();
+    private static final ConcurrentHashMap<Method, RouteMetrics> ROUTES = new ConcurrentHashMap<>();
+
+    @Context
+    private ResourceInfo resourceInfo;
+
+    @Override
+    public void filter(ContainerRequestContext requestContext) {
+        RequestMetrics request = new RequestMetrics(System.nanoTime());
+        requestContext.setProperty(PROPERTY, request);
+        Metrics.bind(request);
+    }
+
+    @Override
+    public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext) {
+        RequestMetrics request = (RequestMetrics) requestContext.getProperty(PROPERTY);
+        if (request == null) {
+            return;
+        }
+        Metrics.bind(null);
+        request.matched(routeOf(requestContext.getMethod()), responseContext.getStatus());
+        if (!responseContext.hasEntity()) {
+            request.completed(System.nanoTime());
+        }
+    }
+
+    @Override
+    public void aroundWriteTo(WriterInterceptorContext context) throws IOException {
+        try {
+            context.proceed();
+        } finally {
+            RequestMetrics request = (RequestMetrics) context.getProperty(PROPERTY);
+            if (request != null) {
+                request.completed(System.nanoTime());
+            }
+        }
+    }
+
+    private RouteMetrics routeOf(String httpMethod) {
+        Method method = resourceInfo.getResourceMethod();
+        if (method == null) {
+            return Metrics.route(httpMethod, "unmatched");
+        }
+        return ROUTES.computeIfAbsent(method, m -> Metrics.route(httpMethod, template(resourceInfo.getResourceClass(), m)));
+    }
+
+    private static String template(Class<?> resource, Method method) {
+        StringBuilder template = new StringBuilder();
+        append(template, resource.getAnnotation(Path.class));
+        append(template, method.getAnnotation(Path.class));
+        return template.length() == 0 ? "/" : template.toString();
+    }
+
+    private static void append(StringBuilder template, Path path) {
+        if (path == null) {
+            return;
+        }
+        String value = path.value();
+        if (!value.startsWith("/")) {
+            template.append('/');
+        }
+        template.append(value.endsWith("/") ? value.substring(0, value.length() - 1) : value);
+    }
+}
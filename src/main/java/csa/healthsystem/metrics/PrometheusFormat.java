@@ -0,0 +1,142 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.metrics;
+
+/**
+ *
+ * @author Maryam
+ */
+import csa.healthsystem.cache.CacheStats;
+import csa.healthsystem.cache.ResponseCache;
+import csa.healthsystem.logging.Log;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Writes metrics in the Prometheus text exposition format, version 0.0.4.
+ * Latencies are exposed as histograms in seconds with fixed bucket bounds.
+ */
+final class PrometheusFormat {
+    private static final double[] BUCKET_SECONDS = {
+        0.0001, 0.00025, 0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10};
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    private final Writer out;
+
+    PrometheusFormat(Writer out) {
+        this.out = out;
+    }
+
+    void write(Collection<RouteMetrics> routeMetrics, Collection<StoreMetrics> storeMetrics) throws IOException {
+        List<RouteMetrics> routes = new ArrayList<>(routeMetrics);
+        routes.sort(Comparator.comparing(RouteMetrics::route).thenComparing(RouteMetrics::method));
+        List<StoreMetrics> stores = new ArrayList<>(storeMetrics);
+        stores.sort(Comparator.comparing(StoreMetrics::store));
+
+        header("healthsystem_http_requests_total", "counter", "Requests served, by route and response status.");
+        for (RouteMetrics route : routes) {
+            for (Map.Entry<Integer, LongAdder> status : new TreeMap<>(route.responses()).entrySet()) {
+                sample("healthsystem_http_requests_total", routeLabels(route) + ",status=\"" + status.getKey() + "\"",
+                        status.getValue().sum());
+            }
+        }
+
+        header("healthsystem_exceptions_total", "counter", "Exceptions raised while serving a route, by type.");
+        for (RouteMetrics route : routes) {
+            for (Map.Entry<String, LongAdder> exception : new TreeMap<>(route.exceptions()).entrySet()) {
+                sample("healthsystem_exceptions_total", routeLabels(route) + ",exception=\"" + escape(exception.getKey()) + "\"",
+                        exception.getValue().sum());
+            }
+        }
+
+        header("healthsystem_http_request_duration_seconds", "histogram", "Time from receiving a request to writing its response.");
+        for (RouteMetrics route : routes) {
+            LatencyHistogram.Snapshot latency = route.latency().snapshot();
+            if (latency.getCount() > 0) {
+                histogram("healthsystem_http_request_duration_seconds", routeLabels(route), latency);
+            }
+        }
+
+        header("healthsystem_store_operation_duration_seconds", "histogram", "Time spent in entity store operations.");
+        for (StoreMetrics store : stores) {
+            for (StoreMetrics.Operation operation : StoreMetrics.Operation.values()) {
+                LatencyHistogram.Snapshot timing = store.timing(operation).snapshot();
+                if (timing.getCount() > 0) {
+                    histogram("healthsystem_store_operation_duration_seconds",
+                            "store=\"" + escape(store.store()) + "\",operation=\"" + operation.label() + "\"", timing);
+                }
+            }
+        }
+
+        header("healthsystem_store_entities", "gauge", "Entities held by each store.");
+        for (StoreMetrics store : stores) {
+            sample("healthsystem_store_entities", "store=\"" + escape(store.store()) + "\"", store.size());
+        }
+
+        header("healthsystem_store_log_healthy", "gauge", "1 if the last write to the store's log succeeded, otherwise 0.");
+        for (StoreMetrics store : stores) {
+            if (store.isDurable()) {
+                sample("healthsystem_store_log_healthy", "store=\"" + escape(store.store()) + "\"", store.isLogHealthy() ? 1 : 0);
+            }
+        }
+        header("healthsystem_store_log_failures_total", "counter", "Log writes given up on after retries; their changes were reverted.");
+        for (StoreMetrics store : stores) {
+            if (store.isDurable()) {
+                sample("healthsystem_store_log_failures_total", "store=\"" + escape(store.store()) + "\"", store.logFailures());
+            }
+        }
+
+        CacheStats cache = ResponseCache.shared().stats();
+        header("healthsystem_response_cache_bytes", "gauge", "Approximate size of the cached responses.");
+        sample("healthsystem_response_cache_bytes", null, cache.getBytes());
+        header("healthsystem_response_cache_entries", "gauge", "Cached responses.");
+        sample("healthsystem_response_cache_entries", null, cache.getEntries());
+        header("healthsystem_response_cache_lookups_total", "counter", "Response cache lookups, by result.");
+        sample("healthsystem_response_cache_lookups_total", "result=\"hit\"", cache.getHits());
+        sample("healthsystem_response_cache_lookups_total", "result=\"miss\"", cache.getMisses());
+        header("healthsystem_response_cache_evictions_total", "counter", "Cached responses removed to make room.");
+        sample("healthsystem_response_cache_evictions_total", null, cache.getEvictions());
+        header("healthsystem_response_cache_rejections_total", "counter", "Responses the cache turned away.");
+        sample("healthsystem_response_cache_rejections_total", null, cache.getRejections());
+
+        header("healthsystem_log_events_dropped_total", "counter", "Log events dropped because the log writer fell behind.");
+        sample("healthsystem_log_events_dropped_total", null, Log.droppedEvents());
+        out.flush();
+    }
+
+    private void histogram(String name, String labels, LatencyHistogram.Snapshot snapshot) throws IOException {
+        for (double bound : BUCKET_SECONDS) {
+            sample(name + "_bucket", labels + ",le=\"" + bound + "\"",
+                    snapshot.countAtOrBelow((long) (bound * NANOS_PER_SECOND)));
+        }
+        sample(name + "_bucket", labels + ",le=\"+Inf\"", snapshot.getCount());
+        out.write(name + "_sum{" + labels + "} " + snapshot.getSum() / NANOS_PER_SECOND + "\n");
+        sample(name + "_count", labels, snapshot.getCount());
+    }
+
+    private void header(String name, String type, String help) throws IOException {
+        out.write("# HELP " + name + " " + help + "\n");
+        out.write("# TYPE " + name + " " + type + "\n");
+    }
+
+    private void sample(String name, String labels, long value) throws IOException {
+        out.write(labels == null ? name + " " + value + "\n" : name + "{" + labels + "} " + value + "\n");
+    }
+
+    private static String routeLabels(RouteMetrics route) {
+        return "method=\"" + escape(route.method()) + "\",route=\"" + escape(route.route()) + "\"";
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
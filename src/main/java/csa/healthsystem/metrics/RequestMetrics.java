@@ -0,0 +1,57 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.metrics;
+
+/**
+ *
+ * @author Maryam
+ */
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * State of one request kept between the filter callbacks of {@link MetricsFilter}.
+ * Only the request thread touches it.
+ */
+final class RequestMetrics {
+    private final long startNanos;
+    private List<Class<?>> exceptions;
+    private RouteMetrics route;
+    private int status;
+
+    RequestMetrics(long startNanos) {
+        this.startNanos = startNanos;
+    }
+
+    void exceptionRaised(Class<?> type) {
+        if (route != null) {
+            route.recordException(type);
+            return;
+        }
+        if (exceptions == null) {
+            exceptions = new ArrayList<>(2);
+        }
+        exceptions.add(type);
+    }
+
+    // Attributes the exceptions raised so far to the matched route
+    void matched(RouteMetrics route, int status) {
+        this.route = route;
+        this.status = status;
+        if (exceptions != null) {
+            for (Class<?> type : exceptions) {
+                route.recordException(type);
+            }
+            exceptions = null;
+        }
+    }
+
+    void completed(long endNanos) {
+        if (route == null) {
+            return;
+        }
+        route.recordResponse(status, endNanos - startNanos);
+    }
+}
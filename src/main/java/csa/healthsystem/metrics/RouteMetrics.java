@@ -0,0 +1,68 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.metrics;
+
+/**
+ *
+ * @author Maryam
+ */
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Request counters of one route, such as {@code GET /doctors/{id}}: responses by status,
+ * exceptions raised while serving the route by type, and a latency histogram.
+ */
+public final class RouteMetrics {
+    private final String method;
+    private final String route;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final ConcurrentHashMap<Integer, LongAdder> responses = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, LongAdder> exceptions = new ConcurrentHashMap<>();
+
+    RouteMetrics(String method, String route) {
+        this.method = method;
+        this.route = route;
+    }
+
+    /**
+     * Records a completed request.
+     * @param status The response status
+     * @param nanos The time from receiving the request to writing the response
+     */
+    public void recordResponse(int status, long nanos) {
+        responses.computeIfAbsent(status, s -> new LongAdder()).increment();
+        latency.record(nanos);
+    }
+
+    /**
+     * Records an exception raised while serving the route.
+     * @param type The exception class
+     */
+    public void recordException(Class<?> type) {
+        exceptions.computeIfAbsent(type.getSimpleName(), name -> new LongAdder()).increment();
+    }
+
+    String method() {
+        return method;
+    }
+
+    String route() {
+        return route;
+    }
+
+    LatencyHistogram latency() {
+        return latency;
+    }
+
+    Map<Integer, LongAdder> responses() {
+        return responses;
+    }
+
+    Map<String, LongAdder> exceptions() {
+        return exceptions;
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.metrics;
+
+/**
+ *
+ * @author Maryam
+ */
+import java.util.function.BooleanSupplier;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Operation timings and size of one entity store, and the health of its log when it is durable.
+ */
+public final class StoreMetrics {
+    /**
+     * Timed store operations.
+     */
+    public enum Operation {
+        PUT("put"), REPLACE("replace"), REMOVE("remove"), PUT_ALL("put_all"), REPLACE_ALL("replace_all"),
+        REMOVE_ALL("remove_all"), PAGE("page"), FIND("find");
+
+        private final String label;
+
+        Operation(String label) {
+            this.label = label;
+        }
+
+        String label() {
+            return label;
+        }
+    }
+
+    private final String store;
+    private final IntSupplier size;
+    private final LatencyHistogram[] timings = new LatencyHistogram[Operation.values().length];
+    private volatile BooleanSupplier logHealthy;
+    private volatile LongSupplier logFailures;
+
+    StoreMetrics(String store, IntSupplier size) {
+        this.store = store;
+        this.size = size;
+        for (int i = 0; i < timings.length; i++) {
+            timings[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * Records an operation that started at the given time and has just ended.
+     * @param operation The operation
+     * @param startNanos The {@link System#nanoTime()} at the start of the operation
+     */
+    public void record(Operation operation, long startNanos) {
+        timings[operation.ordinal()].record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Reports the health of the store's write-ahead log.
+     * @param healthy Whether the last attempt to write the log succeeded
+     * @param failures Number of times records were given up on and their writes reverted
+     */
+    public void watchLog(BooleanSupplier healthy, LongSupplier failures) {
+        this.logFailures = failures;
+        this.logHealthy = healthy;
+    }
+
+    String store() {
+        return store;
+    }
+
+    int size() {
+        return size.getAsInt();
+    }
+
+    boolean isDurable() {
+        return logHealthy != null;
+    }
+
+    boolean isLogHealthy() {
+        return logHealthy.getAsBoolean();
+    }
+
+    long logFailures() {
+        return logFailures.getAsLong();
+    }
+
+    LatencyHistogram timing(Operation operation) {
+        return timings[operation.ordinal()];
+    }
+}
@@ -8,20 +8,20 @@ package csa.healthsystem.model;
  *
  * @author Maryam
  */
-import java.util.logging.Level;
-import java.util.logging.Logger;
+import com.fasterxml.jackson.annotation.JsonView;
 
 /**
  * Appointment class represents an appointment scheduled between a patient and a doctor.
  */
 public class Appointment {
-    private static final Logger LOGGER = Logger.getLogger(Appointment.class.getName());
+    private static final FieldAudit AUDIT = FieldAudit.of(Appointment.class);
 
     private int id;
     private String date;
     private String time;
-    private Patient patient;
-    private Doctor doctor;
+    private int durationMinutes;
+    private int patientId;
+    private int doctorId;
     
     // Default constructor
     public Appointment() {}
@@ -38,8 +38,24 @@ public class Appointment {
         this.id = id;
         this.date = date;
         this.time = time;
-        this.patient = patient;
-        this.doctor = doctor;
+        this.patientId = patient == null ? 0 : patient.getId();
+        this.doctorId = doctor == null ? 0 : doctor.getId();
+    }
+
+    /**
+     * Constructor to initialize an Appointment object that refers to its patient and doctor by ID.
+     * @param id The ID of the appointment.
+     * @param date The date of the appointment.
+     * @param time The time of the appointment.
+     * @param patientId The ID of the patient scheduled for the appointment.
+     * @param doctorId The ID of the doctor scheduled for the appointment.
+     */
+    public Appointment(int id, String date, String time, int patientId, int doctorId) {
+        this.id = id;
+        this.date = date;
+        this.time = time;
+        this.patientId = patientId;
+        this.doctorId = doctorId;
     }
 
     // Getters and setters
@@ -49,7 +65,6 @@ public class Appointment {
      * @return The id of the appointment.
      */
     public int getId() {
-        LOGGER.log(Level.INFO, "Getting ID: " + id);
         return id;
     }
 
@@ -58,7 +73,9 @@ public class Appointment {
      * @param id The date of the appointment to set.
      */
     public void setId(int id) {
-        LOGGER.log(Level.INFO, "Setting ID: " + id);
+        if (AUDIT.isEnabled()) {
+            AUDIT.fieldSet("id", id);
+        }
         this.id = id;
     }
 
@@ -67,7 +84,6 @@ public class Appointment {
      * @return The date of the appointment.
      */
     public String getDate() {
-        LOGGER.log(Level.INFO, "Getting date: " + date);
         return date;
     }
 
@@ -76,7 +92,9 @@ public class Appointment {
      * @param date The date of the appointment to set.
      */
     public void setDate(String date) {
-        LOGGER.log(Level.INFO, "Setting date: " + date);
+        if (AUDIT.isEnabled()) {
+            AUDIT.fieldSet("date", date);
+        }
         this.date = date;
     }
 
@@ -85,7 +103,6 @@ public class Appointment {
      * @return The time of the appointment.
      */
     public String getTime() {
-        LOGGER.log(Level.INFO, "Getting time: " + time);
         return time;
     }
 
@@ -94,43 +111,102 @@ public class Appointment {
      * @param time The time of the appointment to set.
      */
     public void setTime(String time) {
-        LOGGER.log(Level.INFO, "Setting time: " + time);
+        if (AUDIT.isEnabled()) {
+            AUDIT.fieldSet("time", time);
+        }
         this.time = time;
     }
 
     /**
-     * Get the patient scheduled for the appointment.
-     * @return The patient scheduled for the appointment.
+     * Get the length of the appointment in minutes.
+     * @return The length of the appointment, or 0 for the default length.
+     */
+    public int getDurationMinutes() {
+        return durationMinutes;
+    }
+
+    /**
+     * Set the length of the appointment in minutes.
+     * @param durationMinutes The length of the appointment, or 0 for the default length.
+     */
+    public void setDurationMinutes(int durationMinutes) {
+        if (AUDIT.isEnabled()) {
+            AUDIT.fieldSet("durationMinutes", durationMinutes);
+        }
+        this.durationMinutes = durationMinutes;
+    }
+
+    /**
+     * Get the ID of the patient scheduled for the appointment.
+     * @return The ID of the patient scheduled for the appointment, or 0 if none is set.
+     */
+    public int getPatientId() {
+        return patientId;
+    }
+
+    /**
+     * Set the ID of the patient scheduled for the appointment.
+     * @param patientId The ID of the patient scheduled for the appointment to set.
+     */
+    public void setPatientId(int patientId) {
+        if (AUDIT.isEnabled()) {
+            AUDIT.fieldSet("patientId", patientId);
+        }
+        this.patientId = patientId;
+    }
+
+    /**
+     * Get the patient scheduled for the appointment, looked up by ID.
+     * @return The patient scheduled for the appointment, or null if no patient with the ID exists.
      */
+    @JsonView(References.Expanded.class)
     public Patient getPatient() {
-        LOGGER.log(Level.INFO, "Getting patient: " + patient);
-        return patient;
+        return References.patient(patientId);
     }
 
     /**
      * Set the patient scheduled for the appointment.
+     * Only the ID is kept.
      * @param patient The patient scheduled for the appointment to set.
      */
     public void setPatient(Patient patient) {
-        LOGGER.log(Level.INFO, "Setting patient: " + patient);
-        this.patient = patient;
+        setPatientId(patient == null ? 0 : patient.getId());
+    }
+
+    /**
+     * Get the ID of the doctor scheduled for the appointment.
+     * @return The ID of the doctor scheduled for the appointment, or 0 if none is set.
+     */
+    public int getDoctorId() {
+        return doctorId;
+    }
+
+    /**
+     * Set the ID of the doctor scheduled for the appointment.
+     * @param doctorId The ID of the doctor scheduled for the appointment to set.
+     */
+    public void setDoctorId(int doctorId) {
+        if (AUDIT.isEnabled()) {
+            AUDIT.fieldSet("doctorId", doctorId);
+        }
+        this.doctorId = doctorId;
     }
 
     /**
-     * Get the doctor scheduled for the appointment.
-     * @return The doctor scheduled for the appointment.
+     * Get the doctor scheduled for the appointment, looked up by ID.
+     * @return The doctor scheduled for the appointment, or null if no doctor with the ID exists.
      */
+    @JsonView(References.Expanded.class)
     public Doctor getDoctor() {
-        LOGGER.log(Level.INFO, "Getting doctor: " + doctor);
-        return doctor;
+        return References.doctor(doctorId);
     }
 
     /**
      * Set the doctor scheduled for the appointment.
+     * Only the ID is kept.
      * @param doctor The doctor scheduled for the appointment to set.
      */
     public void setDoctor(Doctor doctor) {
-        LOGGER.log(Level.INFO, "Setting doctor: " + doctor);
-        this.doctor = doctor;
+        setDoctorId(doctor == null ? 0 : doctor.getId());
     }
 }
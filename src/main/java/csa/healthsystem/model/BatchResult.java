@@ -0,0 +1,102 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.model;
+
+/**
+ *
+ * @author Maryam
+ */
+import com.fasterxml.jackson.annotation.JsonInclude;
+import csa.healthsystem.validation.Violation;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * BatchResult class represents the outcome of one item of a batch request.
+ */
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+public class BatchResult {
+    private final int index;
+    private final int id;
+    private final int status;
+    private final String error;
+    private final List<Violation> violations;
+
+    /**
+     * Constructor to initialize a BatchResult object with the provided attributes.
+     * @param index The position of the item in the batch.
+     * @param id The ID of the entity, or 0 if it has none.
+     * @param status The HTTP status the item would have received as a single request.
+     * @param error The reason the item failed, or null if it succeeded.
+     * @param violations The validation rules the item breaks.
+     */
+    public BatchResult(int index, int id, int status, String error, List<Violation> violations) {
+        this.index = index;
+        this.id = id;
+        this.status = status;
+        this.error = error;
+        this.violations = violations == null ? Collections.<Violation>emptyList() : violations;
+    }
+
+    /**
+     * Creates the result of an item that succeeded.
+     * @param index The position of the item in the batch.
+     * @param id The ID of the entity.
+     * @param status The HTTP status of the item, such as 201 for a created entity.
+     * @return The result.
+     */
+    public static BatchResult succeeded(int index, int id, int status) {
+        return new BatchResult(index, id, status, null, null);
+    }
+
+    /**
+     * Get the position of the item in the batch.
+     * @return The position of the item, starting at 0.
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * Get the ID of the entity.
+     * @return The ID of the entity, or 0 if it has none.
+     */
+    @JsonInclude(JsonInclude.Include.ALWAYS)
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Get the HTTP status of the item.
+     * @return The status the item would have received as a single request.
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * Get the reason the item failed.
+     * @return The error message, or null if the item succeeded.
+     */
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * Get the validation rules the item breaks.
+     * @return The violations, empty unless the item failed validation.
+     */
+    public List<Violation> getViolations() {
+        return violations;
+    }
+
+    /**
+     * Check whether the item succeeded.
+     * @return True if the status is a 2xx status, otherwise false.
+     */
+    public boolean isSucceeded() {
+        return status >= 200 && status < 300;
+    }
+}
@@ -8,22 +8,25 @@ package csa.healthsystem.model;
  *
  * @author Maryam
  */
-import java.util.logging.Level;
-import java.util.logging.Logger;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.fasterxml.jackson.annotation.JsonView;
 
 /**
  * Billing class represents the billing information for a patient.
+ * Amounts are kept in whole cents; see {@link Money}.
  */
+@JsonPropertyOrder({"id", "patientId", "doctorId", "invoiceAmount", "paymentAmount", "outstandingBalance"})
 public class Billing {
-    private static final Logger LOGGER = Logger.getLogger(Billing.class.getName());
+    private static final FieldAudit AUDIT = FieldAudit.of(Billing.class);
 
     private int id; 
-    private Patient patient;
-    private Doctor doctor; // Adding Doctor as an attribute
+    private int patientId;
+    private int doctorId;
     
-    private double invoiceAmount;
-    private double paymentAmount;
-    private double outstandingBalance;
+    private long invoiceCents;
+    private long paymentCents;
+    private long outstandingCents;
 
     // Default constructor
     public Billing() {}
@@ -36,61 +39,137 @@ public class Billing {
      * @param invoiceAmount The total amount to be invoiced.
      * @param paymentAmount The amount already paid.
      * @param outstandingBalance The outstanding balance.
+     * @throws IllegalArgumentException if an amount has fractions of a cent
      */
     public Billing(int id, Patient patient, Doctor doctor, double invoiceAmount, double paymentAmount, double outstandingBalance) {
+        this(id, patient == null ? 0 : patient.getId(), doctor == null ? 0 : doctor.getId(),
+                invoiceAmount, paymentAmount, outstandingBalance);
+    }
+
+    /**
+     * Constructor to initialize a Billing object that refers to its patient and doctor by ID.
+     * @param id The ID of the billing.
+     * @param patientId The ID of the patient associated with the billing.
+     * @param doctorId The ID of the doctor associated with the billing.
+     * @param invoiceAmount The total amount to be invoiced.
+     * @param paymentAmount The amount already paid.
+     * @param outstandingBalance The outstanding balance.
+     * @throws IllegalArgumentException if an amount has fractions of a cent
+     */
+    public Billing(int id, int patientId, int doctorId, double invoiceAmount, double paymentAmount, double outstandingBalance) {
         this.id = id;
-        this.patient = patient;
-        this.doctor = doctor;
-        this.invoiceAmount = invoiceAmount;
-        this.paymentAmount = paymentAmount;
-        this.outstandingBalance = outstandingBalance;
+        this.patientId = patientId;
+        this.doctorId = doctorId;
+        this.invoiceCents = Money.toCents(invoiceAmount);
+        this.paymentCents = Money.toCents(paymentAmount);
+        this.outstandingCents = Money.toCents(outstandingBalance);
+    }
+
+    /**
+     * Creates a billing from amounts in cents.
+     * @param id The ID of the billing.
+     * @param patientId The ID of the patient associated with the billing.
+     * @param doctorId The ID of the doctor associated with the billing.
+     * @param invoiceCents The total amount to be invoiced, in cents.
+     * @param paymentCents The amount already paid, in cents.
+     * @param outstandingCents The outstanding balance, in cents.
+     * @return The billing.
+     */
+    public static Billing ofCents(int id, int patientId, int doctorId, long invoiceCents, long paymentCents, long outstandingCents) {
+        Billing billing = new Billing();
+        billing.id = id;
+        billing.patientId = patientId;
+        billing.doctorId = doctorId;
+        billing.invoiceCents = invoiceCents;
+        billing.paymentCents = paymentCents;
+        billing.outstandingCents = outstandingCents;
+        return billing;
     }
 
     // Getters and setters
     public int getId() {
-        LOGGER.log(Level.INFO, "Getting ID: " + id);
         return id;
     }
 
     public void setId(int id) {
-        LOGGER.log(Level.INFO, "Setting ID: " + id);
+        if (AUDIT.isEnabled()) {
+            AUDIT.fieldSet("id", id);
+        }
         this.id = id;
     }
 
     /**
-     * Get the patient associated with the billing.
-     * @return The patient associated with the billing.
+     * Get the ID of the patient associated with the billing.
+     * @return The ID of the patient associated with the billing, or 0 if none is set.
+     */
+    public int getPatientId() {
+        return patientId;
+    }
+
+    /**
+     * Set the ID of the patient associated with the billing.
+     * @param patientId The ID of the patient associated with the billing to set.
+     */
+    public void setPatientId(int patientId) {
+        if (AUDIT.isEnabled()) {
+            AUDIT.fieldSet("patientId", patientId);
+        }
+        this.patientId = patientId;
+    }
+
+    /**
+     * Get the patient associated with the billing, looked up by ID.
+     * @return The patient associated with the billing, or null if no patient with the ID exists.
      */
+    @JsonView(References.Expanded.class)
     public Patient getPatient() {
-        LOGGER.log(Level.INFO, "Getting patient: " + patient);
-        return patient;
+        return References.patient(patientId);
     }
 
     /**
      * Set the patient associated with the billing.
+     * Only the ID is kept.
      * @param patient The patient associated with the billing to set.
      */
     public void setPatient(Patient patient) {
-        LOGGER.log(Level.INFO, "Setting patient: " + patient);
-        this.patient = patient;
+        setPatientId(patient == null ? 0 : patient.getId());
     }
 
     /**
-     * Get the doctor associated with the billing.
-     * @return The doctor associated with the billing.
+     * Get the ID of the doctor associated with the billing.
+     * @return The ID of the doctor associated with the billing, or 0 if none is set.
      */
+    public int getDoctorId() {
+        return doctorId;
+    }
+
+    /**
+     * Set the ID of the doctor associated with the billing.
+     * @param doctorId The ID of the doctor associated with the billing to set.
+     */
+    public void setDoctorId(int doctorId) {
+        if (AUDIT.isEnabled()) {
+            AUDIT.fieldSet("doctorId", doctorId);
+        }
+        this.doctorId = doctorId;
+    }
+
+    /**
+     * Get the doctor associated with the billing, looked up by ID.
+     * @return The doctor associated with the billing, or null if no doctor with the ID exists.
+     */
+    @JsonView(References.Expanded.class)
     public Doctor getDoctor() {
-        LOGGER.log(Level.INFO, "Getting doctor: " + doctor);
-        return doctor;
+        return References.doctor(doctorId);
     }
 
     /**
      * Set the doctor associated with the billing.
+     * Only the ID is kept.
      * @param doctor The doctor associated with the billing to set.
      */
     public void setDoctor(Doctor doctor) {
-        LOGGER.log(Level.INFO, "Setting doctor: " + doctor);
-        this.doctor = doctor;
+        setDoctorId(doctor == null ? 0 : doctor.getId());
     }
 
     /**
@@ -98,17 +177,28 @@ public class Billing {
      * @return The total amount to be invoiced.
      */
     public double getInvoiceAmount() {
-        LOGGER.log(Level.INFO, "Getting invoice amount: " + invoiceAmount);
-        return invoiceAmount;
+        return Money.toAmount(invoiceCents);
+    }
+
+    /**
+     * Get the total amount to be invoiced in cents.
+     * @return The total amount to be invoiced in cents.
+     */
+    @JsonIgnore
+    public long getInvoiceCents() {
+        return invoiceCents;
     }
 
     /**
      * Set the total amount to be invoiced.
      * @param invoiceAmount The total amount to be invoiced to set.
+     * @throws IllegalArgumentException if the amount has fractions of a cent.
      */
     public void setInvoiceAmount(double invoiceAmount) {
-        LOGGER.log(Level.INFO, "Setting invoice amount: " + invoiceAmount);
-        this.invoiceAmount = invoiceAmount;
+        if (AUDIT.isEnabled()) {
+            AUDIT.fieldSet("invoiceAmount", invoiceAmount);
+        }
+        this.invoiceCents = Money.toCents(invoiceAmount);
     }
 
     /**
@@ -116,17 +206,28 @@ public class Billing {
      * @return The amount already paid.
      */
     public double getPaymentAmount() {
-        LOGGER.log(Level.INFO, "Getting payment amount: " + paymentAmount);
-        return paymentAmount;
+        return Money.toAmount(paymentCents);
+    }
+
+    /**
+     * Get the amount already paid in cents.
+     * @return The amount already paid in cents.
+     */
+    @JsonIgnore
+    public long getPaymentCents() {
+        return paymentCents;
     }
 
     /**
      * Set the amount already paid.
      * @param paymentAmount The amount already paid to set.
+     * @throws IllegalArgumentException if the amount has fractions of a cent.
      */
     public void setPaymentAmount(double paymentAmount) {
-        LOGGER.log(Level.INFO, "Setting payment amount: " + paymentAmount);
-        this.paymentAmount = paymentAmount;
+        if (AUDIT.isEnabled()) {
+            AUDIT.fieldSet("paymentAmount", paymentAmount);
+        }
+        this.paymentCents = Money.toCents(paymentAmount);
     }
 
     /**
@@ -134,16 +235,27 @@ public class Billing {
      * @return The outstanding balance.
      */
     public double getOutstandingBalance() {
-        LOGGER.log(Level.INFO, "Getting outstanding balance: " + outstandingBalance);
-        return outstandingBalance;
+        return Money.toAmount(outstandingCents);
+    }
+
+    /**
+     * Get the outstanding balance in cents.
+     * @return The outstanding balance in cents.
+     */
+    @JsonIgnore
+    public long getOutstandingCents() {
+        return outstandingCents;
     }
 
     /**
      * Set the outstanding balance.
      * @param outstandingBalance The outstanding balance to set.
+     * @throws IllegalArgumentException if the amount has fractions of a cent.
      */
     public void setOutstandingBalance(double outstandingBalance) {
-        LOGGER.log(Level.INFO, "Setting outstanding balance: " + outstandingBalance);
-        this.outstandingBalance = outstandingBalance;
+        if (AUDIT.isEnabled()) {
+            AUDIT.fieldSet("outstandingBalance", outstandingBalance);
+        }
+        this.outstandingCents = Money.toCents(outstandingBalance);
     }
 }
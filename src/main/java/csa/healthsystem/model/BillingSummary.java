@@ -0,0 +1,102 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.model;
+
+/**
+ *
+ * @author Maryam
+ */
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * BillingSummary class represents the totals of the billings of one patient or one doctor.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BillingSummary {
+    private final Integer patientId;
+    private final Integer doctorId;
+    private final long count;
+    private final double invoiceTotal;
+    private final double paymentTotal;
+    private final double outstandingTotal;
+    private final double maxOutstanding;
+
+    /**
+     * Constructor to initialize a BillingSummary object with the provided attributes.
+     * @param patientId The ID of the patient summarized, or null if the summary is for a doctor.
+     * @param doctorId The ID of the doctor summarized, or null if the summary is for a patient.
+     * @param count The number of billings.
+     * @param invoiceTotal The sum of the invoice amounts.
+     * @param paymentTotal The sum of the payment amounts.
+     * @param outstandingTotal The sum of the outstanding balances.
+     * @param maxOutstanding The largest outstanding balance of a single billing.
+     */
+    public BillingSummary(Integer patientId, Integer doctorId, long count, double invoiceTotal, double paymentTotal,
+                          double outstandingTotal, double maxOutstanding) {
+        this.patientId = patientId;
+        this.doctorId = doctorId;
+        this.count = count;
+        this.invoiceTotal = invoiceTotal;
+        this.paymentTotal = paymentTotal;
+        this.outstandingTotal = outstandingTotal;
+        this.maxOutstanding = maxOutstanding;
+    }
+
+    /**
+     * Get the ID of the patient summarized.
+     * @return The patient ID, or null if the summary is for a doctor.
+     */
+    public Integer getPatientId() {
+        return patientId;
+    }
+
+    /**
+     * Get the ID of the doctor summarized.
+     * @return The doctor ID, or null if the summary is for a patient.
+     */
+    public Integer getDoctorId() {
+        return doctorId;
+    }
+
+    /**
+     * Get the number of billings.
+     * @return The number of billings.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Get the sum of the invoice amounts.
+     * @return The invoiced total.
+     */
+    public double getInvoiceTotal() {
+        return invoiceTotal;
+    }
+
+    /**
+     * Get the sum of the payment amounts.
+     * @return The paid total.
+     */
+    public double getPaymentTotal() {
+        return paymentTotal;
+    }
+
+    /**
+     * Get the sum of the outstanding balances.
+     * @return The outstanding total.
+     */
+    public double getOutstandingTotal() {
+        return outstandingTotal;
+    }
+
+    /**
+     * Get the largest outstanding balance of a single billing.
+     * @return The largest outstanding balance.
+     */
+    public double getMaxOutstanding() {
+        return maxOutstanding;
+    }
+}
@@ -9,15 +9,15 @@ package csa.healthsystem.model;
  * @author Maryam
  */
 
-import java.util.logging.Level;
-import java.util.logging.Logger;
-
 /**
  * Doctor class represents a medical doctor.
  * Inherits from the Person class.
+ * Doctors are indexed by the code of their specialization in {@link #SPECIALIZATIONS}.
  */
 public class Doctor extends Person {
-    private static final Logger LOGGER = Logger.getLogger(Doctor.class.getName());
+    private static final FieldAudit AUDIT = FieldAudit.of(Doctor.class);
+    /** Codes of the specializations of stored doctors; at most 1024 specializations of up to 100 characters. */
+    public static final ValueDictionary SPECIALIZATIONS = new ValueDictionary(1024, 100);
     private static int id = 1;
 
     // Additional attribute specific to Doctor
@@ -41,7 +41,7 @@ public class Doctor extends Person {
         // Calling the constructor of the superclass (Person) to initialize inherited attributes
         super(id++, name, contactInformation, address);
         // Initializing additional attribute specific to Doctor
-        this.specialization = specialization;
+        this.specialization = SPECIALIZATIONS.canonical(specialization);
     }
 
     /**
@@ -49,7 +49,6 @@ public class Doctor extends Person {
      * @return The specialization of the doctor.
      */
     public String getSpecialization() {
-        LOGGER.log(Level.INFO, "Getting specialization: " + specialization);
         return specialization;
     }
 
@@ -58,7 +57,14 @@ public class Doctor extends Person {
      * @param specialization The specialization of the doctor to set.
      */
     public void setSpecialization(String specialization) {
-        LOGGER.log(Level.INFO, "Setting specialization: " + specialization);
-        this.specialization = specialization;
+        if (AUDIT.isEnabled()) {
+            AUDIT.fieldSet("specialization", specialization);
+        }
+        this.specialization = SPECIALIZATIONS.canonical(specialization);
+    }
+
+    @Override
+    FieldAudit audit() {
+        return AUDIT;
     }
 }
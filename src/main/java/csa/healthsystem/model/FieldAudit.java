@@ -0,0 +1,93 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.model;
+
+/**
+ *
+ * @author Maryam
+ */
+import csa.healthsystem.logging.Log;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.logging.Level;
+
+/**
+ * Opt-in, sampled audit trail of field changes on model objects.
+ * Auditing is off by default and costs a single volatile read per setter call. It can be
+ * switched on per entity type at runtime with {@link #enable(double)}, or at startup with a
+ * system property such as {@code -Dhealthsystem.audit.Billing=0.01} (the sampling rate).
+ */
+public final class FieldAudit {
+    private static final Log LOGGER = Log.get(FieldAudit.class);
+    private static final String PROPERTY_PREFIX = "healthsystem.audit.";
+
+    private static final ClassValue<FieldAudit> AUDITS = new ClassValue<FieldAudit>() {
+        @Override
+        protected FieldAudit computeValue(Class<?> type) {
+            return new FieldAudit(type.getSimpleName());
+        }
+    };
+
+    private final String entityType;
+    private volatile boolean enabled;
+    private volatile double sampleRate;
+
+    private FieldAudit(String entityType) {
+        this.entityType = entityType;
+        String configured = System.getProperty(PROPERTY_PREFIX + entityType);
+        if (configured != null) {
+            try {
+                enable(Double.parseDouble(configured));
+            } catch (NumberFormatException e) {
+                LOGGER.log(Level.WARNING, "Ignoring invalid audit sampling rate", "entity", entityType, "rate", configured);
+            }
+        }
+    }
+
+    /**
+     * Gets the audit hook for an entity type.
+     * @param type The model class
+     * @return The audit hook shared by all instances of the type
+     */
+    public static FieldAudit of(Class<?> type) {
+        return AUDITS.get(type);
+    }
+
+    /**
+     * Checks whether auditing is switched on for this entity type.
+     * @return True if field changes should be reported, otherwise false
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Switches auditing on for this entity type.
+     * @param sampleRate Fraction of field changes to log, between 0 (none) and 1 (all)
+     */
+    public void enable(double sampleRate) {
+        this.sampleRate = Math.max(0.0, Math.min(1.0, sampleRate));
+        this.enabled = this.sampleRate > 0.0;
+    }
+
+    /**
+     * Switches auditing off for this entity type.
+     */
+    public void disable() {
+        this.enabled = false;
+    }
+
+    /**
+     * Records a field change, subject to sampling. Callers should check {@link #isEnabled()}
+     * first so that nothing is boxed or formatted while auditing is off.
+     * @param field The name of the changed field
+     * @param value The new value of the field
+     */
+    public void fieldSet(String field, Object value) {
+        double rate = sampleRate;
+        if (rate >= 1.0 || ThreadLocalRandom.current().nextDouble() < rate) {
+            LOGGER.log(Level.INFO, "Field set", "entity", entityType, "field", field, "value", value);
+        }
+    }
+}
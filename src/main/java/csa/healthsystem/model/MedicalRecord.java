@@ -8,18 +8,17 @@ package csa.healthsystem.model;
  *
  * @author Maryam
  */
+import com.fasterxml.jackson.annotation.JsonView;
 import java.util.List;
-import java.util.logging.Level;
-import java.util.logging.Logger;
 
 /**
  * MedicalRecord class represents a patient's medical record.
  */
 public class MedicalRecord {
-    private static final Logger LOGGER = Logger.getLogger(MedicalRecord.class.getName());
+    private static final FieldAudit AUDIT = FieldAudit.of(MedicalRecord.class);
 
     private int id;
-    private Patient patient;
+    private int patientId;
     private String diagnoses;
     private String treatments;
 
@@ -35,7 +34,21 @@ public class MedicalRecord {
      */
     public MedicalRecord(int id, Patient patient, String diagnoses, String treatments) {
         this.id = id;
-        this.patient = patient;
+        this.patientId = patient == null ? 0 : patient.getId();
+        this.diagnoses = diagnoses;
+        this.treatments = treatments;
+    }
+
+    /**
+     * Constructor to initialize a MedicalRecord object that refers to its patient by ID.
+     * @param id The ID of the medical record.
+     * @param patientId The ID of the patient associated with the medical record.
+     * @param diagnoses The list of diagnoses in the medical record.
+     * @param treatments The list of treatments in the medical record.
+     */
+    public MedicalRecord(int id, int patientId, String diagnoses, String treatments) {
+        this.id = id;
+        this.patientId = patientId;
         this.diagnoses = diagnoses;
         this.treatments = treatments;
     }
@@ -59,21 +72,40 @@ public class MedicalRecord {
     }
 
     /**
-     * Get the patient associated with the medical record.
-     * @return The patient associated with the medical record.
+     * Get the ID of the patient associated with the medical record.
+     * @return The ID of the patient associated with the medical record, or 0 if none is set.
+     */
+    public int getPatientId() {
+        return patientId;
+    }
+
+    /**
+     * Set the ID of the patient associated with the medical record.
+     * @param patientId The ID of the patient associated with the medical record to set.
+     */
+    public void setPatientId(int patientId) {
+        if (AUDIT.isEnabled()) {
+            AUDIT.fieldSet("patientId", patientId);
+        }
+        this.patientId = patientId;
+    }
+
+    /**
+     * Get the patient associated with the medical record, looked up by ID.
+     * @return The patient associated with the medical record, or null if no patient with the ID exists.
      */
+    @JsonView(References.Expanded.class)
     public Patient getPatient() {
-        LOGGER.log(Level.INFO, "Getting patient: " + patient);
-        return patient;
+        return References.patient(patientId);
     }
 
     /**
      * Set the patient associated with the medical record.
+     * Only the ID is kept.
      * @param patient The patient to set.
      */
     public void setPatient(Patient patient) {
-        LOGGER.log(Level.INFO, "Setting patient: " + patient);
-        this.patient = patient;
+        setPatientId(patient == null ? 0 : patient.getId());
     }
 
     /**
@@ -81,7 +113,6 @@ public class MedicalRecord {
      * @return The list of diagnoses in the medical record.
      */
     public String getDiagnoses() {
-        LOGGER.log(Level.INFO, "Getting diagnoses: " + diagnoses);
         return diagnoses;
     }
 
@@ -90,7 +121,9 @@ public class MedicalRecord {
      * @param diagnoses The list of diagnoses to set.
      */
     public void setDiagnoses(String diagnoses) {
-        LOGGER.log(Level.INFO, "Setting diagnoses: " + diagnoses);
+        if (AUDIT.isEnabled()) {
+            AUDIT.fieldSet("diagnoses", diagnoses);
+        }
         this.diagnoses = diagnoses;
     }
 
@@ -99,7 +132,6 @@ public class MedicalRecord {
      * @return The list of treatments in the medical record.
      */
     public String getTreatments() {
-        LOGGER.log(Level.INFO, "Getting treatments: " + treatments);
         return treatments;
     }
 
@@ -108,7 +140,9 @@ public class MedicalRecord {
      * @param treatments The list of treatments to set.
      */
     public void setTreatments(String treatments) {
-        LOGGER.log(Level.INFO, "Setting treatments: " + treatments);
+        if (AUDIT.isEnabled()) {
+            AUDIT.fieldSet("treatments", treatments);
+        }
         this.treatments = treatments;
     }
 }
\ No newline at end of file
@@ -0,0 +1,55 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.model;
+
+/**
+ *
+ * @author Maryam
+ */
+
+/**
+ * Conversions between amounts of money and the whole cents they are stored and summed in.
+ * Amounts appear as decimal numbers in JSON; in memory they are {@code long} cents, so sums
+ * and differences are exact.
+ */
+public final class Money {
+    /**
+     * Largest amount in cents; every cent up to it converts to an amount and back exactly.
+     * Above it a double amount no longer has a distinct value for each cent.
+     */
+    public static final long MAX_CENTS = 1L << 51;
+
+    private Money() {}
+
+    /**
+     * Converts an amount to cents.
+     * @param amount The amount, with at most two decimal places
+     * @return The amount in cents
+     * @throws IllegalArgumentException if the amount has fractions of a cent or is too large
+     */
+    public static long toCents(double amount) {
+        double cents = amount * 100;
+        // Also false for NaN and the infinities, which Math.round would turn into 0 or Long.MIN_VALUE
+        if (!(Math.abs(cents) <= MAX_CENTS)) {
+            throw new IllegalArgumentException("Amount out of range: " + amount);
+        }
+        long rounded = Math.round(cents);
+        // A decimal such as 0.1 has no exact double. Its error, times 100, is under one ulp of the cents
+        // and the product adds half an ulp, so a whole-cent amount lands within two ulps at any magnitude
+        if (Math.abs(cents - rounded) > 2 * Math.ulp(cents)) {
+            throw new IllegalArgumentException("Amount must be in whole cents: " + amount);
+        }
+        return rounded;
+    }
+
+    /**
+     * Converts cents to an amount.
+     * @param cents The amount in cents
+     * @return The amount, the nearest double to the exact value
+     */
+    public static double toAmount(long cents) {
+        return cents / 100.0;
+    }
+}
@@ -9,14 +9,15 @@ package csa.healthsystem.model;
  * @author Maryam
  */
 
-import java.util.logging.Level;
-import java.util.logging.Logger;
-
 /**
  * Patient class represents a patient in the system.
+ * Few distinct health statuses are shared by many patients, so patients are indexed by the
+ * status's code in {@link #HEALTH_STATUSES}, and share the dictionary's copy of the text.
  */
 public class Patient extends Person {
-    private static final Logger LOGGER = Logger.getLogger(Patient.class.getName());
+    private static final FieldAudit AUDIT = FieldAudit.of(Patient.class);
+    /** Codes of the health statuses of stored patients; at most 256 statuses of up to 100 characters. */
+    public static final ValueDictionary HEALTH_STATUSES = new ValueDictionary(256, 100);
     private static int id = 1000;
 
     // Additional attributes specific to Patient
@@ -42,7 +43,7 @@ public class Patient extends Person {
         super(id++, name, contactInformation, address);
         // Initializing additional attributes specific to Patient
         this.medicalHistory = medicalHistory;
-        this.currentHealthStatus = currentHealthStatus;
+        this.currentHealthStatus = HEALTH_STATUSES.canonical(currentHealthStatus);
     }
 
     // Getters and setters for additional attributes
@@ -52,7 +53,6 @@ public class Patient extends Person {
      * @return The medical history of the patient.
      */
     public String getMedicalHistory() {
-        LOGGER.log(Level.INFO, "Getting medical history: " + medicalHistory);
         return medicalHistory;
     }
 
@@ -61,7 +61,9 @@ public class Patient extends Person {
      * @param medicalHistory The medical history to set.
      */
     public void setMedicalHistory(String medicalHistory) {
-        LOGGER.log(Level.INFO, "Setting medical history: " + medicalHistory);
+        if (AUDIT.isEnabled()) {
+            AUDIT.fieldSet("medicalHistory", medicalHistory);
+        }
         this.medicalHistory = medicalHistory;
     }
 
@@ -70,7 +72,6 @@ public class Patient extends Person {
      * @return The current health status of the patient.
      */
     public String getCurrentHealthStatus() {
-        LOGGER.log(Level.INFO, "Getting current health status: " + currentHealthStatus);
         return currentHealthStatus;
     }
 
@@ -79,7 +80,14 @@ public class Patient extends Person {
      * @param currentHealthStatus The current health status to set.
      */
     public void setCurrentHealthStatus(String currentHealthStatus) {
-        LOGGER.log(Level.INFO, "Setting current health status: " + currentHealthStatus);
-        this.currentHealthStatus = currentHealthStatus;
+        if (AUDIT.isEnabled()) {
+            AUDIT.fieldSet("currentHealthStatus", currentHealthStatus);
+        }
+        this.currentHealthStatus = HEALTH_STATUSES.canonical(currentHealthStatus);
+    }
+
+    @Override
+    FieldAudit audit() {
+        return AUDIT;
     }
 }
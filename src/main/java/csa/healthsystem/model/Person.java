@@ -9,14 +9,11 @@ package csa.healthsystem.model;
  * @author Maryam
  */
 
-import java.util.logging.Level;
-import java.util.logging.Logger;
-
 /**
  * Represents a generic person with basic attributes such as ID, name, contact information, and address.
  */
 public class Person {
-    private static final Logger LOGGER = Logger.getLogger(Person.class.getName());
+    private static final FieldAudit AUDIT = FieldAudit.of(Person.class);
 
     private int id;
     private String name;
@@ -45,7 +42,6 @@ public class Person {
      * @return The ID of the person
      */
     public int getId() {
-        LOGGER.log(Level.INFO, "Getting ID: " + id);
         return id;
     }
 
@@ -54,7 +50,10 @@ public class Person {
      * @param id The ID to set
      */
     public void setId(int id) {
-        LOGGER.log(Level.INFO, "Setting ID: " + id);
+        FieldAudit audit = audit();
+        if (audit.isEnabled()) {
+            audit.fieldSet("id", id);
+        }
         this.id = id;
     }
 
@@ -63,7 +62,6 @@ public class Person {
      * @return The name of the person
      */
     public String getName() {
-        LOGGER.log(Level.INFO, "Getting name: " + name);
         return name;
     }
 
@@ -72,7 +70,10 @@ public class Person {
      * @param name The name to set
      */
     public void setName(String name) {
-        LOGGER.log(Level.INFO, "Setting name: " + name);
+        FieldAudit audit = audit();
+        if (audit.isEnabled()) {
+            audit.fieldSet("name", name);
+        }
         this.name = name;
     }
 
@@ -81,7 +82,6 @@ public class Person {
      * @return The contact information of the person
      */
     public String getContactInformation() {
-        LOGGER.log(Level.INFO, "Getting contact information: " + contactInformation);
         return contactInformation;
     }
 
@@ -90,7 +90,10 @@ public class Person {
      * @param contactInformation The contact information to set
      */
     public void setContactInformation(String contactInformation) {
-        LOGGER.log(Level.INFO, "Setting contact information: " + contactInformation);
+        FieldAudit audit = audit();
+        if (audit.isEnabled()) {
+            audit.fieldSet("contactInformation", contactInformation);
+        }
         this.contactInformation = contactInformation;
     }
 
@@ -99,7 +102,6 @@ public class Person {
      * @return The address of the person
      */
     public String getAddress() {
-        LOGGER.log(Level.INFO, "Getting address: " + address);
         return address;
     }
 
@@ -108,7 +110,18 @@ public class Person {
      * @param address The address to set
      */
     public void setAddress(String address) {
-        LOGGER.log(Level.INFO, "Setting address: " + address);
+        FieldAudit audit = audit();
+        if (audit.isEnabled()) {
+            audit.fieldSet("address", address);
+        }
         this.address = address;
     }
+
+    /**
+     * Gets the audit hook of this person's type; subclasses return their own.
+     * @return The audit hook
+     */
+    FieldAudit audit() {
+        return AUDIT;
+    }
 }
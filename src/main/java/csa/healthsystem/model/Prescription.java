@@ -8,18 +8,17 @@ package csa.healthsystem.model;
  *
  * @author Maryam
  */
-import java.util.logging.Level;
-import java.util.logging.Logger;
+import com.fasterxml.jackson.annotation.JsonView;
 
 /**
  * Represents a prescription with details such as ID, patient, doctor, medication, dosage, instructions, and duration.
  */
 public class Prescription {
-    private static final Logger LOGGER = Logger.getLogger(Prescription.class.getName());
+    private static final FieldAudit AUDIT = FieldAudit.of(Prescription.class);
 
     private int id; // New ID attribute
-    private Patient patient;
-    private Doctor doctor;
+    private int patientId;
+    private int doctorId;
     private String medication;
     private String dosage;
     private String instructions;
@@ -40,8 +39,28 @@ public class Prescription {
      */
     public Prescription(int id, Patient patient, Doctor doctor, String medication, String dosage, String instructions, int durationInDays) {
         this.id = id;
-        this.patient = patient;
-        this.doctor = doctor;
+        this.patientId = patient == null ? 0 : patient.getId();
+        this.doctorId = doctor == null ? 0 : doctor.getId();
+        this.medication = medication;
+        this.dosage = dosage;
+        this.instructions = instructions;
+        this.durationInDays = durationInDays;
+    }
+
+    /**
+     * Constructs a Prescription object that refers to its patient and doctor by ID.
+     * @param id The unique identifier for the prescription
+     * @param patientId The ID of the patient for whom the prescription is issued
+     * @param doctorId The ID of the doctor who issued the prescription
+     * @param medication The medication prescribed
+     * @param dosage The dosage of the medication
+     * @param instructions The instructions for taking the medication
+     * @param durationInDays The duration of the prescription in days
+     */
+    public Prescription(int id, int patientId, int doctorId, String medication, String dosage, String instructions, int durationInDays) {
+        this.id = id;
+        this.patientId = patientId;
+        this.doctorId = doctorId;
         this.medication = medication;
         this.dosage = dosage;
         this.instructions = instructions;
@@ -55,7 +74,6 @@ public class Prescription {
      * @return The ID of the prescription
      */
     public int getId() {
-        LOGGER.log(Level.INFO, "Getting ID: " + id);
         return id;
     }
 
@@ -64,44 +82,84 @@ public class Prescription {
      * @param id The ID to set
      */
     public void setId(int id) {
-        LOGGER.log(Level.INFO, "Setting ID: " + id);
+        if (AUDIT.isEnabled()) {
+            AUDIT.fieldSet("id", id);
+        }
         this.id = id;
     }
 
     /**
-     * Gets the patient for whom the prescription is issued.
-     * @return The patient object
+     * Gets the ID of the patient for whom the prescription is issued.
+     * @return The ID of the patient for whom the prescription is issued, or 0 if none is set.
+     */
+    public int getPatientId() {
+        return patientId;
+    }
+
+    /**
+     * Sets the ID of the patient for whom the prescription is issued.
+     * @param patientId The ID of the patient for whom the prescription is issued to set.
+     */
+    public void setPatientId(int patientId) {
+        if (AUDIT.isEnabled()) {
+            AUDIT.fieldSet("patientId", patientId);
+        }
+        this.patientId = patientId;
+    }
+
+    /**
+     * Gets the patient for whom the prescription is issued, looked up by ID.
+     * @return The patient for whom the prescription is issued, or null if no patient with the ID exists.
      */
+    @JsonView(References.Expanded.class)
     public Patient getPatient() {
-        LOGGER.log(Level.INFO, "Getting patient: " + patient);
-        return patient;
+        return References.patient(patientId);
     }
 
     /**
      * Sets the patient for whom the prescription is issued.
+     * Only the ID is kept.
      * @param patient The patient object to set
      */
     public void setPatient(Patient patient) {
-        LOGGER.log(Level.INFO, "Setting patient: " + patient);
-        this.patient = patient;
+        setPatientId(patient == null ? 0 : patient.getId());
+    }
+
+    /**
+     * Gets the ID of the doctor who issued the prescription.
+     * @return The ID of the doctor who issued the prescription, or 0 if none is set.
+     */
+    public int getDoctorId() {
+        return doctorId;
+    }
+
+    /**
+     * Sets the ID of the doctor who issued the prescription.
+     * @param doctorId The ID of the doctor who issued the prescription to set.
+     */
+    public void setDoctorId(int doctorId) {
+        if (AUDIT.isEnabled()) {
+            AUDIT.fieldSet("doctorId", doctorId);
+        }
+        this.doctorId = doctorId;
     }
 
     /**
-     * Gets the doctor who issued the prescription.
-     * @return The doctor object
+     * Gets the doctor who issued the prescription, looked up by ID.
+     * @return The doctor who issued the prescription, or null if no doctor with the ID exists.
      */
+    @JsonView(References.Expanded.class)
     public Doctor getDoctor() {
-        LOGGER.log(Level.INFO, "Getting doctor: " + doctor);
-        return doctor;
+        return References.doctor(doctorId);
     }
 
     /**
      * Sets the doctor who issued the prescription.
+     * Only the ID is kept.
      * @param doctor The doctor object to set
      */
     public void setDoctor(Doctor doctor) {
-        LOGGER.log(Level.INFO, "Setting doctor: " + doctor);
-        this.doctor = doctor;
+        setDoctorId(doctor == null ? 0 : doctor.getId());
     }
 
     /**
@@ -109,7 +167,6 @@ public class Prescription {
      * @return The medication
      */
     public String getMedication() {
-        LOGGER.log(Level.INFO, "Getting medication: " + medication);
         return medication;
     }
 
@@ -118,7 +175,9 @@ public class Prescription {
      * @param medication The medication to set
      */
     public void setMedication(String medication) {
-        LOGGER.log(Level.INFO, "Setting medication: " + medication);
+        if (AUDIT.isEnabled()) {
+            AUDIT.fieldSet("medication", medication);
+        }
         this.medication = medication;
     }
 
@@ -127,7 +186,6 @@ public class Prescription {
      * @return The dosage
      */
     public String getDosage() {
-        LOGGER.log(Level.INFO, "Getting dosage: " + dosage);
         return dosage;
     }
 
@@ -136,7 +194,9 @@ public class Prescription {
      * @param dosage The dosage to set
      */
     public void setDosage(String dosage) {
-        LOGGER.log(Level.INFO, "Setting dosage: " + dosage);
+        if (AUDIT.isEnabled()) {
+            AUDIT.fieldSet("dosage", dosage);
+        }
         this.dosage = dosage;
     }
 
@@ -145,7 +205,6 @@ public class Prescription {
      * @return The instructions
      */
     public String getInstructions() {
-        LOGGER.log(Level.INFO, "Getting instructions: " + instructions);
         return instructions;
     }
 
@@ -154,7 +213,9 @@ public class Prescription {
      * @param instructions The instructions to set
      */
     public void setInstructions(String instructions) {
-        LOGGER.log(Level.INFO, "Setting instructions: " + instructions);
+        if (AUDIT.isEnabled()) {
+            AUDIT.fieldSet("instructions", instructions);
+        }
         this.instructions = instructions;
     }
 
@@ -163,7 +224,6 @@ public class Prescription {
      * @return The duration in days
      */
     public int getDurationInDays() {
-        LOGGER.log(Level.INFO, "Getting duration in days: " + durationInDays);
         return durationInDays;
     }
 
@@ -172,7 +232,9 @@ public class Prescription {
      * @param durationInDays The duration in days to set
      */
     public void setDurationInDays(int durationInDays) {
-        LOGGER.log(Level.INFO, "Setting duration in days: " + durationInDays);
+        if (AUDIT.isEnabled()) {
+            AUDIT.fieldSet("durationInDays", durationInDays);
+        }
         this.durationInDays = durationInDays;
     }
 }
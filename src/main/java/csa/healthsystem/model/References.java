@@ -0,0 +1,101 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.model;
+
+/**
+ *
+ * @author Maryam
+ */
+import java.util.function.IntFunction;
+import java.util.function.LongSupplier;
+
+/**
+ * Resolves the patient and doctor IDs held by billings, appointments, prescriptions and
+ * medical records. Records keep only the ID; reading the reference returns the single
+ * shared instance held by the patient or doctor store, so changes to a patient or doctor
+ * are seen by every record that refers to it.
+ * The stores register their lookups when they are created, together with their versions,
+ * which change whenever any patient or doctor does; responses that include the referenced
+ * objects depend on them.
+ */
+public final class References {
+
+    /**
+     * JSON view in which references are written as IDs only.
+     */
+    public static class IdsOnly {}
+
+    /**
+     * JSON view that also includes the referenced patient and doctor objects.
+     */
+    public static class Expanded extends IdsOnly {}
+
+    private static volatile IntFunction<Patient> patients = id -> null;
+    private static volatile IntFunction<Doctor> doctors = id -> null;
+    private static volatile LongSupplier patientsVersion = () -> 0L;
+    private static volatile LongSupplier doctorsVersion = () -> 0L;
+    private static volatile LongSupplier patientsModified = () -> 0L;
+    private static volatile LongSupplier doctorsModified = () -> 0L;
+
+    private References() {}
+
+    /**
+     * Registers the lookup used to resolve patient IDs.
+     * @param lookup Returns the patient with the given ID, or null if there is none
+     * @param version Returns the version of the patient collection
+     * @param lastModified Returns the time of the latest write to the patient collection
+     */
+    public static void registerPatients(IntFunction<Patient> lookup, LongSupplier version, LongSupplier lastModified) {
+        patients = lookup;
+        patientsVersion = version;
+        patientsModified = lastModified;
+    }
+
+    /**
+     * Registers the lookup used to resolve doctor IDs.
+     * @param lookup Returns the doctor with the given ID, or null if there is none
+     * @param version Returns the version of the doctor collection
+     * @param lastModified Returns the time of the latest write to the doctor collection
+     */
+    public static void registerDoctors(IntFunction<Doctor> lookup, LongSupplier version, LongSupplier lastModified) {
+        doctors = lookup;
+        doctorsVersion = version;
+        doctorsModified = lastModified;
+    }
+
+    /**
+     * Gets a version covering every patient and doctor. It changes whenever one of them is written.
+     * @return The combined version of the patient and doctor collections
+     */
+    public static long version() {
+        return patientsVersion.getAsLong() + doctorsVersion.getAsLong();
+    }
+
+    /**
+     * Gets the time of the latest write to any patient or doctor.
+     * @return Milliseconds since the epoch
+     */
+    public static long lastModified() {
+        return Math.max(patientsModified.getAsLong(), doctorsModified.getAsLong());
+    }
+
+    /**
+     * Resolves a patient ID.
+     * @param id The ID of the patient
+     * @return The patient, or null if no patient with the ID exists
+     */
+    public static Patient patient(int id) {
+        return id == 0 ? null : patients.apply(id);
+    }
+
+    /**
+     * Resolves a doctor ID.
+     * @param id The ID of the doctor
+     * @return The doctor, or null if no doctor with the ID exists
+     */
+    public static Doctor doctor(int id) {
+        return id == 0 ? null : doctors.apply(id);
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.model;
+
+/**
+ *
+ * @author Maryam
+ */
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * SearchHit class represents one entity found by a full-text search, with its relevance score.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class SearchHit {
+    /**
+     * Type of a hit holding a medical record.
+     */
+    public static final String MEDICAL_RECORD = "medicalRecord";
+
+    /**
+     * Type of a hit holding a patient.
+     */
+    public static final String PATIENT = "patient";
+
+    private final String type;
+    private final int id;
+    private final float score;
+    private final MedicalRecord medicalRecord;
+    private final Patient patient;
+
+    private SearchHit(String type, int id, float score, MedicalRecord medicalRecord, Patient patient) {
+        this.type = type;
+        this.id = id;
+        this.score = score;
+        this.medicalRecord = medicalRecord;
+        this.patient = patient;
+    }
+
+    /**
+     * Creates a hit for a medical record.
+     * @param medicalRecord The medical record.
+     * @param score The relevance score.
+     * @return The hit.
+     */
+    public static SearchHit of(MedicalRecord medicalRecord, float score) {
+        return new SearchHit(MEDICAL_RECORD, medicalRecord.getId(), score, medicalRecord, null);
+    }
+
+    /**
+     * Creates a hit for a patient.
+     * @param patient The patient.
+     * @param score The relevance score.
+     * @return The hit.
+     */
+    public static SearchHit of(Patient patient, float score) {
+        return new SearchHit(PATIENT, patient.getId(), score, null, patient);
+    }
+
+    /**
+     * Get the type of the entity found.
+     * @return {@link #MEDICAL_RECORD} or {@link #PATIENT}.
+     */
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * Get the ID of the entity found.
+     * @return The ID of the entity.
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Get the relevance score of the hit.
+     * @return The BM25 score; higher is more relevant.
+     */
+    public float getScore() {
+        return score;
+    }
+
+    /**
+     * Get the medical record found.
+     * @return The medical record, or null if the hit is a patient.
+     */
+    public MedicalRecord getMedicalRecord() {
+        return medicalRecord;
+    }
+
+    /**
+     * Get the patient found.
+     * @return The patient, or null if the hit is a medical record.
+     */
+    public Patient getPatient() {
+        return patient;
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.model;
+
+/**
+ *
+ * @author Maryam
+ */
+import java.util.List;
+
+/**
+ * SearchResults class represents a page of full-text search hits, best match first.
+ */
+public class SearchResults {
+    private final String query;
+    private final long total;
+    private final boolean totalExact;
+    private final int offset;
+    private final int limit;
+    private final List<SearchHit> hits;
+
+    /**
+     * Constructor to initialize a SearchResults object with the provided attributes.
+     * @param query The query searched for.
+     * @param total The number of matching entities.
+     * @param totalExact Whether the total is exact rather than a lower bound.
+     * @param offset The position of the first hit among all matches.
+     * @param limit The maximum number of hits requested.
+     * @param hits The hits of the page.
+     */
+    public SearchResults(String query, long total, boolean totalExact, int offset, int limit, List<SearchHit> hits) {
+        this.query = query;
+        this.total = total;
+        this.totalExact = totalExact;
+        this.offset = offset;
+        this.limit = limit;
+        this.hits = hits;
+    }
+
+    /**
+     * Get the query searched for.
+     * @return The query.
+     */
+    public String getQuery() {
+        return query;
+    }
+
+    /**
+     * Get the number of matching entities.
+     * @return The number of matches, or a lower bound if the total is not exact.
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * Check whether every match was counted. Searches for very common terms stop counting
+     * once the best matches are certain.
+     * @return True if the total is exact, otherwise false.
+     */
+    public boolean isTotalExact() {
+        return totalExact;
+    }
+
+    /**
+     * Get the position of the first hit among all matches.
+     * @return The offset, starting at 0.
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    /**
+     * Get the maximum number of hits requested.
+     * @return The limit.
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Get the hits of the page.
+     * @return The hits, best match first.
+     */
+    public List<SearchHit> getHits() {
+        return hits;
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.model;
+
+/**
+ *
+ * @author Maryam
+ */
+
+/**
+ * TimeSlot class represents a period of time, such as a free slot in a doctor's schedule.
+ */
+public class TimeSlot {
+    private String start;
+    private String end;
+
+    // Default constructor
+    public TimeSlot() {}
+
+    /**
+     * Constructor to initialize a TimeSlot object with the provided attributes.
+     * @param start The start of the slot, in the format YYYY-MM-DDTHH:MM.
+     * @param end The end of the slot, in the format YYYY-MM-DDTHH:MM.
+     */
+    public TimeSlot(String start, String end) {
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+     * Get the start of the slot.
+     * @return The start of the slot.
+     */
+    public String getStart() {
+        return start;
+    }
+
+    /**
+     * Set the start of the slot.
+     * @param start The start of the slot to set.
+     */
+    public void setStart(String start) {
+        this.start = start;
+    }
+
+    /**
+     * Get the end of the slot.
+     * @return The end of the slot.
+     */
+    public String getEnd() {
+        return end;
+    }
+
+    /**
+     * Set the end of the slot.
+     * @param end The end of the slot to set.
+     */
+    public void setEnd(String end) {
+        this.end = end;
+    }
+}
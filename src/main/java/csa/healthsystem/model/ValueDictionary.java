@@ -0,0 +1,121 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.model;
+
+/**
+ *
+ * @author Maryam
+ */
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Two-way mapping between the values of a low-cardinality text field, such as a health status,
+ * and small integer codes, which indexes are keyed by. Code 0 stands for null.
+ * <p>
+ * Codes are handed out when an entity holding the value is stored, and never reused. Values come
+ * from clients, so the number of values and their length are capped: a value past either limit
+ * gets {@link #UNKNOWN_CODE}, and indexes fall back to comparing it as text. Thread-safe; lookups
+ * do not lock.
+ */
+public final class ValueDictionary {
+    /** Code of the null value. */
+    public static final int NULL_CODE = 0;
+    /** Returned for a value that was never encoded or cannot be. */
+    public static final int UNKNOWN_CODE = -1;
+
+    private final int maxValues;
+    private final int maxLength;
+    private final ConcurrentHashMap<String, Integer> codes = new ConcurrentHashMap<>();
+    // Guarded by this for writes; slots below size are never changed once published
+    private volatile String[] values = new String[16];
+    private int size = 1;
+
+    /**
+     * Creates an empty dictionary.
+     * @param maxValues Most distinct values it holds, null excluded
+     * @param maxLength Most characters of a value
+     */
+    public ValueDictionary(int maxValues, int maxLength) {
+        this.maxValues = maxValues;
+        this.maxLength = maxLength;
+    }
+
+    /**
+     * Gets the code of a value, assigning one if it has none yet.
+     * @param value The value, or null
+     * @return The code, {@link #NULL_CODE} for null, or {@link #UNKNOWN_CODE} if the value is too long
+     *         or new while the dictionary is full
+     */
+    public int encode(String value) {
+        if (value == null) {
+            return NULL_CODE;
+        }
+        Integer code = codes.get(value);
+        if (code != null) {
+            return code;
+        }
+        if (value.length() > maxLength) {
+            return UNKNOWN_CODE;
+        }
+        synchronized (this) {
+            code = codes.get(value);
+            if (code != null) {
+                return code;
+            }
+            if (size > maxValues) {
+                return UNKNOWN_CODE;
+            }
+            String[] current = values;
+            if (size == current.length) {
+                current = Arrays.copyOf(current, size * 2);
+            }
+            current[size] = value;
+            values = current;
+            codes.put(value, size);
+            return size++;
+        }
+    }
+
+    /**
+     * Gets the code of a value without assigning one, for lookups that must not grow the dictionary.
+     * @param value The value, or null
+     * @return The code, {@link #NULL_CODE} for null, or {@link #UNKNOWN_CODE} if the value was never encoded
+     */
+    public int code(String value) {
+        if (value == null) {
+            return NULL_CODE;
+        }
+        Integer code = codes.get(value);
+        return code == null ? UNKNOWN_CODE : code;
+    }
+
+    /**
+     * Gets the copy of a value held by the dictionary, so entities holding the same value share one string.
+     * @param value The value, or null
+     * @return The dictionary's copy, or the value itself if it has no code
+     */
+    public String canonical(String value) {
+        int code = code(value);
+        return code == UNKNOWN_CODE ? value : values[code];
+    }
+
+    /**
+     * Gets the value of a code.
+     * @param code A code returned by {@link #encode(String)}
+     * @return The value, or null for {@link #NULL_CODE} and {@link #UNKNOWN_CODE}
+     */
+    public String decode(int code) {
+        return code == UNKNOWN_CODE ? null : values[code];
+    }
+
+    /**
+     * Gets the number of distinct values encoded so far, null excluded.
+     * @return The number of values
+     */
+    public int size() {
+        return codes.size();
+    }
+}
@@ -12,79 +12,100 @@ import javax.ws.rs.*;
 import javax.ws.rs.core.*;
 import csa.healthsystem.dao.AppointmentDAO;
 import csa.healthsystem.model.Appointment;
+import csa.healthsystem.store.Versioned;
 import csa.healthsystem.exception.NotFoundException;
+import csa.healthsystem.exception.VersionConflictException;
 import csa.healthsystem.exception.DuplicateException;
+import csa.healthsystem.exception.ConflictException;
 import csa.healthsystem.exception.InvalidDataException;
 import csa.healthsystem.exception.DatabaseException;
-import java.util.List;
+import csa.healthsystem.logging.Log;
+import java.io.InputStream;
 import java.util.logging.Level;
-import java.util.logging.Logger;
 
 @Path("/appointments")
 public class AppointmentResource {
-    private static final Logger LOGGER = Logger.getLogger(AppointmentResource.class.getName());
+    private static final Log LOGGER = Log.get(AppointmentResource.class);
     private final AppointmentDAO appointmentDAO = new AppointmentDAO();
 
     /**
      * Retrieves all appointments.
+     * @param limit Maximum number of appointments per page; omit together with cursor to get all appointments
+     * @param cursor ID of the last appointment of the previous page
+     * @param fields Comma separated list of fields to include in each appointment
+     * @param expand Whether to include the referenced patient and doctor objects, or only their IDs
+     * @param uriInfo Information about the request URI
+     * @param request The request, used to evaluate If-None-Match and If-Modified-Since
      * @return Response containing list of appointments in JSON format
      */
     @GET
     @Produces(MediaType.APPLICATION_JSON)
-    public Response getAllAppointments() {
+    public Response getAllAppointments(@QueryParam("limit") Integer limit,
+            @QueryParam("cursor") Integer cursor,
+            @QueryParam("fields") String fields,
+            @QueryParam("expand") @DefaultValue("true") boolean expand,
+            @Context UriInfo uriInfo,
+            @Context Request request) {
         LOGGER.log(Level.INFO, "Retrieving all appointments");
         try {
-            List<Appointment> appointments = appointmentDAO.getAllAppointments();
-            return Response.ok(appointments).build();
+            return Preconditions.collection(request, uriInfo, appointmentDAO.getAppointmentsVersion(), appointmentDAO.getAppointmentsLastModified(), expand,
+                    () -> CollectionResponses.list(uriInfo, limit, cursor, fields, expand, appointmentDAO::getAppointments, Appointment::getId));
         } catch (DatabaseException e) {
-            LOGGER.log(Level.SEVERE, "Database error while retrieving appointments: " + e.getMessage());
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity("Database error occurred").build();
+            LOGGER.log(Level.SEVERE, "Database error while retrieving appointments", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.INTERNAL_SERVER_ERROR, "Database error occurred");
         }
     }
 
     /**
      * Retrieves an appointment by its ID.
      * @param id The ID of the appointment to retrieve
-     * @return Response containing the appointment in JSON format if found, or 404 if not found
+     * @param expand Whether to include the referenced patient and doctor objects, or only their IDs
+     * @param request The request, used to evaluate If-None-Match and If-Modified-Since
+     * @return Response containing the appointment in JSON format if found, 304 if the client's copy is current, or 404 if not found
      */
     @GET
     @Path("/{id}")
     @Produces(MediaType.APPLICATION_JSON)
-    public Response getAppointmentById(@PathParam("id") int id) {
+    public Response getAppointmentById(@PathParam("id") int id,
+            @QueryParam("expand") @DefaultValue("true") boolean expand,
+            @Context Request request) {
         try {
-            LOGGER.log(Level.INFO, "Retrieving appointment by ID: " + id);
-            Appointment appointment = appointmentDAO.getAppointmentById(id);
-            return Response.ok(appointment).build();
+            LOGGER.log(Level.INFO, "Retrieving appointment", "id", id);
+            Versioned<Appointment> appointment = appointmentDAO.getVersionedAppointmentById(id);
+            return Preconditions.entity(request, "/appointments/" + id, appointment, expand);
         } catch (NotFoundException e) {
-            LOGGER.log(Level.WARNING, "Appointment with ID " + id + " not found");
-            return Response.status(Response.Status.NOT_FOUND).entity(e.getMessage()).build();
+            LOGGER.log(Level.WARNING, "Appointment not found", "id", id);
+            return ExceptionMappers.toResponse(e, Response.Status.NOT_FOUND, e.getMessage());
         } catch (DatabaseException e) {
-            LOGGER.log(Level.SEVERE, "Database error while retrieving appointment: " + e.getMessage());
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity("Database error occurred").build();
+            LOGGER.log(Level.SEVERE, "Database error while retrieving appointment", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.INTERNAL_SERVER_ERROR, "Database error occurred");
         }
     }
 
     /**
      * Adds a new appointment.
      * @param appointment The appointment to add
-     * @return Response with status 201 if successful, or 409 if appointment with the same ID already exists
+     * @return Response with status 201 if successful, or 409 if appointment with the same ID already exists or the doctor is already booked
      */
     @POST
     @Consumes(MediaType.APPLICATION_JSON)
     public Response addAppointment(Appointment appointment) {
         try {
-            LOGGER.log(Level.INFO, "Adding new appointment: " + appointment);
+            LOGGER.log(Level.INFO, "Adding new appointment", "appointment", appointment);
             appointmentDAO.addAppointment(appointment);
             return Response.status(Response.Status.CREATED).build();
         } catch (DuplicateException e) {
-            LOGGER.log(Level.WARNING, "Failed to add appointment: " + e.getMessage());
-            return Response.status(Response.Status.CONFLICT).entity(e.getMessage()).build();
+            LOGGER.log(Level.WARNING, "Failed to add appointment", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.CONFLICT, e.getMessage());
+        } catch (ConflictException e) {
+            LOGGER.log(Level.WARNING, "Appointment conflicts with an existing booking", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.CONFLICT, e.getMessage());
         } catch (InvalidDataException e) {
-            LOGGER.log(Level.WARNING, "Invalid appointment data: " + e.getMessage());
-            return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
+            LOGGER.log(Level.WARNING, "Invalid appointment data", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.BAD_REQUEST, e.getMessage());
         } catch (DatabaseException e) {
-            LOGGER.log(Level.SEVERE, "Database error while adding appointment: " + e.getMessage());
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(e.getMessage()).build();
+            LOGGER.log(Level.SEVERE, "Database error while adding appointment", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.INTERNAL_SERVER_ERROR, e.getMessage());
         }
     }
 
@@ -92,46 +113,130 @@ public class AppointmentResource {
      * Updates an existing appointment.
      * @param id The ID of the appointment to update
      * @param updatedAppointment The updated appointment object
-     * @return Response with status 200 if successful, or 404 if appointment not found
+     * @param ifMatch Entity tags of the versions the client expects to replace, or * for any version
+     * @return Response with status 200 if successful, 404 if appointment not found, or 409 if the doctor is already booked; 412 if If-Match does not match the current version
      */
     @PUT
     @Path("/{id}")
     @Consumes(MediaType.APPLICATION_JSON)
-    public Response updateAppointment(@PathParam("id") int id, Appointment updatedAppointment) {
+    public Response updateAppointment(@PathParam("id") int id, Appointment updatedAppointment,
+            @HeaderParam("If-Match") String ifMatch) {
         try {
-            LOGGER.log(Level.INFO, "Updating appointment with ID: " + id);
-            appointmentDAO.updateAppointment(id, updatedAppointment);
+            LOGGER.log(Level.INFO, "Updating appointment", "id", id);
+            long expectedVersion = Preconditions.expectedVersion(ifMatch, () -> appointmentDAO.getVersionedAppointmentById(id).getVersion());
+            appointmentDAO.updateAppointment(id, updatedAppointment, expectedVersion);
             return Response.ok().build();
         } catch (NotFoundException e) {
-            LOGGER.log(Level.WARNING, "Failed to update appointment with ID " + id + ": " + e.getMessage());
-            return Response.status(Response.Status.NOT_FOUND).entity(e.getMessage()).build();
+            LOGGER.log(Level.WARNING, "Failed to update appointment", "id", id, "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.NOT_FOUND, e.getMessage());
+        } catch (VersionConflictException e) {
+            LOGGER.log(Level.WARNING, "Failed to update appointment", "id", id, "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.PRECONDITION_FAILED, e.getMessage());
+        } catch (ConflictException e) {
+            LOGGER.log(Level.WARNING, "Appointment conflicts with an existing booking", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.CONFLICT, e.getMessage());
         } catch (InvalidDataException e) {
-            LOGGER.log(Level.WARNING, "Invalid appointment data for updating: " + e.getMessage());
-            return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
+            LOGGER.log(Level.WARNING, "Invalid appointment data for updating", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.BAD_REQUEST, e.getMessage());
         } catch (DatabaseException e) {
-            LOGGER.log(Level.SEVERE, "Database error while updating appointment: " + e.getMessage());
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(e.getMessage()).build();
+            LOGGER.log(Level.SEVERE, "Database error while updating appointment", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.INTERNAL_SERVER_ERROR, e.getMessage());
         }
     }
 
     /**
      * Deletes an appointment by its ID.
      * @param id The ID of the appointment to delete
-     * @return Response with status 200 if successful, or 404 if appointment not found
+     * @param ifMatch Entity tags of the versions the client expects to replace, or * for any version
+     * @return Response with status 200 if successful, or 404 if appointment not found; 412 if If-Match does not match the current version
      */
     @DELETE
     @Path("/{id}")
-    public Response deleteAppointment(@PathParam("id") int id) {
+    public Response deleteAppointment(@PathParam("id") int id,
+            @HeaderParam("If-Match") String ifMatch) {
         try {
-            LOGGER.log(Level.INFO, "Deleting appointment with ID: " + id);
-            appointmentDAO.deleteAppointment(id);
+            LOGGER.log(Level.INFO, "Deleting appointment", "id", id);
+            long expectedVersion = Preconditions.expectedVersion(ifMatch, () -> appointmentDAO.getVersionedAppointmentById(id).getVersion());
+            appointmentDAO.deleteAppointment(id, expectedVersion);
             return Response.ok().build();
         } catch (NotFoundException e) {
-            LOGGER.log(Level.WARNING, "Failed to delete appointment with ID " + id + ": " + e.getMessage());
-            return Response.status(Response.Status.NOT_FOUND).entity(e.getMessage()).build();
+            LOGGER.log(Level.WARNING, "Failed to delete appointment", "id", id, "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.NOT_FOUND, e.getMessage());
+        } catch (VersionConflictException e) {
+            LOGGER.log(Level.WARNING, "Failed to delete appointment", "id", id, "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.PRECONDITION_FAILED, e.getMessage());
         } catch (DatabaseException e) {
-            LOGGER.log(Level.SEVERE, "Database error while deleting appointment: " + e.getMessage());
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(e.getMessage()).build();
+            LOGGER.log(Level.SEVERE, "Database error while deleting appointment", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.INTERNAL_SERVER_ERROR, e.getMessage());
+        }
+    }
+
+    /**
+     * Adds several appointments in one request.
+     * @param body A JSON array of appointments, or one appointment per line (NDJSON)
+     * @return Response with status 200 and one result per appointment, 400 if the body cannot be read, or 413 if it holds too many items
+     */
+    @POST
+    @Path("/batch")
+    @Consumes({MediaType.APPLICATION_JSON, BatchRequests.NDJSON})
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response addAppointments(InputStream body) {
+        try {
+            BatchRequests.Batch<Appointment> batch = BatchRequests.read(body, Appointment.class);
+            LOGGER.log(Level.INFO, "Adding batch of appointments", "count", batch.size());
+            return batch.respond(appointmentDAO.addAppointments(batch.items()));
+        } catch (InvalidDataException e) {
+            LOGGER.log(Level.WARNING, "Invalid appointment batch", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.BAD_REQUEST, e.getMessage());
+        } catch (DatabaseException e) {
+            LOGGER.log(Level.SEVERE, "Database error while adding appointments", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.INTERNAL_SERVER_ERROR, e.getMessage());
+        }
+    }
+
+    /**
+     * Updates several appointments in one request. Each appointment carries its ID.
+     * @param body A JSON array of appointments, or one appointment per line (NDJSON)
+     * @return Response with status 200 and one result per appointment, 400 if the body cannot be read, or 413 if it holds too many items
+     */
+    @PUT
+    @Path("/batch")
+    @Consumes({MediaType.APPLICATION_JSON, BatchRequests.NDJSON})
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response updateAppointments(InputStream body) {
+        try {
+            BatchRequests.Batch<Appointment> batch = BatchRequests.read(body, Appointment.class);
+            LOGGER.log(Level.INFO, "Updating batch of appointments", "count", batch.size());
+            return batch.respond(appointmentDAO.updateAppointments(batch.items()));
+        } catch (InvalidDataException e) {
+            LOGGER.log(Level.WARNING, "Invalid appointment batch", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.BAD_REQUEST, e.getMessage());
+        } catch (DatabaseException e) {
+            LOGGER.log(Level.SEVERE, "Database error while updating appointments", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.INTERNAL_SERVER_ERROR, e.getMessage());
+        }
+    }
+
+    /**
+     * Deletes several appointments in one request.
+     * @param body A JSON array of IDs, or one ID per line (NDJSON)
+     * @return Response with status 200 and one result per ID, 400 if the body cannot be read, or 413 if it holds too many items
+     */
+    @POST
+    @Path("/batch/delete")
+    @Consumes({MediaType.APPLICATION_JSON, BatchRequests.NDJSON})
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response deleteAppointments(InputStream body) {
+        try {
+            BatchRequests.Batch<Integer> batch = BatchRequests.readIds(body);
+            LOGGER.log(Level.INFO, "Deleting batch of appointments", "count", batch.size());
+            return batch.respond(appointmentDAO.deleteAppointments(BatchRequests.ids(batch)));
+        } catch (InvalidDataException e) {
+            LOGGER.log(Level.WARNING, "Invalid appointment batch", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.BAD_REQUEST, e.getMessage());
+        } catch (DatabaseException e) {
+            LOGGER.log(Level.SEVERE, "Database error while deleting appointments", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.INTERNAL_SERVER_ERROR, e.getMessage());
         }
     }
 }
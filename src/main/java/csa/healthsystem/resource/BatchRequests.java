@@ -0,0 +1,236 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.resource;
+
+/**
+ *
+ * @author Maryam
+ */
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import csa.healthsystem.exception.InvalidDataException;
+import csa.healthsystem.exception.PayloadTooLargeException;
+import csa.healthsystem.model.BatchResult;
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+/**
+ * Reads the bodies of the batch endpoints and builds their responses.
+ * A batch is either a JSON array or newline-delimited JSON (NDJSON, one entity per line). Each
+ * item is read as a JSON tree and bound on its own, so an item that cannot be bound, or a
+ * malformed NDJSON line, only fails its own result. A JSON array that is not valid JSON as a
+ * whole cannot be split into items and is rejected.
+ * The response lists one {@link BatchResult} per item, in request order.
+ */
+final class BatchRequests {
+    static final String NDJSON = "application/x-ndjson";
+
+    /**
+     * Most items in one batch; larger batches are rejected with 413.
+     */
+    static final int MAX_ITEMS = 10_000;
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    // Error locations would otherwise quote the read buffer, not just the item
+    private static final JsonFactory FACTORY = MAPPER.getFactory().disable(JsonParser.Feature.INCLUDE_SOURCE_IN_LOCATION);
+    private static final ObjectReader ID_READER = MAPPER.readerFor(Integer.class);
+
+    private BatchRequests() {}
+
+    /**
+     * Reads the entities of a batch.
+     * @param body A JSON array of entities, or one entity per line
+     * @param type The class of the entities
+     * @param <T> The type of the entities
+     * @return The batch
+     * @throws InvalidDataException if the body is a JSON array that is not valid JSON
+     * @throws PayloadTooLargeException if the body holds more than {@link #MAX_ITEMS} items
+     */
+    static <T> Batch<T> read(InputStream body, Class<T> type) {
+        return readAll(body, MAPPER.readerFor(type));
+    }
+
+    /**
+     * Reads the IDs of a delete batch.
+     * @param body A JSON array of IDs, or one ID per line
+     * @return The batch
+     * @throws InvalidDataException if the body is a JSON array that is not valid JSON
+     * @throws PayloadTooLargeException if the body holds more than {@link #MAX_ITEMS} items
+     */
+    static Batch<Integer> readIds(InputStream body) {
+        return readAll(body, ID_READER);
+    }
+
+    /**
+     * Gets the IDs of a delete batch that could be read.
+     * @param batch The batch
+     * @return The IDs in request order
+     */
+    static int[] ids(Batch<Integer> batch) {
+        int[] ids = new int[batch.items.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = batch.items.get(i);
+        }
+        return ids;
+    }
+
+    private static <T> Batch<T> readAll(InputStream body, ObjectReader reader) {
+        Batch<T> batch = new Batch<>(reader);
+        try {
+            BufferedInputStream in = new BufferedInputStream(body);
+            if (isArray(in)) {
+                readArray(in, batch);
+            } else {
+                readLines(in, batch);
+            }
+        } catch (IOException e) {
+            throw new InvalidDataException("Invalid batch: item " + batch.size() + " cannot be read: " + e.getMessage());
+        }
+        return batch;
+    }
+
+    // Peeks at the first character that is not whitespace; NDJSON lines are never arrays
+    private static boolean isArray(BufferedInputStream in) throws IOException {
+        while (true) {
+            in.mark(1);
+            int c = in.read();
+            if (c != ' ' && c != '\t' && c != '\r' && c != '\n') {
+                in.reset();
+                return c == '[';
+            }
+        }
+    }
+
+    private static <T> void readArray(InputStream in, Batch<T> batch) throws IOException {
+        try (JsonParser parser = FACTORY.createParser(in)) {
+            parser.nextToken();
+            JsonToken token;
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if (token == null) {
+                    throw new InvalidDataException("Invalid batch: the array is not closed");
+                }
+                batch.add(parser.readValueAsTree());
+            }
+            if (parser.nextToken() != null) {
+                throw new InvalidDataException("Invalid batch: unexpected content after the array");
+            }
+        }
+    }
+
+    private static <T> void readLines(InputStream in, Batch<T> batch) throws IOException {
+        BufferedReader lines = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String line;
+        while ((line = lines.readLine()) != null) {
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            JsonNode item;
+            try (JsonParser parser = FACTORY.createParser(line)) {
+                item = parser.readValueAsTree();
+                if (parser.nextToken() != null) {
+                    batch.reject("Unexpected content after the item");
+                    continue;
+                }
+            } catch (JsonProcessingException e) {
+                batch.reject("Invalid JSON: " + e.getOriginalMessage());
+                continue;
+            }
+            batch.add(item);
+        }
+    }
+
+    /**
+     * The items of a batch request that could be read, and a failed result for every other item.
+     * @param <T> The type of the items
+     */
+    static final class Batch<T> {
+        private final ObjectReader reader;
+        private final List<T> items = new ArrayList<>();
+        // Position in the request of each item read
+        private final List<Integer> positions = new ArrayList<>();
+        private final List<BatchResult> rejected = new ArrayList<>();
+        private int size;
+
+        private Batch(ObjectReader reader) {
+            this.reader = reader;
+        }
+
+        /**
+         * Gets the items that could be read, to hand to a DAO.
+         * @return The items in request order
+         */
+        List<T> items() {
+            return items;
+        }
+
+        /**
+         * Gets the number of items in the request, including those that could not be read.
+         * @return The number of items
+         */
+        int size() {
+            return size;
+        }
+
+        /**
+         * Builds the response of the batch request.
+         * @param results One result per item that could be read, in the order of {@link #items()}
+         * @return Response with status 200 listing a result for every item of the request
+         */
+        Response respond(List<BatchResult> results) {
+            BatchResult[] all = new BatchResult[size];
+            for (BatchResult result : rejected) {
+                all[result.getIndex()] = result;
+            }
+            for (int j = 0; j < results.size(); j++) {
+                BatchResult result = results.get(j);
+                int index = positions.get(j);
+                all[index] = result.getIndex() == index ? result
+                        : new BatchResult(index, result.getId(), result.getStatus(), result.getError(), result.getViolations());
+            }
+            return Response.ok(Arrays.asList(all), MediaType.APPLICATION_JSON).build();
+        }
+
+        private void add(JsonNode item) {
+            int index = next();
+            if (item == null || item.isNull()) {
+                rejected.add(new BatchResult(index, 0, 400, "Item holds no entity", null));
+                return;
+            }
+            try {
+                items.add(reader.readValue(item));
+                positions.add(index);
+            } catch (JsonProcessingException e) {
+                rejected.add(new BatchResult(index, 0, 400, "Item cannot be read: " + e.getOriginalMessage(), null));
+            } catch (IOException e) {
+                rejected.add(new BatchResult(index, 0, 400, "Item cannot be read: " + e.getMessage(), null));
+            }
+        }
+
+        private void reject(String error) {
+            rejected.add(new BatchResult(next(), 0, 400, error, null));
+        }
+
+        private int next() {
+            if (size == MAX_ITEMS) {
+                throw new PayloadTooLargeException("Invalid batch: more than " + MAX_ITEMS + " items");
+            }
+            return size++;
+        }
+    }
+}
@@ -12,55 +12,124 @@ import javax.ws.rs.*;
 import javax.ws.rs.core.*;
 import csa.healthsystem.dao.BillingDAO;
 import csa.healthsystem.model.Billing;
+import csa.healthsystem.model.Money;
+import csa.healthsystem.store.Versioned;
 import csa.healthsystem.exception.NotFoundException;
+import csa.healthsystem.exception.VersionConflictException;
 import csa.healthsystem.exception.DuplicateException;
 import csa.healthsystem.exception.InvalidDataException;
 import csa.healthsystem.exception.DatabaseException;
-import java.util.List;
+import csa.healthsystem.logging.Log;
+import java.io.InputStream;
 import java.util.logging.Level;
-import java.util.logging.Logger;
 
 @Path("/billings")
 public class BillingResource {
     private final BillingDAO billingDAO = new BillingDAO();
-    private static final Logger LOGGER = Logger.getLogger(BillingResource.class.getName());
+    private static final Log LOGGER = Log.get(BillingResource.class);
 
     /**
      * Retrieves all billings.
+     * @param limit Maximum number of billings per page; omit together with cursor to get all billings
+     * @param cursor ID of the last billing of the previous page
+     * @param fields Comma separated list of fields to include in each billing
+     * @param expand Whether to include the referenced patient and doctor objects, or only their IDs
+     * @param uriInfo Information about the request URI
+     * @param request The request, used to evaluate If-None-Match and If-Modified-Since
      * @return Response containing list of billings in JSON format
      */
     @GET
     @Produces(MediaType.APPLICATION_JSON)
-    public Response getAllBillings() {
+    public Response getAllBillings(@QueryParam("limit") Integer limit,
+            @QueryParam("cursor") Integer cursor,
+            @QueryParam("fields") String fields,
+            @QueryParam("expand") @DefaultValue("true") boolean expand,
+            @Context UriInfo uriInfo,
+            @Context Request request) {
         LOGGER.log(Level.INFO, "Retrieving all billings");
         try {
-            List<Billing> billings = billingDAO.getAllBillings();
-            return Response.ok(billings).build();
+            return Preconditions.collection(request, uriInfo, billingDAO.getBillingsVersion(), billingDAO.getBillingsLastModified(), expand,
+                    () -> CollectionResponses.list(uriInfo, limit, cursor, fields, expand, billingDAO::getBillings, Billing::getId));
         } catch (DatabaseException e) {
-            LOGGER.log(Level.SEVERE, "Database error while retrieving billings: " + e.getMessage());
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity("Database error occurred").build();
+            LOGGER.log(Level.SEVERE, "Database error while retrieving billings", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.INTERNAL_SERVER_ERROR, "Database error occurred");
+        }
+    }
+
+    /**
+     * Retrieves billing totals: the number of billings, the invoiced, paid and outstanding totals
+     * and the largest outstanding balance.
+     * With groupBy, returns the totals of every patient or every doctor, which are kept up to date with
+     * every write, so the cost does not grow with the number of billings. Without it, returns the totals
+     * of the billings that pass the filters, found by scanning the billing amounts.
+     * @param groupBy "patient" or "doctor", or omitted for a single total
+     * @param patientId Only billings of this patient are totalled
+     * @param doctorId Only billings of this doctor are totalled
+     * @param minOutstanding Only billings with at least this outstanding balance are totalled
+     * @param maxOutstanding Only billings with at most this outstanding balance are totalled
+     * @param uriInfo Information about the request URI
+     * @param request The request, used to evaluate If-None-Match and If-Modified-Since
+     * @return Response containing list of summaries, or a single summary, in JSON format, or 400 if the parameters are invalid
+     */
+    @GET
+    @Path("/summary")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getBillingSummary(@QueryParam("groupBy") String groupBy,
+            @QueryParam("patientId") @DefaultValue("0") int patientId,
+            @QueryParam("doctorId") @DefaultValue("0") int doctorId,
+            @QueryParam("minOutstanding") Double minOutstanding,
+            @QueryParam("maxOutstanding") Double maxOutstanding,
+            @Context UriInfo uriInfo,
+            @Context Request request) {
+        LOGGER.log(Level.INFO, "Retrieving billing summary", "groupBy", groupBy);
+        boolean filtered = patientId != 0 || doctorId != 0 || minOutstanding != null || maxOutstanding != null;
+        if (groupBy != null && !"patient".equals(groupBy) && !"doctor".equals(groupBy)) {
+            return Response.status(Response.Status.BAD_REQUEST).entity("groupBy must be patient or doctor").build();
+        }
+        if (groupBy != null && filtered) {
+            return Response.status(Response.Status.BAD_REQUEST).entity("groupBy cannot be combined with filters").build();
+        }
+        long minCents;
+        long maxCents;
+        try {
+            minCents = minOutstanding == null ? Long.MIN_VALUE : Money.toCents(minOutstanding);
+            maxCents = maxOutstanding == null ? Long.MAX_VALUE : Money.toCents(maxOutstanding);
+        } catch (IllegalArgumentException e) {
+            return ExceptionMappers.toResponse(e, Response.Status.BAD_REQUEST, e.getMessage());
+        }
+        try {
+            return Preconditions.collection(request, uriInfo, billingDAO.getBillingsVersion(), billingDAO.getBillingsLastModified(), false,
+                    () -> Response.ok(groupBy == null ? billingDAO.getBillingTotals(patientId, doctorId, minCents, maxCents)
+                            : "patient".equals(groupBy) ? billingDAO.getBillingSummariesByPatient() : billingDAO.getBillingSummariesByDoctor()).build());
+        } catch (DatabaseException e) {
+            LOGGER.log(Level.SEVERE, "Database error while retrieving billing summary", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.INTERNAL_SERVER_ERROR, "Database error occurred");
         }
     }
 
     /**
      * Retrieves a billing by its ID.
      * @param id The ID of the billing to retrieve
-     * @return Response containing the billing in JSON format if found, or 404 if not found
+     * @param expand Whether to include the referenced patient and doctor objects, or only their IDs
+     * @param request The request, used to evaluate If-None-Match and If-Modified-Since
+     * @return Response containing the billing in JSON format if found, 304 if the client's copy is current, or 404 if not found
      */
     @GET
     @Path("/{id}")
     @Produces(MediaType.APPLICATION_JSON)
-    public Response getBillingById(@PathParam("id") int id) {
+    public Response getBillingById(@PathParam("id") int id,
+            @QueryParam("expand") @DefaultValue("true") boolean expand,
+            @Context Request request) {
         try {
-            LOGGER.log(Level.INFO, "Retrieving billing by ID: " + id);
-            Billing billing = billingDAO.getBillingById(id);
-            return Response.ok(billing).build();
+            LOGGER.log(Level.INFO, "Retrieving billing", "id", id);
+            Versioned<Billing> billing = billingDAO.getVersionedBillingById(id);
+            return Preconditions.entity(request, "/billings/" + id, billing, expand);
         } catch (NotFoundException e) {
-            LOGGER.log(Level.WARNING, "Billing with ID " + id + " not found");
-            return Response.status(Response.Status.NOT_FOUND).entity(e.getMessage()).build();
+            LOGGER.log(Level.WARNING, "Billing not found", "id", id);
+            return ExceptionMappers.toResponse(e, Response.Status.NOT_FOUND, e.getMessage());
         } catch (DatabaseException e) {
-            LOGGER.log(Level.SEVERE, "Database error while retrieving billing: " + e.getMessage());
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity("Database error occurred").build();
+            LOGGER.log(Level.SEVERE, "Database error while retrieving billing", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.INTERNAL_SERVER_ERROR, "Database error occurred");
         }
     }
 
@@ -73,18 +142,18 @@ public class BillingResource {
     @Consumes(MediaType.APPLICATION_JSON)
     public Response addBilling(Billing billing) {
         try {
-            LOGGER.log(Level.INFO, "Adding new billing: " + billing);
+            LOGGER.log(Level.INFO, "Adding new billing", "billing", billing);
             billingDAO.addBilling(billing);
             return Response.status(Response.Status.CREATED).build();
         } catch (DuplicateException e) {
-            LOGGER.log(Level.WARNING, "Duplicate billing ID: " + billing.getId());
-            return Response.status(Response.Status.CONFLICT).entity(e.getMessage()).build();
+            LOGGER.log(Level.WARNING, "Duplicate billing", "id", billing.getId());
+            return ExceptionMappers.toResponse(e, Response.Status.CONFLICT, e.getMessage());
         } catch (InvalidDataException e) {
-            LOGGER.log(Level.WARNING, "Invalid billing data: " + e.getMessage());
-            return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
+            LOGGER.log(Level.WARNING, "Invalid billing data", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.BAD_REQUEST, e.getMessage());
         } catch (DatabaseException e) {
-            LOGGER.log(Level.SEVERE, "Database error while adding billing: " + e.getMessage());
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(e.getMessage()).build();
+            LOGGER.log(Level.SEVERE, "Database error while adding billing", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.INTERNAL_SERVER_ERROR, e.getMessage());
         }
     }
 
@@ -92,46 +161,127 @@ public class BillingResource {
      * Updates an existing billing.
      * @param id The ID of the billing to update
      * @param updatedBilling The updated billing object
-     * @return Response with status 200 if successful, or 404 if billing not found
+     * @param ifMatch Entity tags of the versions the client expects to replace, or * for any version
+     * @return Response with status 200 if successful, or 404 if billing not found; 412 if If-Match does not match the current version
      */
     @PUT
     @Path("/{id}")
     @Consumes(MediaType.APPLICATION_JSON)
-    public Response updateBilling(@PathParam("id") int id, Billing updatedBilling) {
+    public Response updateBilling(@PathParam("id") int id, Billing updatedBilling,
+            @HeaderParam("If-Match") String ifMatch) {
         try {
-            LOGGER.log(Level.INFO, "Updating billing with ID: " + id);
-            billingDAO.updateBilling(id, updatedBilling);
+            LOGGER.log(Level.INFO, "Updating billing", "id", id);
+            long expectedVersion = Preconditions.expectedVersion(ifMatch, () -> billingDAO.getVersionedBillingById(id).getVersion());
+            billingDAO.updateBilling(id, updatedBilling, expectedVersion);
             return Response.ok().build();
         } catch (NotFoundException e) {
-            LOGGER.log(Level.WARNING, "Billing with ID " + id + " not found");
-            return Response.status(Response.Status.NOT_FOUND).entity(e.getMessage()).build();
+            LOGGER.log(Level.WARNING, "Billing not found", "id", id);
+            return ExceptionMappers.toResponse(e, Response.Status.NOT_FOUND, e.getMessage());
+        } catch (VersionConflictException e) {
+            LOGGER.log(Level.WARNING, "Failed to update billing", "id", id, "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.PRECONDITION_FAILED, e.getMessage());
         } catch (InvalidDataException e) {
-            LOGGER.log(Level.WARNING, "Invalid appointment data for updating: " + e.getMessage());
-            return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
+            LOGGER.log(Level.WARNING, "Invalid billing data for updating", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.BAD_REQUEST, e.getMessage());
         } catch (DatabaseException e) {
-            LOGGER.log(Level.SEVERE, "Database error while updating billing: " + e.getMessage());
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(e.getMessage()).build();
+            LOGGER.log(Level.SEVERE, "Database error while updating billing", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.INTERNAL_SERVER_ERROR, e.getMessage());
         }
     }
 
     /**
      * Deletes a billing by its ID.
      * @param id The ID of the billing to delete
-     * @return Response with status 200 if successful, or 404 if billing not found
+     * @param ifMatch Entity tags of the versions the client expects to replace, or * for any version
+     * @return Response with status 200 if successful, or 404 if billing not found; 412 if If-Match does not match the current version
      */
     @DELETE
     @Path("/{id}")
-    public Response deleteBilling(@PathParam("id") int id) {
+    public Response deleteBilling(@PathParam("id") int id,
+            @HeaderParam("If-Match") String ifMatch) {
         try {
-            LOGGER.log(Level.INFO, "Deleting billing with ID: " + id);
-            billingDAO.deleteBilling(id);
+            LOGGER.log(Level.INFO, "Deleting billing", "id", id);
+            long expectedVersion = Preconditions.expectedVersion(ifMatch, () -> billingDAO.getVersionedBillingById(id).getVersion());
+            billingDAO.deleteBilling(id, expectedVersion);
             return Response.ok().build();
         } catch (NotFoundException e) {
-            LOGGER.log(Level.WARNING, "Billing with ID " + id + " not found");
-            return Response.status(Response.Status.NOT_FOUND).entity(e.getMessage()).build();
+            LOGGER.log(Level.WARNING, "Billing not found", "id", id);
+            return ExceptionMappers.toResponse(e, Response.Status.NOT_FOUND, e.getMessage());
+        } catch (VersionConflictException e) {
+            LOGGER.log(Level.WARNING, "Failed to delete billing", "id", id, "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.PRECONDITION_FAILED, e.getMessage());
+        } catch (DatabaseException e) {
+            LOGGER.log(Level.SEVERE, "Database error while deleting billing", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.INTERNAL_SERVER_ERROR, e.getMessage());
+        }
+    }
+
+    /**
+     * Adds several billings in one request.
+     * @param body A JSON array of billings, or one billing per line (NDJSON)
+     * @return Response with status 200 and one result per billing, 400 if the body cannot be read, or 413 if it holds too many items
+     */
+    @POST
+    @Path("/batch")
+    @Consumes({MediaType.APPLICATION_JSON, BatchRequests.NDJSON})
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response addBillings(InputStream body) {
+        try {
+            BatchRequests.Batch<Billing> batch = BatchRequests.read(body, Billing.class);
+            LOGGER.log(Level.INFO, "Adding batch of billings", "count", batch.size());
+            return batch.respond(billingDAO.addBillings(batch.items()));
+        } catch (InvalidDataException e) {
+            LOGGER.log(Level.WARNING, "Invalid billing batch", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.BAD_REQUEST, e.getMessage());
+        } catch (DatabaseException e) {
+            LOGGER.log(Level.SEVERE, "Database error while adding billings", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.INTERNAL_SERVER_ERROR, e.getMessage());
+        }
+    }
+
+    /**
+     * Updates several billings in one request. Each billing carries its ID.
+     * @param body A JSON array of billings, or one billing per line (NDJSON)
+     * @return Response with status 200 and one result per billing, 400 if the body cannot be read, or 413 if it holds too many items
+     */
+    @PUT
+    @Path("/batch")
+    @Consumes({MediaType.APPLICATION_JSON, BatchRequests.NDJSON})
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response updateBillings(InputStream body) {
+        try {
+            BatchRequests.Batch<Billing> batch = BatchRequests.read(body, Billing.class);
+            LOGGER.log(Level.INFO, "Updating batch of billings", "count", batch.size());
+            return batch.respond(billingDAO.updateBillings(batch.items()));
+        } catch (InvalidDataException e) {
+            LOGGER.log(Level.WARNING, "Invalid billing batch", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.BAD_REQUEST, e.getMessage());
+        } catch (DatabaseException e) {
+            LOGGER.log(Level.SEVERE, "Database error while updating billings", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.INTERNAL_SERVER_ERROR, e.getMessage());
+        }
+    }
+
+    /**
+     * Deletes several billings in one request.
+     * @param body A JSON array of IDs, or one ID per line (NDJSON)
+     * @return Response with status 200 and one result per ID, 400 if the body cannot be read, or 413 if it holds too many items
+     */
+    @POST
+    @Path("/batch/delete")
+    @Consumes({MediaType.APPLICATION_JSON, BatchRequests.NDJSON})
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response deleteBillings(InputStream body) {
+        try {
+            BatchRequests.Batch<Integer> batch = BatchRequests.readIds(body);
+            LOGGER.log(Level.INFO, "Deleting batch of billings", "count", batch.size());
+            return batch.respond(billingDAO.deleteBillings(BatchRequests.ids(batch)));
+        } catch (InvalidDataException e) {
+            LOGGER.log(Level.WARNING, "Invalid billing batch", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.BAD_REQUEST, e.getMessage());
         } catch (DatabaseException e) {
-            LOGGER.log(Level.SEVERE, "Database error while deleting billing: " + e.getMessage());
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(e.getMessage()).build();
+            LOGGER.log(Level.SEVERE, "Database error while deleting billings", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.INTERNAL_SERVER_ERROR, e.getMessage());
         }
     }
 }
@@ -0,0 +1,31 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.resource;
+
+/**
+ *
+ * @author Maryam
+ */
+import javax.ws.rs.*;
+import javax.ws.rs.core.*;
+import csa.healthsystem.cache.ResponseCache;
+import csa.healthsystem.logging.Log;
+import java.util.logging.Level;
+
+@Path("/cache")
+public class CacheResource {
+    private static final Log LOGGER = Log.get(CacheResource.class);
+
+    /**
+     * Retrieves the counters of the response cache.
+     * @return Response containing the size, hits, misses, evictions and rejections of the cache in JSON format
+     */
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getCacheStats() {
+        LOGGER.log(Level.INFO, "Retrieving response cache statistics");
+        return Response.ok(ResponseCache.shared().stats()).build();
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.resource;
+
+/**
+ *
+ * @author Maryam
+ */
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import csa.healthsystem.cache.CachedResponse;
+import csa.healthsystem.cache.ResponseCache;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+
+/**
+ * Serves GET responses from the shared {@link ResponseCache}.
+ * Single entities are encoded once into bytes that are cached and sent. Collections are
+ * still streamed to the client; the bytes written are captured on the way and cached once
+ * the response is complete, unless they outgrow the largest entry the cache admits.
+ * Clients that accept gzip get the compressed copy of large bodies.
+ */
+final class CachedResponses {
+    // Headers of a collection response that are cached with its body
+    private static final String[] CACHED_HEADERS = {CollectionResponses.NEXT_CURSOR_HEADER, HttpHeaders.LINK};
+    private static final String GZIP = "gzip";
+
+    private static final ResponseCache CACHE = ResponseCache.shared();
+    private static final ObjectWriter WRITER = CollectionResponses.mapper(true).writer()
+            .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+    private CachedResponses() {}
+
+    /**
+     * Gets the response for a single entity, from the cache or by encoding the entity.
+     * @param request The request, holding the accepted encodings
+     * @param key The cache key of the entity
+     * @param tag The current entity tag
+     * @param entity The entity to encode on a miss, as prepared by {@link CollectionResponses#entity}
+     * @return A 200 response builder holding the encoded entity
+     */
+    static Response.ResponseBuilder entity(Request request, String key, String tag, Object entity) {
+        CachedResponse cached = CACHE.get(key, tag);
+        if (cached == null) {
+            byte[] body;
+            try {
+                body = WRITER.writeValueAsBytes(entity);
+            } catch (JsonProcessingException e) {
+                throw new UncheckedIOException(e);
+            }
+            cached = CachedResponse.of(tag, body, Collections.<String, String>emptyMap());
+            CACHE.put(key, cached);
+        }
+        return respond(request, cached);
+    }
+
+    /**
+     * Gets the cached response for a collection.
+     * @param request The request, holding the accepted encodings
+     * @param key The cache key of the request
+     * @param tag The current entity tag
+     * @return A 200 response builder, or null if nothing current is cached
+     */
+    static Response.ResponseBuilder collection(Request request, String key, String tag) {
+        CachedResponse cached = CACHE.get(key, tag);
+        return cached == null ? null : respond(request, cached);
+    }
+
+    /**
+     * Wraps a collection response so its body is cached once it has been written.
+     * @param key The cache key of the request
+     * @param tag The entity tag the response was built for
+     * @param response A 200 response holding a list or a stream
+     * @return A builder for the same response
+     */
+    static Response.ResponseBuilder capture(String key, String tag, Response response) {
+        Object entity = response.getEntity();
+        if (!CACHE.isEnabled() || !(entity instanceof StreamingOutput || entity instanceof List)) {
+            return Response.fromResponse(response);
+        }
+        Map<String, String> headers = new LinkedHashMap<>();
+        for (String name : CACHED_HEADERS) {
+            String value = response.getHeaderString(name);
+            if (value != null) {
+                headers.put(name, value);
+            }
+        }
+        StreamingOutput captured = output -> {
+            CapturingOutputStream tee = new CapturingOutputStream(output, CACHE.maxEntryBytes());
+            if (entity instanceof StreamingOutput) {
+                ((StreamingOutput) entity).write(tee);
+            } else {
+                WRITER.writeValue(tee, entity);
+            }
+            if (!tee.overflowed()) {
+                CACHE.put(key, CachedResponse.of(tag, tee.captured(), headers));
+            }
+        };
+        return Response.fromResponse(response).entity(captured);
+    }
+
+    private static Response.ResponseBuilder respond(Request request, CachedResponse cached) {
+        Response.ResponseBuilder builder;
+        if (cached.getGzipped() != null && acceptsGzip(request)) {
+            builder = Response.ok(cached.getGzipped(), MediaType.APPLICATION_JSON_TYPE).encoding(GZIP);
+        } else {
+            builder = Response.ok(cached.getBody(), MediaType.APPLICATION_JSON_TYPE);
+        }
+        if (cached.getGzipped() != null) {
+            builder.header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        }
+        for (Map.Entry<String, String> header : cached.getHeaders().entrySet()) {
+            builder.header(header.getKey(), header.getValue());
+        }
+        return builder;
+    }
+
+    // Jersey's request also carries the headers; other implementations just get identity bodies
+    private static boolean acceptsGzip(Request request) {
+        if (!(request instanceof HttpHeaders)) {
+            return false;
+        }
+        List<String> accepted = ((HttpHeaders) request).getRequestHeader(HttpHeaders.ACCEPT_ENCODING);
+        if (accepted == null) {
+            return false;
+        }
+        for (String header : accepted) {
+            for (String coding : header.split(",")) {
+                String[] parts = coding.trim().split(";");
+                if (parts[0].trim().equalsIgnoreCase(GZIP)) {
+                    return parts.length < 2 || !parts[1].trim().matches("q\\s*=\\s*0(\\.0*)?");
+                }
+            }
+        }
+        return false;
+    }
+
+    // Passes every byte on and keeps a copy until the copy grows past the limit
+    private static final class CapturingOutputStream extends OutputStream {
+        private final OutputStream out;
+        private final long limit;
+        private ByteArrayOutputStream copy = new ByteArrayOutputStream(4096);
+
+        CapturingOutputStream(OutputStream out, long limit) {
+            this.out = out;
+            this.limit = limit;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            if (copy != null) {
+                copy.write(b);
+                checkLimit();
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            if (copy != null) {
+                copy.write(b, off, len);
+                checkLimit();
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        boolean overflowed() {
+            return copy == null;
+        }
+
+        byte[] captured() {
+            return copy.toByteArray();
+        }
+
+        private void checkLimit() {
+            if (copy.size() > limit) {
+                copy = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.resource;
+
+/**
+ *
+ * @author Maryam
+ */
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import csa.healthsystem.model.References;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.ToIntFunction;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import javax.ws.rs.core.UriInfo;
+
+/**
+ * Builds the responses of the collection endpoints, with optional cursor pagination
+ * ({@code limit}, {@code cursor}) and field projection ({@code fields=id,invoiceAmount}).
+ * The cursor is the ID of the last entity of the previous page, so pages stay stable
+ * while new entities are being added.
+ * Unpaged requests are streamed: entities are read from the DAO in small batches and
+ * written straight to the response, so memory use does not grow with the collection.
+ * Referenced patients and doctors are included by default; with {@code expand=false}
+ * only their IDs are written.
+ */
+final class CollectionResponses {
+    static final int DEFAULT_LIMIT = 100;
+    static final int MAX_LIMIT = 1000;
+    static final int MAX_TYPEAHEAD_LIMIT = 50;
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    static final int STREAM_BATCH_SIZE = 512;
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final ObjectMapper IDS_ONLY_MAPPER = new ObjectMapper();
+
+    static {
+        IDS_ONLY_MAPPER.setConfig(IDS_ONLY_MAPPER.getSerializationConfig().withView(References.IdsOnly.class));
+    }
+
+    /**
+     * Source of entities ordered by ID, typically a DAO range query.
+     * @param <T> The entity type
+     */
+    @FunctionalInterface
+    interface PageSource<T> {
+        List<T> page(int afterId, int limit);
+    }
+
+    private CollectionResponses() {}
+
+    /**
+     * Builds the response for a collection request.
+     * Without {@code limit} and {@code cursor} the whole collection is streamed as a JSON array.
+     * @param uriInfo The request URI, used to build the link to the next page
+     * @param limit Maximum number of entities per page, or null
+     * @param cursor ID of the last entity already seen, or null to start at the beginning
+     * @param fields Comma separated list of fields to include, or null for all fields
+     * @param source DAO range query returning entities ordered by ID
+     * @param idOf Function returning the ID of an entity
+     * @return Response containing the requested entities in JSON format
+     */
+    static <T> Response list(UriInfo uriInfo, Integer limit, Integer cursor, String fields,
+                             PageSource<T> source, ToIntFunction<T> idOf) {
+        return list(uriInfo, limit, cursor, fields, true, source, idOf);
+    }
+
+    /**
+     * Builds the response for a collection request whose entities refer to patients or doctors.
+     * Without {@code limit} and {@code cursor} the whole collection is streamed as a JSON array.
+     * @param uriInfo The request URI, used to build the link to the next page
+     * @param limit Maximum number of entities per page, or null
+     * @param cursor ID of the last entity already seen, or null to start at the beginning
+     * @param fields Comma separated list of fields to include, or null for all fields
+     * @param expand Whether to include referenced patients and doctors, or only their IDs
+     * @param source DAO range query returning entities ordered by ID
+     * @param idOf Function returning the ID of an entity
+     * @return Response containing the requested entities in JSON format
+     */
+    static <T> Response list(UriInfo uriInfo, Integer limit, Integer cursor, String fields, boolean expand,
+                             PageSource<T> source, ToIntFunction<T> idOf) {
+        if (limit != null && limit <= 0) {
+            return Response.status(Response.Status.BAD_REQUEST).entity("limit must be greater than 0").build();
+        }
+        Set<String> projection = parseFields(fields);
+        if (limit == null && cursor == null) {
+            return Response.ok(stream(source, idOf, projection, mapper(expand)), MediaType.APPLICATION_JSON_TYPE).build();
+        }
+
+        int pageSize = limit == null ? DEFAULT_LIMIT : Math.min(limit, MAX_LIMIT);
+        int afterId = cursor == null ? Integer.MIN_VALUE : cursor;
+        // Fetch one extra entity to find out whether another page follows
+        List<T> page = source.page(afterId, pageSize + 1);
+        boolean hasMore = page.size() > pageSize;
+        if (hasMore) {
+            page = page.subList(0, pageSize);
+        }
+        Response.ResponseBuilder builder = Response.ok(project(page, projection, mapper(expand)));
+        if (hasMore) {
+            int nextCursor = idOf.applyAsInt(page.get(page.size() - 1));
+            builder.header(NEXT_CURSOR_HEADER, nextCursor);
+            builder.link(uriInfo.getRequestUriBuilder()
+                    .replaceQueryParam("cursor", nextCursor)
+                    .replaceQueryParam("limit", pageSize)
+                    .build(), "next");
+        }
+        return builder.build();
+    }
+
+    // Writes the collection batch by batch, following the ID cursor like a paged client would
+    private static <T> StreamingOutput stream(PageSource<T> source, ToIntFunction<T> idOf, Set<String> projection,
+                                              ObjectMapper mapper) {
+        // The mapper would flush after every entity, sending one chunk per entity
+        ObjectWriter writer = mapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        return output -> {
+            try (JsonGenerator generator = mapper.getFactory().createGenerator(output)) {
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                generator.writeStartArray();
+                int afterId = Integer.MIN_VALUE;
+                List<T> batch;
+                do {
+                    batch = source.page(afterId, STREAM_BATCH_SIZE);
+                    for (T entity : batch) {
+                        if (projection == null) {
+                            writer.writeValue(generator, entity);
+                        } else {
+                            writer.writeValue(generator, projectOne(entity, projection, mapper));
+                        }
+                    }
+                    if (!batch.isEmpty()) {
+                        afterId = idOf.applyAsInt(batch.get(batch.size() - 1));
+                    }
+                    // Push each batch to the client as soon as it is written
+                    generator.flush();
+                } while (batch.size() == STREAM_BATCH_SIZE);
+                generator.writeEndArray();
+            }
+        };
+    }
+
+    // Returns null when every field should be included
+    private static Set<String> parseFields(String fields) {
+        if (fields == null || fields.trim().isEmpty()) {
+            return null;
+        }
+        Set<String> names = new LinkedHashSet<>();
+        for (String name : fields.split(",")) {
+            if (!name.trim().isEmpty()) {
+                names.add(name.trim());
+            }
+        }
+        return names.isEmpty() ? null : names;
+    }
+
+    /**
+     * Prepares a single entity for a response.
+     * @param entity The entity to return
+     * @param expand Whether to include referenced patients and doctors, or only their IDs
+     * @return The entity, or its JSON tree without the referenced objects
+     */
+    static Object entity(Object entity, boolean expand) {
+        return expand ? entity : IDS_ONLY_MAPPER.valueToTree(entity);
+    }
+
+    /**
+     * Gets the mapper that writes entities.
+     * @param expand Whether to include referenced patients and doctors, or only their IDs
+     * @return The mapper
+     */
+    static ObjectMapper mapper(boolean expand) {
+        return expand ? MAPPER : IDS_ONLY_MAPPER;
+    }
+
+    private static <T> List<?> project(List<T> entities, Set<String> projection, ObjectMapper mapper) {
+        if (projection == null && mapper == MAPPER) {
+            return entities;
+        }
+        List<ObjectNode> projected = new ArrayList<>(entities.size());
+        for (T entity : entities) {
+            projected.add(projectOne(entity, projection, mapper));
+        }
+        return projected;
+    }
+
+    // A null projection keeps every field the mapper writes
+    private static ObjectNode projectOne(Object entity, Set<String> projection, ObjectMapper mapper) {
+        ObjectNode node = mapper.valueToTree(entity);
+        if (projection != null) {
+            node.retain(projection);
+        }
+        return node;
+    }
+}
@@ -11,14 +11,20 @@ package csa.healthsystem.resource;
 import javax.ws.rs.*;
 import javax.ws.rs.core.*;
 import csa.healthsystem.dao.DoctorDAO;
+import csa.healthsystem.dao.AppointmentDAO;
+import csa.healthsystem.dao.BillingDAO;
+import csa.healthsystem.dao.PrescriptionDAO;
 import csa.healthsystem.model.Doctor;
+import csa.healthsystem.store.Versioned;
 import csa.healthsystem.exception.NotFoundException;
+import csa.healthsystem.exception.VersionConflictException;
 import csa.healthsystem.exception.DuplicateException;
 import csa.healthsystem.exception.InvalidDataException;
 import csa.healthsystem.exception.DatabaseException;
+import csa.healthsystem.logging.Log;
+import java.io.InputStream;
 import java.util.List;
 import java.util.logging.Level;
-import java.util.logging.Logger;
 
 /**
  * Resource class for managing doctors.
@@ -27,45 +33,191 @@ import java.util.logging.Logger;
 @Path("/doctors")
 public class DoctorResource {
     private final DoctorDAO doctorDAO = new DoctorDAO();
-    private static final Logger LOGGER = Logger.getLogger(DoctorResource.class.getName());
+    private final AppointmentDAO appointmentDAO = new AppointmentDAO();
+    private final BillingDAO billingDAO = new BillingDAO();
+    private final PrescriptionDAO prescriptionDAO = new PrescriptionDAO();
+    private static final Log LOGGER = Log.get(DoctorResource.class);
 
     /**
      * Retrieves all doctors.
+     * @param limit Maximum number of doctors per page; omit together with cursor to get all doctors
+     * @param cursor ID of the last doctor of the previous page
+     * @param fields Comma separated list of fields to include in each doctor
+     * @param specializations Only doctors with one of these specializations are returned; repeat the parameter for several
+     * @param uriInfo Information about the request URI
+     * @param request The request, used to evaluate If-None-Match and If-Modified-Since
      * @return Response containing list of doctors in JSON format
      */
     @GET
     @Produces(MediaType.APPLICATION_JSON)
-    public Response getAllDoctors() {
+    public Response getAllDoctors(@QueryParam("limit") Integer limit,
+            @QueryParam("cursor") Integer cursor,
+            @QueryParam("fields") String fields,
+            @QueryParam("specialization") List<String> specializations,
+            @Context UriInfo uriInfo,
+            @Context Request request) {
         LOGGER.log(Level.INFO, "Retrieving all doctors");
+        CollectionResponses.PageSource<Doctor> source = specializations.isEmpty() ? doctorDAO::getDoctors
+                : (afterId, pageSize) -> doctorDAO.getDoctorsBySpecialization(specializations, afterId, pageSize);
         try {
-            List<Doctor> doctors = doctorDAO.getAllDoctors();
-            return Response.ok(doctors).build();
+            return Preconditions.collection(request, uriInfo, doctorDAO.getDoctorsVersion(), doctorDAO.getDoctorsLastModified(), false,
+                    () -> CollectionResponses.list(uriInfo, limit, cursor, fields, source, Doctor::getId));
         } catch (DatabaseException e) {
-            LOGGER.log(Level.SEVERE, "Database error while retrieving doctors: " + e.getMessage());
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity("Database error occurred").build();
+            LOGGER.log(Level.SEVERE, "Database error while retrieving doctors", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.INTERNAL_SERVER_ERROR, "Database error occurred");
+        }
+    }
+
+    /**
+     * Finds doctors as a name or phone number is typed.
+     * @param prefix Start of one or more words of the name, in any order, or of the phone number
+     * @param limit Maximum number of doctors to return, at most {@value CollectionResponses#MAX_TYPEAHEAD_LIMIT}
+     * @return Response containing the best matching doctors in JSON format, or 400 if the prefix is empty
+     */
+    @GET
+    @Path("/search")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response findDoctors(@QueryParam("prefix") String prefix,
+            @QueryParam("limit") @DefaultValue("10") int limit) {
+        LOGGER.log(Level.INFO, "Finding doctors by prefix", "prefix", prefix);
+        if (prefix == null || prefix.trim().isEmpty()) {
+            return Response.status(Response.Status.BAD_REQUEST).entity("prefix must not be empty").build();
+        }
+        if (limit <= 0) {
+            return Response.status(Response.Status.BAD_REQUEST).entity("limit must be greater than 0").build();
+        }
+        try {
+            return Response.ok(doctorDAO.findDoctors(prefix, Math.min(limit, CollectionResponses.MAX_TYPEAHEAD_LIMIT))).build();
+        } catch (DatabaseException e) {
+            LOGGER.log(Level.SEVERE, "Database error while finding doctors", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.INTERNAL_SERVER_ERROR, "Database error occurred");
         }
     }
 
     /**
      * Retrieves a doctor by its ID.
      * @param id The ID of the doctor to retrieve
-     * @return Response containing the doctor in JSON format if found, or 404 if not found
+     * @param request The request, used to evaluate If-None-Match and If-Modified-Since
+     * @return Response containing the doctor in JSON format if found, 304 if the client's copy is current, or 404 if not found
      */
     @GET
     @Path("/{id}")
     @Produces(MediaType.APPLICATION_JSON)
-    public Response getDoctorById(@PathParam("id") int id) {
+    public Response getDoctorById(@PathParam("id") int id, @Context Request request) {
+        try {
+            LOGGER.log(Level.INFO, "Retrieving doctor", "id", id);
+            Versioned<Doctor> doctor = doctorDAO.getVersionedDoctorById(id);
+            LOGGER.log(Level.INFO, "Doctor found", "id", id, "doctor", doctor.getEntity());
+            return Preconditions.entity(request, "/doctors/" + id, doctor);
+        } catch (NotFoundException e) {
+            LOGGER.log(Level.WARNING, "Doctor not found", "id", id);
+            return ExceptionMappers.toResponse(e, Response.Status.NOT_FOUND, e.getMessage());
+        } catch (DatabaseException e) {
+            LOGGER.log(Level.SEVERE, "Database error while retrieving doctor", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.INTERNAL_SERVER_ERROR, "Database error occurred");
+        }
+    }
+
+    /**
+     * Retrieves the free slots of a doctor.
+     * @param id The ID of the doctor
+     * @param from Start of the time range, in the format YYYY-MM-DDTHH:MM
+     * @param to End of the time range, in the format YYYY-MM-DDTHH:MM
+     * @param duration Shortest free slot to include, in minutes
+     * @return Response containing the free slots in JSON format, 400 if the range is invalid, or 404 if the doctor is not found
+     */
+    @GET
+    @Path("/{id}/availability")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getDoctorAvailability(@PathParam("id") int id,
+            @QueryParam("from") String from,
+            @QueryParam("to") String to,
+            @QueryParam("duration") @DefaultValue("30") int duration) {
+        LOGGER.log(Level.INFO, "Retrieving availability for doctor", "id", id);
+        try {
+            doctorDAO.getDoctorById(id);
+            return Response.ok(appointmentDAO.getAvailability(id, from, to, duration)).build();
+        } catch (NotFoundException e) {
+            LOGGER.log(Level.WARNING, "Doctor not found", "id", id);
+            return ExceptionMappers.toResponse(e, Response.Status.NOT_FOUND, e.getMessage());
+        } catch (InvalidDataException e) {
+            LOGGER.log(Level.WARNING, "Invalid availability request", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.BAD_REQUEST, e.getMessage());
+        } catch (DatabaseException e) {
+            LOGGER.log(Level.SEVERE, "Database error while retrieving availability for doctor", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.INTERNAL_SERVER_ERROR, "Database error occurred");
+        }
+    }
+
+    /**
+     * Retrieves the appointments of a doctor.
+     * @param id The ID of the doctor
+     * @param expand Whether to include the referenced patient and doctor objects, or only their IDs
+     * @return Response containing the doctor's appointments in JSON format, or 404 if the doctor is not found
+     */
+    @GET
+    @Path("/{id}/appointments")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getDoctorAppointments(@PathParam("id") int id,
+            @QueryParam("expand") @DefaultValue("true") boolean expand) {
+        LOGGER.log(Level.INFO, "Retrieving appointments for doctor", "id", id);
+        try {
+            doctorDAO.getDoctorById(id);
+            return Response.ok(CollectionResponses.entity(appointmentDAO.getAppointmentsByDoctor(id), expand)).build();
+        } catch (NotFoundException e) {
+            LOGGER.log(Level.WARNING, "Doctor not found", "id", id);
+            return ExceptionMappers.toResponse(e, Response.Status.NOT_FOUND, e.getMessage());
+        } catch (DatabaseException e) {
+            LOGGER.log(Level.SEVERE, "Database error while retrieving appointments for doctor", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.INTERNAL_SERVER_ERROR, "Database error occurred");
+        }
+    }
+
+    /**
+     * Retrieves the billings of a doctor.
+     * @param id The ID of the doctor
+     * @param expand Whether to include the referenced patient and doctor objects, or only their IDs
+     * @return Response containing the doctor's billings in JSON format, or 404 if the doctor is not found
+     */
+    @GET
+    @Path("/{id}/billings")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getDoctorBillings(@PathParam("id") int id,
+            @QueryParam("expand") @DefaultValue("true") boolean expand) {
+        LOGGER.log(Level.INFO, "Retrieving billings for doctor", "id", id);
+        try {
+            doctorDAO.getDoctorById(id);
+            return Response.ok(CollectionResponses.entity(billingDAO.getBillingsByDoctor(id), expand)).build();
+        } catch (NotFoundException e) {
+            LOGGER.log(Level.WARNING, "Doctor not found", "id", id);
+            return ExceptionMappers.toResponse(e, Response.Status.NOT_FOUND, e.getMessage());
+        } catch (DatabaseException e) {
+            LOGGER.log(Level.SEVERE, "Database error while retrieving billings for doctor", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.INTERNAL_SERVER_ERROR, "Database error occurred");
+        }
+    }
+
+    /**
+     * Retrieves the prescriptions of a doctor.
+     * @param id The ID of the doctor
+     * @param expand Whether to include the referenced patient and doctor objects, or only their IDs
+     * @return Response containing the doctor's prescriptions in JSON format, or 404 if the doctor is not found
+     */
+    @GET
+    @Path("/{id}/prescriptions")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getDoctorPrescriptions(@PathParam("id") int id,
+            @QueryParam("expand") @DefaultValue("true") boolean expand) {
+        LOGGER.log(Level.INFO, "Retrieving prescriptions for doctor", "id", id);
         try {
-            LOGGER.log(Level.INFO, "Retrieving doctor by ID: " + id);
-            Doctor doctor = doctorDAO.getDoctorById(id);
-            LOGGER.log(Level.INFO, "Doctor with ID " + id + " found: " + doctor);
-            return Response.ok(doctor).build();
+            doctorDAO.getDoctorById(id);
+            return Response.ok(CollectionResponses.entity(prescriptionDAO.getPrescriptionsByDoctor(id), expand)).build();
         } catch (NotFoundException e) {
-            LOGGER.log(Level.WARNING, "Doctor with ID " + id + " not found");
-            return Response.status(Response.Status.NOT_FOUND).entity(e.getMessage()).build();
+            LOGGER.log(Level.WARNING, "Doctor not found", "id", id);
+            return ExceptionMappers.toResponse(e, Response.Status.NOT_FOUND, e.getMessage());
         } catch (DatabaseException e) {
-            LOGGER.log(Level.SEVERE, "Database error while retrieving doctor: " + e.getMessage());
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity("Database error occurred").build();
+            LOGGER.log(Level.SEVERE, "Database error while retrieving prescriptions for doctor", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.INTERNAL_SERVER_ERROR, "Database error occurred");
         }
     }
 
@@ -78,18 +230,18 @@ public class DoctorResource {
     @Consumes(MediaType.APPLICATION_JSON)
     public Response addDoctor(Doctor doctor) {
         try {
-            LOGGER.log(Level.INFO, "Adding new doctor: " + doctor);
+            LOGGER.log(Level.INFO, "Adding new doctor", "doctor", doctor);
             doctorDAO.addDoctor(doctor);
             return Response.status(Response.Status.CREATED).build();
         } catch (DuplicateException e) {
-            LOGGER.log(Level.WARNING, "Failed to add doctor: " + e.getMessage());
-            return Response.status(Response.Status.CONFLICT).entity(e.getMessage()).build();
+            LOGGER.log(Level.WARNING, "Failed to add doctor", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.CONFLICT, e.getMessage());
         } catch (InvalidDataException e) {
-            LOGGER.log(Level.WARNING, "Invalid doctor data: " + e.getMessage());
-            return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
+            LOGGER.log(Level.WARNING, "Invalid doctor data", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.BAD_REQUEST, e.getMessage());
         } catch (DatabaseException e) {
-            LOGGER.log(Level.SEVERE, "Database error while adding doctor: " + e.getMessage());
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity("Database error occurred").build();
+            LOGGER.log(Level.SEVERE, "Database error while adding doctor", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.INTERNAL_SERVER_ERROR, "Database error occurred");
         }
     }
 
@@ -97,46 +249,127 @@ public class DoctorResource {
      * Updates an existing doctor.
      * @param id The ID of the doctor to update
      * @param updatedDoctor The updated doctor object
-     * @return Response with status 200 if successful, or 404 if doctor not found
+     * @param ifMatch Entity tags of the versions the client expects to replace, or * for any version
+     * @return Response with status 200 if successful, or 404 if doctor not found; 412 if If-Match does not match the current version
      */
     @PUT
     @Path("/{id}")
     @Consumes(MediaType.APPLICATION_JSON)
-    public Response updateDoctor(@PathParam("id") int id, Doctor updatedDoctor) {
+    public Response updateDoctor(@PathParam("id") int id, Doctor updatedDoctor,
+            @HeaderParam("If-Match") String ifMatch) {
         try {
-            LOGGER.log(Level.INFO, "Updating doctor with ID: " + id);
-            doctorDAO.updateDoctor(id, updatedDoctor);
+            LOGGER.log(Level.INFO, "Updating doctor", "id", id);
+            long expectedVersion = Preconditions.expectedVersion(ifMatch, () -> doctorDAO.getVersionedDoctorById(id).getVersion());
+            doctorDAO.updateDoctor(id, updatedDoctor, expectedVersion);
             return Response.ok().build();
         } catch (NotFoundException e) {
-            LOGGER.log(Level.WARNING, "Failed to update doctor with ID " + id + ": " + e.getMessage());
-            return Response.status(Response.Status.NOT_FOUND).entity(e.getMessage()).build();
+            LOGGER.log(Level.WARNING, "Failed to update doctor", "id", id, "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.NOT_FOUND, e.getMessage());
+        } catch (VersionConflictException e) {
+            LOGGER.log(Level.WARNING, "Failed to update doctor", "id", id, "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.PRECONDITION_FAILED, e.getMessage());
         } catch (InvalidDataException e) {
-            LOGGER.log(Level.WARNING, "Invalid doctor data for updating: " + e.getMessage());
-            return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
+            LOGGER.log(Level.WARNING, "Invalid doctor data for updating", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.BAD_REQUEST, e.getMessage());
         } catch (DatabaseException e) {
-            LOGGER.log(Level.SEVERE, "Database error while updating doctor: " + e.getMessage());
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity("Database error occurred").build();
+            LOGGER.log(Level.SEVERE, "Database error while updating doctor", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.INTERNAL_SERVER_ERROR, "Database error occurred");
         }
     }
 
     /**
      * Deletes a doctor by its ID.
      * @param id The ID of the doctor to delete
-     * @return Response with status 200 if successful, or 404 if doctor not found
+     * @param ifMatch Entity tags of the versions the client expects to replace, or * for any version
+     * @return Response with status 200 if successful, or 404 if doctor not found; 412 if If-Match does not match the current version
      */
     @DELETE
     @Path("/{id}")
-    public Response deleteDoctor(@PathParam("id") int id) {
+    public Response deleteDoctor(@PathParam("id") int id,
+            @HeaderParam("If-Match") String ifMatch) {
         try {
-            LOGGER.log(Level.INFO, "Deleting doctor with ID: " + id);
-            doctorDAO.deleteDoctor(id);
+            LOGGER.log(Level.INFO, "Deleting doctor", "id", id);
+            long expectedVersion = Preconditions.expectedVersion(ifMatch, () -> doctorDAO.getVersionedDoctorById(id).getVersion());
+            doctorDAO.deleteDoctor(id, expectedVersion);
             return Response.ok().build();
         } catch (NotFoundException e) {
-            LOGGER.log(Level.WARNING, "Failed to delete doctor with ID " + id + ": " + e.getMessage());
-            return Response.status(Response.Status.NOT_FOUND).entity(e.getMessage()).build();
+            LOGGER.log(Level.WARNING, "Failed to delete doctor", "id", id, "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.NOT_FOUND, e.getMessage());
+        } catch (VersionConflictException e) {
+            LOGGER.log(Level.WARNING, "Failed to delete doctor", "id", id, "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.PRECONDITION_FAILED, e.getMessage());
+        } catch (DatabaseException e) {
+            LOGGER.log(Level.SEVERE, "Database error while deleting doctor", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.INTERNAL_SERVER_ERROR, "Database error occurred");
+        }
+    }
+
+    /**
+     * Adds several doctors in one request.
+     * @param body A JSON array of doctors, or one doctor per line (NDJSON)
+     * @return Response with status 200 and one result per doctor, 400 if the body cannot be read, or 413 if it holds too many items
+     */
+    @POST
+    @Path("/batch")
+    @Consumes({MediaType.APPLICATION_JSON, BatchRequests.NDJSON})
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response addDoctors(InputStream body) {
+        try {
+            BatchRequests.Batch<Doctor> batch = BatchRequests.read(body, Doctor.class);
+            LOGGER.log(Level.INFO, "Adding batch of doctors", "count", batch.size());
+            return batch.respond(doctorDAO.addDoctors(batch.items()));
+        } catch (InvalidDataException e) {
+            LOGGER.log(Level.WARNING, "Invalid doctor batch", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.BAD_REQUEST, e.getMessage());
+        } catch (DatabaseException e) {
+            LOGGER.log(Level.SEVERE, "Database error while adding doctors", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.INTERNAL_SERVER_ERROR, e.getMessage());
+        }
+    }
+
+    /**
+     * Updates several doctors in one request. Each doctor carries its ID.
+     * @param body A JSON array of doctors, or one doctor per line (NDJSON)
+     * @return Response with status 200 and one result per doctor, 400 if the body cannot be read, or 413 if it holds too many items
+     */
+    @PUT
+    @Path("/batch")
+    @Consumes({MediaType.APPLICATION_JSON, BatchRequests.NDJSON})
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response updateDoctors(InputStream body) {
+        try {
+            BatchRequests.Batch<Doctor> batch = BatchRequests.read(body, Doctor.class);
+            LOGGER.log(Level.INFO, "Updating batch of doctors", "count", batch.size());
+            return batch.respond(doctorDAO.updateDoctors(batch.items()));
+        } catch (InvalidDataException e) {
+            LOGGER.log(Level.WARNING, "Invalid doctor batch", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.BAD_REQUEST, e.getMessage());
+        } catch (DatabaseException e) {
+            LOGGER.log(Level.SEVERE, "Database error while updating doctors", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.INTERNAL_SERVER_ERROR, e.getMessage());
+        }
+    }
+
+    /**
+     * Deletes several doctors in one request.
+     * @param body A JSON array of IDs, or one ID per line (NDJSON)
+     * @return Response with status 200 and one result per ID, 400 if the body cannot be read, or 413 if it holds too many items
+     */
+    @POST
+    @Path("/batch/delete")
+    @Consumes({MediaType.APPLICATION_JSON, BatchRequests.NDJSON})
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response deleteDoctors(InputStream body) {
+        try {
+            BatchRequests.Batch<Integer> batch = BatchRequests.readIds(body);
+            LOGGER.log(Level.INFO, "Deleting batch of doctors", "count", batch.size());
+            return batch.respond(doctorDAO.deleteDoctors(BatchRequests.ids(batch)));
+        } catch (InvalidDataException e) {
+            LOGGER.log(Level.WARNING, "Invalid doctor batch", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.BAD_REQUEST, e.getMessage());
         } catch (DatabaseException e) {
-            LOGGER.log(Level.SEVERE, "Database error while deleting doctor: " + e.getMessage());
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity("Database error occurred").build();
+            LOGGER.log(Level.SEVERE, "Database error while deleting doctors", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.INTERNAL_SERVER_ERROR, e.getMessage());
         }
     }
 }
@@ -0,0 +1,100 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.resource;
+
+/**
+ *
+ * @author Maryam
+ */
+import csa.healthsystem.exception.ConflictException;
+import csa.healthsystem.exception.DatabaseException;
+import csa.healthsystem.exception.DuplicateException;
+import csa.healthsystem.exception.InvalidDataException;
+import csa.healthsystem.exception.NotFoundException;
+import csa.healthsystem.exception.PayloadTooLargeException;
+import csa.healthsystem.exception.VersionConflictException;
+import csa.healthsystem.metrics.Metrics;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.ExceptionMapper;
+import javax.ws.rs.ext.Provider;
+
+/**
+ * Turns exceptions into error responses, and counts each exception that does in the metrics.
+ * Exceptions handled inside the service, such as a batch item that fails its checks, never
+ * reach here and are not counted. The resources map the exceptions they catch with
+ * {@link #toResponse(Exception, Response.Status, Object)}; the mappers nested here handle the
+ * ones that escape a resource.
+ */
+public final class ExceptionMappers {
+    private ExceptionMappers() {}
+
+    /**
+     * Builds the error response for an exception.
+     * @param e The exception
+     * @param status The response status
+     * @param entity The response body
+     * @return The response
+     */
+    static Response toResponse(Exception e, Response.Status status, Object entity) {
+        Metrics.exceptionRaised(e.getClass());
+        return Response.status(status).entity(entity).build();
+    }
+
+    @Provider
+    public static final class NotFound implements ExceptionMapper<NotFoundException> {
+        @Override
+        public Response toResponse(NotFoundException e) {
+            return ExceptionMappers.toResponse(e, Response.Status.NOT_FOUND, e.getMessage());
+        }
+    }
+
+    @Provider
+    public static final class InvalidData implements ExceptionMapper<InvalidDataException> {
+        @Override
+        public Response toResponse(InvalidDataException e) {
+            return ExceptionMappers.toResponse(e, Response.Status.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    @Provider
+    public static final class Duplicate implements ExceptionMapper<DuplicateException> {
+        @Override
+        public Response toResponse(DuplicateException e) {
+            return ExceptionMappers.toResponse(e, Response.Status.CONFLICT, e.getMessage());
+        }
+    }
+
+    @Provider
+    public static final class Conflict implements ExceptionMapper<ConflictException> {
+        @Override
+        public Response toResponse(ConflictException e) {
+            return ExceptionMappers.toResponse(e, Response.Status.CONFLICT, e.getMessage());
+        }
+    }
+
+    @Provider
+    public static final class VersionConflict implements ExceptionMapper<VersionConflictException> {
+        @Override
+        public Response toResponse(VersionConflictException e) {
+            return ExceptionMappers.toResponse(e, Response.Status.PRECONDITION_FAILED, e.getMessage());
+        }
+    }
+
+    @Provider
+    public static final class PayloadTooLarge implements ExceptionMapper<PayloadTooLargeException> {
+        @Override
+        public Response toResponse(PayloadTooLargeException e) {
+            return ExceptionMappers.toResponse(e, Response.Status.REQUEST_ENTITY_TOO_LARGE, e.getMessage());
+        }
+    }
+
+    @Provider
+    public static final class Database implements ExceptionMapper<DatabaseException> {
+        @Override
+        public Response toResponse(DatabaseException e) {
+            return ExceptionMappers.toResponse(e, Response.Status.INTERNAL_SERVER_ERROR, "An error occurred");
+        }
+    }
+}
@@ -11,14 +11,25 @@ package csa.healthsystem.resource;
 import javax.ws.rs.*;
 import javax.ws.rs.core.*;
 import csa.healthsystem.dao.MedicalRecordDAO;
+import csa.healthsystem.dao.PatientDAO;
 import csa.healthsystem.model.MedicalRecord;
+import csa.healthsystem.model.SearchHit;
+import csa.healthsystem.model.SearchResults;
+import csa.healthsystem.store.Versioned;
 import csa.healthsystem.exception.NotFoundException;
+import csa.healthsystem.exception.VersionConflictException;
 import csa.healthsystem.exception.DuplicateException;
 import csa.healthsystem.exception.InvalidDataException;
 import csa.healthsystem.exception.DatabaseException;
+import csa.healthsystem.ingest.IngestJob;
+import csa.healthsystem.ingest.IngestJobs;
+import csa.healthsystem.ingest.NdjsonIngest;
+import csa.healthsystem.logging.Log;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.logging.Level;
-import java.util.logging.Logger;
 
 /**
  * Resource class for managing medical records.
@@ -26,46 +37,124 @@ import java.util.logging.Logger;
  */
 @Path("/medical-records")
 public class MedicalRecordResource {
+    private static final int DEFAULT_SEARCH_LIMIT = 20;
+    private static final int MAX_SEARCH_LIMIT = 100;
+
     private final MedicalRecordDAO medicalRecordDAO = new MedicalRecordDAO();
-    private static final Logger LOGGER = Logger.getLogger(MedicalRecordResource.class.getName());
+    private final PatientDAO patientDAO = new PatientDAO();
+    private static final Log LOGGER = Log.get(MedicalRecordResource.class);
+    private static final IngestJobs ingests = new IngestJobs("medical records");
+    private static final NdjsonIngest<MedicalRecord> ingest = new NdjsonIngest<>(MedicalRecord.class, new MedicalRecordDAO()::addMedicalRecords);
 
     /**
      * Retrieves all medical records.
+     * @param limit Maximum number of medical records per page; omit together with cursor to get all medical records
+     * @param cursor ID of the last medical record of the previous page
+     * @param fields Comma separated list of fields to include in each medical record
+     * @param expand Whether to include the referenced patient object, or only its ID
+     * @param uriInfo Information about the request URI
+     * @param request The request, used to evaluate If-None-Match and If-Modified-Since
      * @return Response containing list of medical records in JSON format
      */
     @GET
     @Produces(MediaType.APPLICATION_JSON)
-    public Response getAllMedicalRecords() {
+    public Response getAllMedicalRecords(@QueryParam("limit") Integer limit,
+            @QueryParam("cursor") Integer cursor,
+            @QueryParam("fields") String fields,
+            @QueryParam("expand") @DefaultValue("true") boolean expand,
+            @Context UriInfo uriInfo,
+            @Context Request request) {
         LOGGER.log(Level.INFO, "Retrieving all medical records");
         try {
-            List<MedicalRecord> medicalRecords = medicalRecordDAO.getAllMedicalRecords();
-            return Response.ok(medicalRecords).build();
+            return Preconditions.collection(request, uriInfo, medicalRecordDAO.getMedicalRecordsVersion(), medicalRecordDAO.getMedicalRecordsLastModified(), expand,
+                    () -> CollectionResponses.list(uriInfo, limit, cursor, fields, expand, medicalRecordDAO::getMedicalRecords, MedicalRecord::getId));
+        } catch (DatabaseException e) {
+            LOGGER.log(Level.SEVERE, "Database error while retrieving medical records", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.INTERNAL_SERVER_ERROR, "Database error occurred");
+        }
+    }
+
+    /**
+     * Searches the diagnoses and treatments of medical records and the medical histories of
+     * patients. Hits of both kinds are ranked together by relevance.
+     * @param query Words to search for; an entity matches if it holds all of them
+     * @param offset Number of hits to skip
+     * @param limit Maximum number of hits to return, at most 100
+     * @param expand Whether to include the patient referenced by a medical record, or only its ID
+     * @param uriInfo Information about the request URI
+     * @return Response containing the hits in JSON format, or 400 if the query is empty or the page lies too deep
+     */
+    @GET
+    @Path("/search")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response searchMedicalRecords(@QueryParam("q") String query,
+            @QueryParam("offset") @DefaultValue("0") int offset,
+            @QueryParam("limit") Integer limit,
+            @QueryParam("expand") @DefaultValue("true") boolean expand,
+            @Context UriInfo uriInfo) {
+        LOGGER.log(Level.INFO, "Searching medical records", "query", query);
+        if (query == null || query.trim().isEmpty()) {
+            return Response.status(Response.Status.BAD_REQUEST).entity("q must not be empty").build();
+        }
+        if (offset < 0 || (limit != null && limit <= 0)) {
+            return Response.status(Response.Status.BAD_REQUEST).entity("offset must not be negative and limit must be greater than 0").build();
+        }
+        int pageSize = limit == null ? DEFAULT_SEARCH_LIMIT : Math.min(limit, MAX_SEARCH_LIMIT);
+        // Compared without adding, as offset + pageSize can overflow
+        if (offset > CollectionResponses.MAX_LIMIT - pageSize) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("offset plus limit must not exceed " + CollectionResponses.MAX_LIMIT).build();
+        }
+        try {
+            // Each source ranks its own best hits; one more than needed shows whether another page follows
+            int count = offset + pageSize + 1;
+            SearchResults medicalRecords = medicalRecordDAO.searchMedicalRecords(query, count);
+            SearchResults patients = patientDAO.searchPatients(query, count);
+            List<SearchHit> hits = new ArrayList<>(medicalRecords.getHits());
+            hits.addAll(patients.getHits());
+            hits.sort(Comparator.comparingDouble(SearchHit::getScore).reversed());
+            boolean hasMore = hits.size() > offset + pageSize;
+            hits = new ArrayList<>(hits.subList(Math.min(offset, hits.size()), Math.min(offset + pageSize, hits.size())));
+            SearchResults results = new SearchResults(query, medicalRecords.getTotal() + patients.getTotal(),
+                    medicalRecords.isTotalExact() && patients.isTotalExact(), offset, pageSize, hits);
+            Response.ResponseBuilder builder = Response.ok(CollectionResponses.entity(results, expand));
+            if (hasMore) {
+                builder.link(uriInfo.getRequestUriBuilder()
+                        .replaceQueryParam("offset", offset + pageSize)
+                        .replaceQueryParam("limit", pageSize)
+                        .build(), "next");
+            }
+            return builder.build();
         } catch (DatabaseException e) {
-            LOGGER.log(Level.SEVERE, "Database error while retrieving medical records: " + e.getMessage());
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity("Database error occurred").build();
+            LOGGER.log(Level.SEVERE, "Database error while searching medical records", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.INTERNAL_SERVER_ERROR, "Database error occurred");
         }
     }
 
     /**
      * Retrieves a medical record by its ID.
      * @param id The ID of the medical record to retrieve
-     * @return Response containing the medical record in JSON format if found, or 404 if not found
+     * @param expand Whether to include the referenced patient object, or only its ID
+     * @param request The request, used to evaluate If-None-Match and If-Modified-Since
+     * @return Response containing the medical record in JSON format if found, 304 if the client's copy is current, or 404 if not found
      */
     @GET
     @Path("/{id}")
     @Produces(MediaType.APPLICATION_JSON)
-    public Response getMedicalRecordById(@PathParam("id") int id) {
+    public Response getMedicalRecordById(@PathParam("id") int id,
+            @QueryParam("expand") @DefaultValue("true") boolean expand,
+            @Context Request request) {
         try {
-            LOGGER.log(Level.INFO, "Retrieving medical record by ID: " + id);
-            MedicalRecord medicalRecord = medicalRecordDAO.getMedicalRecordById(id);
-            LOGGER.log(Level.INFO, "Medical record with ID " + id + " found: " + medicalRecord);
-            return Response.ok(medicalRecord).build();
+            LOGGER.log(Level.INFO, "Retrieving medical record", "id", id);
+            Versioned<MedicalRecord> medicalRecord = medicalRecordDAO.getVersionedMedicalRecordById(id);
+            LOGGER.log(Level.INFO, "Medical record found", "id", id, "medicalRecord", medicalRecord.getEntity());
+            return Preconditions.entity(request, "/medical-records/" + id, medicalRecord, expand);
         } catch (NotFoundException e) {
-            LOGGER.log(Level.WARNING, "Medical record with ID " + id + " not found");
-            return Response.status(Response.Status.NOT_FOUND).entity(e.getMessage()).build();
+            LOGGER.log(Level.WARNING, "Medical record not found", "id", id);
+            return ExceptionMappers.toResponse(e, Response.Status.NOT_FOUND, e.getMessage());
         } catch (DatabaseException e) {
-            LOGGER.log(Level.SEVERE, "Database error while retrieving medical record: " + e.getMessage());
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity("Database error occurred").build();
+            LOGGER.log(Level.SEVERE, "Database error while retrieving medical record", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.INTERNAL_SERVER_ERROR, "Database error occurred");
         }
     }
 
@@ -78,18 +167,18 @@ public class MedicalRecordResource {
     @Consumes(MediaType.APPLICATION_JSON)
     public Response addMedicalRecord(MedicalRecord medicalRecord) {
         try {
-            LOGGER.log(Level.INFO, "Adding new medical record: " + medicalRecord);
+            LOGGER.log(Level.INFO, "Adding new medical record", "medicalRecord", medicalRecord);
             medicalRecordDAO.addMedicalRecord(medicalRecord);
             return Response.status(Response.Status.CREATED).build();
         } catch (DuplicateException e) {
-            LOGGER.log(Level.WARNING, "Failed to add medical record: " + e.getMessage());
-            return Response.status(Response.Status.CONFLICT).entity(e.getMessage()).build();
+            LOGGER.log(Level.WARNING, "Failed to add medical record", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.CONFLICT, e.getMessage());
         } catch (InvalidDataException e) {
-            LOGGER.log(Level.WARNING, "Invalid medical record data: " + e.getMessage());
-            return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
+            LOGGER.log(Level.WARNING, "Invalid medical record data", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.BAD_REQUEST, e.getMessage());
         } catch (DatabaseException e) {
-            LOGGER.log(Level.SEVERE, "Database error while adding medical record: " + e.getMessage());
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity("Database error occurred").build();
+            LOGGER.log(Level.SEVERE, "Database error while adding medical record", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.INTERNAL_SERVER_ERROR, "Database error occurred");
         }
     }
 
@@ -97,46 +186,174 @@ public class MedicalRecordResource {
      * Updates an existing medical record.
      * @param id The ID of the medical record to update
      * @param updatedMedicalRecord The updated medical record object
-     * @return Response with status 200 if successful, or 404 if medical record not found
+     * @param ifMatch Entity tags of the versions the client expects to replace, or * for any version
+     * @return Response with status 200 if successful, or 404 if medical record not found; 412 if If-Match does not match the current version
      */
     @PUT
     @Path("/{id}")
     @Consumes(MediaType.APPLICATION_JSON)
-    public Response updateMedicalRecord(@PathParam("id") int id, MedicalRecord updatedMedicalRecord) {
+    public Response updateMedicalRecord(@PathParam("id") int id, MedicalRecord updatedMedicalRecord,
+            @HeaderParam("If-Match") String ifMatch) {
         try {
-            LOGGER.log(Level.INFO, "Updating medical record with ID: " + id);
-            medicalRecordDAO.updateMedicalRecord(id, updatedMedicalRecord);
+            LOGGER.log(Level.INFO, "Updating medical record", "id", id);
+            long expectedVersion = Preconditions.expectedVersion(ifMatch, () -> medicalRecordDAO.getVersionedMedicalRecordById(id).getVersion());
+            medicalRecordDAO.updateMedicalRecord(id, updatedMedicalRecord, expectedVersion);
             return Response.ok().build();
         } catch (NotFoundException e) {
-            LOGGER.log(Level.WARNING, "Failed to update medical record with ID " + id + ": " + e.getMessage());
-            return Response.status(Response.Status.NOT_FOUND).entity(e.getMessage()).build();
+            LOGGER.log(Level.WARNING, "Failed to update medical record", "id", id, "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.NOT_FOUND, e.getMessage());
+        } catch (VersionConflictException e) {
+            LOGGER.log(Level.WARNING, "Failed to update medical record", "id", id, "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.PRECONDITION_FAILED, e.getMessage());
         } catch (InvalidDataException e) {
-            LOGGER.log(Level.WARNING, "Invalid medical record data for updating: " + e.getMessage());
-            return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
+            LOGGER.log(Level.WARNING, "Invalid medical record data for updating", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.BAD_REQUEST, e.getMessage());
         } catch (DatabaseException e) {
-            LOGGER.log(Level.SEVERE, "Database error while updating medical record: " + e.getMessage());
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity("Database error occurred").build();
+            LOGGER.log(Level.SEVERE, "Database error while updating medical record", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.INTERNAL_SERVER_ERROR, "Database error occurred");
         }
     }
 
     /**
      * Deletes a medical record by its ID.
      * @param id The ID of the medical record to delete
-     * @return Response with status 200 if successful, or 404 if medical record not found
+     * @param ifMatch Entity tags of the versions the client expects to replace, or * for any version
+     * @return Response with status 200 if successful, or 404 if medical record not found; 412 if If-Match does not match the current version
      */
     @DELETE
     @Path("/{id}")
-    public Response deleteMedicalRecord(@PathParam("id") int id) {
+    public Response deleteMedicalRecord(@PathParam("id") int id,
+            @HeaderParam("If-Match") String ifMatch) {
         try {
-            LOGGER.log(Level.INFO, "Deleting medical record with ID: " + id);
-            medicalRecordDAO.deleteMedicalRecord(id);
+            LOGGER.log(Level.INFO, "Deleting medical record", "id", id);
+            long expectedVersion = Preconditions.expectedVersion(ifMatch, () -> medicalRecordDAO.getVersionedMedicalRecordById(id).getVersion());
+            medicalRecordDAO.deleteMedicalRecord(id, expectedVersion);
             return Response.ok().build();
         } catch (NotFoundException e) {
-            LOGGER.log(Level.WARNING, "Failed to delete medical record with ID " + id + ": " + e.getMessage());
-            return Response.status(Response.Status.NOT_FOUND).entity(e.getMessage()).build();
+            LOGGER.log(Level.WARNING, "Failed to delete medical record", "id", id, "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.NOT_FOUND, e.getMessage());
+        } catch (VersionConflictException e) {
+            LOGGER.log(Level.WARNING, "Failed to delete medical record", "id", id, "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.PRECONDITION_FAILED, e.getMessage());
+        } catch (DatabaseException e) {
+            LOGGER.log(Level.SEVERE, "Database error while deleting medical record", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.INTERNAL_SERVER_ERROR, "Database error occurred");
+        }
+    }
+
+    /**
+     * Adds several medical records in one request.
+     * @param body A JSON array of medical records, or one medical record per line (NDJSON)
+     * @return Response with status 200 and one result per medical record, 400 if the body cannot be read, or 413 if it holds too many items
+     */
+    @POST
+    @Path("/batch")
+    @Consumes({MediaType.APPLICATION_JSON, BatchRequests.NDJSON})
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response addMedicalRecords(InputStream body) {
+        try {
+            BatchRequests.Batch<MedicalRecord> batch = BatchRequests.read(body, MedicalRecord.class);
+            LOGGER.log(Level.INFO, "Adding batch of medical records", "count", batch.size());
+            return batch.respond(medicalRecordDAO.addMedicalRecords(batch.items()));
+        } catch (InvalidDataException e) {
+            LOGGER.log(Level.WARNING, "Invalid medical record batch", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.BAD_REQUEST, e.getMessage());
         } catch (DatabaseException e) {
-            LOGGER.log(Level.SEVERE, "Database error while deleting medical record: " + e.getMessage());
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity("Database error occurred").build();
+            LOGGER.log(Level.SEVERE, "Database error while adding medical records", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.INTERNAL_SERVER_ERROR, e.getMessage());
+        }
+    }
+
+    /**
+     * Updates several medical records in one request. Each medical record carries its ID.
+     * @param body A JSON array of medical records, or one medical record per line (NDJSON)
+     * @return Response with status 200 and one result per medical record, 400 if the body cannot be read, or 413 if it holds too many items
+     */
+    @PUT
+    @Path("/batch")
+    @Consumes({MediaType.APPLICATION_JSON, BatchRequests.NDJSON})
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response updateMedicalRecords(InputStream body) {
+        try {
+            BatchRequests.Batch<MedicalRecord> batch = BatchRequests.read(body, MedicalRecord.class);
+            LOGGER.log(Level.INFO, "Updating batch of medical records", "count", batch.size());
+            return batch.respond(medicalRecordDAO.updateMedicalRecords(batch.items()));
+        } catch (InvalidDataException e) {
+            LOGGER.log(Level.WARNING, "Invalid medical record batch", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.BAD_REQUEST, e.getMessage());
+        } catch (DatabaseException e) {
+            LOGGER.log(Level.SEVERE, "Database error while updating medical records", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.INTERNAL_SERVER_ERROR, e.getMessage());
+        }
+    }
+
+    /**
+     * Deletes several medical records in one request.
+     * @param body A JSON array of IDs, or one ID per line (NDJSON)
+     * @return Response with status 200 and one result per ID, 400 if the body cannot be read, or 413 if it holds too many items
+     */
+    @POST
+    @Path("/batch/delete")
+    @Consumes({MediaType.APPLICATION_JSON, BatchRequests.NDJSON})
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response deleteMedicalRecords(InputStream body) {
+        try {
+            BatchRequests.Batch<Integer> batch = BatchRequests.readIds(body);
+            LOGGER.log(Level.INFO, "Deleting batch of medical records", "count", batch.size());
+            return batch.respond(medicalRecordDAO.deleteMedicalRecords(BatchRequests.ids(batch)));
+        } catch (InvalidDataException e) {
+            LOGGER.log(Level.WARNING, "Invalid medical record batch", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.BAD_REQUEST, e.getMessage());
+        } catch (DatabaseException e) {
+            LOGGER.log(Level.SEVERE, "Database error while deleting medical records", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.INTERNAL_SERVER_ERROR, e.getMessage());
+        }
+    }
+
+    /**
+     * Streams medical records into the store, one medical record per line (NDJSON).
+     * The body is read while it arrives and stored in batches; reading slows down when the store falls behind.
+     * @param body One medical record per line
+     * @return Response with status 200 and the ingest report, or 500 if the ingest failed
+     */
+    @POST
+    @Path("/ingest")
+    @Consumes(BatchRequests.NDJSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response ingestMedicalRecords(InputStream body) {
+        IngestJob job = ingests.start();
+        LOGGER.log(Level.INFO, "Starting ingest of medical records", "job", job.getId());
+        ingest.run(body, job);
+        if (job.getState() == IngestJob.State.FAILED) {
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(job).build();
+        }
+        return Response.ok(job).build();
+    }
+
+    /**
+     * Retrieves the running and recent ingests of medical records.
+     * @return Response containing the ingest reports in JSON format, oldest first
+     */
+    @GET
+    @Path("/ingest")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getIngests() {
+        return Response.ok(ingests.list()).build();
+    }
+
+    /**
+     * Retrieves the progress of an ingest of medical records.
+     * @param jobId The ID of the ingest
+     * @return Response containing the ingest report in JSON format, or 404 if the ingest is unknown
+     */
+    @GET
+    @Path("/ingest/{jobId}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getIngest(@PathParam("jobId") int jobId) {
+        IngestJob job = ingests.get(jobId);
+        if (job == null) {
+            return Response.status(Response.Status.NOT_FOUND).entity("Ingest with ID " + jobId + " not found").build();
         }
+        return Response.ok(job).build();
     }
 }
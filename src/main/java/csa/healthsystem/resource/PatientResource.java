@@ -11,57 +11,204 @@ package csa.healthsystem.resource;
 import javax.ws.rs.*;
 import javax.ws.rs.core.*;
 import csa.healthsystem.dao.PatientDAO;
+import csa.healthsystem.dao.AppointmentDAO;
+import csa.healthsystem.dao.BillingDAO;
+import csa.healthsystem.dao.PrescriptionDAO;
+import csa.healthsystem.dao.MedicalRecordDAO;
 import csa.healthsystem.model.Patient;
+import csa.healthsystem.store.Versioned;
 import csa.healthsystem.exception.NotFoundException;
+import csa.healthsystem.exception.VersionConflictException;
 import csa.healthsystem.exception.DuplicateException;
 import csa.healthsystem.exception.InvalidDataException;
 import csa.healthsystem.exception.DatabaseException;
+import csa.healthsystem.logging.Log;
+import java.io.InputStream;
 import java.util.List;
 import java.util.logging.Level;
-import java.util.logging.Logger;
 
 @Path("/patients")
 public class PatientResource {
     private final PatientDAO patientDAO = new PatientDAO();
-    private static final Logger LOGGER = Logger.getLogger(PatientResource.class.getName());
+    private final AppointmentDAO appointmentDAO = new AppointmentDAO();
+    private final BillingDAO billingDAO = new BillingDAO();
+    private final PrescriptionDAO prescriptionDAO = new PrescriptionDAO();
+    private final MedicalRecordDAO medicalRecordDAO = new MedicalRecordDAO();
+    private static final Log LOGGER = Log.get(PatientResource.class);
 
     /**
      * Retrieves all patients.
+     * @param limit Maximum number of patients per page; omit together with cursor to get all patients
+     * @param cursor ID of the last patient of the previous page
+     * @param fields Comma separated list of fields to include in each patient
+     * @param statuses Only patients with one of these health statuses are returned; repeat the parameter for several
+     * @param uriInfo Information about the request URI
+     * @param request The request, used to evaluate If-None-Match and If-Modified-Since
      * @return Response containing list of patients in JSON format
      */
     @GET
     @Produces(MediaType.APPLICATION_JSON)
-    public Response getAllPatients() {
+    public Response getAllPatients(@QueryParam("limit") Integer limit,
+            @QueryParam("cursor") Integer cursor,
+            @QueryParam("fields") String fields,
+            @QueryParam("status") List<String> statuses,
+            @Context UriInfo uriInfo,
+            @Context Request request) {
         LOGGER.log(Level.INFO, "Retrieving all patients");
+        CollectionResponses.PageSource<Patient> source = statuses.isEmpty() ? patientDAO::getPatients
+                : (afterId, pageSize) -> patientDAO.getPatientsByStatus(statuses, afterId, pageSize);
         try {
-            List<Patient> patients = patientDAO.getAllPatients();
-            return Response.ok(patients).build();
+            return Preconditions.collection(request, uriInfo, patientDAO.getPatientsVersion(), patientDAO.getPatientsLastModified(), false,
+                    () -> CollectionResponses.list(uriInfo, limit, cursor, fields, source, Patient::getId));
         } catch (DatabaseException e) {
-            LOGGER.log(Level.SEVERE, "Error occurred while retrieving patients: " + e.getMessage());
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity("An error occurred").build();
+            LOGGER.log(Level.SEVERE, "Error occurred while retrieving patients", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.INTERNAL_SERVER_ERROR, "An error occurred");
+        }
+    }
+
+    /**
+     * Finds patients as a name or phone number is typed.
+     * @param prefix Start of one or more words of the name, in any order, or of the phone number
+     * @param limit Maximum number of patients to return, at most {@value CollectionResponses#MAX_TYPEAHEAD_LIMIT}
+     * @return Response containing the best matching patients in JSON format, or 400 if the prefix is empty
+     */
+    @GET
+    @Path("/search")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response findPatients(@QueryParam("prefix") String prefix,
+            @QueryParam("limit") @DefaultValue("10") int limit) {
+        LOGGER.log(Level.INFO, "Finding patients by prefix", "prefix", prefix);
+        if (prefix == null || prefix.trim().isEmpty()) {
+            return Response.status(Response.Status.BAD_REQUEST).entity("prefix must not be empty").build();
+        }
+        if (limit <= 0) {
+            return Response.status(Response.Status.BAD_REQUEST).entity("limit must be greater than 0").build();
+        }
+        try {
+            return Response.ok(patientDAO.findPatients(prefix, Math.min(limit, CollectionResponses.MAX_TYPEAHEAD_LIMIT))).build();
+        } catch (DatabaseException e) {
+            LOGGER.log(Level.SEVERE, "Error occurred while finding patients", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.INTERNAL_SERVER_ERROR, "An error occurred");
         }
     }
 
     /**
      * Retrieves a patient by ID.
      * @param id The ID of the patient to retrieve
-     * @return Response containing the patient in JSON format if found, or 404 if not found
+     * @param request The request, used to evaluate If-None-Match and If-Modified-Since
+     * @return Response containing the patient in JSON format if found, 304 if the client's copy is current, or 404 if not found
      */
     @GET
     @Path("/{id}")
     @Produces(MediaType.APPLICATION_JSON)
-    public Response getPatientById(@PathParam("id") int id) {
-        LOGGER.log(Level.INFO, "Retrieving patient by ID: " + id);
+    public Response getPatientById(@PathParam("id") int id, @Context Request request) {
+        LOGGER.log(Level.INFO, "Retrieving patient", "id", id);
+        try {
+            Versioned<Patient> patient = patientDAO.getVersionedPatientById(id);
+            LOGGER.log(Level.INFO, "Patient found", "id", id, "patient", patient.getEntity());
+            return Preconditions.entity(request, "/patients/" + id, patient);
+        } catch (NotFoundException e) {
+            LOGGER.log(Level.WARNING, "Patient not found", "id", id);
+            return ExceptionMappers.toResponse(e, Response.Status.NOT_FOUND, e.getMessage());
+        } catch (DatabaseException e) {
+            LOGGER.log(Level.SEVERE, "Error occurred while retrieving patient", "id", id, "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.INTERNAL_SERVER_ERROR, "An error occurred");
+        }
+    }
+
+    /**
+     * Retrieves the appointments of a patient.
+     * @param id The ID of the patient
+     * @param expand Whether to include the referenced patient and doctor objects, or only their IDs
+     * @return Response containing the patient's appointments in JSON format, or 404 if the patient is not found
+     */
+    @GET
+    @Path("/{id}/appointments")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getPatientAppointments(@PathParam("id") int id,
+            @QueryParam("expand") @DefaultValue("true") boolean expand) {
+        LOGGER.log(Level.INFO, "Retrieving appointments for patient", "id", id);
+        try {
+            patientDAO.getPatientById(id);
+            return Response.ok(CollectionResponses.entity(appointmentDAO.getAppointmentsByPatient(id), expand)).build();
+        } catch (NotFoundException e) {
+            LOGGER.log(Level.WARNING, "Patient not found", "id", id);
+            return ExceptionMappers.toResponse(e, Response.Status.NOT_FOUND, e.getMessage());
+        } catch (DatabaseException e) {
+            LOGGER.log(Level.SEVERE, "Database error while retrieving appointments for patient", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.INTERNAL_SERVER_ERROR, "Database error occurred");
+        }
+    }
+
+    /**
+     * Retrieves the billings of a patient.
+     * @param id The ID of the patient
+     * @param expand Whether to include the referenced patient and doctor objects, or only their IDs
+     * @return Response containing the patient's billings in JSON format, or 404 if the patient is not found
+     */
+    @GET
+    @Path("/{id}/billings")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getPatientBillings(@PathParam("id") int id,
+            @QueryParam("expand") @DefaultValue("true") boolean expand) {
+        LOGGER.log(Level.INFO, "Retrieving billings for patient", "id", id);
+        try {
+            patientDAO.getPatientById(id);
+            return Response.ok(CollectionResponses.entity(billingDAO.getBillingsByPatient(id), expand)).build();
+        } catch (NotFoundException e) {
+            LOGGER.log(Level.WARNING, "Patient not found", "id", id);
+            return ExceptionMappers.toResponse(e, Response.Status.NOT_FOUND, e.getMessage());
+        } catch (DatabaseException e) {
+            LOGGER.log(Level.SEVERE, "Database error while retrieving billings for patient", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.INTERNAL_SERVER_ERROR, "Database error occurred");
+        }
+    }
+
+    /**
+     * Retrieves the prescriptions of a patient.
+     * @param id The ID of the patient
+     * @param expand Whether to include the referenced patient and doctor objects, or only their IDs
+     * @return Response containing the patient's prescriptions in JSON format, or 404 if the patient is not found
+     */
+    @GET
+    @Path("/{id}/prescriptions")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getPatientPrescriptions(@PathParam("id") int id,
+            @QueryParam("expand") @DefaultValue("true") boolean expand) {
+        LOGGER.log(Level.INFO, "Retrieving prescriptions for patient", "id", id);
         try {
-            Patient patient = patientDAO.getPatientById(id);
-            LOGGER.log(Level.INFO, "Patient with ID " + id + " found: " + patient);
-            return Response.ok(patient).build();
+            patientDAO.getPatientById(id);
+            return Response.ok(CollectionResponses.entity(prescriptionDAO.getPrescriptionsByPatient(id), expand)).build();
         } catch (NotFoundException e) {
-            LOGGER.log(Level.WARNING, "Patient with ID " + id + " not found");
-            return Response.status(Response.Status.NOT_FOUND).entity(e.getMessage()).build();
+            LOGGER.log(Level.WARNING, "Patient not found", "id", id);
+            return ExceptionMappers.toResponse(e, Response.Status.NOT_FOUND, e.getMessage());
         } catch (DatabaseException e) {
-            LOGGER.log(Level.SEVERE, "Error occurred while retrieving patient with ID " + id + ": " + e.getMessage());
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity("An error occurred").build();
+            LOGGER.log(Level.SEVERE, "Database error while retrieving prescriptions for patient", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.INTERNAL_SERVER_ERROR, "Database error occurred");
+        }
+    }
+
+    /**
+     * Retrieves the medical records of a patient.
+     * @param id The ID of the patient
+     * @param expand Whether to include the referenced patient object, or only its ID
+     * @return Response containing the patient's medical records in JSON format, or 404 if the patient is not found
+     */
+    @GET
+    @Path("/{id}/medical-records")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getPatientMedicalRecords(@PathParam("id") int id,
+            @QueryParam("expand") @DefaultValue("true") boolean expand) {
+        LOGGER.log(Level.INFO, "Retrieving medical records for patient", "id", id);
+        try {
+            patientDAO.getPatientById(id);
+            return Response.ok(CollectionResponses.entity(medicalRecordDAO.getMedicalRecordsByPatient(id), expand)).build();
+        } catch (NotFoundException e) {
+            LOGGER.log(Level.WARNING, "Patient not found", "id", id);
+            return ExceptionMappers.toResponse(e, Response.Status.NOT_FOUND, e.getMessage());
+        } catch (DatabaseException e) {
+            LOGGER.log(Level.SEVERE, "Database error while retrieving medical records for patient", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.INTERNAL_SERVER_ERROR, "Database error occurred");
         }
     }
 
@@ -73,19 +220,19 @@ public class PatientResource {
     @POST
     @Consumes(MediaType.APPLICATION_JSON)
     public Response addPatient(Patient patient) {
-        LOGGER.log(Level.INFO, "Adding new patient: " + patient);
+        LOGGER.log(Level.INFO, "Adding new patient", "patient", patient);
         try {
             patientDAO.addPatient(patient);
             return Response.status(Response.Status.CREATED).build();
         } catch (DuplicateException e) {
-            LOGGER.log(Level.WARNING, "Failed to add patient: " + e.getMessage());
-            return Response.status(Response.Status.CONFLICT).entity(e.getMessage()).build();
+            LOGGER.log(Level.WARNING, "Failed to add patient", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.CONFLICT, e.getMessage());
         } catch (InvalidDataException e) {
-            LOGGER.log(Level.WARNING, "Invalid patient data: " + e.getMessage());
-            return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
+            LOGGER.log(Level.WARNING, "Invalid patient data", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.BAD_REQUEST, e.getMessage());
         } catch (DatabaseException e) {
-            LOGGER.log(Level.SEVERE, "Error occurred while adding patient: " + e.getMessage());
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity("An error occurred").build();
+            LOGGER.log(Level.SEVERE, "Error occurred while adding patient", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.INTERNAL_SERVER_ERROR, "An error occurred");
         }
     }
 
@@ -93,46 +240,127 @@ public class PatientResource {
      * Updates an existing patient.
      * @param id The ID of the patient to update
      * @param updatedPatient The updated patient object
-     * @return Response with status 200 if successful, or appropriate error status otherwise
+     * @param ifMatch Entity tags of the versions the client expects to replace, or * for any version
+     * @return Response with status 200 if successful, or appropriate error status otherwise; 412 if If-Match does not match the current version
      */
     @PUT
     @Path("/{id}")
     @Consumes(MediaType.APPLICATION_JSON)
-    public Response updatePatient(@PathParam("id") int id, Patient updatedPatient) {
-        LOGGER.log(Level.INFO, "Updating patient with ID: " + id);
+    public Response updatePatient(@PathParam("id") int id, Patient updatedPatient,
+            @HeaderParam("If-Match") String ifMatch) {
+        LOGGER.log(Level.INFO, "Updating patient", "id", id);
         try {
-            patientDAO.updatePatient(id, updatedPatient);
+            long expectedVersion = Preconditions.expectedVersion(ifMatch, () -> patientDAO.getVersionedPatientById(id).getVersion());
+            patientDAO.updatePatient(id, updatedPatient, expectedVersion);
             return Response.ok().build();
         } catch (NotFoundException e) {
-            LOGGER.log(Level.WARNING, "Failed to update patient with ID " + id + ": " + e.getMessage());
-            return Response.status(Response.Status.NOT_FOUND).entity(e.getMessage()).build();
+            LOGGER.log(Level.WARNING, "Failed to update patient", "id", id, "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.NOT_FOUND, e.getMessage());
+        } catch (VersionConflictException e) {
+            LOGGER.log(Level.WARNING, "Failed to update patient", "id", id, "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.PRECONDITION_FAILED, e.getMessage());
         } catch (InvalidDataException e) {
-            LOGGER.log(Level.WARNING, "Invalid patient data for updating: " + e.getMessage());
-            return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
+            LOGGER.log(Level.WARNING, "Invalid patient data for updating", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.BAD_REQUEST, e.getMessage());
         } catch (DatabaseException e) {
-            LOGGER.log(Level.SEVERE, "Error occurred while updating patient with ID " + id + ": " + e.getMessage());
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity("An error occurred").build();
+            LOGGER.log(Level.SEVERE, "Error occurred while updating patient", "id", id, "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.INTERNAL_SERVER_ERROR, "An error occurred");
         }
     }
 
     /**
      * Deletes a patient by ID.
      * @param id The ID of the patient to delete
-     * @return Response with status 200 if successful, or appropriate error status otherwise
+     * @param ifMatch Entity tags of the versions the client expects to replace, or * for any version
+     * @return Response with status 200 if successful, or appropriate error status otherwise; 412 if If-Match does not match the current version
      */
     @DELETE
     @Path("/{id}")
-    public Response deletePatient(@PathParam("id") int id) {
-        LOGGER.log(Level.INFO, "Deleting patient with ID: " + id);
+    public Response deletePatient(@PathParam("id") int id,
+            @HeaderParam("If-Match") String ifMatch) {
+        LOGGER.log(Level.INFO, "Deleting patient", "id", id);
         try {
-            patientDAO.deletePatient(id);
+            long expectedVersion = Preconditions.expectedVersion(ifMatch, () -> patientDAO.getVersionedPatientById(id).getVersion());
+            patientDAO.deletePatient(id, expectedVersion);
             return Response.ok().build();
         } catch (NotFoundException e) {
-            LOGGER.log(Level.WARNING, "Failed to delete patient with ID " + id + ": " + e.getMessage());
-            return Response.status(Response.Status.NOT_FOUND).entity(e.getMessage()).build();
+            LOGGER.log(Level.WARNING, "Failed to delete patient", "id", id, "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.NOT_FOUND, e.getMessage());
+        } catch (VersionConflictException e) {
+            LOGGER.log(Level.WARNING, "Failed to delete patient", "id", id, "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.PRECONDITION_FAILED, e.getMessage());
+        } catch (DatabaseException e) {
+            LOGGER.log(Level.SEVERE, "Error occurred while deleting patient", "id", id, "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.INTERNAL_SERVER_ERROR, "An error occurred");
+        }
+    }
+
+    /**
+     * Adds several patients in one request.
+     * @param body A JSON array of patients, or one patient per line (NDJSON)
+     * @return Response with status 200 and one result per patient, 400 if the body cannot be read, or 413 if it holds too many items
+     */
+    @POST
+    @Path("/batch")
+    @Consumes({MediaType.APPLICATION_JSON, BatchRequests.NDJSON})
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response addPatients(InputStream body) {
+        try {
+            BatchRequests.Batch<Patient> batch = BatchRequests.read(body, Patient.class);
+            LOGGER.log(Level.INFO, "Adding batch of patients", "count", batch.size());
+            return batch.respond(patientDAO.addPatients(batch.items()));
+        } catch (InvalidDataException e) {
+            LOGGER.log(Level.WARNING, "Invalid patient batch", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.BAD_REQUEST, e.getMessage());
+        } catch (DatabaseException e) {
+            LOGGER.log(Level.SEVERE, "Database error while adding patients", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.INTERNAL_SERVER_ERROR, e.getMessage());
+        }
+    }
+
+    /**
+     * Updates several patients in one request. Each patient carries its ID.
+     * @param body A JSON array of patients, or one patient per line (NDJSON)
+     * @return Response with status 200 and one result per patient, 400 if the body cannot be read, or 413 if it holds too many items
+     */
+    @PUT
+    @Path("/batch")
+    @Consumes({MediaType.APPLICATION_JSON, BatchRequests.NDJSON})
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response updatePatients(InputStream body) {
+        try {
+            BatchRequests.Batch<Patient> batch = BatchRequests.read(body, Patient.class);
+            LOGGER.log(Level.INFO, "Updating batch of patients", "count", batch.size());
+            return batch.respond(patientDAO.updatePatients(batch.items()));
+        } catch (InvalidDataException e) {
+            LOGGER.log(Level.WARNING, "Invalid patient batch", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.BAD_REQUEST, e.getMessage());
+        } catch (DatabaseException e) {
+            LOGGER.log(Level.SEVERE, "Database error while updating patients", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.INTERNAL_SERVER_ERROR, e.getMessage());
+        }
+    }
+
+    /**
+     * Deletes several patients in one request.
+     * @param body A JSON array of IDs, or one ID per line (NDJSON)
+     * @return Response with status 200 and one result per ID, 400 if the body cannot be read, or 413 if it holds too many items
+     */
+    @POST
+    @Path("/batch/delete")
+    @Consumes({MediaType.APPLICATION_JSON, BatchRequests.NDJSON})
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response deletePatients(InputStream body) {
+        try {
+            BatchRequests.Batch<Integer> batch = BatchRequests.readIds(body);
+            LOGGER.log(Level.INFO, "Deleting batch of patients", "count", batch.size());
+            return batch.respond(patientDAO.deletePatients(BatchRequests.ids(batch)));
+        } catch (InvalidDataException e) {
+            LOGGER.log(Level.WARNING, "Invalid patient batch", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.BAD_REQUEST, e.getMessage());
         } catch (DatabaseException e) {
-            LOGGER.log(Level.SEVERE, "Error occurred while deleting patient with ID " + id + ": " + e.getMessage());
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity("An error occurred").build();
+            LOGGER.log(Level.SEVERE, "Database error while deleting patients", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.INTERNAL_SERVER_ERROR, e.getMessage());
         }
     }
 }
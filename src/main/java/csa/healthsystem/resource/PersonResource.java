@@ -12,56 +12,94 @@ import javax.ws.rs.*;
 import javax.ws.rs.core.*;
 import csa.healthsystem.dao.PersonDAO;
 import csa.healthsystem.model.Person;
+import csa.healthsystem.store.Versioned;
 import csa.healthsystem.exception.NotFoundException;
+import csa.healthsystem.exception.VersionConflictException;
 import csa.healthsystem.exception.DuplicateException;
 import csa.healthsystem.exception.InvalidDataException;
 import csa.healthsystem.exception.DatabaseException;
-import java.util.List;
+import csa.healthsystem.logging.Log;
+import java.io.InputStream;
 import java.util.logging.Level;
-import java.util.logging.Logger;
 
 @Path("/persons")
 public class PersonResource {
     private final PersonDAO personDAO = new PersonDAO();
-    private static final Logger LOGGER = Logger.getLogger(PersonResource.class.getName());
+    private static final Log LOGGER = Log.get(PersonResource.class);
 
     /**
      * Retrieves all persons.
+     * @param limit Maximum number of persons per page; omit together with cursor to get all persons
+     * @param cursor ID of the last person of the previous page
+     * @param fields Comma separated list of fields to include in each person
+     * @param uriInfo Information about the request URI
+     * @param request The request, used to evaluate If-None-Match and If-Modified-Since
      * @return Response containing list of persons in JSON format
      */
     @GET
     @Produces(MediaType.APPLICATION_JSON)
-    public Response getAllPersons() {
+    public Response getAllPersons(@QueryParam("limit") Integer limit,
+            @QueryParam("cursor") Integer cursor,
+            @QueryParam("fields") String fields,
+            @Context UriInfo uriInfo,
+            @Context Request request) {
         LOGGER.log(Level.INFO, "Retrieving all persons");
         try {
-            List<Person> persons = personDAO.getAllPersons();
-            return Response.ok(persons).build();
+            return Preconditions.collection(request, uriInfo, personDAO.getPersonsVersion(), personDAO.getPersonsLastModified(), false,
+                    () -> CollectionResponses.list(uriInfo, limit, cursor, fields, personDAO::getPersons, Person::getId));
         } catch (NotFoundException e) {
-            LOGGER.log(Level.SEVERE, "Error occurred while retrieving persons: " + e.getMessage());
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity("An error occurred").build();
+            LOGGER.log(Level.SEVERE, "Error occurred while retrieving persons", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.INTERNAL_SERVER_ERROR, "An error occurred");
+        }
+    }
+
+    /**
+     * Finds persons as a name or phone number is typed.
+     * @param prefix Start of one or more words of the name, in any order, or of the phone number
+     * @param limit Maximum number of persons to return, at most {@value CollectionResponses#MAX_TYPEAHEAD_LIMIT}
+     * @return Response containing the best matching persons in JSON format, or 400 if the prefix is empty
+     */
+    @GET
+    @Path("/search")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response findPersons(@QueryParam("prefix") String prefix,
+            @QueryParam("limit") @DefaultValue("10") int limit) {
+        LOGGER.log(Level.INFO, "Finding persons by prefix", "prefix", prefix);
+        if (prefix == null || prefix.trim().isEmpty()) {
+            return Response.status(Response.Status.BAD_REQUEST).entity("prefix must not be empty").build();
+        }
+        if (limit <= 0) {
+            return Response.status(Response.Status.BAD_REQUEST).entity("limit must be greater than 0").build();
+        }
+        try {
+            return Response.ok(personDAO.findPersons(prefix, Math.min(limit, CollectionResponses.MAX_TYPEAHEAD_LIMIT))).build();
+        } catch (DatabaseException e) {
+            LOGGER.log(Level.SEVERE, "Error occurred while finding persons", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.INTERNAL_SERVER_ERROR, "An error occurred");
         }
     }
 
     /**
      * Retrieves a person by ID.
      * @param id The ID of the person to retrieve
-     * @return Response containing the person in JSON format if found, or 404 if not found
+     * @param request The request, used to evaluate If-None-Match and If-Modified-Since
+     * @return Response containing the person in JSON format if found, 304 if the client's copy is current, or 404 if not found
      */
     @GET
     @Path("/{id}")
     @Produces(MediaType.APPLICATION_JSON)
-    public Response getPersonById(@PathParam("id") int id) {
-        LOGGER.log(Level.INFO, "Retrieving person by ID: " + id);
+    public Response getPersonById(@PathParam("id") int id, @Context Request request) {
+        LOGGER.log(Level.INFO, "Retrieving person", "id", id);
         try {
-            Person person = personDAO.getPersonById(id);
-            LOGGER.log(Level.INFO, "Person with ID " + id + " found: " + person);
-            return Response.ok(person).build();
+            Versioned<Person> person = personDAO.getVersionedPersonById(id);
+            LOGGER.log(Level.INFO, "Person found", "id", id, "person", person.getEntity());
+            return Preconditions.entity(request, "/persons/" + id, person);
         } catch (NotFoundException e) {
-            LOGGER.log(Level.WARNING, "Person with ID " + id + " not found");
-            return Response.status(Response.Status.NOT_FOUND).entity(e.getMessage()).build();
+            LOGGER.log(Level.WARNING, "Person not found", "id", id);
+            return ExceptionMappers.toResponse(e, Response.Status.NOT_FOUND, e.getMessage());
         } catch (DatabaseException e) {
-            LOGGER.log(Level.SEVERE, "Error occurred while retrieving person with ID " + id + ": " + e.getMessage());
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity("An error occurred").build();
+            LOGGER.log(Level.SEVERE, "Error occurred while retrieving person", "id", id, "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.INTERNAL_SERVER_ERROR, "An error occurred");
         }
     }
 
@@ -73,19 +111,19 @@ public class PersonResource {
     @POST
     @Consumes(MediaType.APPLICATION_JSON)
     public Response addPerson(Person person) {
-        LOGGER.log(Level.INFO, "Adding new person: " + person);
+        LOGGER.log(Level.INFO, "Adding new person", "person", person);
         try {
             personDAO.addPerson(person);
             return Response.status(Response.Status.CREATED).build();
         } catch (DuplicateException e) {
-            LOGGER.log(Level.WARNING, "Failed to add person: " + e.getMessage());
-            return Response.status(Response.Status.CONFLICT).entity(e.getMessage()).build();
+            LOGGER.log(Level.WARNING, "Failed to add person", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.CONFLICT, e.getMessage());
         } catch (InvalidDataException e) {
-            LOGGER.log(Level.WARNING, "Invalid person data: " + e.getMessage());
-            return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
+            LOGGER.log(Level.WARNING, "Invalid person data", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.BAD_REQUEST, e.getMessage());
         } catch (DatabaseException e) {
-            LOGGER.log(Level.SEVERE, "Error occurred while adding person: " + e.getMessage());
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity("An error occurred").build();
+            LOGGER.log(Level.SEVERE, "Error occurred while adding person", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.INTERNAL_SERVER_ERROR, "An error occurred");
         }
     }
 
@@ -93,46 +131,127 @@ public class PersonResource {
      * Updates an existing person.
      * @param id The ID of the person to update
      * @param updatedPerson The updated person object
-     * @return Response with status 200 if successful, or appropriate error status otherwise
+     * @param ifMatch Entity tags of the versions the client expects to replace, or * for any version
+     * @return Response with status 200 if successful, or appropriate error status otherwise; 412 if If-Match does not match the current version
      */
     @PUT
     @Path("/{id}")
     @Consumes(MediaType.APPLICATION_JSON)
-    public Response updatePerson(@PathParam("id") int id, Person updatedPerson) {
-        LOGGER.log(Level.INFO, "Updating person with ID: " + id);
+    public Response updatePerson(@PathParam("id") int id, Person updatedPerson,
+            @HeaderParam("If-Match") String ifMatch) {
+        LOGGER.log(Level.INFO, "Updating person", "id", id);
         try {
-            personDAO.updatePerson(id, updatedPerson);
+            long expectedVersion = Preconditions.expectedVersion(ifMatch, () -> personDAO.getVersionedPersonById(id).getVersion());
+            personDAO.updatePerson(id, updatedPerson, expectedVersion);
             return Response.ok().build();
         } catch (NotFoundException e) {
-            LOGGER.log(Level.WARNING, "Failed to update person with ID " + id + ": " + e.getMessage());
-            return Response.status(Response.Status.NOT_FOUND).entity(e.getMessage()).build();
+            LOGGER.log(Level.WARNING, "Failed to update person", "id", id, "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.NOT_FOUND, e.getMessage());
+        } catch (VersionConflictException e) {
+            LOGGER.log(Level.WARNING, "Failed to update person", "id", id, "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.PRECONDITION_FAILED, e.getMessage());
         } catch (InvalidDataException e) {
-            LOGGER.log(Level.WARNING, "Invalid person data for updating: " + e.getMessage());
-            return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
+            LOGGER.log(Level.WARNING, "Invalid person data for updating", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.BAD_REQUEST, e.getMessage());
         } catch (DatabaseException e) {
-            LOGGER.log(Level.SEVERE, "Error occurred while updating person with ID " + id + ": " + e.getMessage());
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity("An error occurred").build();
+            LOGGER.log(Level.SEVERE, "Error occurred while updating person", "id", id, "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.INTERNAL_SERVER_ERROR, "An error occurred");
         }
     }
 
     /**
      * Deletes a person by ID.
      * @param id The ID of the person to delete
-     * @return Response with status 200 if successful, or appropriate error status otherwise
+     * @param ifMatch Entity tags of the versions the client expects to replace, or * for any version
+     * @return Response with status 200 if successful, or appropriate error status otherwise; 412 if If-Match does not match the current version
      */
     @DELETE
     @Path("/{id}")
-    public Response deletePerson(@PathParam("id") int id) {
-        LOGGER.log(Level.INFO, "Deleting person with ID: " + id);
+    public Response deletePerson(@PathParam("id") int id,
+            @HeaderParam("If-Match") String ifMatch) {
+        LOGGER.log(Level.INFO, "Deleting person", "id", id);
         try {
-            personDAO.deletePerson(id);
+            long expectedVersion = Preconditions.expectedVersion(ifMatch, () -> personDAO.getVersionedPersonById(id).getVersion());
+            personDAO.deletePerson(id, expectedVersion);
             return Response.ok().build();
         } catch (NotFoundException e) {
-            LOGGER.log(Level.WARNING, "Failed to delete person with ID " + id + ": " + e.getMessage());
-            return Response.status(Response.Status.NOT_FOUND).entity(e.getMessage()).build();
+            LOGGER.log(Level.WARNING, "Failed to delete person", "id", id, "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.NOT_FOUND, e.getMessage());
+        } catch (VersionConflictException e) {
+            LOGGER.log(Level.WARNING, "Failed to delete person", "id", id, "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.PRECONDITION_FAILED, e.getMessage());
+        } catch (DatabaseException e) {
+            LOGGER.log(Level.SEVERE, "Error occurred while deleting person", "id", id, "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.INTERNAL_SERVER_ERROR, "An error occurred");
+        }
+    }
+
+    /**
+     * Adds several persons in one request.
+     * @param body A JSON array of persons, or one person per line (NDJSON)
+     * @return Response with status 200 and one result per person, 400 if the body cannot be read, or 413 if it holds too many items
+     */
+    @POST
+    @Path("/batch")
+    @Consumes({MediaType.APPLICATION_JSON, BatchRequests.NDJSON})
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response addPersons(InputStream body) {
+        try {
+            BatchRequests.Batch<Person> batch = BatchRequests.read(body, Person.class);
+            LOGGER.log(Level.INFO, "Adding batch of persons", "count", batch.size());
+            return batch.respond(personDAO.addPersons(batch.items()));
+        } catch (InvalidDataException e) {
+            LOGGER.log(Level.WARNING, "Invalid person batch", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.BAD_REQUEST, e.getMessage());
+        } catch (DatabaseException e) {
+            LOGGER.log(Level.SEVERE, "Database error while adding persons", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.INTERNAL_SERVER_ERROR, e.getMessage());
+        }
+    }
+
+    /**
+     * Updates several persons in one request. Each person carries its ID.
+     * @param body A JSON array of persons, or one person per line (NDJSON)
+     * @return Response with status 200 and one result per person, 400 if the body cannot be read, or 413 if it holds too many items
+     */
+    @PUT
+    @Path("/batch")
+    @Consumes({MediaType.APPLICATION_JSON, BatchRequests.NDJSON})
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response updatePersons(InputStream body) {
+        try {
+            BatchRequests.Batch<Person> batch = BatchRequests.read(body, Person.class);
+            LOGGER.log(Level.INFO, "Updating batch of persons", "count", batch.size());
+            return batch.respond(personDAO.updatePersons(batch.items()));
+        } catch (InvalidDataException e) {
+            LOGGER.log(Level.WARNING, "Invalid person batch", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.BAD_REQUEST, e.getMessage());
+        } catch (DatabaseException e) {
+            LOGGER.log(Level.SEVERE, "Database error while updating persons", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.INTERNAL_SERVER_ERROR, e.getMessage());
+        }
+    }
+
+    /**
+     * Deletes several persons in one request.
+     * @param body A JSON array of IDs, or one ID per line (NDJSON)
+     * @return Response with status 200 and one result per ID, 400 if the body cannot be read, or 413 if it holds too many items
+     */
+    @POST
+    @Path("/batch/delete")
+    @Consumes({MediaType.APPLICATION_JSON, BatchRequests.NDJSON})
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response deletePersons(InputStream body) {
+        try {
+            BatchRequests.Batch<Integer> batch = BatchRequests.readIds(body);
+            LOGGER.log(Level.INFO, "Deleting batch of persons", "count", batch.size());
+            return batch.respond(personDAO.deletePersons(BatchRequests.ids(batch)));
+        } catch (InvalidDataException e) {
+            LOGGER.log(Level.WARNING, "Invalid person batch", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.BAD_REQUEST, e.getMessage());
         } catch (DatabaseException e) {
-            LOGGER.log(Level.SEVERE, "Error occurred while deleting person with ID " + id + ": " + e.getMessage());
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity("An error occurred").build();
+            LOGGER.log(Level.SEVERE, "Database error while deleting persons", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.INTERNAL_SERVER_ERROR, e.getMessage());
         }
     }
 }
@@ -0,0 +1,149 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.resource;
+
+/**
+ *
+ * @author Maryam
+ */
+import csa.healthsystem.exception.VersionConflictException;
+import csa.healthsystem.model.References;
+import csa.healthsystem.store.EntityStore;
+import csa.healthsystem.store.Versioned;
+import java.net.URI;
+import java.util.Date;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriInfo;
+
+/**
+ * Conditional requests based on the versions kept by the stores.
+ * The entity tag of an entity is its version, and that of a collection is the collection
+ * version; when referenced patients and doctors are included the version of those is added
+ * as a second component ({@code "12.7"}). A GET whose {@code If-None-Match} or
+ * {@code If-Modified-Since} still holds gets 304 Not Modified before anything is read or
+ * serialized. Writes may send {@code If-Match}; only the first component of a tag is
+ * compared, so a tag from an expanded response can be sent back unchanged.
+ * Full responses are served from the {@link CachedResponses response cache} under the
+ * current tag, so any write makes the cached copy stale.
+ */
+final class Preconditions {
+
+    private Preconditions() {}
+
+    /**
+     * Builds the response for a single entity that refers to no patients or doctors.
+     * @param request The request, holding the conditional headers
+     * @param key The cache key of the entity, such as {@code /doctors/3}
+     * @param entry The entity and its version
+     * @return 304 if the client's copy is current, otherwise 200 with the entity
+     */
+    static Response entity(Request request, String key, Versioned<?> entry) {
+        EntityTag tag = tag(entry.getVersion(), false);
+        Date modified = new Date(entry.getLastModified());
+        Response.ResponseBuilder unchanged = request.evaluatePreconditions(modified, tag);
+        if (unchanged != null) {
+            return unchanged.tag(tag).lastModified(modified).build();
+        }
+        return CachedResponses.entity(request, key, tag.getValue(), entry.getEntity()).tag(tag).lastModified(modified).build();
+    }
+
+    /**
+     * Builds the response for a single entity that refers to patients or doctors.
+     * @param request The request, holding the conditional headers
+     * @param key The cache key of the entity, such as {@code /appointments/3}
+     * @param entry The entity and its version
+     * @param expand Whether to include referenced patients and doctors, or only their IDs
+     * @return 304 if the client's copy is current, otherwise 200 with the entity
+     */
+    static Response entity(Request request, String key, Versioned<?> entry, boolean expand) {
+        EntityTag tag = tag(entry.getVersion(), expand);
+        Date modified = new Date(lastModified(entry.getLastModified(), expand));
+        Response.ResponseBuilder unchanged = request.evaluatePreconditions(modified, tag);
+        if (unchanged != null) {
+            return unchanged.tag(tag).lastModified(modified).build();
+        }
+        Object entity = CollectionResponses.entity(entry.getEntity(), expand);
+        return CachedResponses.entity(request, key + "?expand=" + expand, tag.getValue(), entity)
+                .tag(tag).lastModified(modified).build();
+    }
+
+    /**
+     * Builds the response for a collection. The version must be read before the collection,
+     * so a response never carries a newer tag than its content.
+     * @param request The request, holding the conditional headers
+     * @param uriInfo The request URI, whose path and query are the cache key
+     * @param version The collection version
+     * @param lastModified Time of the latest write to the collection
+     * @param expand Whether the response includes referenced patients and doctors
+     * @param response Builds the full response; called only if the client's copy is stale and none is cached
+     * @return 304 if the client's copy is current, otherwise the cached or built response with its tag
+     */
+    static Response collection(Request request, UriInfo uriInfo, long version, long lastModified, boolean expand,
+                               Supplier<Response> response) {
+        EntityTag tag = tag(version, expand);
+        Date modified = new Date(lastModified(lastModified, expand));
+        Response.ResponseBuilder unchanged = request.evaluatePreconditions(modified, tag);
+        if (unchanged != null) {
+            return unchanged.tag(tag).lastModified(modified).build();
+        }
+        URI uri = uriInfo.getRequestUri();
+        String key = uri.getRawQuery() == null ? uri.getRawPath() : uri.getRawPath() + "?" + uri.getRawQuery();
+        Response.ResponseBuilder cached = CachedResponses.collection(request, key, tag.getValue());
+        if (cached != null) {
+            return cached.tag(tag).lastModified(modified).build();
+        }
+        Response built = response.get();
+        if (built.getStatus() != Response.Status.OK.getStatusCode()) {
+            return built;
+        }
+        return CachedResponses.capture(key, tag.getValue(), built).tag(tag).lastModified(modified).build();
+    }
+
+    /**
+     * Gets the version a write must replace, as given by an {@code If-Match} header.
+     * @param ifMatch The header value, or null if the header is absent
+     * @param current Returns the current version; throws if the entity does not exist
+     * @return The current version if one of the tags matches it, or {@link EntityStore#ANY_VERSION}
+     *         without a header or for {@code *}
+     * @throws VersionConflictException if no tag matches the current version
+     */
+    static long expectedVersion(String ifMatch, LongSupplier current) {
+        if (ifMatch == null || ifMatch.trim().isEmpty()) {
+            return EntityStore.ANY_VERSION;
+        }
+        long version = current.getAsLong();
+        if (ifMatch.trim().equals("*")) {
+            return EntityStore.ANY_VERSION;
+        }
+        for (String candidate : ifMatch.split(",")) {
+            String value = candidate.trim();
+            // If-Match uses the strong comparison, which weak tags never pass
+            if (value.startsWith("W/") || value.length() < 2 || !value.startsWith("\"") || !value.endsWith("\"")) {
+                continue;
+            }
+            value = value.substring(1, value.length() - 1);
+            int dot = value.indexOf('.');
+            if (dot >= 0) {
+                value = value.substring(0, dot);
+            }
+            if (value.equals(Long.toString(version))) {
+                return version;
+            }
+        }
+        throw new VersionConflictException("If-Match " + ifMatch + " does not match the current version " + version);
+    }
+
+    private static EntityTag tag(long version, boolean expand) {
+        return new EntityTag(expand ? version + "." + References.version() : Long.toString(version));
+    }
+
+    private static long lastModified(long modified, boolean expand) {
+        return expand ? Math.max(modified, References.lastModified()) : modified;
+    }
+}
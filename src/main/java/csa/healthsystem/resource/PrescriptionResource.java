@@ -12,56 +12,78 @@ import javax.ws.rs.*;
 import javax.ws.rs.core.*;
 import csa.healthsystem.dao.PrescriptionDAO;
 import csa.healthsystem.model.Prescription;
+import csa.healthsystem.store.Versioned;
 import csa.healthsystem.exception.DatabaseException;
+import csa.healthsystem.ingest.IngestJob;
+import csa.healthsystem.ingest.IngestJobs;
+import csa.healthsystem.ingest.NdjsonIngest;
 import csa.healthsystem.exception.NotFoundException;
+import csa.healthsystem.exception.VersionConflictException;
 import csa.healthsystem.exception.InvalidDataException;
 import csa.healthsystem.exception.DuplicateException;
-import java.util.List;
+import csa.healthsystem.logging.Log;
+import java.io.InputStream;
 import java.util.logging.Level;
-import java.util.logging.Logger;
 
 @Path("/prescriptions")
 public class PrescriptionResource {
     private final PrescriptionDAO prescriptionDAO = new PrescriptionDAO();
-    private static final Logger LOGGER = Logger.getLogger(PrescriptionResource.class.getName());
+    private static final Log LOGGER = Log.get(PrescriptionResource.class);
+    private static final IngestJobs ingests = new IngestJobs("prescriptions");
+    private static final NdjsonIngest<Prescription> ingest = new NdjsonIngest<>(Prescription.class, new PrescriptionDAO()::addPrescriptions);
 
     /**
      * Retrieves all prescriptions.
+     * @param limit Maximum number of prescriptions per page; omit together with cursor to get all prescriptions
+     * @param cursor ID of the last prescription of the previous page
+     * @param fields Comma separated list of fields to include in each prescription
+     * @param expand Whether to include the referenced patient and doctor objects, or only their IDs
+     * @param uriInfo Information about the request URI
+     * @param request The request, used to evaluate If-None-Match and If-Modified-Since
      * @return Response containing list of prescriptions in JSON format
      */
     @GET
     @Produces(MediaType.APPLICATION_JSON)
-    public Response getAllPrescriptions() {
+    public Response getAllPrescriptions(@QueryParam("limit") Integer limit,
+            @QueryParam("cursor") Integer cursor,
+            @QueryParam("fields") String fields,
+            @QueryParam("expand") @DefaultValue("true") boolean expand,
+            @Context UriInfo uriInfo,
+            @Context Request request) {
         LOGGER.log(Level.INFO, "Retrieving all prescriptions");
         try {
-            List<Prescription> prescriptions = prescriptionDAO.getAllPrescriptions();
-            return Response.ok(prescriptions).build();
+            return Preconditions.collection(request, uriInfo, prescriptionDAO.getPrescriptionsVersion(), prescriptionDAO.getPrescriptionsLastModified(), expand,
+                    () -> CollectionResponses.list(uriInfo, limit, cursor, fields, expand, prescriptionDAO::getPrescriptions, Prescription::getId));
         } catch (DatabaseException e) {
-            LOGGER.log(Level.SEVERE, "Database error occurred while retrieving prescriptions: " + e.getMessage());
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity("An error occurred").build();
+            LOGGER.log(Level.SEVERE, "Database error occurred while retrieving prescriptions", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.INTERNAL_SERVER_ERROR, "An error occurred");
         }
     }
 
     /**
      * Retrieves a prescription by its ID.
      * @param id The ID of the prescription to retrieve
-     * @return Response containing the prescription in JSON format if found, or 404 if not found
+     * @param expand Whether to include the referenced patient and doctor objects, or only their IDs
+     * @param request The request, used to evaluate If-None-Match and If-Modified-Since
+     * @return Response containing the prescription in JSON format if found, 304 if the client's copy is current, or 404 if not found
      */
     @GET
     @Path("/{id}")
     @Produces(MediaType.APPLICATION_JSON)
-    public Response getPrescriptionById(@PathParam("id") int id) {
-        LOGGER.log(Level.INFO, "Retrieving prescription by ID: " + id);
+    public Response getPrescriptionById(@PathParam("id") int id,
+            @QueryParam("expand") @DefaultValue("true") boolean expand,
+            @Context Request request) {
+        LOGGER.log(Level.INFO, "Retrieving prescription", "id", id);
         try {
-            Prescription prescription = prescriptionDAO.getPrescriptionById(id);
-            LOGGER.log(Level.INFO, "Prescription with ID " + id + " found: " + prescription);
-            return Response.ok(prescription).build();
+            Versioned<Prescription> prescription = prescriptionDAO.getVersionedPrescriptionById(id);
+            LOGGER.log(Level.INFO, "Prescription found", "id", id, "prescription", prescription.getEntity());
+            return Preconditions.entity(request, "/prescriptions/" + id, prescription, expand);
         } catch (NotFoundException e) {
-            LOGGER.log(Level.WARNING, "Prescription with ID " + id + " not found");
-            return Response.status(Response.Status.NOT_FOUND).entity(e.getMessage()).build();
+            LOGGER.log(Level.WARNING, "Prescription not found", "id", id);
+            return ExceptionMappers.toResponse(e, Response.Status.NOT_FOUND, e.getMessage());
         } catch (DatabaseException e) {
-            LOGGER.log(Level.SEVERE, "Database error occurred while retrieving prescription with ID " + id + ": " + e.getMessage());
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity("An error occurred").build();
+            LOGGER.log(Level.SEVERE, "Database error occurred while retrieving prescription", "id", id, "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.INTERNAL_SERVER_ERROR, "An error occurred");
         }
     }
 
@@ -73,19 +95,19 @@ public class PrescriptionResource {
     @POST
     @Consumes(MediaType.APPLICATION_JSON)
     public Response addPrescription(Prescription prescription) {
-        LOGGER.log(Level.INFO, "Adding new prescription: " + prescription);
+        LOGGER.log(Level.INFO, "Adding new prescription", "prescription", prescription);
         try {
             prescriptionDAO.addPrescription(prescription);
             return Response.status(Response.Status.CREATED).build();
         } catch (DuplicateException e) {
-            LOGGER.log(Level.WARNING, "Duplicate prescription ID: " + prescription.getId());
-            return Response.status(Response.Status.CONFLICT).entity(e.getMessage()).build();
+            LOGGER.log(Level.WARNING, "Duplicate prescription", "id", prescription.getId());
+            return ExceptionMappers.toResponse(e, Response.Status.CONFLICT, e.getMessage());
         } catch (InvalidDataException e) {
-            LOGGER.log(Level.WARNING, "Invalid prescription data: " + e.getMessage());
-            return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
+            LOGGER.log(Level.WARNING, "Invalid prescription data", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.BAD_REQUEST, e.getMessage());
         } catch (DatabaseException e) {
-            LOGGER.log(Level.SEVERE, "Database error occurred while adding prescription: " + e.getMessage());
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity("An error occurred").build();
+            LOGGER.log(Level.SEVERE, "Database error occurred while adding prescription", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.INTERNAL_SERVER_ERROR, "An error occurred");
         }
     }
 
@@ -93,46 +115,174 @@ public class PrescriptionResource {
      * Updates an existing prescription.
      * @param id The ID of the prescription to update
      * @param updatedPrescription The updated prescription object
-     * @return Response with status 200 if successful, or 404 if prescription not found
+     * @param ifMatch Entity tags of the versions the client expects to replace, or * for any version
+     * @return Response with status 200 if successful, or 404 if prescription not found; 412 if If-Match does not match the current version
      */
     @PUT
     @Path("/{id}")
     @Consumes(MediaType.APPLICATION_JSON)
-    public Response updatePrescription(@PathParam("id") int id, Prescription updatedPrescription) {
-        LOGGER.log(Level.INFO, "Updating prescription with ID: " + id);
+    public Response updatePrescription(@PathParam("id") int id, Prescription updatedPrescription,
+            @HeaderParam("If-Match") String ifMatch) {
+        LOGGER.log(Level.INFO, "Updating prescription", "id", id);
         try {
-            prescriptionDAO.updatePrescription(id, updatedPrescription);
+            long expectedVersion = Preconditions.expectedVersion(ifMatch, () -> prescriptionDAO.getVersionedPrescriptionById(id).getVersion());
+            prescriptionDAO.updatePrescription(id, updatedPrescription, expectedVersion);
             return Response.ok().build();
         } catch (NotFoundException e) {
-            LOGGER.log(Level.WARNING, "Failed to update prescription with ID " + id + ": " + e.getMessage());
-            return Response.status(Response.Status.NOT_FOUND).entity(e.getMessage()).build();
+            LOGGER.log(Level.WARNING, "Failed to update prescription", "id", id, "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.NOT_FOUND, e.getMessage());
+        } catch (VersionConflictException e) {
+            LOGGER.log(Level.WARNING, "Failed to update prescription", "id", id, "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.PRECONDITION_FAILED, e.getMessage());
         } catch (InvalidDataException e) {
-            LOGGER.log(Level.WARNING, "Invalid prescription data for updating: " + e.getMessage());
-            return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
+            LOGGER.log(Level.WARNING, "Invalid prescription data for updating", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.BAD_REQUEST, e.getMessage());
         } catch (DatabaseException e) {
-            LOGGER.log(Level.SEVERE, "Database error occurred while updating prescription with ID " + id + ": " + e.getMessage());
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity("An error occurred").build();
+            LOGGER.log(Level.SEVERE, "Database error occurred while updating prescription", "id", id, "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.INTERNAL_SERVER_ERROR, "An error occurred");
         }
     }
 
     /**
      * Deletes a prescription by its ID.
      * @param id The ID of the prescription to delete
-     * @return Response with status 200 if successful, or 404 if prescription not found
+     * @param ifMatch Entity tags of the versions the client expects to replace, or * for any version
+     * @return Response with status 200 if successful, or 404 if prescription not found; 412 if If-Match does not match the current version
      */
     @DELETE
     @Path("/{id}")
-    public Response deletePrescription(@PathParam("id") int id) {
-        LOGGER.log(Level.INFO, "Deleting prescription with ID: " + id);
+    public Response deletePrescription(@PathParam("id") int id,
+            @HeaderParam("If-Match") String ifMatch) {
+        LOGGER.log(Level.INFO, "Deleting prescription", "id", id);
         try {
-            prescriptionDAO.deletePrescription(id);
+            long expectedVersion = Preconditions.expectedVersion(ifMatch, () -> prescriptionDAO.getVersionedPrescriptionById(id).getVersion());
+            prescriptionDAO.deletePrescription(id, expectedVersion);
             return Response.ok().build();
         } catch (NotFoundException e) {
-            LOGGER.log(Level.WARNING, "Failed to delete prescription with ID " + id + ": " + e.getMessage());
-            return Response.status(Response.Status.NOT_FOUND).entity(e.getMessage()).build();
+            LOGGER.log(Level.WARNING, "Failed to delete prescription", "id", id, "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.NOT_FOUND, e.getMessage());
+        } catch (VersionConflictException e) {
+            LOGGER.log(Level.WARNING, "Failed to delete prescription", "id", id, "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.PRECONDITION_FAILED, e.getMessage());
         } catch (DatabaseException e) {
-            LOGGER.log(Level.SEVERE, "Database error occurred while deleting prescription with ID " + id + ": " + e.getMessage());
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity("An error occurred").build();
+            LOGGER.log(Level.SEVERE, "Database error occurred while deleting prescription", "id", id, "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.INTERNAL_SERVER_ERROR, "An error occurred");
         }
     }
+
+    /**
+     * Adds several prescriptions in one request.
+     * @param body A JSON array of prescriptions, or one prescription per line (NDJSON)
+     * @return Response with status 200 and one result per prescription, 400 if the body cannot be read, or 413 if it holds too many items
+     */
+    @POST
+    @Path("/batch")
+    @Consumes({MediaType.APPLICATION_JSON, BatchRequests.NDJSON})
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response addPrescriptions(InputStream body) {
+        try {
+            BatchRequests.Batch<Prescription> batch = BatchRequests.read(body, Prescription.class);
+            LOGGER.log(Level.INFO, "Adding batch of prescriptions", "count", batch.size());
+            return batch.respond(prescriptionDAO.addPrescriptions(batch.items()));
+        } catch (InvalidDataException e) {
+            LOGGER.log(Level.WARNING, "Invalid prescription batch", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.BAD_REQUEST, e.getMessage());
+        } catch (DatabaseException e) {
+            LOGGER.log(Level.SEVERE, "Database error while adding prescriptions", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.INTERNAL_SERVER_ERROR, e.getMessage());
+        }
+    }
+
+    /**
+     * Updates several prescriptions in one request. Each prescription carries its ID.
+     * @param body A JSON array of prescriptions, or one prescription per line (NDJSON)
+     * @return Response with status 200 and one result per prescription, 400 if the body cannot be read, or 413 if it holds too many items
+     */
+    @PUT
+    @Path("/batch")
+    @Consumes({MediaType.APPLICATION_JSON, BatchRequests.NDJSON})
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response updatePrescriptions(InputStream body) {
+        try {
+            BatchRequests.Batch<Prescription> batch = BatchRequests.read(body, Prescription.class);
+            LOGGER.log(Level.INFO, "Updating batch of prescriptions", "count", batch.size());
+            return batch.respond(prescriptionDAO.updatePrescriptions(batch.items()));
+        } catch (InvalidDataException e) {
+            LOGGER.log(Level.WARNING, "Invalid prescription batch", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.BAD_REQUEST, e.getMessage());
+        } catch (DatabaseException e) {
+            LOGGER.log(Level.SEVERE, "Database error while updating prescriptions", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.INTERNAL_SERVER_ERROR, e.getMessage());
+        }
+    }
+
+    /**
+     * Deletes several prescriptions in one request.
+     * @param body A JSON array of IDs, or one ID per line (NDJSON)
+     * @return Response with status 200 and one result per ID, 400 if the body cannot be read, or 413 if it holds too many items
+     */
+    @POST
+    @Path("/batch/delete")
+    @Consumes({MediaType.APPLICATION_JSON, BatchRequests.NDJSON})
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response deletePrescriptions(InputStream body) {
+        try {
+            BatchRequests.Batch<Integer> batch = BatchRequests.readIds(body);
+            LOGGER.log(Level.INFO, "Deleting batch of prescriptions", "count", batch.size());
+            return batch.respond(prescriptionDAO.deletePrescriptions(BatchRequests.ids(batch)));
+        } catch (InvalidDataException e) {
+            LOGGER.log(Level.WARNING, "Invalid prescription batch", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.BAD_REQUEST, e.getMessage());
+        } catch (DatabaseException e) {
+            LOGGER.log(Level.SEVERE, "Database error while deleting prescriptions", "error", e.getMessage());
+            return ExceptionMappers.toResponse(e, Response.Status.INTERNAL_SERVER_ERROR, e.getMessage());
+        }
+    }
+
+    /**
+     * Streams prescriptions into the store, one prescription per line (NDJSON).
+     * The body is read while it arrives and stored in batches; reading slows down when the store falls behind.
+     * @param body One prescription per line
+     * @return Response with status 200 and the ingest report, or 500 if the ingest failed
+     */
+    @POST
+    @Path("/ingest")
+    @Consumes(BatchRequests.NDJSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response ingestPrescriptions(InputStream body) {
+        IngestJob job = ingests.start();
+        LOGGER.log(Level.INFO, "Starting ingest of prescriptions", "job", job.getId());
+        ingest.run(body, job);
+        if (job.getState() == IngestJob.State.FAILED) {
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(job).build();
+        }
+        return Response.ok(job).build();
+    }
+
+    /**
+     * Retrieves the running and recent ingests of prescriptions.
+     * @return Response containing the ingest reports in JSON format, oldest first
+     */
+    @GET
+    @Path("/ingest")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getIngests() {
+        return Response.ok(ingests.list()).build();
+    }
+
+    /**
+     * Retrieves the progress of an ingest of prescriptions.
+     * @param jobId The ID of the ingest
+     * @return Response containing the ingest report in JSON format, or 404 if the ingest is unknown
+     */
+    @GET
+    @Path("/ingest/{jobId}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getIngest(@PathParam("jobId") int jobId) {
+        IngestJob job = ingests.get(jobId);
+        if (job == null) {
+            return Response.status(Response.Status.NOT_FOUND).entity("Ingest with ID " + jobId + " not found").build();
+        }
+        return Response.ok(job).build();
+    }
 }
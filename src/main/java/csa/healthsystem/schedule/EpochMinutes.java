@@ -0,0 +1,81 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.schedule;
+
+/**
+ *
+ * @author Maryam
+ */
+import csa.healthsystem.exception.InvalidDataException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Converts clinic-local dates and times to and from minutes since 1970-01-01 00:00.
+ * A plain int covers every minute until the year 5000, so schedules can be kept and
+ * compared as primitive values.
+ */
+public final class EpochMinutes {
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
+    private EpochMinutes() {}
+
+    /**
+     * Converts a date and a time of day.
+     * @param date The date in the format YYYY-MM-DD
+     * @param time The time in the format HH:MM
+     * @return Minutes since 1970-01-01 00:00
+     * @throws InvalidDataException if the date or time is missing or malformed
+     */
+    public static int of(String date, String time) {
+        if (date != null && time != null) {
+            try {
+                return toMinutes(LocalDate.parse(date), LocalTime.parse(time));
+            } catch (DateTimeParseException e) {
+                // Reported below
+            }
+        }
+        throw new InvalidDataException("Invalid date or time: " + date + " " + time + ", expected YYYY-MM-DD and HH:MM");
+    }
+
+    /**
+     * Converts a date and time in the format YYYY-MM-DDTHH:MM.
+     * @param dateTime The date and time
+     * @return Minutes since 1970-01-01 00:00
+     * @throws InvalidDataException if the value is missing or malformed
+     */
+    public static int parse(String dateTime) {
+        if (dateTime != null) {
+            try {
+                LocalDateTime value = LocalDateTime.parse(dateTime);
+                return toMinutes(value.toLocalDate(), value.toLocalTime());
+            } catch (DateTimeParseException e) {
+                // Reported below
+            }
+        }
+        throw new InvalidDataException("Invalid date and time: " + dateTime + ", expected YYYY-MM-DDTHH:MM");
+    }
+
+    /**
+     * Formats a minute value as YYYY-MM-DDTHH:MM.
+     * @param minutes Minutes since 1970-01-01 00:00
+     * @return The formatted date and time
+     */
+    public static String format(int minutes) {
+        LocalDate date = LocalDate.ofEpochDay(Math.floorDiv(minutes, MINUTES_PER_DAY));
+        LocalTime time = LocalTime.ofSecondOfDay(Math.floorMod(minutes, MINUTES_PER_DAY) * 60L);
+        return LocalDateTime.of(date, time).toString();
+    }
+
+    private static int toMinutes(LocalDate date, LocalTime time) {
+        long minutes = date.toEpochDay() * MINUTES_PER_DAY + time.getHour() * 60 + time.getMinute();
+        if (minutes < Integer.MIN_VALUE || minutes > Integer.MAX_VALUE) {
+            throw new InvalidDataException("Date out of range: " + date);
+        }
+        return (int) minutes;
+    }
+}
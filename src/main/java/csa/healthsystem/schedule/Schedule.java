@@ -0,0 +1,177 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.schedule;
+
+/**
+ *
+ * @author Maryam
+ */
+import csa.healthsystem.exception.ConflictException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bookings of every doctor, as non-overlapping {@code [start, end)} intervals of epoch minutes
+ * (see {@link EpochMinutes}). Each doctor has a calendar ordered by start time with its own
+ * lock, so overlap checks, bookings and free-slot queries take O(log n) plus the number of
+ * intervals they return, and bookings for different doctors never contend.
+ */
+public final class Schedule {
+    /**
+     * Length of an appointment that does not state its duration.
+     */
+    public static final int DEFAULT_DURATION_MINUTES = 30;
+
+    private final ConcurrentHashMap<Integer, Calendar> calendars = new ConcurrentHashMap<>();
+
+    /**
+     * Books an interval for an appointment. An earlier booking of the same appointment that
+     * overlaps the interval is replaced, so an appointment can be moved within its own slot.
+     * @param doctorId ID of the doctor
+     * @param start First minute of the interval
+     * @param end Minute after the last minute of the interval
+     * @param appointmentId ID of the appointment
+     * @throws ConflictException if the doctor has another booking overlapping the interval
+     */
+    public void reserve(int doctorId, int start, int end, int appointmentId) {
+        if (end <= start) {
+            throw new IllegalArgumentException("Interval end must be after its start");
+        }
+        calendars.computeIfAbsent(doctorId, id -> new Calendar()).reserve(doctorId, start, end, appointmentId);
+    }
+
+    /**
+     * Cancels the booking of an appointment. Nothing happens if the interval starting at
+     * {@code start} is not booked by that appointment.
+     * @param doctorId ID of the doctor
+     * @param start First minute of the booked interval
+     * @param appointmentId ID of the appointment
+     */
+    public void release(int doctorId, int start, int appointmentId) {
+        Calendar calendar = calendars.get(doctorId);
+        if (calendar != null) {
+            calendar.release(start, appointmentId);
+        }
+    }
+
+    /**
+     * Lists the free intervals of a doctor within a time range.
+     * @param doctorId ID of the doctor
+     * @param from First minute of the range
+     * @param to Minute after the last minute of the range
+     * @param minLength Shortest free interval to report, in minutes
+     * @return Free {@code [start, end)} intervals in ascending order
+     */
+    public List<int[]> freeSlots(int doctorId, int from, int to, int minLength) {
+        Calendar calendar = calendars.get(doctorId);
+        if (calendar == null) {
+            List<int[]> whole = new ArrayList<>(1);
+            if (to - from >= minLength) {
+                whole.add(new int[] {from, to});
+            }
+            return whole;
+        }
+        return calendar.freeSlots(from, to, minLength);
+    }
+
+    /**
+     * Finds the first free interval of a doctor that starts at or after a given minute.
+     * @param doctorId ID of the doctor
+     * @param from Earliest start
+     * @param length Length of the interval in minutes
+     * @return The start of the first free interval of the given length
+     */
+    public int nextFree(int doctorId, int from, int length) {
+        Calendar calendar = calendars.get(doctorId);
+        return calendar == null ? from : calendar.nextFree(from, length);
+    }
+
+    private static final class Booking {
+        final int end;
+        final int appointmentId;
+
+        Booking(int end, int appointmentId) {
+            this.end = end;
+            this.appointmentId = appointmentId;
+        }
+    }
+
+    // One doctor's bookings keyed by start minute; the intervals never overlap
+    private static final class Calendar {
+        private final TreeMap<Integer, Booking> bookings = new TreeMap<>();
+
+        synchronized void reserve(int doctorId, int start, int end, int appointmentId) {
+            // Only bookings starting before the end can overlap, and of those starting before
+            // the start only the last one can
+            Integer first = bookings.floorKey(start);
+            NavigableMap<Integer, Booking> candidates = bookings.subMap(first == null ? start : first, true, end, false);
+            List<Integer> own = new ArrayList<>(1);
+            for (Map.Entry<Integer, Booking> entry : candidates.entrySet()) {
+                Booking booking = entry.getValue();
+                if (booking.end <= start) {
+                    continue;
+                }
+                if (booking.appointmentId != appointmentId) {
+                    throw new ConflictException("Doctor with ID " + doctorId + " is already booked from "
+                            + EpochMinutes.format(entry.getKey()) + " to " + EpochMinutes.format(booking.end)
+                            + "; next free slot starts at " + EpochMinutes.format(nextFree(start, end - start)));
+                }
+                own.add(entry.getKey());
+            }
+            for (Integer key : own) {
+                bookings.remove(key);
+            }
+            bookings.put(start, new Booking(end, appointmentId));
+        }
+
+        synchronized void release(int start, int appointmentId) {
+            Booking booking = bookings.get(start);
+            if (booking != null && booking.appointmentId == appointmentId) {
+                bookings.remove(start);
+            }
+        }
+
+        synchronized List<int[]> freeSlots(int from, int to, int minLength) {
+            List<int[]> free = new ArrayList<>();
+            int cursor = from;
+            Map.Entry<Integer, Booking> before = bookings.lowerEntry(from);
+            if (before != null && before.getValue().end > cursor) {
+                cursor = before.getValue().end;
+            }
+            Iterator<Map.Entry<Integer, Booking>> booked = bookings.subMap(from, true, to, false).entrySet().iterator();
+            while (booked.hasNext() && cursor < to) {
+                Map.Entry<Integer, Booking> entry = booked.next();
+                if (entry.getKey() - cursor >= minLength) {
+                    free.add(new int[] {cursor, entry.getKey()});
+                }
+                cursor = Math.max(cursor, entry.getValue().end);
+            }
+            if (to - cursor >= minLength) {
+                free.add(new int[] {cursor, to});
+            }
+            return free;
+        }
+
+        synchronized int nextFree(int from, int length) {
+            int cursor = from;
+            Map.Entry<Integer, Booking> before = bookings.lowerEntry(from);
+            if (before != null && before.getValue().end > cursor) {
+                cursor = before.getValue().end;
+            }
+            for (Map.Entry<Integer, Booking> entry : bookings.tailMap(from, true).entrySet()) {
+                if (entry.getKey() - cursor >= length) {
+                    break;
+                }
+                cursor = Math.max(cursor, entry.getValue().end);
+            }
+            return cursor;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.search;
+
+/**
+ *
+ * @author Maryam
+ */
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The distinct terms of a document with their frequencies, held until the document is
+ * written into a segment.
+ */
+final class DocumentTerms {
+    final String[] terms;
+    final int[] freqs;
+    final int length;
+
+    private DocumentTerms(String[] terms, int[] freqs, int length) {
+        this.terms = terms;
+        this.freqs = freqs;
+        this.length = length;
+    }
+
+    /**
+     * Gets how often a term occurs in the document.
+     * @param term The term
+     * @return The frequency, 0 if the document does not hold the term
+     */
+    int freq(String term) {
+        for (int i = 0; i < terms.length; i++) {
+            if (terms[i].equals(term)) {
+                return freqs[i];
+            }
+        }
+        return 0;
+    }
+
+    static DocumentTerms of(List<String> tokens) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (String token : tokens) {
+            counts.merge(token, 1, Integer::sum);
+        }
+        String[] terms = new String[counts.size()];
+        int[] freqs = new int[counts.size()];
+        int i = 0;
+        for (Map.Entry<String, Integer> count : counts.entrySet()) {
+            terms[i] = count.getKey();
+            freqs[i++] = count.getValue();
+        }
+        return new DocumentTerms(terms, freqs, tokens.size());
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.search;
+
+/**
+ *
+ * @author Maryam
+ */
+import java.util.Map;
+
+/**
+ * Immutable part of a {@link TextIndex}: the posting lists of a set of documents.
+ * A document can have older versions in older segments; a posting only counts if the
+ * index records this segment as the holder of the document's current version.
+ */
+final class IndexSegment {
+    private final int id;
+    // Segments merged into this one; documents may still be recorded under their IDs
+    private final int[] sources;
+    private final Map<String, PostingList> terms;
+    private final int[] docs;
+
+    IndexSegment(int id, int[] sources, Map<String, PostingList> terms, int[] docs) {
+        this.id = id;
+        this.sources = sources;
+        this.terms = terms;
+        this.docs = docs;
+    }
+
+    int id() {
+        return id;
+    }
+
+    int[] sources() {
+        return sources;
+    }
+
+    /**
+     * Gets the postings of a term.
+     * @param term The term
+     * @return The postings, or null if no document of the segment holds the term
+     */
+    PostingList postings(String term) {
+        return terms.get(term);
+    }
+
+    Iterable<Map.Entry<String, PostingList>> terms() {
+        return terms.entrySet();
+    }
+
+    /**
+     * Gets the documents of the segment, including outdated ones.
+     * @return The documents in ascending order; must not be modified
+     */
+    int[] docs() {
+        return docs;
+    }
+
+    /**
+     * Checks whether a document's current version is the one in this segment.
+     * @param owner The segment the index records for the document
+     * @return True if that is this segment
+     */
+    boolean isOwner(int owner) {
+        if (owner == id) {
+            return true;
+        }
+        for (int source : sources) {
+            if (owner == source) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    long bytes() {
+        long bytes = 64L + 4L * docs.length;
+        for (Map.Entry<String, PostingList> term : terms.entrySet()) {
+            bytes += 48 + 2L * term.getKey().length() + term.getValue().bytes();
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.search;
+
+/**
+ *
+ * @author Maryam
+ */
+
+/**
+ * The best-scoring documents of a {@link TextIndex} search, best first, and the number of
+ * documents that matched.
+ */
+public final class Matches {
+    static final Matches NONE = new Matches(0, true, new int[0], new float[0]);
+
+    private final long total;
+    private final boolean totalExact;
+    private final int[] ids;
+    private final float[] scores;
+
+    Matches(long total, boolean totalExact, int[] ids, float[] scores) {
+        this.total = total;
+        this.totalExact = totalExact;
+        this.ids = ids;
+        this.scores = scores;
+    }
+
+    /**
+     * Gets the number of matching documents.
+     * @return The number of matches, or a lower bound if {@link #isTotalExact()} is false
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * Checks whether every match was counted. Once a search has counted
+     * {@link TextIndex#TOTAL_HITS_THRESHOLD} matches it skips documents that cannot make
+     * the top, and stops counting them.
+     * @return True if the total is exact
+     */
+    public boolean isTotalExact() {
+        return totalExact;
+    }
+
+    /**
+     * Gets the number of returned documents.
+     * @return The number of documents
+     */
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * Gets a returned document.
+     * @param rank Position in the results, from 0
+     * @return The ID of the document
+     */
+    public int id(int rank) {
+        return ids[rank];
+    }
+
+    /**
+     * Gets the score of a returned document.
+     * @param rank Position in the results, from 0
+     * @return The BM25 score
+     */
+    public float score(int rank) {
+        return scores[rank];
+    }
+}
@@ -0,0 +1,473 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.search;
+
+/**
+ *
+ * @author Maryam
+ */
+import csa.healthsystem.store.EntityStore;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.IntPredicate;
+
+/**
+ * Typeahead index over the names and phone numbers of people.
+ * <p>
+ * Names are split into words, lowercased and stripped of accents; phone numbers are reduced
+ * to their digits. Both go into a {@link PrefixTrie}, so the people whose name has a word
+ * starting with what was typed are found without looking at anyone else. A query holding
+ * letters matches names: every word of the query must start a word of the name, in any
+ * order. A query of digits and separators matches phone numbers by prefix.
+ * <p>
+ * When a name query finds too few people, words within one typo of the query (two for
+ * words of six letters or more) are tried as well. Candidates come from an index of the
+ * letter pairs of the distinct name words, and are checked with an edit distance that
+ * counts swapped neighbours as one typo.
+ * <p>
+ * Results come in order of quality: names with a word equal to the query, then names with
+ * a word starting with it, shorter words first, then names matched despite typos, closest
+ * and most common words first.
+ */
+public final class NameIndex {
+    // Caps the work of a query whose words match a lot of people but rarely together
+    private static final int MAX_CANDIDATES = 100_000;
+    private static final int FUZZY_MIN_LENGTH = 3;
+    private static final int[] NO_IDS = new int[0];
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Guarded by lock
+    private final PrefixTrie names = new PrefixTrie();
+    private final PrefixTrie phones = new PrefixTrie();
+    private final Map<String, Word> words = new HashMap<>();
+    private final Map<String, Set<Word>> wordsByBigram = new HashMap<>();
+    private String[][] docWords = new String[1024][];
+    private String[] docPhones = new String[1024];
+    private int size;
+
+    /**
+     * Creates an index over the people of a store, kept up to date with every write to it.
+     * @param <T> The type of the stored people
+     * @param store The store; its entities are indexed before this method returns
+     * @param nameOf Function returning the name of a person
+     * @param phoneOf Function returning the phone number of a person
+     * @return The index
+     */
+    public static <T> NameIndex attach(EntityStore<T> store, Function<T, String> nameOf, Function<T, String> phoneOf) {
+        NameIndex index = new NameIndex();
+        store.addListener((id, previous, current) -> {
+            if (current == null) {
+                index.remove(id);
+            } else if (previous == null || !Objects.equals(nameOf.apply(previous), nameOf.apply(current))
+                    || !Objects.equals(phoneOf.apply(previous), phoneOf.apply(current))) {
+                index.update(id, nameOf.apply(current), phoneOf.apply(current));
+            }
+        });
+        return index;
+    }
+
+    /**
+     * Adds or replaces a person.
+     * @param id ID of the person, not negative
+     * @param name The name, or null
+     * @param phone The phone number, or null
+     */
+    public void update(int id, String name, String phone) {
+        if (id < 0) {
+            throw new IllegalArgumentException("Person ID must not be negative: " + id);
+        }
+        String[] nameWords = normalizeName(name);
+        String digits = normalizePhone(phone);
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+            if (id >= docWords.length) {
+                int capacity = Math.max(id + 1, (int) Math.min(Integer.MAX_VALUE - 8, 2L * docWords.length));
+                docWords = Arrays.copyOf(docWords, capacity);
+                docPhones = Arrays.copyOf(docPhones, capacity);
+            }
+            for (int i = 0; i < nameWords.length; i++) {
+                nameWords[i] = acquire(nameWords[i]);
+                names.add(nameWords[i], id);
+            }
+            if (digits != null) {
+                phones.add(digits, id);
+            }
+            docWords[id] = nameWords;
+            docPhones[id] = digits;
+            size++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a person.
+     * @param id ID of the person
+     */
+    public void remove(int id) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the people whose name or phone number starts with what was typed.
+     * @param query Start of one or more words of a name, or of a phone number
+     * @param limit Maximum number of people to return
+     * @return The IDs of the people, best match first
+     */
+    public int[] search(String query, int limit) {
+        if (query == null || limit <= 0) {
+            return NO_IDS;
+        }
+        lock.readLock().lock();
+        try {
+            Collector collector = new Collector(limit);
+            if (hasLetter(query)) {
+                String[] tokens = normalizeName(query);
+                if (tokens.length > 0) {
+                    searchNames(tokens, collector);
+                }
+            } else {
+                String digits = normalizePhone(query);
+                if (digits != null) {
+                    phones.prefix(digits, (docs, count) -> collector.addAll(docs, count, doc -> true));
+                }
+            }
+            return collector.ids();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the number of indexed people.
+     * @return The number of people
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Under the read lock
+    private void searchNames(String[] tokens, Collector collector) {
+        // The word matching the fewest names leads; the others are checked against each candidate
+        int lead = 0;
+        int leadCount = Integer.MAX_VALUE;
+        for (int t = 0; t < tokens.length; t++) {
+            int count = names.count(tokens[t]);
+            if (count < leadCount) {
+                lead = t;
+                leadCount = count;
+            }
+        }
+        String leadToken = tokens[lead];
+        int leadIndex = lead;
+        PrefixTrie.Visitor strict = (docs, count) -> collector.addAll(docs, count, doc -> matchesOthers(doc, tokens, leadIndex, false));
+        names.exact(leadToken, strict);
+        names.prefix(leadToken, strict);
+        if (collector.isFull()) {
+            return;
+        }
+
+        PrefixTrie.Visitor fuzzy = (docs, count) -> collector.addAll(docs, count, doc -> matchesOthers(doc, tokens, leadIndex, true));
+        if (tokens.length > 1) {
+            names.prefix(leadToken, fuzzy);
+        }
+        for (String word : similarWords(leadToken)) {
+            if (collector.isFull()) {
+                return;
+            }
+            names.exact(word, fuzzy);
+        }
+    }
+
+    // Checks that every query word but the lead starts a word of the person's name
+    private boolean matchesOthers(int doc, String[] tokens, int lead, boolean fuzzy) {
+        String[] nameWords = docWords[doc];
+        for (int t = 0; t < tokens.length; t++) {
+            if (t != lead && !matchesAny(tokens[t], nameWords, fuzzy)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean matchesAny(String token, String[] nameWords, boolean fuzzy) {
+        for (String word : nameWords) {
+            if (word.startsWith(token)) {
+                return true;
+            }
+        }
+        if (fuzzy && token.length() >= FUZZY_MIN_LENGTH) {
+            for (String word : nameWords) {
+                if (prefixDistance(token, word, maxEdits(token)) <= maxEdits(token)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // Name words that start with something within the allowed typos of the token, closest first
+    private List<String> similarWords(String token) {
+        if (token.length() < FUZZY_MIN_LENGTH) {
+            return new ArrayList<>();
+        }
+        int edits = maxEdits(token);
+        Set<String> bigrams = bigrams(token);
+        // Each typo changes at most three letter pairs
+        int threshold = Math.max(1, bigrams.size() - 3 * edits);
+        Map<Word, Integer> shared = new HashMap<>();
+        for (String bigram : bigrams) {
+            Set<Word> holders = wordsByBigram.get(bigram);
+            if (holders != null) {
+                for (Word word : holders) {
+                    shared.merge(word, 1, Integer::sum);
+                }
+            }
+        }
+        Map<String, Integer> distances = new HashMap<>();
+        for (Map.Entry<Word, Integer> candidate : shared.entrySet()) {
+            if (candidate.getValue() >= threshold) {
+                String text = candidate.getKey().text;
+                int distance = prefixDistance(token, text, edits);
+                if (distance > 0 && distance <= edits) {
+                    distances.put(text, distance);
+                }
+            }
+        }
+        List<String> similar = new ArrayList<>(distances.keySet());
+        // Among equally close words, the more common names are the likelier intent
+        similar.sort((a, b) -> {
+            int byDistance = Integer.compare(distances.get(a), distances.get(b));
+            int byDocs = Integer.compare(words.get(b).docs, words.get(a).docs);
+            return byDistance != 0 ? byDistance : byDocs != 0 ? byDocs : a.compareTo(b);
+        });
+        return similar;
+    }
+
+    /**
+     * Computes the fewest typos turning the query into the start of a word: letters inserted,
+     * deleted or replaced, or two neighbours swapped.
+     * @param query The query
+     * @param word The word
+     * @param max The largest distance of interest
+     * @return The distance, or a number greater than max
+     */
+    static int prefixDistance(String query, String word, int max) {
+        int m = query.length();
+        int n = Math.min(word.length(), m + max);
+        int[] before = new int[n + 1];
+        int[] previous = new int[n + 1];
+        int[] current = new int[n + 1];
+        for (int j = 0; j <= n; j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= m; i++) {
+            current[0] = i;
+            int rowMin = i;
+            for (int j = 1; j <= n; j++) {
+                int cost = query.charAt(i - 1) == word.charAt(j - 1) ? 0 : 1;
+                int d = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && query.charAt(i - 1) == word.charAt(j - 2) && query.charAt(i - 2) == word.charAt(j - 1)) {
+                    d = Math.min(d, before[j - 2] + 1);
+                }
+                current[j] = d;
+                rowMin = Math.min(rowMin, d);
+            }
+            if (rowMin > max) {
+                return max + 1;
+            }
+            int[] recycled = before;
+            before = previous;
+            previous = current;
+            current = recycled;
+        }
+        // The query may end anywhere in the word
+        int distance = max + 1;
+        for (int j = Math.max(0, m - max); j <= n; j++) {
+            distance = Math.min(distance, previous[j]);
+        }
+        return distance;
+    }
+
+    private static int maxEdits(String token) {
+        return token.length() >= 6 ? 2 : 1;
+    }
+
+    // Under the write lock
+    private void removeLocked(int id) {
+        if (id >= docWords.length || docWords[id] == null) {
+            return;
+        }
+        for (String word : docWords[id]) {
+            names.remove(word, id);
+            release(word);
+        }
+        if (docPhones[id] != null) {
+            phones.remove(docPhones[id], id);
+        }
+        docWords[id] = null;
+        docPhones[id] = null;
+        size--;
+    }
+
+    // Counts a use of a name word and returns its shared instance
+    private String acquire(String text) {
+        Word word = words.get(text);
+        if (word == null) {
+            word = new Word(text);
+            words.put(text, word);
+            for (String bigram : bigrams(text)) {
+                wordsByBigram.computeIfAbsent(bigram, key -> new HashSet<>()).add(word);
+            }
+        }
+        word.docs++;
+        return word.text;
+    }
+
+    private void release(String text) {
+        Word word = words.get(text);
+        if (--word.docs == 0) {
+            words.remove(text);
+            for (String bigram : bigrams(text)) {
+                Set<Word> holders = wordsByBigram.get(bigram);
+                holders.remove(word);
+                if (holders.isEmpty()) {
+                    wordsByBigram.remove(bigram);
+                }
+            }
+        }
+    }
+
+    // Letter pairs of a word, the first marked as such
+    private static Set<String> bigrams(String word) {
+        Set<String> bigrams = new LinkedHashSet<>();
+        bigrams.add("^" + word.charAt(0));
+        for (int i = 1; i < word.length(); i++) {
+            bigrams.add(word.substring(i - 1, i + 1));
+        }
+        return bigrams;
+    }
+
+    /**
+     * Splits a name into its distinct words, lowercased and without accents. Apostrophes are
+     * dropped, so "O'Brien" is the word "obrien".
+     * @param name The name, or null
+     * @return The words
+     */
+    static String[] normalizeName(String name) {
+        if (name == null) {
+            return new String[0];
+        }
+        String plain = Normalizer.normalize(name, Normalizer.Form.NFD).toLowerCase(Locale.ROOT);
+        Set<String> nameWords = new LinkedHashSet<>();
+        StringBuilder word = new StringBuilder(16);
+        for (int i = 0; i <= plain.length(); i++) {
+            char c = i < plain.length() ? plain.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                if (word.length() < Tokenizer.MAX_TERM_LENGTH) {
+                    word.append(c);
+                }
+            } else if (c == '\'' || c == '\u2019' || Character.getType(c) == Character.NON_SPACING_MARK) {
+                // Part of the word, but not kept
+            } else if (word.length() > 0) {
+                nameWords.add(word.toString());
+                word.setLength(0);
+            }
+        }
+        return nameWords.toArray(new String[0]);
+    }
+
+    /**
+     * Reduces a phone number to its digits.
+     * @param phone The phone number, or null
+     * @return The digits, or null if there are none
+     */
+    static String normalizePhone(String phone) {
+        if (phone == null) {
+            return null;
+        }
+        StringBuilder digits = new StringBuilder(phone.length());
+        for (int i = 0; i < phone.length(); i++) {
+            if (phone.charAt(i) >= '0' && phone.charAt(i) <= '9') {
+                digits.append(phone.charAt(i));
+            }
+        }
+        return digits.length() == 0 ? null : digits.toString();
+    }
+
+    private static boolean hasLetter(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (Character.isLetter(text.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // A distinct word of the indexed names
+    private static final class Word {
+        final String text;
+        int docs;
+
+        Word(String text) {
+            this.text = text;
+        }
+    }
+
+    // Gathers distinct IDs in the order they are offered until the limit is reached
+    private static final class Collector {
+        private final int[] ids;
+        private final Set<Integer> seen = new HashSet<>();
+        private int size;
+        private int examined;
+
+        Collector(int limit) {
+            ids = new int[limit];
+        }
+
+        boolean isFull() {
+            return size == ids.length || examined >= MAX_CANDIDATES;
+        }
+
+        boolean addAll(int[] docs, int count, IntPredicate accept) {
+            for (int i = 0; i < count && !isFull(); i++) {
+                examined++;
+                int doc = docs[i];
+                if (!seen.contains(doc) && accept.test(doc)) {
+                    seen.add(doc);
+                    ids[size++] = doc;
+                }
+            }
+            return !isFull();
+        }
+
+        int[] ids() {
+            return Arrays.copyOf(ids, size);
+        }
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.search;
+
+/**
+ *
+ * @author Maryam
+ */
+import java.util.Arrays;
+
+/**
+ * Immutable, compressed list of the documents holding a term, in ascending order.
+ * Each posting is stored as the gap to the previous document, shifted left by one with the
+ * low bit set when the term occurs once, as a variable-length integer; other frequencies
+ * follow as a second one. Most postings of a common term take one or two bytes.
+ * Postings are grouped into blocks of {@link #BLOCK_SIZE}. For each block the list keeps
+ * its last document and byte offset, so a cursor can jump over blocks without decoding
+ * them, and its highest frequency and shortest document, which bound the score any
+ * document of the block can reach.
+ */
+final class PostingList {
+    static final int BLOCK_SIZE = 128;
+    static final int NO_MORE_DOCS = Integer.MAX_VALUE;
+
+    private final byte[] data;
+    private final int count;
+    private final int[] blockLastDoc;
+    private final int[] blockStart;
+    private final int[] blockMaxFreq;
+    private final int[] blockMinLength;
+
+    private PostingList(byte[] data, int count, int[] blockLastDoc, int[] blockStart, int[] blockMaxFreq, int[] blockMinLength) {
+        this.data = data;
+        this.count = count;
+        this.blockLastDoc = blockLastDoc;
+        this.blockStart = blockStart;
+        this.blockMaxFreq = blockMaxFreq;
+        this.blockMinLength = blockMinLength;
+    }
+
+    /**
+     * Gets the number of postings.
+     * @return The number of documents holding the term
+     */
+    int count() {
+        return count;
+    }
+
+    /**
+     * Gets the approximate memory taken by the list.
+     * @return The size in bytes
+     */
+    long bytes() {
+        return 64L + data.length + 16L * blockLastDoc.length;
+    }
+
+    Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * Reads a posting list from the start. A new cursor is before the first document.
+     */
+    final class Cursor {
+        private int block = -1;
+        private int position;
+        private int index;
+        private int doc = -1;
+        private int freq;
+
+        /**
+         * Gets the current document.
+         * @return The document, -1 before the first call to next, or {@link #NO_MORE_DOCS} at the end
+         */
+        int doc() {
+            return doc;
+        }
+
+        int freq() {
+            return freq;
+        }
+
+        int count() {
+            return count;
+        }
+
+        /**
+         * Moves to the next document.
+         * @return The document, or {@link #NO_MORE_DOCS} if there is none
+         */
+        int next() {
+            if (index == count) {
+                return doc = NO_MORE_DOCS;
+            }
+            if (index % BLOCK_SIZE == 0) {
+                block++;
+            }
+            long value = readVLong();
+            doc += (int) (value >>> 1);
+            freq = (value & 1) != 0 ? 1 : (int) readVLong();
+            index++;
+            return doc;
+        }
+
+        /**
+         * Moves to the first document at or after a target, skipping whole blocks where possible.
+         * @param target The document to look for
+         * @return The document, or {@link #NO_MORE_DOCS} if there is none
+         */
+        int advance(int target) {
+            if (doc >= target) {
+                return doc;
+            }
+            if (block < 0 || target > blockLastDoc[block]) {
+                int next = Arrays.binarySearch(blockLastDoc, Math.max(block, 0), blockLastDoc.length, target);
+                next = next >= 0 ? next : -next - 1;
+                if (next == blockLastDoc.length) {
+                    index = count;
+                    return doc = NO_MORE_DOCS;
+                }
+                if (next > block) {
+                    // Position before the block's first posting, whose gap counts from the previous block's last document
+                    block = next - 1;
+                    index = next * BLOCK_SIZE;
+                    position = blockStart[next];
+                    doc = next == 0 ? -1 : blockLastDoc[next - 1];
+                }
+            }
+            while (next() < target) {
+                // Decoding within the block
+            }
+            return doc;
+        }
+
+        /**
+         * Gets the last document of the current block, after which the score bound changes.
+         * @return The document, or {@link #NO_MORE_DOCS} at the end
+         */
+        int blockLastDoc() {
+            return doc == NO_MORE_DOCS ? NO_MORE_DOCS : blockLastDoc[Math.max(block, 0)];
+        }
+
+        int blockMaxFreq() {
+            return blockMaxFreq[Math.max(block, 0)];
+        }
+
+        int blockMinLength() {
+            return blockMinLength[Math.max(block, 0)];
+        }
+
+        private long readVLong() {
+            byte b = data[position++];
+            long value = b & 0x7f;
+            for (int shift = 7; b < 0; shift += 7) {
+                b = data[position++];
+                value |= (long) (b & 0x7f) << shift;
+            }
+            return value;
+        }
+    }
+
+    /**
+     * Builds a posting list from postings added in ascending document order.
+     */
+    static final class Builder {
+        private byte[] data = new byte[16];
+        private int size;
+        private int count;
+        private int lastDoc = -1;
+        private int[] blockLastDoc = new int[1];
+        private int[] blockStart = new int[1];
+        private int[] blockMaxFreq = new int[1];
+        private int[] blockMinLength = new int[1];
+        private int blocks;
+
+        /**
+         * Adds a posting.
+         * @param doc The document, greater than the previous one
+         * @param freq How often the term occurs in it
+         * @param length Number of terms in the document
+         */
+        void add(int doc, int freq, int length) {
+            if (count % BLOCK_SIZE == 0) {
+                if (blocks == blockLastDoc.length) {
+                    int grown = blocks << 1;
+                    blockLastDoc = Arrays.copyOf(blockLastDoc, grown);
+                    blockStart = Arrays.copyOf(blockStart, grown);
+                    blockMaxFreq = Arrays.copyOf(blockMaxFreq, grown);
+                    blockMinLength = Arrays.copyOf(blockMinLength, grown);
+                }
+                blockStart[blocks] = size;
+                blockMinLength[blocks] = Integer.MAX_VALUE;
+                blocks++;
+            }
+            int block = blocks - 1;
+            writeVLong(((long) (doc - lastDoc) << 1) | (freq == 1 ? 1 : 0));
+            if (freq != 1) {
+                writeVLong(freq);
+            }
+            blockLastDoc[block] = doc;
+            blockMaxFreq[block] = Math.max(blockMaxFreq[block], freq);
+            blockMinLength[block] = Math.min(blockMinLength[block], length);
+            lastDoc = doc;
+            count++;
+        }
+
+        int count() {
+            return count;
+        }
+
+        PostingList build() {
+            return new PostingList(Arrays.copyOf(data, size), count, Arrays.copyOf(blockLastDoc, blocks),
+                    Arrays.copyOf(blockStart, blocks), Arrays.copyOf(blockMaxFreq, blocks), Arrays.copyOf(blockMinLength, blocks));
+        }
+
+        private void writeVLong(long value) {
+            if (size + 10 > data.length) {
+                data = Arrays.copyOf(data, Math.max(data.length << 1, size + 10));
+            }
+            while ((value & ~0x7fL) != 0) {
+                data[size++] = (byte) ((value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            data[size++] = (byte) value;
+        }
+    }
+}
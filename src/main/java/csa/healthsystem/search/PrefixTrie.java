@@ -0,0 +1,301 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.search;
+
+/**
+ *
+ * @author Maryam
+ */
+import java.util.Arrays;
+import java.util.PriorityQueue;
+
+/**
+ * Radix tree from keys to the sorted IDs of the documents holding them. Chains of nodes
+ * with a single child are collapsed into one edge label, so the tree has at most two nodes
+ * per key whatever the key length. Every node also counts the postings below it, which
+ * tells the cost of a prefix before it is enumerated.
+ * <p>
+ * Not thread-safe; {@link NameIndex} guards it.
+ */
+final class PrefixTrie {
+    private static final char[] NO_CHARS = new char[0];
+    private static final Node[] NO_NODES = new Node[0];
+    private static final int[] NO_DOCS = new int[0];
+
+    /**
+     * Receives the postings of the keys under a prefix.
+     */
+    @FunctionalInterface
+    interface Visitor {
+        /**
+         * Receives the postings of one key.
+         * @param docs The documents holding the key, in ascending order; must not be modified
+         * @param count Number of valid entries in docs
+         * @return False to stop the enumeration
+         */
+        boolean visit(int[] docs, int count);
+    }
+
+    private final Node root = new Node("");
+
+    /**
+     * Adds a posting.
+     * @param key The key
+     * @param doc The document holding it; it must not have been added for the key yet
+     */
+    void add(String key, int doc) {
+        Node node = root;
+        int i = 0;
+        while (true) {
+            node.postings++;
+            if (i == key.length()) {
+                node.addDoc(doc);
+                return;
+            }
+            int c = node.childIndex(key.charAt(i));
+            if (c < 0) {
+                Node leaf = new Node(key.substring(i));
+                leaf.postings = 1;
+                leaf.addDoc(doc);
+                node.insertChild(-c - 1, leaf);
+                return;
+            }
+            Node child = node.children[c];
+            int common = commonPrefix(child.label, key, i);
+            if (common < child.label.length()) {
+                // The key leaves the edge part way; the shared part becomes a node of its own
+                Node split = new Node(child.label.substring(0, common));
+                split.postings = child.postings;
+                child.label = child.label.substring(common);
+                split.firsts = new char[]{child.label.charAt(0)};
+                split.children = new Node[]{child};
+                node.children[c] = split;
+                child = split;
+            }
+            node = child;
+            i += common;
+        }
+    }
+
+    /**
+     * Removes a posting.
+     * @param key The key
+     * @param doc The document that held it
+     * @return True if the posting was there
+     */
+    boolean remove(String key, int doc) {
+        Node[] path = new Node[key.length() + 1];
+        int depth = 0;
+        Node node = root;
+        int i = 0;
+        while (true) {
+            path[depth++] = node;
+            if (i == key.length()) {
+                break;
+            }
+            int c = node.childIndex(key.charAt(i));
+            if (c < 0 || !key.startsWith(node.children[c].label, i)) {
+                return false;
+            }
+            i += node.children[c].label.length();
+            node = node.children[c];
+        }
+        if (!node.removeDoc(doc)) {
+            return false;
+        }
+        for (int d = 0; d < depth; d++) {
+            path[d].postings--;
+        }
+        // Drop the nodes left empty and collapse the ones left with a single child
+        for (int d = depth - 1; d > 0; d--) {
+            Node current = path[d];
+            if (current.docCount == 0 && current.children.length == 0) {
+                path[d - 1].removeChild(current.label.charAt(0));
+            } else if (current.docCount == 0 && current.children.length == 1) {
+                Node child = current.children[0];
+                current.label = current.label + child.label;
+                current.firsts = child.firsts;
+                current.children = child.children;
+                current.docs = child.docs;
+                current.docCount = child.docCount;
+                break;
+            } else {
+                break;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Enumerates the documents holding a key.
+     * @param key The key
+     * @param visitor Receives the postings, if there are any
+     */
+    void exact(String key, Visitor visitor) {
+        Node node = root;
+        int i = 0;
+        while (i < key.length()) {
+            int c = node.childIndex(key.charAt(i));
+            if (c < 0 || !key.startsWith(node.children[c].label, i)) {
+                return;
+            }
+            node = node.children[c];
+            i += node.label.length();
+        }
+        if (node.docCount > 0) {
+            visitor.visit(node.docs, node.docCount);
+        }
+    }
+
+    /**
+     * Enumerates the keys starting with a prefix, shorter keys first and otherwise in
+     * lexicographic order.
+     * @param prefix The prefix
+     * @param visitor Receives the postings of each key, until it returns false
+     */
+    void prefix(String prefix, Visitor visitor) {
+        Node node = find(prefix);
+        if (node == null) {
+            return;
+        }
+        // The keys below a node are longer than its own, so taking the shortest pending key
+        // next enumerates them by length
+        PriorityQueue<Pending> pending = new PriorityQueue<>();
+        pending.add(new Pending(node, ""));
+        while (!pending.isEmpty()) {
+            Pending next = pending.poll();
+            if (next.node.docCount > 0 && !visitor.visit(next.node.docs, next.node.docCount)) {
+                return;
+            }
+            for (Node child : next.node.children) {
+                pending.add(new Pending(child, next.suffix + child.label));
+            }
+        }
+    }
+
+    /**
+     * Counts the postings of the keys starting with a prefix.
+     * @param prefix The prefix
+     * @return The number of postings
+     */
+    int count(String prefix) {
+        Node node = find(prefix);
+        return node == null ? 0 : node.postings;
+    }
+
+    // Finds the highest node all of whose keys start with the prefix
+    private Node find(String prefix) {
+        Node node = root;
+        int i = 0;
+        while (i < prefix.length()) {
+            int c = node.childIndex(prefix.charAt(i));
+            if (c < 0) {
+                return null;
+            }
+            Node child = node.children[c];
+            int common = commonPrefix(child.label, prefix, i);
+            if (i + common < prefix.length() && common < child.label.length()) {
+                return null;
+            }
+            i += child.label.length();
+            node = child;
+        }
+        return node;
+    }
+
+    private static int commonPrefix(String label, String key, int offset) {
+        int max = Math.min(label.length(), key.length() - offset);
+        int i = 0;
+        while (i < max && label.charAt(i) == key.charAt(offset + i)) {
+            i++;
+        }
+        return i;
+    }
+
+    // A node waiting to be enumerated, with its key past the node the enumeration started at
+    private static final class Pending implements Comparable<Pending> {
+        final Node node;
+        final String suffix;
+
+        Pending(Node node, String suffix) {
+            this.node = node;
+            this.suffix = suffix;
+        }
+
+        @Override
+        public int compareTo(Pending other) {
+            int byLength = Integer.compare(suffix.length(), other.suffix.length());
+            return byLength != 0 ? byLength : suffix.compareTo(other.suffix);
+        }
+    }
+
+    private static final class Node {
+        String label;
+        char[] firsts = NO_CHARS;
+        Node[] children = NO_NODES;
+        int[] docs = NO_DOCS;
+        int docCount;
+        // Postings of this node and every node below it
+        int postings;
+
+        Node(String label) {
+            this.label = label;
+        }
+
+        int childIndex(char first) {
+            return Arrays.binarySearch(firsts, first);
+        }
+
+        void insertChild(int index, Node child) {
+            char[] grownFirsts = new char[firsts.length + 1];
+            Node[] grownChildren = new Node[children.length + 1];
+            System.arraycopy(firsts, 0, grownFirsts, 0, index);
+            System.arraycopy(children, 0, grownChildren, 0, index);
+            grownFirsts[index] = child.label.charAt(0);
+            grownChildren[index] = child;
+            System.arraycopy(firsts, index, grownFirsts, index + 1, firsts.length - index);
+            System.arraycopy(children, index, grownChildren, index + 1, children.length - index);
+            firsts = grownFirsts;
+            children = grownChildren;
+        }
+
+        void removeChild(char first) {
+            int index = childIndex(first);
+            char[] shrunkFirsts = new char[firsts.length - 1];
+            Node[] shrunkChildren = new Node[children.length - 1];
+            System.arraycopy(firsts, 0, shrunkFirsts, 0, index);
+            System.arraycopy(children, 0, shrunkChildren, 0, index);
+            System.arraycopy(firsts, index + 1, shrunkFirsts, index, firsts.length - index - 1);
+            System.arraycopy(children, index + 1, shrunkChildren, index, children.length - index - 1);
+            firsts = shrunkFirsts;
+            children = shrunkChildren;
+        }
+
+        void addDoc(int doc) {
+            int index = -Arrays.binarySearch(docs, 0, docCount, doc) - 1;
+            if (docCount == docs.length) {
+                docs = Arrays.copyOf(docs, Math.max(1, docCount + (docCount >> 1) + 1));
+            }
+            System.arraycopy(docs, index, docs, index + 1, docCount - index);
+            docs[index] = doc;
+            docCount++;
+        }
+
+        boolean removeDoc(int doc) {
+            int index = Arrays.binarySearch(docs, 0, docCount, doc);
+            if (index < 0) {
+                return false;
+            }
+            System.arraycopy(docs, index + 1, docs, index, docCount - index - 1);
+            docCount--;
+            if (docCount == 0) {
+                docs = NO_DOCS;
+            } else if (docCount < docs.length >> 2) {
+                docs = Arrays.copyOf(docs, docCount << 1);
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,637 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.search;
+
+/**
+ *
+ * @author Maryam
+ */
+import csa.healthsystem.logging.Log;
+import csa.healthsystem.store.EntityStore;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.logging.Level;
+
+/**
+ * In-memory inverted index for full-text search over the entities of a store, ranked by BM25.
+ * <p>
+ * Documents are keyed by entity ID. New and changed documents collect in a small buffer that
+ * is written into an immutable {@link IndexSegment} once it holds {@value #FLUSH_DOCS}
+ * documents, or {@value #FLUSH_MILLIS} ms after the first change to it; searches score the
+ * documents still in the buffer one by one. A background thread merges segments of similar size
+ * in groups of {@value #MERGE_FACTOR}, so a search reads a few large segments, and drops the
+ * postings of outdated versions while it is at it. For each document the index records
+ * which segment holds its current version, so a change never rewrites older segments.
+ * <p>
+ * A search returns the documents holding every term of the query. Scoring is exhaustive
+ * until {@value #TOTAL_HITS_THRESHOLD} matches were counted; after that, blocks of postings
+ * whose highest possible score cannot enter the top results are skipped without decoding
+ * (block-max pruning), which keeps queries for very common terms fast.
+ * <p>
+ * Searches never lock; changes are serialized by the index.
+ */
+public final class TextIndex {
+    /**
+     * Number of matches counted exactly before a search starts to skip documents.
+     */
+    public static final int TOTAL_HITS_THRESHOLD = 10_000;
+
+    private static final int FLUSH_DOCS = 4096;
+    private static final long FLUSH_MILLIS = 1000;
+    private static final int MERGE_FACTOR = 8;
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+
+    // Owner of a document whose current version is still in the buffer; 0 means no document
+    private static final int BUFFERED = -1;
+
+    private static final Log LOGGER = Log.get(TextIndex.class);
+    // Also flushes buffers that did not fill up in time
+    private static final ScheduledExecutorService MERGER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "search-merger");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final String name;
+    private final Object lock = new Object();
+
+    // Written under lock; searches read it without
+    private final Map<Integer, DocumentTerms> buffer = new ConcurrentHashMap<>();
+
+    // Guarded by lock
+    private int nextSegmentId = 1;
+    private boolean merging;
+    private boolean flushScheduled;
+
+    // Written under lock; each array is replaced, never shrunk, before the segments that refer to it are published
+    private volatile IndexSegment[] segments = new IndexSegment[0];
+    private volatile int[] owners = new int[1024];
+    private volatile char[] lengths = new char[1024];
+    private volatile int liveDocs;
+    private volatile long totalLength;
+
+    /**
+     * Creates an empty index.
+     * @param name Name of the index, used in log events
+     */
+    public TextIndex(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Creates an index over the entities of a store, kept up to date with every write to it.
+     * @param <T> The type of the stored entities
+     * @param store The store; its entities are indexed before this method returns
+     * @param name Name of the index
+     * @param textOf Function returning the searchable text of an entity
+     * @return The index
+     */
+    public static <T> TextIndex attach(EntityStore<T> store, String name, Function<T, String> textOf) {
+        TextIndex index = new TextIndex(name);
+        store.addListener((id, previous, current) -> {
+            String text = current == null ? null : textOf.apply(current);
+            if (previous == null || current == null || !Objects.equals(text, textOf.apply(previous))) {
+                index.update(id, text);
+            }
+        });
+        return index;
+    }
+
+    /**
+     * Adds, replaces or removes a document.
+     * @param id ID of the document, not negative
+     * @param text The text of the document, or null to remove it
+     */
+    public void update(int id, String text) {
+        if (id < 0) {
+            throw new IllegalArgumentException("Document ID must not be negative: " + id);
+        }
+        DocumentTerms terms = text == null ? null : DocumentTerms.of(Tokenizer.tokenize(text));
+        synchronized (lock) {
+            ensureCapacity(id);
+            int[] owners = this.owners;
+            char[] lengths = this.lengths;
+            if (owners[id] != 0) {
+                liveDocs--;
+                totalLength -= lengths[id];
+                if (owners[id] == BUFFERED) {
+                    buffer.remove(id);
+                }
+            }
+            if (terms == null) {
+                owners[id] = 0;
+                lengths[id] = 0;
+            } else {
+                owners[id] = BUFFERED;
+                lengths[id] = (char) Math.min(terms.length, Character.MAX_VALUE);
+                liveDocs++;
+                totalLength += lengths[id];
+                buffer.put(id, terms);
+            }
+            if (buffer.size() >= FLUSH_DOCS) {
+                flushBuffer();
+            } else if (!flushScheduled && !buffer.isEmpty()) {
+                flushScheduled = true;
+                MERGER.schedule(this::flush, FLUSH_MILLIS, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * Finds the documents holding every term of a query, best match first.
+     * @param query The query; split into terms like the documents
+     * @param count Maximum number of documents to return
+     * @return The matches
+     */
+    public Matches search(String query, int count) {
+        Set<String> terms = new LinkedHashSet<>(Tokenizer.tokenize(query));
+        if (terms.isEmpty() || count <= 0) {
+            return Matches.NONE;
+        }
+        // Segments first: the arrays and buffer read after them are at least as new as the segments
+        IndexSegment[] snapshot = segments;
+        int[] owners = this.owners;
+        char[] lengths = this.lengths;
+        int documents = Math.max(1, liveDocs);
+        float averageLength = Math.max(1f, (float) totalLength / documents);
+
+        String[] queryTerms = terms.toArray(new String[0]);
+        long[] bufferedDf = new long[queryTerms.length];
+        List<int[]> buffered = bufferedMatches(queryTerms, snapshot, owners, bufferedDf);
+        float[] idf = new float[queryTerms.length];
+        for (int t = 0; t < queryTerms.length; t++) {
+            long df = bufferedDf[t];
+            for (IndexSegment segment : snapshot) {
+                PostingList postings = segment.postings(queryTerms[t]);
+                df += postings == null ? 0 : postings.count();
+            }
+            if (df == 0) {
+                return Matches.NONE;
+            }
+            // Outdated versions still count until a merge drops them
+            df = Math.min(df, documents);
+            idf[t] = (float) Math.log(1 + (documents - df + 0.5) / (df + 0.5));
+        }
+
+        TopDocs top = new TopDocs(count);
+        Scorer scorer = new Scorer(averageLength);
+        for (int[] freqs : buffered) {
+            int doc = freqs[queryTerms.length];
+            float score = 0;
+            for (int t = 0; t < queryTerms.length; t++) {
+                score += scorer.score(idf[t], freqs[t], lengths[doc]);
+            }
+            top.collect(doc, score);
+        }
+        for (IndexSegment segment : snapshot) {
+            searchSegment(segment, queryTerms, idf, owners, lengths, scorer, top);
+        }
+        return top.matches();
+    }
+
+    /**
+     * Gets the number of indexed documents.
+     * @return The number of documents
+     */
+    public int size() {
+        return liveDocs;
+    }
+
+    /**
+     * Writes the documents in the buffer into a new segment.
+     */
+    void flush() {
+        synchronized (lock) {
+            flushScheduled = false;
+            flushBuffer();
+        }
+    }
+
+    /**
+     * Gets the number of segments, which a merge lowers.
+     * @return The number of segments
+     */
+    int segmentCount() {
+        return segments.length;
+    }
+
+    // Counts the buffered documents holding each query term, and returns the frequencies of the
+    // terms in those holding all of them, followed by the document
+    private List<int[]> bufferedMatches(String[] queryTerms, IndexSegment[] snapshot, int[] owners, long[] df) {
+        List<int[]> matches = new ArrayList<>();
+        if (buffer.isEmpty()) {
+            return matches;
+        }
+        for (Map.Entry<Integer, DocumentTerms> entry : buffer.entrySet()) {
+            int doc = entry.getKey();
+            // A document being flushed is already recorded under its new segment; it is scored
+            // here unless the segments searched include that one
+            int owner = doc < owners.length ? owners[doc] : 0;
+            if (owner == 0 || owner != BUFFERED && holds(snapshot, owner)) {
+                continue;
+            }
+            int[] freqs = new int[queryTerms.length + 1];
+            boolean all = true;
+            for (int t = 0; t < queryTerms.length; t++) {
+                freqs[t] = entry.getValue().freq(queryTerms[t]);
+                if (freqs[t] > 0) {
+                    df[t]++;
+                } else {
+                    all = false;
+                }
+            }
+            if (all) {
+                freqs[queryTerms.length] = doc;
+                matches.add(freqs);
+            }
+        }
+        return matches;
+    }
+
+    private static boolean holds(IndexSegment[] segments, int owner) {
+        for (IndexSegment segment : segments) {
+            if (segment.isOwner(owner)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Intersects the postings of the query terms, rarest first, and scores the current documents
+    private static void searchSegment(IndexSegment segment, String[] queryTerms, float[] idf, int[] owners, char[] lengths,
+                                      Scorer scorer, TopDocs top) {
+        int n = queryTerms.length;
+        PostingList.Cursor[] cursors = new PostingList.Cursor[n];
+        float[] weights = new float[n];
+        for (int t = 0; t < n; t++) {
+            PostingList postings = segment.postings(queryTerms[t]);
+            if (postings == null) {
+                return;
+            }
+            cursors[t] = postings.cursor();
+            weights[t] = idf[t];
+        }
+        sortByCount(cursors, weights);
+
+        PostingList.Cursor lead = cursors[0];
+        int doc = lead.next();
+        while (doc != PostingList.NO_MORE_DOCS) {
+            int other = doc;
+            for (int t = 1; t < n && other == doc; t++) {
+                other = cursors[t].advance(doc);
+            }
+            if (other != doc) {
+                doc = lead.advance(other);
+                continue;
+            }
+            if (top.isPruning()) {
+                // Every cursor sits in a block whose best possible score is known
+                float bound = 0;
+                int blockEnd = Integer.MAX_VALUE;
+                for (int t = 0; t < n; t++) {
+                    bound += scorer.score(weights[t], cursors[t].blockMaxFreq(), cursors[t].blockMinLength());
+                    blockEnd = Math.min(blockEnd, cursors[t].blockLastDoc());
+                }
+                if (bound <= top.minScore()) {
+                    top.skipped();
+                    doc = blockEnd == PostingList.NO_MORE_DOCS ? blockEnd : lead.advance(blockEnd + 1);
+                    continue;
+                }
+            }
+            if (doc < owners.length && segment.isOwner(owners[doc])) {
+                float score = 0;
+                int length = lengths[doc];
+                for (int t = 0; t < n; t++) {
+                    score += scorer.score(weights[t], cursors[t].freq(), length);
+                }
+                top.collect(doc, score);
+            }
+            doc = lead.next();
+        }
+    }
+
+    private static void sortByCount(PostingList.Cursor[] cursors, float[] weights) {
+        for (int i = 1; i < cursors.length; i++) {
+            for (int j = i; j > 0 && cursors[j].count() < cursors[j - 1].count(); j--) {
+                PostingList.Cursor cursor = cursors[j];
+                cursors[j] = cursors[j - 1];
+                cursors[j - 1] = cursor;
+                float weight = weights[j];
+                weights[j] = weights[j - 1];
+                weights[j - 1] = weight;
+            }
+        }
+    }
+
+    // Under lock
+    private void ensureCapacity(int id) {
+        if (id >= owners.length) {
+            int capacity = Math.max(id + 1, (int) Math.min(Integer.MAX_VALUE - 8, 2L * owners.length));
+            lengths = Arrays.copyOf(lengths, capacity);
+            owners = Arrays.copyOf(owners, capacity);
+        }
+    }
+
+    // Writes the buffer into a new segment; under lock
+    private void flushBuffer() {
+        if (buffer.isEmpty()) {
+            return;
+        }
+        int id = nextSegmentId++;
+        int[] docs = new int[buffer.size()];
+        int i = 0;
+        for (Integer doc : buffer.keySet()) {
+            docs[i++] = doc;
+        }
+        Arrays.sort(docs);
+        char[] lengths = this.lengths;
+        Map<String, PostingList.Builder> builders = new HashMap<>();
+        for (int doc : docs) {
+            DocumentTerms terms = buffer.get(doc);
+            for (int t = 0; t < terms.terms.length; t++) {
+                builders.computeIfAbsent(terms.terms[t], term -> new PostingList.Builder()).add(doc, terms.freqs[t], lengths[doc]);
+            }
+        }
+        IndexSegment segment = new IndexSegment(id, new int[0], build(builders), docs);
+        int[] owners = this.owners;
+        for (int doc : docs) {
+            owners[doc] = id;
+        }
+        IndexSegment[] published = Arrays.copyOf(segments, segments.length + 1);
+        published[published.length - 1] = segment;
+        segments = published;
+        buffer.clear();
+        scheduleMerge();
+    }
+
+    // Starts merging the first group of MERGE_FACTOR segments of the same size class; under lock
+    private void scheduleMerge() {
+        if (merging) {
+            return;
+        }
+        Map<Integer, List<IndexSegment>> bySize = new HashMap<>();
+        for (IndexSegment segment : segments) {
+            List<IndexSegment> group = bySize.computeIfAbsent(sizeClass(segment.docs().length), size -> new ArrayList<>());
+            group.add(segment);
+            if (group.size() == MERGE_FACTOR) {
+                merging = true;
+                MERGER.execute(() -> merge(group));
+                return;
+            }
+        }
+    }
+
+    private static int sizeClass(int docs) {
+        int sizeClass = 0;
+        for (long limit = FLUSH_DOCS; docs >= limit; limit *= MERGE_FACTOR) {
+            sizeClass++;
+        }
+        return sizeClass;
+    }
+
+    // Runs on the merge thread, while searches and changes go on
+    private void merge(List<IndexSegment> sources) {
+        try {
+            long start = System.nanoTime();
+            int[] sourceIds = new int[sources.size()];
+            for (int s = 0; s < sourceIds.length; s++) {
+                sourceIds[s] = sources.get(s).id();
+            }
+            int id;
+            synchronized (lock) {
+                id = nextSegmentId++;
+            }
+            int[] owners = this.owners;
+            char[] lengths = this.lengths;
+
+            // Only current versions are carried over; a document changed meanwhile is merely outdated
+            int[] docs = currentDocs(sources, owners);
+            Set<String> terms = new HashSet<>();
+            for (IndexSegment source : sources) {
+                for (Map.Entry<String, PostingList> term : source.terms()) {
+                    terms.add(term.getKey());
+                }
+            }
+            Map<String, PostingList.Builder> builders = new HashMap<>();
+            for (String term : terms) {
+                PostingList.Builder builder = mergePostings(term, sources, owners, lengths);
+                if (builder.count() > 0) {
+                    builders.put(term, builder);
+                }
+            }
+            IndexSegment merged = new IndexSegment(id, sourceIds, build(builders), docs);
+
+            synchronized (lock) {
+                List<IndexSegment> published = new ArrayList<>();
+                for (IndexSegment segment : segments) {
+                    if (!sources.contains(segment)) {
+                        published.add(segment);
+                    }
+                }
+                if (docs.length > 0) {
+                    published.add(merged);
+                }
+                // Published before the documents move over; until then the merged segment answers for its sources
+                segments = published.toArray(new IndexSegment[0]);
+                int[] current = this.owners;
+                for (int doc : docs) {
+                    if (merged.isOwner(current[doc])) {
+                        current[doc] = id;
+                    }
+                }
+                merging = false;
+                LOGGER.logFields(Level.FINE, "Merged search segments", "index", name, "segments", sources.size(),
+                        "docs", docs.length, "millis", (System.nanoTime() - start) / 1_000_000);
+                scheduleMerge();
+            }
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.SEVERE, "Merging search segments failed", e, "index", name);
+            synchronized (lock) {
+                merging = false;
+            }
+        }
+    }
+
+    private static int[] currentDocs(List<IndexSegment> sources, int[] owners) {
+        int total = 0;
+        for (IndexSegment source : sources) {
+            total += source.docs().length;
+        }
+        int[] docs = new int[total];
+        int count = 0;
+        for (IndexSegment source : sources) {
+            for (int doc : source.docs()) {
+                if (owners[doc] == source.id()) {
+                    docs[count++] = doc;
+                }
+            }
+        }
+        docs = Arrays.copyOf(docs, count);
+        Arrays.sort(docs);
+        return docs;
+    }
+
+    // Merges a term's postings from every source in document order, keeping current versions only
+    private static PostingList.Builder mergePostings(String term, List<IndexSegment> sources, int[] owners, char[] lengths) {
+        List<PostingList.Cursor> cursors = new ArrayList<>();
+        List<Integer> sourceIds = new ArrayList<>();
+        for (IndexSegment source : sources) {
+            PostingList postings = source.postings(term);
+            if (postings != null) {
+                PostingList.Cursor cursor = postings.cursor();
+                cursor.next();
+                cursors.add(cursor);
+                sourceIds.add(source.id());
+            }
+        }
+        PostingList.Builder builder = new PostingList.Builder();
+        while (true) {
+            int best = -1;
+            for (int c = 0; c < cursors.size(); c++) {
+                int doc = cursors.get(c).doc();
+                if (doc != PostingList.NO_MORE_DOCS && (best < 0 || doc < cursors.get(best).doc())) {
+                    best = c;
+                }
+            }
+            if (best < 0) {
+                return builder;
+            }
+            PostingList.Cursor cursor = cursors.get(best);
+            int doc = cursor.doc();
+            if (owners[doc] == sourceIds.get(best)) {
+                builder.add(doc, cursor.freq(), lengths[doc]);
+            }
+            cursor.next();
+        }
+    }
+
+    private static Map<String, PostingList> build(Map<String, PostingList.Builder> builders) {
+        Map<String, PostingList> terms = new HashMap<>(builders.size() * 4 / 3 + 1);
+        for (Map.Entry<String, PostingList.Builder> builder : builders.entrySet()) {
+            terms.put(builder.getKey(), builder.getValue().build());
+        }
+        return terms;
+    }
+
+    // BM25 weight of a term in a document
+    private static final class Scorer {
+        private final float averageLength;
+
+        Scorer(float averageLength) {
+            this.averageLength = averageLength;
+        }
+
+        float score(float idf, int freq, int length) {
+            return idf * freq * (K1 + 1) / (freq + K1 * (1 - B + B * length / averageLength));
+        }
+    }
+
+    // The best documents so far in a min-heap; on equal scores the lower ID ranks first
+    private static final class TopDocs {
+        private final int[] docs;
+        private final float[] scores;
+        private int size;
+        private long total;
+        private boolean skipped;
+
+        TopDocs(int count) {
+            docs = new int[count];
+            scores = new float[count];
+        }
+
+        boolean isPruning() {
+            return size == docs.length && total >= TOTAL_HITS_THRESHOLD;
+        }
+
+        float minScore() {
+            return scores[0];
+        }
+
+        void skipped() {
+            skipped = true;
+        }
+
+        void collect(int doc, float score) {
+            total++;
+            if (size < docs.length) {
+                docs[size] = doc;
+                scores[size] = score;
+                siftUp(size++);
+            } else if (worse(docs[0], scores[0], doc, score)) {
+                docs[0] = doc;
+                scores[0] = score;
+                siftDown(0);
+            }
+        }
+
+        Matches matches() {
+            int[] ids = new int[size];
+            float[] ranked = new float[size];
+            for (int i = size - 1; i >= 0; i--) {
+                ids[i] = docs[0];
+                ranked[i] = scores[0];
+                docs[0] = docs[size - 1];
+                scores[0] = scores[size - 1];
+                size--;
+                siftDown(0);
+            }
+            return new Matches(total, !skipped, ids, ranked);
+        }
+
+        private static boolean worse(int doc, float score, int otherDoc, float otherScore) {
+            return score < otherScore || (score == otherScore && doc > otherDoc);
+        }
+
+        private void siftUp(int i) {
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!worse(docs[i], scores[i], docs[parent], scores[parent])) {
+                    return;
+                }
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i) {
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) {
+                    return;
+                }
+                if (child + 1 < size && worse(docs[child + 1], scores[child + 1], docs[child], scores[child])) {
+                    child++;
+                }
+                if (!worse(docs[child], scores[child], docs[i], scores[i])) {
+                    return;
+                }
+                swap(i, child);
+                i = child;
+            }
+        }
+
+        private void swap(int a, int b) {
+            int doc = docs[a];
+            docs[a] = docs[b];
+            docs[b] = doc;
+            float score = scores[a];
+            scores[a] = scores[b];
+            scores[b] = score;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.search;
+
+/**
+ *
+ * @author Maryam
+ */
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Splits text into lowercase terms at every character that is not a letter or digit.
+ * Common English words that carry no meaning in a search are left out, as are
+ * single characters; terms longer than {@link #MAX_TERM_LENGTH} are cut off.
+ */
+final class Tokenizer {
+    static final int MAX_TERM_LENGTH = 40;
+
+    private static final Set<String> STOP_WORDS = new HashSet<>(Arrays.asList(
+            "an", "and", "are", "as", "at", "be", "by", "for", "from", "has", "in", "is", "it",
+            "of", "on", "or", "that", "the", "this", "to", "was", "were", "with"));
+
+    private Tokenizer() {}
+
+    /**
+     * Splits text into terms.
+     * @param text The text, or null
+     * @return The terms in the order they occur, with repetitions
+     */
+    static List<String> tokenize(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null) {
+            return terms;
+        }
+        StringBuilder term = new StringBuilder(16);
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                if (term.length() < MAX_TERM_LENGTH) {
+                    term.append(Character.toLowerCase(c));
+                }
+            } else if (term.length() > 0) {
+                if (term.length() > 1) {
+                    String word = term.toString();
+                    if (!STOP_WORDS.contains(word)) {
+                        terms.add(word);
+                    }
+                }
+                term.setLength(0);
+            }
+        }
+        return terms;
+    }
+}
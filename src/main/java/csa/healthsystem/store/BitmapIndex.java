@@ -0,0 +1,203 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.store;
+
+/**
+ *
+ * @author Maryam
+ */
+import csa.healthsystem.model.ValueDictionary;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * Index of an {@link EntityStore} by a text field with few distinct values, such as a health
+ * status. Each value is given a code by a {@link ValueDictionary} when an entity holding it is
+ * stored, and each code has an {@link IdBitmap} of the entities holding it, so a filter is a walk
+ * over one compressed bitmap, or the union of a few, instead of a scan of the store.
+ * Entities whose value the dictionary has no room for are kept in one more bitmap, whose entities
+ * are compared by their text. Kept up to date by a {@link StoreListener}.
+ * <p>
+ * The listener runs under the lock of a store segment, so each code's bitmap has its own lock:
+ * writers to different segments only wait for each other when they move entities to or from
+ * the same code.
+ * @param <T> The type of the stored entities
+ */
+public final class BitmapIndex<T> {
+    private final EntityStore<T> store;
+    private final ValueDictionary dictionary;
+    private final Function<T, String> valueOf;
+    // Indexed by code, null for codes no entity has held; replaced, never changed, when a code is added
+    private volatile Slot[] slots = new Slot[8];
+    // The entities whose value has no code
+    private final Slot unencoded = new Slot();
+
+    private BitmapIndex(EntityStore<T> store, ValueDictionary dictionary, Function<T, String> valueOf) {
+        this.store = store;
+        this.dictionary = dictionary;
+        this.valueOf = valueOf;
+    }
+
+    /**
+     * Creates an index of a store, kept up to date with every write to it.
+     * @param store The store; its entities are indexed before this method returns
+     * @param dictionary Gives codes to the values of the stored entities
+     * @param valueOf Gets the value of the indexed field of an entity
+     * @return The index
+     */
+    public static <T> BitmapIndex<T> attach(EntityStore<T> store, ValueDictionary dictionary, Function<T, String> valueOf) {
+        BitmapIndex<T> index = new BitmapIndex<>(store, dictionary, valueOf);
+        store.addListener(index::changed);
+        return index;
+    }
+
+    private void changed(int id, T previous, T current) {
+        // A value is only given a code once it is stored. A value without one never gets one,
+        // as the dictionary stays full, so the previous entity is found where it was added
+        Slot previousSlot = previous == null ? null : slotOf(dictionary.code(valueOf.apply(previous)));
+        Slot currentSlot = current == null ? null : slotOf(dictionary.encode(valueOf.apply(current)));
+        if (previousSlot == currentSlot) {
+            return;
+        }
+        // Removed first, so a reader never finds the entity under two codes
+        if (previousSlot != null) {
+            previousSlot.lock.writeLock().lock();
+            try {
+                previousSlot.bitmap.remove(id);
+            } finally {
+                previousSlot.lock.writeLock().unlock();
+            }
+        }
+        if (currentSlot != null) {
+            currentSlot.lock.writeLock().lock();
+            try {
+                currentSlot.bitmap.add(id);
+            } finally {
+                currentSlot.lock.writeLock().unlock();
+            }
+        }
+    }
+
+    private Slot slotOf(int code) {
+        if (code == ValueDictionary.UNKNOWN_CODE) {
+            return unencoded;
+        }
+        Slot slot = slot(code);
+        return slot != null ? slot : addSlot(code);
+    }
+
+    private synchronized Slot addSlot(int code) {
+        Slot[] current = slots;
+        if (code < current.length && current[code] != null) {
+            return current[code];
+        }
+        Slot[] grown = Arrays.copyOf(current, Math.max(current.length, code + 1));
+        grown[code] = new Slot();
+        slots = grown;
+        return grown[code];
+    }
+
+    /**
+     * Finds the entities holding any of some values that follow a cursor.
+     * @param values The values, matched exactly
+     * @param afterId Only entities with an ID greater than this are returned
+     * @param limit Maximum number of entities to return
+     * @return A new list holding at most {@code limit} matching entities in ascending ID order
+     */
+    public List<T> find(Collection<String> values, int afterId, int limit) {
+        Set<String> wanted = new HashSet<>(values);
+        List<Slot> matched = slotsOf(wanted);
+        List<T> found = new ArrayList<>(Math.min(limit, 1024));
+        while (found.size() < limit) {
+            int missing = limit - found.size();
+            int[] ids = ids(matched, afterId, missing);
+            for (int id : ids) {
+                T entity = store.get(id);
+                // Skip entities removed or changed since the bitmap was read, and entities without
+                // a code holding other values
+                if (entity != null && wanted.contains(valueOf.apply(entity))) {
+                    found.add(entity);
+                }
+            }
+            if (ids.length < missing) {
+                break;
+            }
+            afterId = ids[ids.length - 1];
+        }
+        return found;
+    }
+
+    // The bitmaps that can hold entities with the values
+    private List<Slot> slotsOf(Set<String> values) {
+        List<Slot> matched = new ArrayList<>(values.size());
+        boolean withoutCode = false;
+        for (String value : values) {
+            int code = dictionary.code(value);
+            Slot slot = slot(code);
+            if (code == ValueDictionary.UNKNOWN_CODE) {
+                withoutCode = true;
+            } else if (slot != null) {
+                matched.add(slot);
+            }
+        }
+        if (withoutCode) {
+            matched.add(unencoded);
+        }
+        return matched;
+    }
+
+    private int[] ids(List<Slot> matched, int afterId, int limit) {
+        int[] ids = new int[0];
+        for (Slot slot : matched) {
+            int[] page;
+            slot.lock.readLock().lock();
+            try {
+                page = slot.bitmap.page(afterId, limit);
+            } finally {
+                slot.lock.readLock().unlock();
+            }
+            ids = ids.length == 0 ? page : merge(ids, page, limit);
+        }
+        return ids;
+    }
+
+    // The pages of different codes are read one after the other, so an entity that moved between
+    // two codes meanwhile can be on both
+    private static int[] merge(int[] a, int[] b, int limit) {
+        int[] merged = new int[Math.min(limit, a.length + b.length)];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (n < merged.length && (i < a.length || j < b.length)) {
+            if (j == b.length || (i < a.length && a[i] < b[j])) {
+                merged[n++] = a[i++];
+            } else if (i == a.length || b[j] < a[i]) {
+                merged[n++] = b[j++];
+            } else {
+                merged[n++] = a[i++];
+                j++;
+            }
+        }
+        return n == merged.length ? merged : Arrays.copyOf(merged, n);
+    }
+
+    private Slot slot(int code) {
+        Slot[] current = slots;
+        return code >= 0 && code < current.length ? current[code] : null;
+    }
+
+    // The entities holding one code
+    private static final class Slot {
+        final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        // Guarded by lock
+        final IdBitmap bitmap = new IdBitmap();
+    }
+}
@@ -0,0 +1,1099 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.store;
+
+/**
+ *
+ * @author Maryam
+ */
+import csa.healthsystem.exception.DatabaseException;
+import csa.healthsystem.exception.VersionConflictException;
+import csa.healthsystem.metrics.Metrics;
+import csa.healthsystem.metrics.StoreMetrics;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.ToIntFunction;
+import java.util.stream.IntStream;
+
+/**
+ * Thread-safe in-memory entity store keyed by primitive int id.
+ * Entities are spread over lock-striped segments, each holding an {@link IntHashIndex}
+ * and a sorted id array, so lookups and writes run in constant time and writers on
+ * different segments never contend. Reads are optimistic: they never take a lock that
+ * blocks writers unless a concurrent write forces them to retry.
+ * Secondary indexes ({@link #addIndex(ToIntFunction)}) live in the same segments and are
+ * updated under the same locks, so they always agree with the stored entities. Other derived
+ * structures follow the store through a {@link StoreListener}.
+ * Every write gives its entity a new {@link Versioned version} from a counter of the store,
+ * and bumps the version of the store as a whole; writes can be made conditional on the
+ * version they expect to replace.
+ * A store created with a name is durable when {@link StorageConfig#dataDirectory()} is set:
+ * every write is recorded in a {@link WriteAheadLog} before it is acknowledged, a
+ * background writer periodically replaces the log with a snapshot, and both are loaded
+ * when the store is created again, versions included. Readers can see a write while
+ * its record is still on the way to disk; if the record cannot be written, the write is
+ * reverted and fails with a {@link DatabaseException}.
+ * @param <T> The type of the stored entities
+ */
+public class EntityStore<T> {
+    /**
+     * Expected version that matches any stored version.
+     */
+    public static final long ANY_VERSION = -1;
+
+    private static final int SEGMENT_COUNT = segmentCountFor(Runtime.getRuntime().availableProcessors());
+    private static final int OPTIMISTIC_ATTEMPTS = 3;
+    private static final int PARALLEL_ENCODE_THRESHOLD = 256;
+
+    private final ToIntFunction<T> idOf;
+    private final Segment[] segments;
+    private final int segmentMask;
+    private WriteAheadLog<T> log;
+    private StoreFiles<T> files;
+    private StoreMetrics metrics;
+    private boolean restored;
+    private int indexCount;
+
+    // Versions handed to writes; taken under the segment lock so they increase per ID
+    private final AtomicLong versionClock = new AtomicLong();
+    // Bumped after each write is visible, so a reader that sees a version also sees every write counted in it
+    private final AtomicLong storeVersion = new AtomicLong();
+    private final AtomicLong lastModified = new AtomicLong(System.currentTimeMillis());
+
+    /**
+     * Creates an empty, in-memory store.
+     * @param idOf Function returning the id of an entity
+     */
+    @SuppressWarnings("unchecked")
+    public EntityStore(ToIntFunction<T> idOf) {
+        this.idOf = idOf;
+        this.segments = (Segment[]) new EntityStore<?>.Segment[SEGMENT_COUNT];
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = new Segment();
+        }
+        this.segmentMask = segments.length - 1;
+    }
+
+    /**
+     * Creates a store that is durable when persistence is configured.
+     * Existing data for the store is restored from its log before the constructor returns.
+     * @param name Name of the store, used for its files in the data directory
+     * @param type The class of the stored entities
+     * @param idOf Function returning the id of an entity
+     * @throws csa.healthsystem.exception.DatabaseException if the stored data cannot be read
+     */
+    public EntityStore(String name, Class<T> type, ToIntFunction<T> idOf) {
+        this(name, type, idOf, StorageConfig.dataDirectory());
+    }
+
+    // Keeps the store's files in the given directory, or in memory only if it is null
+    EntityStore(String name, Class<T> type, ToIntFunction<T> idOf, Path directory) {
+        this(idOf);
+        this.metrics = Metrics.store(name, this::size);
+        if (directory != null) {
+            files = new StoreFiles<>(directory, name, type);
+            log = files.recover(this, new WriteAheadLog.ReplayTarget<T>() {
+                @Override
+                public void put(int id, long version, long modified, T entity) {
+                    segmentFor(id).restore(id, new Versioned<>(entity, restoredVersion(version), restoredTime(modified)));
+                }
+
+                @Override
+                public void remove(int id, long version, long modified) {
+                    restoredVersion(version);
+                    restoredTime(modified);
+                    segmentFor(id).remove(id, ANY_VERSION, false);
+                }
+            });
+            restored = files.isRestored();
+            storeVersion.set(versionClock.get());
+            metrics.watchLog(log::isHealthy, log::failures);
+            files.scheduleSnapshots(this, idOf);
+        }
+    }
+
+    /**
+     * Checks whether the store was loaded from previously persisted data.
+     * DAOs use this to decide whether to add their sample data.
+     * @return True if existing data was restored, otherwise false
+     */
+    public boolean isRestored() {
+        return restored;
+    }
+
+    /**
+     * Gets an entity by ID.
+     * @param id ID of the entity
+     * @return The entity, or null if no entity has this ID
+     */
+    public T get(int id) {
+        Versioned<T> entry = segmentFor(id).get(id);
+        return entry == null ? null : entry.getEntity();
+    }
+
+    /**
+     * Gets an entity by ID together with its version.
+     * @param id ID of the entity
+     * @return The entity and its version, or null if no entity has this ID
+     */
+    public Versioned<T> getVersioned(int id) {
+        return segmentFor(id).get(id);
+    }
+
+    /**
+     * Checks whether an entity with the given ID exists.
+     * @param id ID to check
+     * @return True if an entity with this ID exists, otherwise false
+     */
+    public boolean contains(int id) {
+        return segmentFor(id).get(id) != null;
+    }
+
+    /**
+     * Gets the version of the store as a whole. It changes with every write, and a reader
+     * that gets a version sees every write the version counts.
+     * @return The version of the store
+     */
+    public long version() {
+        return storeVersion.get();
+    }
+
+    /**
+     * Gets the time of the latest write.
+     * @return Milliseconds since the epoch; the creation time if nothing was written yet
+     */
+    public long lastModified() {
+        return lastModified.get();
+    }
+
+    /**
+     * Stores an entity under its ID, replacing any entity already stored with that ID.
+     * @param entity The entity to store
+     * @return The replaced entity, or null if the ID was not present
+     */
+    public T put(T entity) {
+        long start = System.nanoTime();
+        try {
+            int id = idOf.applyAsInt(entity);
+            return segmentFor(id).put(id, entity, encode(entity), false, ANY_VERSION);
+        } finally {
+            timed(StoreMetrics.Operation.PUT, start);
+        }
+    }
+
+    /**
+     * Replaces the entity stored under the given ID. Nothing is stored if the ID is absent.
+     * @param id ID of the entity to replace
+     * @param entity The new entity; its ID must equal {@code id}
+     * @return The replaced entity, or null if the ID was not present
+     */
+    public T replace(int id, T entity) {
+        return replace(id, entity, ANY_VERSION);
+    }
+
+    /**
+     * Replaces the entity stored under the given ID if it still has the expected version.
+     * Nothing is stored if the ID is absent.
+     * @param id ID of the entity to replace
+     * @param entity The new entity; its ID must equal {@code id}
+     * @param expectedVersion Version the stored entity must have, or {@link #ANY_VERSION}
+     * @return The replaced entity, or null if the ID was not present
+     * @throws VersionConflictException if the stored entity has another version
+     */
+    public T replace(int id, T entity, long expectedVersion) {
+        if (idOf.applyAsInt(entity) != id) {
+            throw new IllegalArgumentException("Entity ID does not match " + id);
+        }
+        long start = System.nanoTime();
+        try {
+            return segmentFor(id).put(id, entity, encode(entity), true, expectedVersion);
+        } finally {
+            timed(StoreMetrics.Operation.REPLACE, start);
+        }
+    }
+
+    /**
+     * Removes an entity by ID.
+     * @param id ID of the entity to remove
+     * @return The removed entity, or null if no entity has this ID
+     */
+    public T remove(int id) {
+        return remove(id, ANY_VERSION);
+    }
+
+    /**
+     * Removes an entity by ID if it still has the expected version.
+     * @param id ID of the entity to remove
+     * @param expectedVersion Version the stored entity must have, or {@link #ANY_VERSION}
+     * @return The removed entity, or null if no entity has this ID
+     * @throws VersionConflictException if the stored entity has another version
+     */
+    public T remove(int id, long expectedVersion) {
+        long start = System.nanoTime();
+        try {
+            return segmentFor(id).remove(id, expectedVersion, true);
+        } finally {
+            timed(StoreMetrics.Operation.REMOVE, start);
+        }
+    }
+
+    /**
+     * Stores several entities, each under its ID, replacing entities already stored with those IDs.
+     * The writes to one segment are applied under a single lock, and the call waits for the log
+     * once after every write is queued, so a batch normally shares one fsync. The batch is not
+     * atomic: concurrent readers may see part of it.
+     * @param entities The entities to store
+     * @return The replaced entities in the order of {@code entities}, with null where the ID was not present
+     */
+    public List<T> putAll(List<T> entities) {
+        long start = System.nanoTime();
+        try {
+            return writeAll(entities, false);
+        } finally {
+            timed(StoreMetrics.Operation.PUT_ALL, start);
+        }
+    }
+
+    /**
+     * Replaces several entities, each under its ID. Entities whose ID is absent are not stored.
+     * Applied like {@link #putAll(List)}.
+     * @param entities The new entities
+     * @return The replaced entities in the order of {@code entities}, with null where the ID was not present
+     */
+    public List<T> replaceAll(List<T> entities) {
+        long start = System.nanoTime();
+        try {
+            return writeAll(entities, true);
+        } finally {
+            timed(StoreMetrics.Operation.REPLACE_ALL, start);
+        }
+    }
+
+    /**
+     * Removes several entities by ID. Applied like {@link #putAll(List)}.
+     * @param ids IDs of the entities to remove
+     * @return The removed entities in the order of {@code ids}, with null where no entity had the ID
+     */
+    public List<T> removeAll(int[] ids) {
+        long start = System.nanoTime();
+        try {
+            return removeGrouped(ids);
+        } finally {
+            timed(StoreMetrics.Operation.REMOVE_ALL, start);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<T> removeGrouped(int[] ids) {
+        Object[] removed = new Object[ids.length];
+        int[][] bySegment = groupBySegment(ids);
+        WriteAheadLog.Commit commit = log == null ? null : new WriteAheadLog.Commit();
+        DatabaseException refused = null;
+        for (int k = 0; k < segments.length && refused == null; k++) {
+            if (bySegment[k].length > 0) {
+                try {
+                    segments[k].removeAll(bySegment[k], ids, removed, commit);
+                } catch (DatabaseException e) {
+                    refused = e;
+                }
+            }
+        }
+        awaitThenThrow(commit, refused);
+        return (List<T>) Arrays.asList(removed);
+    }
+
+    /**
+     * Adds an index on an int attribute of the stored entities, such as a patient ID.
+     * Entities already in the store are indexed before this method returns, and every
+     * later write keeps the index up to date. Entities must not be changed in place
+     * once stored, or the index may go stale for them; lookups skip such entries.
+     * @param keyOf Function returning the indexed attribute of an entity
+     * @return The index, used for lookups
+     */
+    public synchronized SecondaryIndex<T> addIndex(ToIntFunction<T> keyOf) {
+        SecondaryIndex<T> secondary = new SecondaryIndex<>(this, indexCount++, keyOf);
+        for (Segment segment : segments) {
+            segment.addIndex(secondary);
+        }
+        return secondary;
+    }
+
+    /**
+     * Registers a listener for every later change. Entities already in the store are passed to
+     * the listener as added before this method returns, in ascending ID order per segment.
+     * @param listener The listener
+     */
+    public synchronized void addListener(StoreListener<T> listener) {
+        for (Segment segment : segments) {
+            segment.addListener(listener);
+        }
+    }
+
+    // Collects the matches from every segment; each segment's matches are already in ID order
+    List<T> find(SecondaryIndex<T> secondary, int key) {
+        long start = System.nanoTime();
+        try {
+            return findMerged(secondary, key);
+        } finally {
+            timed(StoreMetrics.Operation.FIND, start);
+        }
+    }
+
+    private List<T> findMerged(SecondaryIndex<T> secondary, int key) {
+        List<List<T>> parts = new ArrayList<>(segments.length);
+        int found = 0;
+        for (Segment segment : segments) {
+            List<T> part = segment.find(secondary, key);
+            parts.add(part);
+            found += part.size();
+        }
+        return merge(parts, found, idOf);
+    }
+
+    /**
+     * Gets the number of stored entities.
+     * @return The number of entities
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    /**
+     * Gets the highest ID that is currently stored.
+     * @return The highest ID, or 0 if the store is empty
+     */
+    public int maxId() {
+        int max = 0;
+        for (Segment segment : segments) {
+            max = Math.max(max, segment.maxId());
+        }
+        return max;
+    }
+
+    /**
+     * Lists all entities in ascending ID order.
+     * Each segment is copied atomically, and writers are never blocked while copying.
+     * @return A new list holding every stored entity
+     */
+    public List<T> values() {
+        return page(Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Lists the entities whose IDs follow the given ID, in ascending ID order.
+     * Only the requested range is copied, so the cost depends on the page size rather than the store size.
+     * @param afterId Only entities with an ID greater than this are returned
+     * @param limit Maximum number of entities to return
+     * @return A new list holding at most {@code limit} entities
+     */
+    public List<T> page(int afterId, int limit) {
+        long start = System.nanoTime();
+        try {
+            List<Versioned<T>> entries = versionedPage(afterId, limit);
+            List<T> entities = new ArrayList<>(entries.size());
+            for (Versioned<T> entry : entries) {
+                entities.add(entry.getEntity());
+            }
+            return entities;
+        } finally {
+            timed(StoreMetrics.Operation.PAGE, start);
+        }
+    }
+
+    // Page of entries with their versions, used for snapshots
+    List<Versioned<T>> versionedPage(int afterId, int limit) {
+        List<List<Versioned<T>>> parts = new ArrayList<>(segments.length);
+        long available = 0;
+        for (Segment segment : segments) {
+            List<Versioned<T>> part = segment.snapshot(afterId, limit);
+            parts.add(part);
+            available += part.size();
+        }
+        return merge(parts, (int) Math.min(available, limit), entry -> idOf.applyAsInt(entry.getEntity()));
+    }
+
+    // Merges the id-ordered segment snapshots into one id-ordered list of the given size
+    private static <E> List<E> merge(List<List<E>> parts, int count, ToIntFunction<E> idOf) {
+        List<E> result = new ArrayList<>(count);
+        int[] positions = new int[parts.size()];
+        while (result.size() < count) {
+            int best = -1;
+            int bestId = 0;
+            for (int i = 0; i < positions.length; i++) {
+                List<E> part = parts.get(i);
+                if (positions[i] < part.size()) {
+                    int id = idOf.applyAsInt(part.get(positions[i]));
+                    if (best < 0 || id < bestId) {
+                        best = i;
+                        bestId = id;
+                    }
+                }
+            }
+            result.add(parts.get(best).get(positions[best]++));
+        }
+        return result;
+    }
+
+    // Bulk insert used while restoring a snapshot, before the store is shared; each segment is filled in parallel.
+    // Entries without a version, from snapshots written before versions were stored, get a new one
+    void load(List<Versioned<T>> entries) {
+        int[] ids = new int[entries.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = idOf.applyAsInt(entries.get(i).getEntity());
+        }
+        int[][] slots = groupBySegment(ids);
+        IntStream.range(0, segments.length).parallel().forEach(k -> segments[k].load(slots[k], ids, entries));
+    }
+
+    // Sizes the segments of a store that is not yet shared for the entities about to be loaded
+    void presize(long count) {
+        int perSegment = (int) Math.min(count / segments.length + 1, 1 << 28);
+        for (Segment segment : segments) {
+            segment.presize(perSegment);
+        }
+    }
+
+    // Writes a snapshot now instead of waiting for the background writer
+    void snapshot() {
+        files.snapshot(this, idOf);
+    }
+
+    // Closes the store's files; writes fail afterwards
+    void close() {
+        files.close();
+    }
+
+    /**
+     * Closes the files of every durable store: stops the snapshot writer, then writes out and
+     * closes the logs. Call when the application stops; stores cannot be written afterwards.
+     */
+    public static void closeAll() {
+        StoreFiles.closeAll();
+    }
+
+    // Highest version handed out so far
+    long clock() {
+        return versionClock.get();
+    }
+
+    // Restores the counters saved with a snapshot; they cover writes whose records are gone
+    void restoreVersion(long version, long modified) {
+        restoredVersion(version);
+        restoredTime(modified);
+    }
+
+    private long restoredVersion(long version) {
+        if (version <= 0) {
+            return versionClock.incrementAndGet();
+        }
+        versionClock.accumulateAndGet(version, Math::max);
+        return version;
+    }
+
+    private long restoredTime(long modified) {
+        if (modified <= 0) {
+            return lastModified.get();
+        }
+        lastModified.accumulateAndGet(modified, Math::max);
+        return modified;
+    }
+
+    // Called after a write is visible to readers
+    private void published(int writes, long modified) {
+        storeVersion.addAndGet(writes);
+        lastModified.accumulateAndGet(modified, Math::max);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<T> writeAll(List<T> entities, boolean onlyIfPresent) {
+        int[] ids = idsOf(entities);
+        byte[][] payloads = encodeAll(entities);
+        Object[] previous = new Object[ids.length];
+        int[][] bySegment = groupBySegment(ids);
+        WriteAheadLog.Commit commit = log == null ? null : new WriteAheadLog.Commit();
+        DatabaseException refused = null;
+        for (int k = 0; k < segments.length && refused == null; k++) {
+            if (bySegment[k].length > 0) {
+                try {
+                    segments[k].putAll(bySegment[k], ids, entities, payloads, onlyIfPresent, previous, commit);
+                } catch (DatabaseException e) {
+                    refused = e;
+                }
+            }
+        }
+        awaitThenThrow(commit, refused);
+        return (List<T>) Arrays.asList(previous);
+    }
+
+    // A batch stopped by a refused record still waits for the records queued before it
+    private void awaitThenThrow(WriteAheadLog.Commit commit, DatabaseException refused) {
+        if (commit != null) {
+            log.awaitDurable(commit);
+        }
+        if (refused != null) {
+            throw refused;
+        }
+    }
+
+    private int[] idsOf(List<T> entities) {
+        int[] ids = new int[entities.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = idOf.applyAsInt(entities.get(i));
+        }
+        return ids;
+    }
+
+    // Positions of the IDs grouped by segment, keeping their order within each segment
+    private int[][] groupBySegment(int[] ids) {
+        int[][] slots = new int[segments.length][];
+        int[] counts = new int[segments.length];
+        int[] segmentOf = new int[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            int k = segmentIndex(ids[i]);
+            segmentOf[i] = k;
+            counts[k]++;
+        }
+        for (int k = 0; k < segments.length; k++) {
+            slots[k] = new int[counts[k]];
+            counts[k] = 0;
+        }
+        for (int i = 0; i < ids.length; i++) {
+            slots[segmentOf[i]][counts[segmentOf[i]]++] = i;
+        }
+        return slots;
+    }
+
+    private byte[][] encodeAll(List<T> entities) {
+        if (log == null) {
+            return null;
+        }
+        byte[][] payloads = new byte[entities.size()][];
+        IntStream range = IntStream.range(0, payloads.length);
+        if (payloads.length >= PARALLEL_ENCODE_THRESHOLD) {
+            range = range.parallel();
+        }
+        range.forEach(i -> payloads[i] = log.encode(entities.get(i)));
+        return payloads;
+    }
+
+    // Serialized outside the segment lock so the lock is held only for the in-memory update
+    private byte[] encode(T entity) {
+        return log == null ? null : log.encode(entity);
+    }
+
+    private Segment segmentFor(int id) {
+        return segments[segmentIndex(id)];
+    }
+
+    private int segmentIndex(int id) {
+        return (id ^ (id >>> 16)) & segmentMask;
+    }
+
+    // Stores created without a name are not registered with the metrics
+    private void timed(StoreMetrics.Operation operation, long startNanos) {
+        if (metrics != null) {
+            metrics.record(operation, startNanos);
+        }
+    }
+
+    private static int segmentCountFor(int processors) {
+        int count = Integer.highestOneBit(Math.max(processors, 1) * 2 - 1) << 1;
+        return Math.max(4, Math.min(count, 64));
+    }
+
+    private static void checkVersion(int id, Versioned<?> current, long expectedVersion) {
+        if (expectedVersion != ANY_VERSION && current != null && current.getVersion() != expectedVersion) {
+            throw new VersionConflictException("Entity with ID " + id + " has version " + current.getVersion()
+                    + ", not the expected version " + expectedVersion);
+        }
+    }
+
+    /**
+     * One lock stripe of the store: a hash index plus the ascending id order of its entries.
+     */
+    private final class Segment {
+        private final StampedLock lock = new StampedLock();
+        private IntHashIndex<Versioned<T>> index = new IntHashIndex<>();
+
+        // Per secondary index, the IDs of this segment's entities grouped by key
+        @SuppressWarnings("unchecked")
+        private SecondaryIndex<T>[] secondaryIndexes = (SecondaryIndex<T>[]) new SecondaryIndex<?>[0];
+        @SuppressWarnings("unchecked")
+        private IntHashIndex<IdSet>[] postings = (IntHashIndex<IdSet>[]) new IntHashIndex<?>[0];
+        @SuppressWarnings("unchecked")
+        private StoreListener<T>[] listeners = (StoreListener<T>[]) new StoreListener<?>[0];
+
+        // Ids in ascending order; removed ids stay behind until the next compaction
+        private int[] order = new int[16];
+        private int orderLength;
+
+        Versioned<T> get(int id) {
+            for (int attempt = 0; attempt < OPTIMISTIC_ATTEMPTS; attempt++) {
+                long stamp = lock.tryOptimisticRead();
+                if (stamp == 0L) {
+                    break;
+                }
+                try {
+                    Versioned<T> entry = index.get(id);
+                    if (lock.validate(stamp)) {
+                        return entry;
+                    }
+                } catch (RuntimeException e) {
+                    // Torn read of a table being resized; retry
+                }
+            }
+            long stamp = lock.readLock();
+            try {
+                return index.get(id);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        // The log record is queued under the lock, so the log orders writes to an id
+        // exactly like the store does; waiting for the disk happens after unlocking
+        T put(int id, T entity, byte[] payload, boolean onlyIfPresent, long expectedVersion) {
+            Versioned<T> previous;
+            WriteAheadLog.Commit commit = payload == null ? null : new WriteAheadLog.Commit();
+            long modified = System.currentTimeMillis();
+            long stamp = lock.writeLock();
+            try {
+                Versioned<T> current = index.get(id);
+                if (onlyIfPresent && current == null) {
+                    return null;
+                }
+                checkVersion(id, current, expectedVersion);
+                long version = versionClock.incrementAndGet();
+                Versioned<T> written = new Versioned<>(entity, version, modified);
+                previous = store(id, written);
+                if (commit != null) {
+                    logPut(commit, id, written, previous, payload);
+                }
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+            published(1, modified);
+            if (commit != null) {
+                log.awaitDurable(commit);
+            }
+            return previous == null ? null : previous.getEntity();
+        }
+
+        // Batch form of put: one lock for all of this segment's entities
+        void putAll(int[] positions, int[] ids, List<T> entities, byte[][] payloads, boolean onlyIfPresent, Object[] previous,
+                WriteAheadLog.Commit commit) {
+            int writes = 0;
+            long modified = System.currentTimeMillis();
+            long stamp = lock.writeLock();
+            try {
+                for (int i : positions) {
+                    int id = ids[i];
+                    if (onlyIfPresent && !index.containsKey(id)) {
+                        continue;
+                    }
+                    long version = versionClock.incrementAndGet();
+                    Versioned<T> written = new Versioned<>(entities.get(i), version, modified);
+                    Versioned<T> replaced = store(id, written);
+                    if (commit != null) {
+                        logPut(commit, id, written, replaced, payloads[i]);
+                    }
+                    previous[i] = replaced == null ? null : replaced.getEntity();
+                    writes++;
+                }
+            } finally {
+                lock.unlockWrite(stamp);
+                published(writes, modified);
+            }
+        }
+
+        // Applies snapshot entries under one lock, and moves the store's counters once for all of them
+        void load(int[] positions, int[] ids, List<Versioned<T>> entries) {
+            long maxVersion = 0;
+            long maxModified = 0;
+            long stamp = lock.writeLock();
+            try {
+                for (int i : positions) {
+                    Versioned<T> entry = entries.get(i);
+                    if (entry.getVersion() <= 0 || entry.getLastModified() <= 0) {
+                        entry = new Versioned<>(entry.getEntity(), restoredVersion(entry.getVersion()),
+                                restoredTime(entry.getLastModified()));
+                    }
+                    maxVersion = Math.max(maxVersion, entry.getVersion());
+                    maxModified = Math.max(maxModified, entry.getLastModified());
+                    store(ids[i], entry);
+                }
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+            if (maxVersion > 0) {
+                restoredVersion(maxVersion);
+                restoredTime(maxModified);
+            }
+        }
+
+        // Replaces the empty tables with ones large enough for the given number of entities
+        void presize(int count) {
+            long stamp = lock.writeLock();
+            try {
+                if (index.size() == 0) {
+                    index = new IntHashIndex<>(count);
+                    order = new int[Math.max(16, count)];
+                    orderLength = 0;
+                }
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        // Applies a replayed entry, which already has its version
+        void restore(int id, Versioned<T> entry) {
+            long stamp = lock.writeLock();
+            try {
+                store(id, entry);
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        T remove(int id, long expectedVersion, boolean logged) {
+            Versioned<T> removed;
+            WriteAheadLog.Commit commit = logged && log != null ? new WriteAheadLog.Commit() : null;
+            long modified = System.currentTimeMillis();
+            long stamp = lock.writeLock();
+            try {
+                checkVersion(id, index.get(id), expectedVersion);
+                removed = index.remove(id);
+                if (removed == null) {
+                    return null;
+                }
+                reindex(id, removed.getEntity(), null);
+                if (orderLength > 2 * index.size() + 16) {
+                    compactOrder();
+                }
+                if (logged) {
+                    long version = versionClock.incrementAndGet();
+                    if (commit != null) {
+                        logRemove(commit, id, version, modified, removed);
+                    }
+                }
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+            if (logged) {
+                published(1, modified);
+            }
+            if (commit != null) {
+                log.awaitDurable(commit);
+            }
+            return removed.getEntity();
+        }
+
+        void removeAll(int[] positions, int[] ids, Object[] removed, WriteAheadLog.Commit commit) {
+            int writes = 0;
+            long modified = System.currentTimeMillis();
+            long stamp = lock.writeLock();
+            try {
+                for (int i : positions) {
+                    int id = ids[i];
+                    Versioned<T> entry = index.remove(id);
+                    if (entry == null) {
+                        continue;
+                    }
+                    reindex(id, entry.getEntity(), null);
+                    long version = versionClock.incrementAndGet();
+                    if (commit != null) {
+                        logRemove(commit, id, version, modified, entry);
+                    }
+                    removed[i] = entry.getEntity();
+                    writes++;
+                }
+                if (orderLength > 2 * index.size() + 16) {
+                    compactOrder();
+                }
+            } finally {
+                lock.unlockWrite(stamp);
+                published(writes, modified);
+            }
+        }
+
+        // Queues the record of a put already applied under the lock. A refused record is undone at once;
+        // one the log fails to write is undone by its writer thread
+        private void logPut(WriteAheadLog.Commit commit, int id, Versioned<T> written, Versioned<T> replaced, byte[] payload) {
+            try {
+                log.appendPut(commit, id, written.getVersion(), written.getLastModified(), payload,
+                        () -> revert(id, written, replaced));
+            } catch (DatabaseException e) {
+                undo(id, written, replaced);
+                throw e;
+            }
+        }
+
+        private void logRemove(WriteAheadLog.Commit commit, int id, long version, long modified, Versioned<T> removed) {
+            try {
+                log.appendRemove(commit, id, version, modified, () -> revert(id, null, removed));
+            } catch (DatabaseException e) {
+                undo(id, null, removed);
+                throw e;
+            }
+        }
+
+        private void revert(int id, Versioned<T> written, Versioned<T> replaced) {
+            long stamp = lock.writeLock();
+            try {
+                undo(id, written, replaced);
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+            storeVersion.incrementAndGet();
+        }
+
+        // Puts back the entry a write replaced, null for none, unless a later write has replaced
+        // the written entry, null for a removal
+        private void undo(int id, Versioned<T> written, Versioned<T> replaced) {
+            Versioned<T> current = index.get(id);
+            if (current != written) {
+                return;
+            }
+            if (replaced != null) {
+                store(id, replaced);
+            } else if (current != null) {
+                index.remove(id);
+                reindex(id, current.getEntity(), null);
+            }
+        }
+
+        int size() {
+            long stamp = lock.tryOptimisticRead();
+            int size = index.size();
+            if (lock.validate(stamp)) {
+                return size;
+            }
+            stamp = lock.readLock();
+            try {
+                return index.size();
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        int maxId() {
+            long stamp = lock.readLock();
+            try {
+                for (int i = orderLength - 1; i >= 0; i--) {
+                    if (index.containsKey(order[i])) {
+                        return order[i];
+                    }
+                }
+                return 0;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        List<Versioned<T>> snapshot(int afterId, int limit) {
+            for (int attempt = 0; attempt < OPTIMISTIC_ATTEMPTS; attempt++) {
+                long stamp = lock.tryOptimisticRead();
+                if (stamp == 0L) {
+                    break;
+                }
+                try {
+                    List<Versioned<T>> copy = copyRange(afterId, limit);
+                    if (lock.validate(stamp)) {
+                        return copy;
+                    }
+                } catch (RuntimeException e) {
+                    // Torn read of arrays being resized; retry
+                }
+            }
+            long stamp = lock.readLock();
+            try {
+                return copyRange(afterId, limit);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        void addIndex(SecondaryIndex<T> secondary) {
+            long stamp = lock.writeLock();
+            try {
+                IntHashIndex<IdSet> keys = new IntHashIndex<>();
+                for (int i = 0; i < orderLength; i++) {
+                    Versioned<T> entry = index.get(order[i]);
+                    if (entry != null) {
+                        link(keys, secondary.keyOf(entry.getEntity()), order[i]);
+                    }
+                }
+                secondaryIndexes = Arrays.copyOf(secondaryIndexes, secondaryIndexes.length + 1);
+                secondaryIndexes[secondaryIndexes.length - 1] = secondary;
+                postings = Arrays.copyOf(postings, postings.length + 1);
+                postings[postings.length - 1] = keys;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        void addListener(StoreListener<T> listener) {
+            long stamp = lock.writeLock();
+            try {
+                for (int i = 0; i < orderLength; i++) {
+                    Versioned<T> entry = index.get(order[i]);
+                    if (entry != null) {
+                        listener.changed(order[i], null, entry.getEntity());
+                    }
+                }
+                listeners = Arrays.copyOf(listeners, listeners.length + 1);
+                listeners[listeners.length - 1] = listener;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        List<T> find(SecondaryIndex<T> secondary, int key) {
+            for (int attempt = 0; attempt < OPTIMISTIC_ATTEMPTS; attempt++) {
+                long stamp = lock.tryOptimisticRead();
+                if (stamp == 0L) {
+                    break;
+                }
+                try {
+                    List<T> matches = copyMatches(secondary, key);
+                    if (lock.validate(stamp)) {
+                        return matches;
+                    }
+                } catch (RuntimeException e) {
+                    // Torn read of a posting list being resized; retry
+                }
+            }
+            long stamp = lock.readLock();
+            try {
+                return copyMatches(secondary, key);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        private List<T> copyMatches(SecondaryIndex<T> secondary, int key) {
+            IdSet ids = postings[secondary.slot()].get(key);
+            if (ids == null) {
+                return new ArrayList<>(0);
+            }
+            List<T> matches = new ArrayList<>(ids.size());
+            for (int i = 0; i < ids.size(); i++) {
+                Versioned<T> entry = index.get(ids.get(i));
+                // Re-check the key in case the entity was changed in place after it was stored
+                if (entry != null && secondary.keyOf(entry.getEntity()) == key) {
+                    matches.add(entry.getEntity());
+                }
+            }
+            return matches;
+        }
+
+        // Stores the entry and keeps the id order and the secondary indexes up to date
+        private Versioned<T> store(int id, Versioned<T> entry) {
+            Versioned<T> previous = index.put(id, entry);
+            if (previous == null) {
+                insertOrdered(id);
+            }
+            reindex(id, previous == null ? null : previous.getEntity(), entry.getEntity());
+            return previous;
+        }
+
+        // Moves the ID between posting lists when an indexed attribute changes, and tells the listeners
+        private void reindex(int id, T previous, T current) {
+            for (StoreListener<T> listener : listeners) {
+                listener.changed(id, previous, current);
+            }
+            for (int k = 0; k < secondaryIndexes.length; k++) {
+                SecondaryIndex<T> secondary = secondaryIndexes[k];
+                if (previous != null && current != null && secondary.keyOf(previous) == secondary.keyOf(current)) {
+                    continue;
+                }
+                if (previous != null) {
+                    unlink(postings[k], secondary.keyOf(previous), id);
+                }
+                if (current != null) {
+                    link(postings[k], secondary.keyOf(current), id);
+                }
+            }
+        }
+
+        private void link(IntHashIndex<IdSet> keys, int key, int id) {
+            IdSet ids = keys.get(key);
+            if (ids == null) {
+                ids = new IdSet();
+                keys.put(key, ids);
+            }
+            ids.add(id);
+        }
+
+        private void unlink(IntHashIndex<IdSet> keys, int key, int id) {
+            IdSet ids = keys.get(key);
+            if (ids != null) {
+                ids.remove(id);
+                if (ids.isEmpty()) {
+                    keys.remove(key);
+                }
+            }
+        }
+
+        private List<Versioned<T>> copyRange(int afterId, int limit) {
+            int[] ids = order;
+            int length = Math.min(orderLength, ids.length);
+            int start = 0;
+            if (length > 0 && ids[0] <= afterId) {
+                start = Arrays.binarySearch(ids, 0, length, afterId);
+                start = start >= 0 ? start + 1 : -start - 1;
+            }
+            List<Versioned<T>> copy = new ArrayList<>(Math.min(limit, length - start));
+            for (int i = start; i < length && copy.size() < limit; i++) {
+                Versioned<T> entry = index.get(ids[i]);
+                if (entry != null) {
+                    copy.add(entry);
+                }
+            }
+            return copy;
+        }
+
+        // Ids are handed out in increasing order, so this is an append in the common case
+        private void insertOrdered(int id) {
+            if (orderLength == order.length) {
+                compactOrder();
+                if (orderLength == order.length) {
+                    order = Arrays.copyOf(order, order.length << 1);
+                }
+            }
+            int position = orderLength;
+            if (position > 0 && order[position - 1] >= id) {
+                position = Arrays.binarySearch(order, 0, orderLength, id);
+                if (position >= 0) {
+                    // Stale slot left by an earlier removal of the same id
+                    return;
+                }
+                position = -position - 1;
+            }
+            System.arraycopy(order, position, order, position + 1, orderLength - position);
+            order[position] = id;
+            orderLength++;
+        }
+
+        private void compactOrder() {
+            int live = 0;
+            for (int i = 0; i < orderLength; i++) {
+                int id = order[i];
+                if (index.containsKey(id)) {
+                    order[live++] = id;
+                }
+            }
+            orderLength = live;
+        }
+    }
+}
@@ -0,0 +1,303 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.store;
+
+/**
+ *
+ * @author Maryam
+ */
+import java.util.Arrays;
+
+/**
+ * Compressed set of int IDs, split like a roaring bitmap into chunks of 65,536 IDs that share
+ * their upper 16 bits. A chunk with few IDs is a sorted array of their lower 16 bits; a chunk
+ * with many is a plain bitmap of 8 KB. Sparse sets so cost about two bytes per ID and dense
+ * ones about one bit.
+ * <p>
+ * This class is not thread-safe.
+ */
+public final class IdBitmap {
+    // An array chunk turns into a bitmap when it reaches this size, where both take 8 KB
+    private static final int ARRAY_MAX = 4096;
+    // A bitmap chunk turns back into an array below this size, so IDs coming and going
+    // around the limit do not convert the chunk back and forth
+    private static final int BITMAP_MIN = ARRAY_MAX / 2;
+    private static final int WORDS = 1024;
+    private static final int[] NO_IDS = new int[0];
+
+    // Upper 16 bits of the IDs of each chunk, in ascending order
+    private int[] keys;
+    private Chunk[] chunks;
+    private int chunkCount;
+    private int cardinality;
+
+    /**
+     * Creates an empty set.
+     */
+    public IdBitmap() {
+        keys = new int[4];
+        chunks = new Chunk[4];
+    }
+
+    /**
+     * Adds an ID.
+     * @param id The ID
+     * @return True if the set did not hold it yet
+     */
+    public boolean add(int id) {
+        int key = id >> 16;
+        int index = Arrays.binarySearch(keys, 0, chunkCount, key);
+        if (index < 0) {
+            index = -index - 1;
+            insertChunk(index, key, new ArrayChunk(4));
+        }
+        Chunk chunk = chunks[index];
+        int before = chunk.cardinality();
+        chunks[index] = chunk.add((char) id);
+        if (chunks[index].cardinality() == before) {
+            return false;
+        }
+        cardinality++;
+        return true;
+    }
+
+    /**
+     * Removes an ID.
+     * @param id The ID
+     * @return True if the set held it
+     */
+    public boolean remove(int id) {
+        int index = Arrays.binarySearch(keys, 0, chunkCount, id >> 16);
+        if (index < 0) {
+            return false;
+        }
+        Chunk chunk = chunks[index];
+        int before = chunk.cardinality();
+        chunk = chunk.remove((char) id);
+        if (chunk.cardinality() == before) {
+            return false;
+        }
+        cardinality--;
+        if (chunk.cardinality() == 0) {
+            System.arraycopy(keys, index + 1, keys, index, chunkCount - index - 1);
+            System.arraycopy(chunks, index + 1, chunks, index, chunkCount - index - 1);
+            chunks[--chunkCount] = null;
+        } else {
+            chunks[index] = chunk;
+        }
+        return true;
+    }
+
+    /**
+     * Gets the number of IDs.
+     * @return The number of IDs
+     */
+    public int cardinality() {
+        return cardinality;
+    }
+
+    /**
+     * Checks whether the set is empty.
+     * @return True if it holds no ID
+     */
+    public boolean isEmpty() {
+        return cardinality == 0;
+    }
+
+    /**
+     * Gets the IDs following a cursor, in ascending order.
+     * @param afterId Only IDs greater than this are returned
+     * @param limit Maximum number of IDs to return
+     * @return At most {@code limit} IDs
+     */
+    public int[] page(int afterId, int limit) {
+        if (afterId == Integer.MAX_VALUE || limit <= 0) {
+            return NO_IDS;
+        }
+        int from = afterId + 1;
+        int[] out = new int[Math.min(limit, cardinality)];
+        int count = 0;
+        int index = Arrays.binarySearch(keys, 0, chunkCount, from >> 16);
+        int fromLow = from & 0xFFFF;
+        if (index < 0) {
+            index = -index - 1;
+            fromLow = 0;
+        }
+        for (; index < chunkCount && count < out.length; index++) {
+            count = chunks[index].fill(keys[index] << 16, fromLow, out, count);
+            fromLow = 0;
+        }
+        return count == out.length ? out : Arrays.copyOf(out, count);
+    }
+
+    private void insertChunk(int index, int key, Chunk chunk) {
+        if (chunkCount == keys.length) {
+            keys = Arrays.copyOf(keys, chunkCount * 2);
+            chunks = Arrays.copyOf(chunks, chunkCount * 2);
+        }
+        System.arraycopy(keys, index, keys, index + 1, chunkCount - index);
+        System.arraycopy(chunks, index, chunks, index + 1, chunkCount - index);
+        keys[index] = key;
+        chunks[index] = chunk;
+        chunkCount++;
+    }
+
+    /**
+     * The lower 16 bits of the IDs of one chunk. Updates return the chunk that holds the
+     * result, which is this one unless it had to change representation.
+     */
+    private abstract static class Chunk {
+        abstract int cardinality();
+
+        abstract Chunk add(char low);
+
+        abstract Chunk remove(char low);
+
+        /**
+         * Copies IDs into an array until it is full.
+         * @param base Upper bits of the IDs, already shifted
+         * @param fromLow Smallest lower bits to copy
+         * @param out The array
+         * @param count Number of IDs already in it
+         * @return Number of IDs in it now
+         */
+        abstract int fill(int base, int fromLow, int[] out, int count);
+    }
+
+    private static final class ArrayChunk extends Chunk {
+        private char[] values;
+        private int size;
+
+        ArrayChunk(int capacity) {
+            values = new char[capacity];
+        }
+
+        ArrayChunk(char[] values, int size) {
+            this.values = values;
+            this.size = size;
+        }
+
+        @Override
+        int cardinality() {
+            return size;
+        }
+
+        @Override
+        Chunk add(char low) {
+            int index = Arrays.binarySearch(values, 0, size, low);
+            if (index >= 0) {
+                return this;
+            }
+            if (size == ARRAY_MAX) {
+                return toBitmap().add(low);
+            }
+            index = -index - 1;
+            if (size == values.length) {
+                values = Arrays.copyOf(values, Math.min(ARRAY_MAX, Math.max(4, size * 2)));
+            }
+            System.arraycopy(values, index, values, index + 1, size - index);
+            values[index] = low;
+            size++;
+            return this;
+        }
+
+        @Override
+        Chunk remove(char low) {
+            int index = Arrays.binarySearch(values, 0, size, low);
+            if (index >= 0) {
+                System.arraycopy(values, index + 1, values, index, size - index - 1);
+                size--;
+            }
+            return this;
+        }
+
+        @Override
+        int fill(int base, int fromLow, int[] out, int count) {
+            int index = Arrays.binarySearch(values, 0, size, (char) fromLow);
+            if (index < 0) {
+                index = -index - 1;
+            }
+            while (index < size && count < out.length) {
+                out[count++] = base | values[index++];
+            }
+            return count;
+        }
+
+        BitmapChunk toBitmap() {
+            BitmapChunk bitmap = new BitmapChunk(new long[WORDS], size);
+            for (int i = 0; i < size; i++) {
+                bitmap.words[values[i] >>> 6] |= 1L << values[i];
+            }
+            return bitmap;
+        }
+    }
+
+    private static final class BitmapChunk extends Chunk {
+        private final long[] words;
+        private int cardinality;
+
+        BitmapChunk(long[] words, int cardinality) {
+            this.words = words;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        Chunk add(char low) {
+            long word = words[low >>> 6];
+            long bit = 1L << low;
+            if ((word & bit) == 0) {
+                words[low >>> 6] = word | bit;
+                cardinality++;
+            }
+            return this;
+        }
+
+        @Override
+        Chunk remove(char low) {
+            long word = words[low >>> 6];
+            long bit = 1L << low;
+            if ((word & bit) != 0) {
+                words[low >>> 6] = word & ~bit;
+                cardinality--;
+            }
+            return cardinality < BITMAP_MIN ? toArray() : this;
+        }
+
+        @Override
+        int fill(int base, int fromLow, int[] out, int count) {
+            int w = fromLow >>> 6;
+            long word = words[w] & (-1L << fromLow);
+            while (count < out.length) {
+                while (word == 0) {
+                    if (++w == WORDS) {
+                        return count;
+                    }
+                    word = words[w];
+                }
+                out[count++] = base | (w << 6) | Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+            }
+            return count;
+        }
+
+        ArrayChunk toArray() {
+            char[] values = new char[Math.max(cardinality, 1)];
+            int n = 0;
+            for (int w = 0; w < WORDS; w++) {
+                long word = words[w];
+                while (word != 0) {
+                    values[n++] = (char) ((w << 6) | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+            return new ArrayChunk(values, n);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.store;
+
+/**
+ *
+ * @author Maryam
+ */
+import java.util.Arrays;
+
+/**
+ * Sorted set of primitive int IDs, used as the posting list of one secondary index key.
+ * IDs are handed out in increasing order, so adding is an append in the common case.
+ * This class is not thread-safe.
+ */
+final class IdSet {
+    private int[] ids = new int[4];
+    private int size;
+
+    /**
+     * Adds an ID to the set.
+     * @param id The ID to add
+     */
+    void add(int id) {
+        int position = size;
+        if (size > 0 && ids[size - 1] >= id) {
+            position = Arrays.binarySearch(ids, 0, size, id);
+            if (position >= 0) {
+                return;
+            }
+            position = -position - 1;
+        }
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size << 1);
+        }
+        System.arraycopy(ids, position, ids, position + 1, size - position);
+        ids[position] = id;
+        size++;
+    }
+
+    /**
+     * Removes an ID from the set.
+     * @param id The ID to remove
+     */
+    void remove(int id) {
+        int position = Arrays.binarySearch(ids, 0, size, id);
+        if (position >= 0) {
+            System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+            size--;
+        }
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Gets the ID at a position.
+     * @param position Position in ascending ID order
+     * @return The ID at the position
+     */
+    int get(int position) {
+        return ids[position];
+    }
+}
@@ -0,0 +1,233 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.store;
+
+/**
+ *
+ * @author Maryam
+ */
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash index from primitive int keys to values.
+ * Keys are never boxed; collisions are resolved by linear probing and removals
+ * use backward-shift deletion, so lookups never have to skip tombstones.
+ * This class is not thread-safe.
+ * @param <V> The type of the indexed values
+ */
+public class IntHashIndex<V> {
+    private static final int FREE_KEY = 0;
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private int[] keys;
+    private Object[] values;
+    private int mask;
+    private int size;
+    private int resizeAt;
+
+    // Key 0 marks a free slot, so its value is kept outside the table
+    private boolean hasFreeKey;
+    private Object freeValue;
+
+    /**
+     * Creates an empty index.
+     */
+    public IntHashIndex() {
+        this(16);
+    }
+
+    /**
+     * Creates an index sized for the expected number of entries.
+     * @param expectedSize The expected number of entries
+     */
+    public IntHashIndex(int expectedSize) {
+        int capacity = tableSizeFor((int) Math.ceil(Math.max(expectedSize, 2) / LOAD_FACTOR));
+        allocate(capacity);
+    }
+
+    /**
+     * Gets the value stored for a key.
+     * @param key The key to look up
+     * @return The value, or null if the key is not present
+     */
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        if (key == FREE_KEY) {
+            return hasFreeKey ? (V) freeValue : null;
+        }
+        int[] k = keys;
+        int m = mask;
+        int slot = mix(key) & m;
+        int current;
+        while ((current = k[slot]) != FREE_KEY) {
+            if (current == key) {
+                return (V) values[slot];
+            }
+            slot = (slot + 1) & m;
+        }
+        return null;
+    }
+
+    /**
+     * Checks whether a key is present.
+     * @param key The key to check
+     * @return True if the key is present, otherwise false
+     */
+    public boolean containsKey(int key) {
+        if (key == FREE_KEY) {
+            return hasFreeKey;
+        }
+        int slot = mix(key) & mask;
+        int current;
+        while ((current = keys[slot]) != FREE_KEY) {
+            if (current == key) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * Stores a value for a key, replacing any previous value.
+     * @param key The key
+     * @param value The value to store
+     * @return The previous value, or null if the key was not present
+     */
+    @SuppressWarnings("unchecked")
+    public V put(int key, V value) {
+        if (key == FREE_KEY) {
+            V previous = hasFreeKey ? (V) freeValue : null;
+            if (!hasFreeKey) {
+                hasFreeKey = true;
+                size++;
+            }
+            freeValue = value;
+            return previous;
+        }
+        int slot = mix(key) & mask;
+        int current;
+        while ((current = keys[slot]) != FREE_KEY) {
+            if (current == key) {
+                V previous = (V) values[slot];
+                values[slot] = value;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > resizeAt) {
+            rehash(keys.length << 1);
+        }
+        return null;
+    }
+
+    /**
+     * Removes the value stored for a key.
+     * @param key The key to remove
+     * @return The removed value, or null if the key was not present
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(int key) {
+        if (key == FREE_KEY) {
+            if (!hasFreeKey) {
+                return null;
+            }
+            V previous = (V) freeValue;
+            hasFreeKey = false;
+            freeValue = null;
+            size--;
+            return previous;
+        }
+        int slot = mix(key) & mask;
+        int current;
+        while ((current = keys[slot]) != FREE_KEY) {
+            if (current == key) {
+                V previous = (V) values[slot];
+                shiftKeys(slot);
+                size--;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * Gets the number of entries in the index.
+     * @return The number of entries
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Removes all entries.
+     */
+    public void clear() {
+        Arrays.fill(keys, FREE_KEY);
+        Arrays.fill(values, null);
+        hasFreeKey = false;
+        freeValue = null;
+        size = 0;
+    }
+
+    // Backward-shift deletion: pull later entries of the probe chain into the gap
+    private void shiftKeys(int gap) {
+        int slot = gap;
+        while (true) {
+            slot = (slot + 1) & mask;
+            int current = keys[slot];
+            if (current == FREE_KEY) {
+                break;
+            }
+            int home = mix(current) & mask;
+            // Move the entry only if its home slot is not between the gap and its current slot
+            if (gap <= slot ? (gap >= home || home > slot) : (gap >= home && home > slot)) {
+                keys[gap] = current;
+                values[gap] = values[slot];
+                gap = slot;
+            }
+        }
+        keys[gap] = FREE_KEY;
+        values[gap] = null;
+    }
+
+    private void rehash(int newCapacity) {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(newCapacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            int key = oldKeys[i];
+            if (key != FREE_KEY) {
+                int slot = mix(key) & mask;
+                while (keys[slot] != FREE_KEY) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    // Spreads sequential ids across the table
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static int tableSizeFor(int capacity) {
+        int n = Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1;
+        return n < 0 ? 1 << 30 : n;
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.store;
+
+/**
+ *
+ * @author Maryam
+ */
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+/**
+ * Index of an {@link EntityStore} by an int attribute of its entities, such as a patient ID.
+ * The index is kept in the store's segments and updated under the same lock as the
+ * entities, so a lookup never sees a write half applied. Lookups cost time proportional
+ * to the number of matches, not to the size of the store.
+ * Created with {@link EntityStore#addIndex(ToIntFunction)}.
+ * @param <T> The type of the stored entities
+ */
+public final class SecondaryIndex<T> {
+    private final EntityStore<T> store;
+    private final int slot;
+    private final ToIntFunction<T> keyOf;
+
+    SecondaryIndex(EntityStore<T> store, int slot, ToIntFunction<T> keyOf) {
+        this.store = store;
+        this.slot = slot;
+        this.keyOf = keyOf;
+    }
+
+    /**
+     * Finds the entities with the given key.
+     * @param key The key to look up
+     * @return A new list holding the matching entities in ascending ID order
+     */
+    public List<T> find(int key) {
+        return store.find(this, key);
+    }
+
+    int slot() {
+        return slot;
+    }
+
+    int keyOf(T entity) {
+        return keyOf.applyAsInt(entity);
+    }
+}
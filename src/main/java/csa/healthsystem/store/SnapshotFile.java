@@ -0,0 +1,203 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.store;
+
+/**
+ *
+ * @author Maryam
+ */
+import com.fasterxml.jackson.databind.ObjectReader;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Binary snapshot of an {@link EntityStore}.
+ * Layout: {@code [magic][version][generation][version clock][last modified]}, then one
+ * {@code [length][entity version][modified][entity JSON]} record per entity in ID order, then
+ * {@code [-1][record count][crc32]}, where the checksum covers every byte before it. The
+ * generation is the first log file not covered by the snapshot. Snapshots of format 1, written
+ * before versions were stored, have neither the clock nor the entity versions and are still read.
+ * Snapshots are read through memory-mapped windows and decoded in parallel.
+ */
+final class SnapshotFile {
+    private static final int MAGIC = 0x48534E50;
+    private static final int VERSION = 2;
+    private static final int UNVERSIONED = 1;
+    private static final int HEADER_BYTES = 32;
+    private static final int UNVERSIONED_HEADER_BYTES = 16;
+    private static final int ENTRY_VERSION_BYTES = 16;
+    private static final int TRAILER_BYTES = 16;
+    private static final int END_MARKER = -1;
+    private static final long WINDOW_BYTES = 1L << 30;
+    private static final int WRITE_BATCH = 4096;
+    private static final int DECODE_BATCH = 65536;
+
+    private SnapshotFile() {}
+
+    /**
+     * Writes a snapshot of the store and forces it to disk.
+     * @param file The file to write
+     * @param generation The first log generation not covered by this snapshot
+     * @param store The store to copy, read page by page while writers continue
+     * @param idOf Function returning the ID of an entity
+     * @return The number of entities written
+     * @throws IOException if the file cannot be written
+     */
+    static <T> long write(Path file, long generation, EntityStore<T> store, ToIntFunction<T> idOf)
+            throws IOException {
+        CRC32 crc = new CRC32();
+        long count = 0;
+        try (OutputStream fileOut = Files.newOutputStream(file);
+             DataOutputStream out = new DataOutputStream(new CheckedOutputStream(new BufferedOutputStream(fileOut, 1 << 16), crc))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(generation);
+            // Read after the log was rotated, so it covers the removals this snapshot drops
+            out.writeLong(store.clock());
+            out.writeLong(store.lastModified());
+            int afterId = Integer.MIN_VALUE;
+            List<Versioned<T>> batch;
+            do {
+                batch = store.versionedPage(afterId, WRITE_BATCH);
+                for (Versioned<T> entry : batch) {
+                    byte[] payload = WriteAheadLog.MAPPER.writeValueAsBytes(entry.getEntity());
+                    out.writeInt(payload.length);
+                    out.writeLong(entry.getVersion());
+                    out.writeLong(entry.getLastModified());
+                    out.write(payload);
+                    count++;
+                }
+                if (!batch.isEmpty()) {
+                    afterId = idOf.applyAsInt(batch.get(batch.size() - 1).getEntity());
+                }
+            } while (batch.size() == WRITE_BATCH);
+            out.writeInt(END_MARKER);
+            out.writeLong(count);
+            out.flush();
+            // The checksum itself is written past the checked stream
+            ByteBuffer checksum = ByteBuffer.allocate(4).putInt(0, (int) crc.getValue());
+            fileOut.write(checksum.array());
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        return count;
+    }
+
+    /**
+     * Loads a snapshot into a store that is not yet shared, in batches of decoded entities.
+     * @param file The snapshot file
+     * @param type The class of the stored entities
+     * @param store Receives the entities and the saved version clock
+     * @return The first log generation not covered by the snapshot
+     * @throws IOException if the file cannot be read, is not a snapshot, or fails its checksum
+     */
+    static <T> long load(Path file, Class<T> type, EntityStore<T> store) throws IOException {
+        ObjectReader reader = WriteAheadLog.MAPPER.readerFor(type);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < UNVERSIONED_HEADER_BYTES + TRAILER_BYTES) {
+                throw new IOException("Snapshot " + file + " is truncated");
+            }
+            verifyChecksum(channel, size, file);
+            ByteBuffer count = ByteBuffer.allocate(8);
+            channel.read(count, size - TRAILER_BYTES + 4);
+            store.presize(count.getLong(0));
+
+            MappedByteBuffer window = map(channel, 0, size);
+            long windowStart = 0;
+            int format = window.getInt(4);
+            if (window.getInt(0) != MAGIC || (format != VERSION && format != UNVERSIONED)) {
+                throw new IOException("Snapshot " + file + " has an unknown format");
+            }
+            long generation = window.getLong(8);
+            boolean versioned = format == VERSION;
+            if (versioned) {
+                store.restoreVersion(window.getLong(16), window.getLong(24));
+            }
+            int prefix = versioned ? ENTRY_VERSION_BYTES : 0;
+
+            long position = versioned ? HEADER_BYTES : UNVERSIONED_HEADER_BYTES;
+            List<byte[]> payloads = new ArrayList<>(DECODE_BATCH);
+            while (true) {
+                if (position + 4 > windowStart + window.limit()) {
+                    window = map(channel, position, size);
+                    windowStart = position;
+                }
+                int length = window.getInt((int) (position - windowStart));
+                if (length == END_MARKER) {
+                    break;
+                }
+                if (position + 4 + prefix + length > windowStart + window.limit()) {
+                    window = map(channel, position, size);
+                    windowStart = position;
+                }
+                byte[] payload = new byte[prefix + length];
+                ((Buffer) window).position((int) (position - windowStart + 4));
+                window.get(payload);
+                payloads.add(payload);
+                position += 4 + prefix + length;
+                if (payloads.size() == DECODE_BATCH) {
+                    store.load(decode(reader, payloads, prefix));
+                    payloads = new ArrayList<>(DECODE_BATCH);
+                }
+            }
+            if (!payloads.isEmpty()) {
+                store.load(decode(reader, payloads, prefix));
+            }
+            return generation;
+        }
+    }
+
+    // Entries without a version prefix get version 0, which the store replaces with a new one
+    private static <T> List<Versioned<T>> decode(ObjectReader reader, List<byte[]> payloads, int prefix) {
+        return payloads.parallelStream().map(payload -> {
+            try {
+                T entity = reader.readValue(payload, prefix, payload.length - prefix);
+                if (prefix == 0) {
+                    return new Versioned<>(entity, 0L, 0L);
+                }
+                ByteBuffer versions = ByteBuffer.wrap(payload);
+                return new Versioned<>(entity, versions.getLong(0), versions.getLong(8));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }).collect(Collectors.toList());
+    }
+
+    private static void verifyChecksum(FileChannel channel, long size, Path file) throws IOException {
+        long checkedBytes = size - 4;
+        CRC32 crc = new CRC32();
+        for (long position = 0; position < checkedBytes; position += WINDOW_BYTES) {
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(WINDOW_BYTES, checkedBytes - position));
+            crc.update(window);
+        }
+        ByteBuffer stored = ByteBuffer.allocate(4);
+        channel.read(stored, checkedBytes);
+        if (stored.getInt(0) != (int) crc.getValue()) {
+            throw new IOException("Snapshot " + file + " failed its checksum");
+        }
+    }
+
+    private static MappedByteBuffer map(FileChannel channel, long position, long size) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(WINDOW_BYTES, size - position));
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.store;
+
+/**
+ *
+ * @author Maryam
+ */
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Storage settings, read once from system properties.
+ * Persistence is off unless {@code healthsystem.data.dir} is set, in which case every
+ * named {@link EntityStore} keeps a write-ahead log and periodic snapshots in that directory.
+ */
+public final class StorageConfig {
+    private static final Path DATA_DIRECTORY = pathProperty("healthsystem.data.dir");
+    private static final boolean FSYNC = Boolean.parseBoolean(System.getProperty("healthsystem.wal.fsync", "true"));
+    private static final long SNAPSHOT_INTERVAL_SECONDS = Long.getLong("healthsystem.snapshot.intervalSeconds", 60L);
+    private static final long SNAPSHOT_MIN_LOG_BYTES = Long.getLong("healthsystem.snapshot.minLogBytes", 16L * 1024 * 1024);
+
+    private StorageConfig() {}
+
+    /**
+     * Gets the directory holding the durable store files.
+     * @return The data directory, or null if persistence is switched off
+     */
+    public static Path dataDirectory() {
+        return DATA_DIRECTORY;
+    }
+
+    /**
+     * Checks whether log writes are forced to disk before a write is acknowledged.
+     * When false, writes are only handed to the operating system.
+     * @return True if log writes are fsynced, otherwise false
+     */
+    public static boolean fsync() {
+        return FSYNC;
+    }
+
+    /**
+     * Gets how often the background snapshot writer checks the stores.
+     * @return The interval between checks in seconds
+     */
+    public static long snapshotIntervalSeconds() {
+        return SNAPSHOT_INTERVAL_SECONDS;
+    }
+
+    /**
+     * Gets how large a store's log must grow before the next check writes a snapshot.
+     * @return The log size threshold in bytes
+     */
+    public static long snapshotMinLogBytes() {
+        return SNAPSHOT_MIN_LOG_BYTES;
+    }
+
+    private static Path pathProperty(String name) {
+        String value = System.getProperty(name);
+        return value == null || value.trim().isEmpty() ? null : Paths.get(value.trim());
+    }
+}
@@ -0,0 +1,269 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.store;
+
+/**
+ *
+ * @author Maryam
+ */
+import csa.healthsystem.exception.DatabaseException;
+import csa.healthsystem.logging.Log;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToIntFunction;
+import java.util.logging.Level;
+
+/**
+ * The files of one durable {@link EntityStore}: a snapshot ({@code <name>.snapshot}) plus
+ * the log generations written after it ({@code <name>.<generation>.wal}).
+ * A snapshot rotates the log to a new generation, copies the store, renames the copy into
+ * place and syncs the directory, and only then deletes the log generations it covers. Log records are idempotent puts and removes, so
+ * replaying a generation that overlaps the snapshot copy gives the same result.
+ * @param <T> The type of the stored entities
+ */
+final class StoreFiles<T> {
+    private static final Log LOGGER = Log.get(StoreFiles.class);
+    private static final String LOG_SUFFIX = ".wal";
+
+    // Files of the stores created and not yet closed
+    private static final Set<StoreFiles<?>> OPEN = ConcurrentHashMap.newKeySet();
+    // Created with the first store, shut down by closeAll; guarded by StoreFiles.class
+    private static ScheduledExecutorService snapshotWriter;
+
+    private final Path directory;
+    private final String name;
+    private final Class<T> type;
+    private long generation;
+    private WriteAheadLog<T> log;
+    private boolean restored;
+    private ScheduledFuture<?> snapshots;
+    // Guarded by this
+    private boolean closed;
+
+    StoreFiles(Path directory, String name, Class<T> type) {
+        this.directory = directory;
+        this.name = name;
+        this.type = type;
+    }
+
+    /**
+     * Loads the latest snapshot and replays the logs written after it.
+     * @param store The store to fill
+     * @param target Applies replayed log records to the store
+     * @return The open log for new writes
+     * @throws DatabaseException if the stored data cannot be read
+     */
+    WriteAheadLog<T> recover(EntityStore<T> store, WriteAheadLog.ReplayTarget<T> target) {
+        try {
+            Files.createDirectories(directory);
+            Path snapshot = snapshotFile();
+            if (Files.exists(snapshot)) {
+                long started = System.nanoTime();
+                generation = SnapshotFile.load(snapshot, type, store);
+                restored = true;
+                LOGGER.log(Level.INFO, "Loaded snapshot", "path", snapshot, "entities", store.size(),
+                        "millis", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+            }
+            List<Long> generations = logGenerations();
+            List<Long> live = new ArrayList<>();
+            for (long logGeneration : generations) {
+                if (logGeneration < generation) {
+                    // Left behind by a snapshot that finished just before a shutdown
+                    Files.deleteIfExists(logFile(logGeneration));
+                } else {
+                    live.add(logGeneration);
+                }
+            }
+            if (!live.isEmpty()) {
+                restored = true;
+                for (int i = 0; i < live.size() - 1; i++) {
+                    WriteAheadLog.replayOnly(logFile(live.get(i)), type, target);
+                }
+                generation = live.get(live.size() - 1);
+            }
+            log = WriteAheadLog.open(logFile(generation), type, target);
+            return log;
+        } catch (IOException e) {
+            throw new DatabaseException("Failed to restore store " + name + ": " + e.getMessage());
+        } catch (UncheckedIOException e) {
+            throw new DatabaseException("Failed to restore store " + name + ": " + e.getCause().getMessage());
+        }
+    }
+
+    /**
+     * Checks whether any data existed for the store before recovery.
+     * @return True if a snapshot or log was found, otherwise false
+     */
+    boolean isRestored() {
+        return restored;
+    }
+
+    /**
+     * Registers the store with the background snapshot writer.
+     * @param store The store to snapshot
+     * @param idOf Function returning the ID of an entity
+     */
+    synchronized void scheduleSnapshots(EntityStore<T> store, ToIntFunction<T> idOf) {
+        long interval = StorageConfig.snapshotIntervalSeconds();
+        OPEN.add(this);
+        snapshots = snapshotWriter().scheduleWithFixedDelay(() -> {
+            try {
+                snapshotIfDue(store, idOf);
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.SEVERE, "Failed to snapshot store", e, "store", name);
+            }
+        }, interval, interval, TimeUnit.SECONDS);
+    }
+
+    // A store closed meanwhile is skipped rather than failed
+    private synchronized void snapshotIfDue(EntityStore<T> store, ToIntFunction<T> idOf) {
+        if (!closed && log.size() >= StorageConfig.snapshotMinLogBytes()) {
+            snapshot(store, idOf);
+        }
+    }
+
+    private static synchronized ScheduledExecutorService snapshotWriter() {
+        if (snapshotWriter == null) {
+            snapshotWriter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "snapshot-writer");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return snapshotWriter;
+    }
+
+    /**
+     * Stops the store's snapshots, then writes out and closes its log.
+     * Waits for a snapshot being written to finish.
+     */
+    synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (snapshots != null) {
+            snapshots.cancel(false);
+        }
+        log.close();
+        OPEN.remove(this);
+        LOGGER.log(Level.INFO, "Closed store files", "store", name);
+    }
+
+    /**
+     * Closes the files of every open store and stops the snapshot writer thread.
+     */
+    static void closeAll() {
+        for (StoreFiles<?> files : OPEN) {
+            files.close();
+        }
+        ScheduledExecutorService writer;
+        synchronized (StoreFiles.class) {
+            writer = snapshotWriter;
+            snapshotWriter = null;
+        }
+        if (writer == null) {
+            return;
+        }
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(10, TimeUnit.SECONDS)) {
+                LOGGER.log(Level.WARNING, "Snapshot writer did not stop");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Writes a snapshot of the store and deletes the log generations it covers.
+     * Writers keep running while the snapshot is written.
+     * @param store The store to snapshot
+     * @param idOf Function returning the ID of an entity
+     * @throws DatabaseException if the snapshot cannot be written
+     */
+    synchronized void snapshot(EntityStore<T> store, ToIntFunction<T> idOf) {
+        if (closed) {
+            throw new DatabaseException("Failed to snapshot store " + name + ": the store is closed");
+        }
+        long covered = generation;
+        long next = generation + 1;
+        log.rotate(logFile(next));
+        generation = next;
+        long failures = log.failures();
+        Path temporary = directory.resolve(name + ".snapshot.tmp");
+        try {
+            long started = System.nanoTime();
+            long count = SnapshotFile.write(temporary, next, store, idOf);
+            // The copy may hold writes that are reverted once their records fail; the old logs stay then
+            log.sync();
+            if (log.failures() != failures) {
+                Files.deleteIfExists(temporary);
+                throw new DatabaseException("Failed to snapshot store " + name + ": writes were reverted meanwhile");
+            }
+            Files.move(temporary, snapshotFile(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            // The rename must be on disk before the logs it replaces are gone
+            syncDirectory();
+            for (long logGeneration : logGenerations()) {
+                if (logGeneration <= covered) {
+                    Files.deleteIfExists(logFile(logGeneration));
+                }
+            }
+            LOGGER.log(Level.INFO, "Wrote snapshot", "store", name, "entities", count,
+                    "millis", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        } catch (IOException e) {
+            throw new DatabaseException("Failed to snapshot store " + name + ": " + e.getMessage());
+        }
+    }
+
+    // Forces the directory's entries, such as a rename, to disk
+    private void syncDirectory() throws IOException {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+    }
+
+    private Path snapshotFile() {
+        return directory.resolve(name + ".snapshot");
+    }
+
+    private Path logFile(long logGeneration) {
+        return directory.resolve(name + "." + logGeneration + LOG_SUFFIX);
+    }
+
+    // Generations of the log files on disk, in ascending order
+    private List<Long> logGenerations() throws IOException {
+        List<Long> generations = new ArrayList<>();
+        String prefix = name + ".";
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, prefix + "*" + LOG_SUFFIX)) {
+            for (Path file : files) {
+                String fileName = file.getFileName().toString();
+                String number = fileName.substring(prefix.length(), fileName.length() - LOG_SUFFIX.length());
+                try {
+                    generations.add(Long.parseLong(number));
+                } catch (NumberFormatException e) {
+                    LOGGER.log(Level.WARNING, "Ignoring unexpected file", "file", file);
+                }
+            }
+        }
+        Collections.sort(generations);
+        return generations;
+    }
+}
@@ -0,0 +1,29 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.store;
+
+/**
+ *
+ * @author Maryam
+ */
+
+/**
+ * Receives every change of an {@link EntityStore}, for derived structures such as a search index
+ * that cannot live inside the store's segments like a {@link SecondaryIndex}.
+ * Registered with {@link EntityStore#addListener(StoreListener)}.
+ * @param <T> The type of the stored entities
+ */
+@FunctionalInterface
+public interface StoreListener<T> {
+    /**
+     * Called when an entity was stored, replaced or removed. The call is made under the lock of
+     * the entity's segment, so the changes of one ID arrive in the order they were applied;
+     * it should return quickly and must not call back into the store.
+     * @param id ID of the entity
+     * @param previous The entity stored before, or null if it was added
+     * @param current The entity stored now, or null if it was removed
+     */
+    void changed(int id, T previous, T current);
+}
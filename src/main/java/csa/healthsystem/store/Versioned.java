@@ -0,0 +1,52 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.store;
+
+/**
+ *
+ * @author Maryam
+ */
+
+/**
+ * A stored entity together with the version the store gave it when it was last written.
+ * Versions come from one counter per store, so they increase with every write to an ID
+ * and are never reused, even after the entity is deleted and its ID stored again.
+ * @param <T> The type of the entity
+ */
+public final class Versioned<T> {
+    private final T entity;
+    private final long version;
+    private final long lastModified;
+
+    Versioned(T entity, long version, long lastModified) {
+        this.entity = entity;
+        this.version = version;
+        this.lastModified = lastModified;
+    }
+
+    /**
+     * Gets the entity.
+     * @return The entity
+     */
+    public T getEntity() {
+        return entity;
+    }
+
+    /**
+     * Gets the version of the entity.
+     * @return The version, greater than 0
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Gets the time the entity was last written.
+     * @return Milliseconds since the epoch
+     */
+    public long getLastModified() {
+        return lastModified;
+    }
+}
@@ -0,0 +1,621 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.store;
+
+/**
+ *
+ * @author Maryam
+ */
+import com.fasterxml.jackson.databind.ObjectMapper;
+import csa.healthsystem.exception.DatabaseException;
+import csa.healthsystem.logging.Log;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only, CRC-checked log of the writes made to one {@link EntityStore}.
+ * Each record is {@code [length][crc32][op][id][version][modified][entity JSON]}; records
+ * written before versions were logged lack the version and time and are still read. Writers hand their record
+ * to a single background thread and wait until it is on disk; the thread writes and
+ * fsyncs everything queued since its last flush in one go (group commit), so many
+ * concurrent writes share a single fsync.
+ * <p>
+ * The store applies a write before queuing its record. If the records cannot be written, even
+ * after reopening the file and trying again, the thread reverts them in memory, newest first,
+ * together with every record queued after them, since those may build on the failed ones.
+ * Their writers get an exception and the thread goes on with the next records.
+ * {@link #isHealthy()} tells whether the last attempt to write succeeded.
+ * The log can be rotated to a new file, which lets a snapshot replace everything
+ * written before the rotation.
+ * @param <T> The type of the logged entities
+ */
+public class WriteAheadLog<T> {
+    private static final Log LOGGER = Log.get(WriteAheadLog.class);
+    static final ObjectMapper MAPPER = new ObjectMapper();
+
+    static {
+        // Properties limited to a JSON view, such as expanded references, are derived and not stored
+        MAPPER.setConfig(MAPPER.getSerializationConfig().withView(StoredView.class));
+    }
+
+    private interface StoredView {}
+
+    static final byte PUT = 1;
+    static final byte REMOVE = 2;
+    static final byte PUT_VERSIONED = 3;
+    static final byte REMOVE_VERSIONED = 4;
+    private static final int PREFIX_BYTES = 5;
+    private static final int VERSIONED_PREFIX_BYTES = 21;
+    private static final int HEADER_BYTES = 8;
+    private static final int MAX_RECORD_BYTES = 64 * 1024 * 1024;
+    private static final int WRITE_ATTEMPTS = 3;
+    private static final long RETRY_PAUSE_MILLIS = 50;
+
+    /**
+     * Receives the records of a log during replay.
+     * Records written before versions were logged have version and time 0.
+     * @param <T> The type of the logged entities
+     */
+    public interface ReplayTarget<T> {
+        void put(int id, long version, long modified, T entity);
+
+        void remove(int id, long version, long modified);
+    }
+
+    /**
+     * The records of one store call, which may reach the disk in several rounds.
+     * Pass it to every append of the call, then to {@link #awaitDurable(Commit)}.
+     */
+    static final class Commit {
+        // Guarded by the lock of the log
+        private long lastSequence;
+        private boolean failed;
+    }
+
+    // A queued record and how to revert the write it records
+    private static final class Record {
+        final ByteBuffer buffer;
+        final long sequence;
+        final Commit commit;
+        final Runnable revert;
+
+        Record(ByteBuffer buffer, long sequence, Commit commit, Runnable revert) {
+            this.buffer = buffer;
+            this.sequence = sequence;
+            this.commit = commit;
+            this.revert = revert;
+        }
+    }
+
+    private final boolean fsync;
+    private final Thread writer;
+    private volatile Path path;
+    // Owned by the writer thread; null after a failed write until the file is reopened
+    private FileChannel channel;
+    // Length of the file up to the last record known to be written
+    private volatile long bytesWritten;
+    private volatile boolean healthy = true;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition hasWork = lock.newCondition();
+    private final Condition flushed = lock.newCondition();
+    private final Condition rotated = lock.newCondition();
+    private List<Record> pending = new ArrayList<>();
+    private long appendedSequence;
+    // Every record up to this one is either on disk or reverted
+    private long settledSequence;
+    private long failures;
+    private boolean reverting;
+    private boolean closing;
+    private boolean closed;
+
+    // Pending rotation: the first rotateAt queued records still belong to the current file
+    private int rotateAt = -1;
+    private Path nextPath;
+    private FileChannel nextChannel;
+    private long nextSize;
+    private boolean rotationFailed;
+
+    private WriteAheadLog(Path path, FileChannel channel, boolean fsync) {
+        this.path = path;
+        this.channel = channel;
+        this.fsync = fsync;
+        try {
+            this.bytesWritten = channel.position();
+        } catch (IOException e) {
+            throw new DatabaseException("Failed to open write-ahead log " + path + ": " + e.getMessage());
+        }
+        writer = new Thread(this::writeLoop, "wal-writer-" + path.getFileName());
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Replays an existing log into the target and opens it for appending.
+     * A torn or corrupt record at the end of the file, left by a crash during a write,
+     * is cut off together with everything after it.
+     * @param path The log file
+     * @param type The class of the logged entities
+     * @param target Receives the replayed records
+     * @param <T> The type of the logged entities
+     * @return The opened log
+     * @throws DatabaseException if the log cannot be read or opened
+     */
+    public static <T> WriteAheadLog<T> open(Path path, Class<T> type, ReplayTarget<T> target) {
+        try {
+            Files.createDirectories(path.toAbsolutePath().getParent());
+            long validLength = Files.exists(path) ? replay(path, type, target) : 0L;
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            if (channel.size() > validLength) {
+                LOGGER.log(Level.WARNING, "Truncating damaged log tail", "path", path, "validLength", validLength);
+                channel.truncate(validLength);
+                channel.force(true);
+            }
+            channel.position(validLength);
+            return new WriteAheadLog<>(path, channel, StorageConfig.fsync());
+        } catch (IOException e) {
+            throw new DatabaseException("Failed to open write-ahead log " + path + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Replays an existing log into the target without opening it for appending.
+     * Used for older log files that precede the current one.
+     * @param path The log file
+     * @param type The class of the logged entities
+     * @param target Receives the replayed records
+     * @param <T> The type of the logged entities
+     * @throws DatabaseException if the log cannot be read
+     */
+    public static <T> void replayOnly(Path path, Class<T> type, ReplayTarget<T> target) {
+        try {
+            long validLength = replay(path, type, target);
+            if (Files.size(path) > validLength) {
+                LOGGER.log(Level.WARNING, "Ignoring damaged log tail", "path", path, "validLength", validLength);
+            }
+        } catch (IOException e) {
+            throw new DatabaseException("Failed to read write-ahead log " + path + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Gets the number of bytes in the current log file.
+     * @return The size of the current log file
+     */
+    public long size() {
+        return bytesWritten;
+    }
+
+    /**
+     * Checks whether the last attempt to write the log succeeded.
+     * @return False from a failed attempt until the next one that succeeds
+     */
+    public boolean isHealthy() {
+        return healthy;
+    }
+
+    /**
+     * Gets the number of times records were given up on and reverted.
+     * @return The number of failures since the log was opened
+     */
+    public long failures() {
+        lock.lock();
+        try {
+            return failures;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Switches the log to a new file. Records queued before this call go to the old file,
+     * which is flushed and closed; records queued afterwards go to the new file.
+     * Returns once the switch is done.
+     * @param next The new log file
+     * @throws DatabaseException if the new file cannot be opened or the old one cannot be flushed
+     */
+    public void rotate(Path next) {
+        FileChannel opened;
+        long size;
+        try {
+            opened = FileChannel.open(next, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            size = opened.size();
+        } catch (IOException e) {
+            throw new DatabaseException("Failed to open write-ahead log " + next + ": " + e.getMessage());
+        }
+        lock.lock();
+        try {
+            while (rotateAt >= 0 && !closing) {
+                rotated.awaitUninterruptibly();
+            }
+            if (closing) {
+                closeQuietly(opened);
+                throw new DatabaseException("Write-ahead log " + path + " is closed");
+            }
+            rotateAt = pending.size();
+            nextPath = next;
+            nextChannel = opened;
+            nextSize = size;
+            rotationFailed = false;
+            hasWork.signal();
+            while (rotateAt >= 0) {
+                rotated.awaitUninterruptibly();
+            }
+            if (rotationFailed) {
+                throw new DatabaseException("Failed to write " + path + " before switching to " + next);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Encodes an entity for logging. Call this before taking any store lock.
+     * @param entity The entity to encode
+     * @return The encoded entity
+     */
+    public byte[] encode(T entity) {
+        try {
+            return MAPPER.writeValueAsBytes(entity);
+        } catch (IOException e) {
+            throw new DatabaseException("Failed to encode entity: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Queues a put record. The caller must hold the lock that orders writes to this ID, and
+     * must already have applied the write.
+     * @param commit The records of the caller's store call
+     * @param id ID of the stored entity
+     * @param version Version the store gave the entity
+     * @param modified Time of the write in milliseconds since the epoch
+     * @param payload The entity, as returned by {@link #encode(Object)}
+     * @param revert Undoes the write if the record cannot be written; called without any lock of the log
+     * @throws DatabaseException if the record is refused because the log is closed or reverting a failure;
+     *         the caller must undo the write itself
+     */
+    void appendPut(Commit commit, int id, long version, long modified, byte[] payload, Runnable revert) {
+        append(commit, PUT_VERSIONED, id, version, modified, payload, revert);
+    }
+
+    /**
+     * Queues a remove record, like {@link #appendPut}.
+     * @param commit The records of the caller's store call
+     * @param id ID of the removed entity
+     * @param version Version the store gave the removal
+     * @param modified Time of the write in milliseconds since the epoch
+     * @param revert Undoes the removal if the record cannot be written; called without any lock of the log
+     * @throws DatabaseException if the record is refused; the caller must undo the removal itself
+     */
+    void appendRemove(Commit commit, int id, long version, long modified, Runnable revert) {
+        append(commit, REMOVE_VERSIONED, id, version, modified, new byte[0], revert);
+    }
+
+    /**
+     * Waits until every record of a store call is on disk.
+     * @param commit The records of the call
+     * @throws DatabaseException if a record could not be written; it has been reverted
+     */
+    void awaitDurable(Commit commit) {
+        lock.lock();
+        try {
+            while (settledSequence < commit.lastSequence) {
+                flushed.awaitUninterruptibly();
+            }
+            if (commit.failed) {
+                throw new DatabaseException("Failed to write " + path);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until every record queued so far is on disk or reverted.
+     */
+    void sync() {
+        lock.lock();
+        try {
+            long target = appendedSequence;
+            while (settledSequence < target) {
+                flushed.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes the queued records, closes the file and stops the writer thread. Later appends are refused.
+     */
+    public void close() {
+        lock.lock();
+        try {
+            closing = true;
+            hasWork.signal();
+            while (!closed) {
+                flushed.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void append(Commit commit, byte op, int id, long version, long modified, byte[] payload, Runnable revert) {
+        int bodyLength = VERSIONED_PREFIX_BYTES + payload.length;
+        ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + bodyLength);
+        record.putInt(bodyLength);
+        record.putInt(0);
+        record.put(op).putInt(id).putLong(version).putLong(modified).put(payload);
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), HEADER_BYTES, bodyLength);
+        record.putInt(4, (int) crc.getValue());
+        record.flip();
+
+        lock.lock();
+        try {
+            if (closing) {
+                throw new DatabaseException("Write-ahead log " + path + " is closed");
+            }
+            if (reverting) {
+                // The write may build on a reverted one, and the thread cannot wait for the caller's lock
+                throw new DatabaseException("Failed to write " + path + ": reverting failed writes");
+            }
+            long sequence = ++appendedSequence;
+            pending.add(new Record(record, sequence, commit, revert));
+            commit.lastSequence = sequence;
+            hasWork.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Group commit: write and fsync everything queued since the previous round
+    private void writeLoop() {
+        while (true) {
+            List<Record> batch;
+            int rotation;
+            Path rotationPath;
+            FileChannel rotationChannel;
+            long rotationSize;
+            lock.lock();
+            try {
+                while (pending.isEmpty() && rotateAt < 0) {
+                    if (closing) {
+                        closeQuietly(channel);
+                        channel = null;
+                        closed = true;
+                        flushed.signalAll();
+                        return;
+                    }
+                    hasWork.awaitUninterruptibly();
+                }
+                batch = pending;
+                pending = new ArrayList<>();
+                rotation = rotateAt;
+                rotationPath = nextPath;
+                rotationChannel = nextChannel;
+                rotationSize = nextSize;
+            } finally {
+                lock.unlock();
+            }
+
+            // Index of the first record that could not be written, or the batch size
+            int failedFrom = batch.size();
+            boolean switched = false;
+            if (rotation < 0) {
+                if (!writeDurably(batch, false)) {
+                    failedFrom = 0;
+                }
+            } else if (writeDurably(batch.subList(0, rotation), true)) {
+                closeQuietly(channel);
+                channel = rotationChannel;
+                path = rotationPath;
+                bytesWritten = rotationSize;
+                switched = true;
+                if (!writeDurably(batch.subList(rotation, batch.size()), false)) {
+                    failedFrom = rotation;
+                }
+            } else {
+                closeQuietly(rotationChannel);
+                failedFrom = 0;
+            }
+
+            List<Record> failed = null;
+            lock.lock();
+            try {
+                if (failedFrom > 0) {
+                    settledSequence = batch.get(failedFrom - 1).sequence;
+                }
+                if (failedFrom < batch.size()) {
+                    // Records queued since may have been applied on top of the failed ones
+                    failed = new ArrayList<>(batch.subList(failedFrom, batch.size()));
+                    failed.addAll(pending);
+                    pending = new ArrayList<>();
+                    reverting = true;
+                }
+                if (rotation >= 0) {
+                    rotateAt = -1;
+                    nextPath = null;
+                    nextChannel = null;
+                    rotationFailed = !switched;
+                    rotated.signalAll();
+                }
+                flushed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            if (failed != null) {
+                revert(failed);
+            }
+        }
+    }
+
+    // Undoes failed records, newest first, then fails their store calls
+    private void revert(List<Record> failed) {
+        for (int i = failed.size() - 1; i >= 0; i--) {
+            try {
+                failed.get(i).revert.run();
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.SEVERE, "Failed to revert write", e, "path", path);
+            }
+        }
+        LOGGER.log(Level.SEVERE, "Reverted writes that could not be logged", "path", path, "records", failed.size());
+        lock.lock();
+        try {
+            for (Record record : failed) {
+                record.commit.failed = true;
+            }
+            settledSequence = failed.get(failed.size() - 1).sequence;
+            failures++;
+            reverting = false;
+            flushed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Tries a few times; a retry reopens the file and cuts off what the failed attempt left
+    private boolean writeDurably(List<Record> records, boolean force) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                if (channel == null) {
+                    reopen();
+                }
+                write(records, force);
+                healthy = true;
+                return true;
+            } catch (IOException e) {
+                LOGGER.log(Level.SEVERE, "Failed to write log", "path", path, "attempt", attempt, "error", e.getMessage());
+                healthy = false;
+                closeQuietly(channel);
+                channel = null;
+                if (attempt == WRITE_ATTEMPTS) {
+                    return false;
+                }
+                pause(RETRY_PAUSE_MILLIS * attempt);
+            }
+        }
+    }
+
+    private void reopen() throws IOException {
+        FileChannel reopened = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try {
+            if (reopened.size() > bytesWritten) {
+                reopened.truncate(bytesWritten);
+            }
+            reopened.position(bytesWritten);
+        } catch (IOException e) {
+            closeQuietly(reopened);
+            throw e;
+        }
+        channel = reopened;
+    }
+
+    private void write(List<Record> records, boolean force) throws IOException {
+        long remaining = 0;
+        ByteBuffer[] buffers = new ByteBuffer[records.size()];
+        for (int i = 0; i < buffers.length; i++) {
+            // A duplicate, so a retry writes each record from its start again
+            buffers[i] = records.get(i).buffer.duplicate();
+            remaining += buffers[i].remaining();
+        }
+        long total = remaining;
+        while (remaining > 0) {
+            remaining -= channel.write(buffers);
+        }
+        if (fsync && total > 0 || force) {
+            channel.force(false);
+        }
+        bytesWritten += total;
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to close log file", "error", e.getMessage());
+        }
+    }
+
+    private static void pause(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Applies every intact record and returns the length of the intact prefix
+    private static <T> long replay(Path path, Class<T> type, ReplayTarget<T> target) throws IOException {
+        long validLength = 0;
+        int records = 0;
+        try (InputStream file = Files.newInputStream(path);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(file, 1 << 16))) {
+            CRC32 crc = new CRC32();
+            while (true) {
+                int bodyLength;
+                int checksum;
+                byte[] body;
+                try {
+                    bodyLength = in.readInt();
+                    checksum = in.readInt();
+                    if (bodyLength < PREFIX_BYTES || bodyLength > MAX_RECORD_BYTES) {
+                        break;
+                    }
+                    body = new byte[bodyLength];
+                    in.readFully(body);
+                } catch (EOFException e) {
+                    break;
+                }
+                crc.reset();
+                crc.update(body, 0, bodyLength);
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+                ByteBuffer record = ByteBuffer.wrap(body);
+                byte op = record.get();
+                int id = record.getInt();
+                if (op == PUT) {
+                    target.put(id, 0L, 0L, MAPPER.readValue(body, PREFIX_BYTES, bodyLength - PREFIX_BYTES, type));
+                } else if (op == REMOVE) {
+                    target.remove(id, 0L, 0L);
+                } else if ((op == PUT_VERSIONED || op == REMOVE_VERSIONED) && bodyLength >= VERSIONED_PREFIX_BYTES) {
+                    long version = record.getLong();
+                    long modified = record.getLong();
+                    if (op == PUT_VERSIONED) {
+                        target.put(id, version, modified, MAPPER.readValue(body, VERSIONED_PREFIX_BYTES,
+                                bodyLength - VERSIONED_PREFIX_BYTES, type));
+                    } else {
+                        target.remove(id, version, modified);
+                    }
+                } else {
+                    break;
+                }
+                validLength += HEADER_BYTES + bodyLength;
+                records++;
+            }
+        }
+        LOGGER.log(Level.INFO, "Replayed log", "path", path, "records", records);
+        return validLength;
+    }
+}
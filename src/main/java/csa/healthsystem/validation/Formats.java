@@ -0,0 +1,111 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.validation;
+
+/**
+ *
+ * @author Maryam
+ */
+
+/**
+ * Format checks used by the validation rules.
+ * They scan the characters directly, so they allocate nothing and need no shared parser state.
+ */
+public final class Formats {
+
+    private Formats() {}
+
+    /**
+     * Checks that a value consists of exactly the given number of ASCII digits.
+     * @param value The value to check
+     * @param count The required number of digits
+     * @return True if the value is {@code count} digits, otherwise false
+     */
+    public static boolean isDigits(CharSequence value, int count) {
+        if (value == null || value.length() != count) {
+            return false;
+        }
+        for (int i = 0; i < count; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks that a value is a calendar date in the format YYYY-MM-DD.
+     * @param value The value to check
+     * @return True if the value is a valid date, otherwise false
+     */
+    public static boolean isDate(CharSequence value) {
+        if (value == null || value.length() != 10 || value.charAt(4) != '-' || value.charAt(7) != '-') {
+            return false;
+        }
+        int year = number(value, 0, 4);
+        int month = number(value, 5, 7);
+        int day = number(value, 8, 10);
+        return year >= 0 && month >= 1 && month <= 12 && day >= 1 && day <= daysInMonth(year, month);
+    }
+
+    /**
+     * Checks that a value is a time of day in the format HH:MM or HH:MM:SS.
+     * @param value The value to check
+     * @return True if the value is a valid time, otherwise false
+     */
+    public static boolean isTime(CharSequence value) {
+        if (value == null || (value.length() != 5 && value.length() != 8) || value.charAt(2) != ':') {
+            return false;
+        }
+        int hour = number(value, 0, 2);
+        int minute = number(value, 3, 5);
+        if (hour < 0 || hour > 23 || minute < 0 || minute > 59) {
+            return false;
+        }
+        if (value.length() == 5) {
+            return true;
+        }
+        int second = number(value, 6, 8);
+        return value.charAt(5) == ':' && second >= 0 && second <= 59;
+    }
+
+    /**
+     * Checks that a value is neither null nor empty.
+     * @param value The value to check
+     * @return True if the value has at least one character, otherwise false
+     */
+    public static boolean isPresent(CharSequence value) {
+        return value != null && value.length() > 0;
+    }
+
+    // Value of the few digits in [from, to), or -1 if any character is not a digit
+    private static int number(CharSequence value, int from, int to) {
+        int result = 0;
+        for (int i = from; i < to; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            result = result * 10 + (c - '0');
+        }
+        return result;
+    }
+
+    private static int daysInMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                boolean leap = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+                return leap ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.validation;
+
+/**
+ *
+ * @author Maryam
+ */
+import csa.healthsystem.diagnostics.Phase;
+import csa.healthsystem.diagnostics.RequestTrace;
+import csa.healthsystem.exception.InvalidDataException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Compiled set of validation rules for one entity type.
+ * A validator is built once and shared; it is immutable and thread-safe. Validating a valid
+ * entity allocates nothing, and an invalid entity is checked against every rule so all of
+ * its violations are reported together.
+ * @param <T> The type of the validated entities
+ */
+public final class Validator<T> {
+    private final String entityName;
+    private final List<Violation> missing;
+    private final Rule<T>[] rules;
+
+    private Validator(String entityName, Rule<T>[] rules) {
+        this.entityName = entityName;
+        this.missing = Collections.singletonList(new Violation(null, entityName + " is required"));
+        this.rules = rules;
+    }
+
+    /**
+     * Starts a rule set.
+     * @param entityName The name of the entity type used in messages, such as "billing"
+     * @param <T> The type of the validated entities
+     * @return A builder for the rule set
+     */
+    public static <T> Builder<T> of(String entityName) {
+        return new Builder<>(entityName);
+    }
+
+    /**
+     * Checks an entity against every rule.
+     * @param entity The entity to check
+     * @return The violations found, or an empty list if the entity is valid
+     */
+    public List<Violation> validate(T entity) {
+        RequestTrace trace = RequestTrace.current();
+        if (trace == null) {
+            return evaluate(entity);
+        }
+        long start = System.nanoTime();
+        try {
+            return evaluate(entity);
+        } finally {
+            trace.add(Phase.VALIDATION, System.nanoTime() - start);
+        }
+    }
+
+    private List<Violation> evaluate(T entity) {
+        if (entity == null) {
+            return missing;
+        }
+        List<Violation> violations = null;
+        for (Rule<T> rule : rules) {
+            if (!rule.condition.test(entity)) {
+                if (violations == null) {
+                    violations = new ArrayList<>(rules.length);
+                }
+                violations.add(rule.violation);
+            }
+        }
+        return violations == null ? Collections.<Violation>emptyList() : violations;
+    }
+
+    /**
+     * Checks an entity and throws if it is invalid.
+     * @param entity The entity to check
+     * @throws InvalidDataException listing every violation if the entity is invalid
+     */
+    public void check(T entity) {
+        List<Violation> violations = validate(entity);
+        if (!violations.isEmpty()) {
+            throw failure(violations);
+        }
+    }
+
+    /**
+     * Builds the exception reporting a set of violations.
+     * @param violations The violations, as returned by {@link #validate(Object)}
+     * @return The exception to throw
+     */
+    public InvalidDataException failure(List<Violation> violations) {
+        return new InvalidDataException(describe(violations), violations);
+    }
+
+    /**
+     * Describes a set of violations in one message.
+     * @param violations The violations, as returned by {@link #validate(Object)}
+     * @return A message such as "Invalid billing data: patient is required; doctor is required"
+     */
+    public String describe(List<Violation> violations) {
+        StringBuilder message = new StringBuilder("Invalid ").append(entityName).append(" data: ");
+        for (int i = 0; i < violations.size(); i++) {
+            if (i > 0) {
+                message.append("; ");
+            }
+            message.append(violations.get(i).getMessage());
+        }
+        return message.toString();
+    }
+
+    private static final class Rule<T> {
+        final Predicate<T> condition;
+        final Violation violation;
+
+        Rule(Predicate<T> condition, Violation violation) {
+            this.condition = condition;
+            this.violation = violation;
+        }
+    }
+
+    /**
+     * Collects the rules of a {@link Validator}.
+     * @param <T> The type of the validated entities
+     */
+    public static final class Builder<T> {
+        private final String entityName;
+        private final List<Rule<T>> rules = new ArrayList<>();
+
+        private Builder(String entityName) {
+            this.entityName = entityName;
+        }
+
+        /**
+         * Adds a rule.
+         * @param field The name of the checked field
+         * @param condition Condition a valid entity meets
+         * @param message Description of the problem when the condition fails
+         * @return This builder
+         */
+        public Builder<T> rule(String field, Predicate<T> condition, String message) {
+            rules.add(new Rule<>(condition, new Violation(field, message)));
+            return this;
+        }
+
+        /**
+         * Builds the validator.
+         * @return The compiled validator
+         */
+        @SuppressWarnings("unchecked")
+        public Validator<T> build() {
+            return new Validator<>(entityName, (Rule<T>[]) rules.toArray(new Rule<?>[0]));
+        }
+    }
+}
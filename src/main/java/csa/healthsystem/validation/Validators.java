@@ -0,0 +1,77 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.validation;
+
+/**
+ *
+ * @author Maryam
+ */
+import csa.healthsystem.model.Appointment;
+import csa.healthsystem.model.Billing;
+import csa.healthsystem.model.Doctor;
+import csa.healthsystem.model.MedicalRecord;
+import csa.healthsystem.model.Patient;
+import csa.healthsystem.model.Person;
+import csa.healthsystem.model.Prescription;
+
+/**
+ * The rule sets of every entity type, compiled once when the class is loaded.
+ * Records refer to patients and doctors by ID: their rules only require the IDs, and the
+ * DAOs check that the referenced entities exist instead of validating them again.
+ */
+public final class Validators {
+
+    public static final Validator<Person> PERSON = Validator.<Person>of("person")
+            .rule("contactInformation", person -> Formats.isDigits(person.getContactInformation(), 10),
+                    "invalid phone number, enter a 10 digit number")
+            .rule("address", person -> Formats.isPresent(person.getAddress()), "address is required")
+            .build();
+
+    public static final Validator<Patient> PATIENT = Validator.<Patient>of("patient")
+            .rule("medicalHistory", patient -> Formats.isPresent(patient.getMedicalHistory()), "medical history is required")
+            .rule("currentHealthStatus", patient -> Formats.isPresent(patient.getCurrentHealthStatus()),
+                    "current health status is required")
+            .build();
+
+    public static final Validator<Doctor> DOCTOR = Validator.<Doctor>of("doctor")
+            .rule("specialization", doctor -> Formats.isPresent(doctor.getSpecialization()), "specialization is required")
+            .build();
+
+    public static final Validator<Appointment> APPOINTMENT = Validator.<Appointment>of("appointment")
+            .rule("patientId", appointment -> appointment.getPatientId() > 0, "patient is required")
+            .rule("doctorId", appointment -> appointment.getDoctorId() > 0, "doctor is required")
+            .rule("date", appointment -> Formats.isDate(appointment.getDate()), "date is required in the format YYYY-MM-DD")
+            .rule("time", appointment -> Formats.isTime(appointment.getTime()), "time is required in the format HH:MM")
+            .rule("durationMinutes", appointment -> appointment.getDurationMinutes() >= 0 && appointment.getDurationMinutes() <= 24 * 60,
+                    "duration must be between 0 and 1440 minutes")
+            .build();
+
+    public static final Validator<Billing> BILLING = Validator.<Billing>of("billing")
+            .rule("patientId", billing -> billing.getPatientId() > 0, "patient is required")
+            .rule("doctorId", billing -> billing.getDoctorId() > 0, "doctor is required")
+            .rule("invoiceAmount", billing -> billing.getInvoiceCents() > 0, "invoice amount should be greater than zero")
+            .rule("paymentAmount", billing -> billing.getPaymentCents() > 0, "payment amount should be greater than zero")
+            .rule("outstandingBalance", billing -> billing.getOutstandingCents() > 0,
+                    "outstanding balance should be greater than zero")
+            .rule("outstandingBalance", billing -> billing.getOutstandingCents() == billing.getInvoiceCents() - billing.getPaymentCents(),
+                    "outstanding balance should equal the invoice amount minus the payment amount")
+            .build();
+
+    public static final Validator<MedicalRecord> MEDICAL_RECORD = Validator.<MedicalRecord>of("medical record")
+            .rule("patientId", record -> record.getPatientId() > 0, "patient is required")
+            .rule("diagnoses", record -> Formats.isPresent(record.getDiagnoses()), "diagnoses is required")
+            .rule("treatments", record -> Formats.isPresent(record.getTreatments()), "treatment is required")
+            .build();
+
+    public static final Validator<Prescription> PRESCRIPTION = Validator.<Prescription>of("prescription")
+            .rule("patientId", prescription -> prescription.getPatientId() > 0, "patient is required")
+            .rule("medication", prescription -> Formats.isPresent(prescription.getMedication()), "medication name is required")
+            .rule("dosage", prescription -> Formats.isPresent(prescription.getDosage()), "dosage information is required")
+            .rule("instructions", prescription -> Formats.isPresent(prescription.getInstructions()), "instructions are required")
+            .rule("durationInDays", prescription -> prescription.getDurationInDays() > 0, "duration must be greater than 0 days")
+            .build();
+
+    private Validators() {}
+}
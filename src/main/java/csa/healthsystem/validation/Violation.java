@@ -0,0 +1,50 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.validation;
+
+/**
+ *
+ * @author Maryam
+ */
+
+/**
+ * One broken validation rule: the field it concerns and what is wrong with it.
+ * Violations are immutable, so each rule creates its violation once and reports it every time it fails.
+ */
+public final class Violation {
+    private final String field;
+    private final String message;
+
+    /**
+     * Creates a violation.
+     * @param field The name of the invalid field, or null if the whole entity is invalid
+     * @param message Description of the problem
+     */
+    public Violation(String field, String message) {
+        this.field = field;
+        this.message = message;
+    }
+
+    /**
+     * Gets the name of the invalid field.
+     * @return The field name, or null if the whole entity is invalid
+     */
+    public String getField() {
+        return field;
+    }
+
+    /**
+     * Gets the description of the problem.
+     * @return The message
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        return message;
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.cache;
+
+/**
+ *
+ * @author Maryam
+ */
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Counts saturate at 15 and are halved once the sketch has counted ten times its size.
+ */
+public class FrequencySketchTest {
+    @Test
+    public void countsUpToFifteen() {
+        FrequencySketch sketch = new FrequencySketch(1024);
+        assertEquals(0, sketch.frequency("/doctors".hashCode()));
+        for (int i = 1; i <= 20; i++) {
+            sketch.increment("/doctors".hashCode());
+            assertEquals(Math.min(i, 15), sketch.frequency("/doctors".hashCode()));
+        }
+        assertEquals(0, sketch.frequency("/patients".hashCode()));
+    }
+
+    @Test
+    public void oldCountsFade() {
+        FrequencySketch sketch = new FrequencySketch(16);
+        for (int i = 0; i < 12; i++) {
+            sketch.increment(42);
+        }
+        // A sketch of 16 longs halves its counters after 160 increments
+        for (int key = 0; sketch.frequency(42) >= 12; key++) {
+            assertTrue("no aging after " + key + " keys", key < 10 * 16);
+            sketch.increment(1000 + key);
+        }
+        assertTrue(sketch.frequency(42) <= 7);
+    }
+}
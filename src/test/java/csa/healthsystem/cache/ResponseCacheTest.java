@@ -0,0 +1,129 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.cache;
+
+/**
+ *
+ * @author Maryam
+ */
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Hot entries survive scans of cold ones, an entry is only a hit for the tag it was stored with,
+ * and the cache stays within its bytes.
+ */
+public class ResponseCacheTest {
+    private static final long MAX_BYTES = 64 * 1024;
+
+    @Test
+    public void hotEntriesSurviveAScanOfColdOnes() {
+        ResponseCache cache = new ResponseCache(MAX_BYTES);
+        CachedResponse hot = response("1", 200);
+        cache.put("/doctors", hot);
+        for (int i = 0; i < 5; i++) {
+            assertSame(hot, cache.get("/doctors", "1"));
+        }
+        // Several times as many cold entries as the cache holds, each requested once
+        int cold = 0;
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < 400; i++) {
+                String key = "/records/" + cold++;
+                assertNull(cache.get(key, "1"));
+                cache.put(key, response("1", 200));
+            }
+            assertSame("round " + round, hot, cache.get("/doctors", "1"));
+        }
+        CacheStats stats = cache.stats();
+        assertTrue(stats.getRejections() > 0);
+        assertTrue(stats.getEntries() < 400);
+        assertTrue(stats.getBytes() <= MAX_BYTES);
+    }
+
+    @Test
+    public void entriesAreOnlyHitsForTheirTag() {
+        ResponseCache cache = new ResponseCache(MAX_BYTES);
+        CachedResponse first = response("3", 100);
+        cache.put("/patients/7", first);
+        assertSame(first, cache.get("/patients/7", "3"));
+        // A write to the entity changed its tag
+        assertNull(cache.get("/patients/7", "4"));
+
+        CachedResponse second = response("4", 100);
+        cache.put("/patients/7", second);
+        assertNull(cache.get("/patients/7", "3"));
+        assertSame(second, cache.get("/patients/7", "4"));
+        assertEquals(1, cache.stats().getEntries());
+        assertEquals(second.weight() + 2L * "/patients/7".length(), cache.stats().getBytes());
+
+        cache.invalidate("/patients/7");
+        assertNull(cache.get("/patients/7", "4"));
+        cache.put("/patients/8", response("1", 100));
+        cache.clear();
+        assertNull(cache.get("/patients/8", "1"));
+        CacheStats stats = cache.stats();
+        assertEquals(0, stats.getEntries());
+        assertEquals(0, stats.getBytes());
+        assertEquals(2, stats.getHits());
+        assertEquals(4, stats.getMisses());
+    }
+
+    @Test
+    public void staysWithinItsBytes() {
+        ResponseCache cache = new ResponseCache(MAX_BYTES);
+        Random random = new Random(11);
+        Map<String, CachedResponse> stored = new HashMap<>();
+        for (int i = 0; i < 5000; i++) {
+            String key = "/bills?page=" + random.nextInt(300);
+            if (random.nextInt(3) == 0) {
+                cache.get(key, "1");
+            } else {
+                CachedResponse value = response("1", random.nextInt(4000));
+                cache.put(key, value);
+                stored.put(key, value);
+            }
+            assertTrue(cache.stats().getBytes() <= MAX_BYTES);
+        }
+        // The bytes counted are those of the entries held
+        long bytes = 0;
+        int entries = 0;
+        for (Map.Entry<String, CachedResponse> entry : stored.entrySet()) {
+            if (cache.get(entry.getKey(), "1") != null) {
+                bytes += entry.getValue().weight() + 2L * entry.getKey().length();
+                entries++;
+            }
+        }
+        assertEquals(entries, cache.stats().getEntries());
+        assertEquals(bytes, cache.stats().getBytes());
+
+        // Larger than an eighth of the cache
+        long rejections = cache.stats().getRejections();
+        cache.put("/large", response("1", (int) cache.maxEntryBytes()));
+        assertNull(cache.get("/large", "1"));
+        assertEquals(rejections + 1, cache.stats().getRejections());
+    }
+
+    @Test
+    public void disabledCacheHoldsNothing() {
+        ResponseCache cache = new ResponseCache(0);
+        cache.put("/doctors", response("1", 10));
+        assertNull(cache.get("/doctors", "1"));
+        assertEquals(0, cache.stats().getEntries());
+    }
+
+    private static CachedResponse response(String tag, int bytes) {
+        byte[] body = new byte[bytes];
+        new Random(bytes).nextBytes(body);
+        return CachedResponse.of(tag, body, Collections.emptyMap());
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.dao;
+
+/**
+ *
+ * @author Maryam
+ */
+import csa.healthsystem.exception.ConflictException;
+import csa.healthsystem.exception.VersionConflictException;
+import csa.healthsystem.model.Appointment;
+import csa.healthsystem.store.Versioned;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * A rejected update of an appointment leaves the doctor's schedule as it was.
+ */
+public class AppointmentDAOTest {
+    private static final int PATIENT = 1000;
+    private static final int DOCTOR = 2;
+
+    private final AppointmentDAO dao = new AppointmentDAO();
+
+    @Test
+    public void rejectedOverlappingUpdateKeepsTheOldBooking() {
+        Appointment booked = new Appointment(0, "2099-03-10", "09:00", PATIENT, DOCTOR);
+        dao.addAppointment(booked);
+        Versioned<Appointment> stored = dao.getVersionedAppointmentById(booked.getId());
+
+        // Overlaps its own booking, which it replaces in the schedule before the version check fails
+        try {
+            dao.updateAppointment(booked.getId(), new Appointment(0, "2099-03-10", "09:15", PATIENT, DOCTOR),
+                    stored.getVersion() + 1);
+            fail("Update with a stale version was stored");
+        } catch (VersionConflictException e) {
+            assertEquals("09:00", dao.getAppointmentById(booked.getId()).getTime());
+        }
+
+        try {
+            dao.addAppointment(new Appointment(0, "2099-03-10", "09:00", PATIENT, DOCTOR));
+            fail("Booked a slot that is still taken");
+        } catch (ConflictException e) {
+            // Expected: 409
+        }
+        // The rejected time was never kept
+        dao.addAppointment(new Appointment(0, "2099-03-10", "09:30", PATIENT, DOCTOR));
+    }
+
+    @Test
+    public void rejectedMoveKeepsTheOldBooking() {
+        Appointment booked = new Appointment(0, "2099-03-11", "14:00", PATIENT, DOCTOR);
+        dao.addAppointment(booked);
+        Versioned<Appointment> stored = dao.getVersionedAppointmentById(booked.getId());
+
+        try {
+            dao.updateAppointment(booked.getId(), new Appointment(0, "2099-03-11", "16:00", PATIENT, DOCTOR),
+                    stored.getVersion() + 1);
+            fail("Update with a stale version was stored");
+        } catch (VersionConflictException e) {
+            // Expected: 412
+        }
+
+        try {
+            dao.addAppointment(new Appointment(0, "2099-03-11", "14:10", PATIENT, DOCTOR));
+            fail("Booked a slot that is still taken");
+        } catch (ConflictException e) {
+            // Expected: 409
+        }
+        dao.addAppointment(new Appointment(0, "2099-03-11", "16:00", PATIENT, DOCTOR));
+    }
+}
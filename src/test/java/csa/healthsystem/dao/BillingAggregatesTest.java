@@ -0,0 +1,189 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.dao;
+
+/**
+ *
+ * @author Maryam
+ */
+import csa.healthsystem.model.Billing;
+import csa.healthsystem.model.BillingSummary;
+import csa.healthsystem.model.Money;
+import csa.healthsystem.store.EntityStore;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.ToIntFunction;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The totals of each patient and doctor match sums over their billings after every kind of
+ * write, including the removal of the billing holding the largest balance and moves between
+ * groups, and while billings change during a summary.
+ */
+public class BillingAggregatesTest {
+    private final EntityStore<Billing> store = new EntityStore<>(Billing::getId);
+    private final BillingAggregates byPatient = BillingAggregates.attach(store, store.addIndex(Billing::getPatientId), Billing::getPatientId);
+    private final BillingAggregates byDoctor = BillingAggregates.attach(store, store.addIndex(Billing::getDoctorId), Billing::getDoctorId);
+
+    @Test
+    public void removingTheLargestBalanceRecomputesTheMaximum() {
+        store.put(billing(1, 1, 1, 30000));
+        store.put(billing(2, 1, 1, 50000));
+        store.put(billing(3, 1, 2, 50000));
+        store.put(billing(4, 1, 2, 10000));
+        assertEquals(50000, maxOutstanding(byPatient, 1));
+
+        // Another billing still holds the maximum
+        store.remove(2);
+        assertEquals(50000, maxOutstanding(byPatient, 1));
+        assertTotals();
+
+        store.remove(3);
+        assertEquals(30000, maxOutstanding(byPatient, 1));
+        assertTotals();
+
+        // Lowered, then joined by a larger one while the maximum is stale
+        store.replace(1, billing(1, 1, 1, 5000));
+        store.put(billing(5, 1, 1, 20000));
+        assertEquals(20000, maxOutstanding(byPatient, 1));
+        store.remove(5);
+        store.remove(4);
+        assertEquals(5000, maxOutstanding(byPatient, 1));
+        assertTotals();
+    }
+
+    @Test
+    public void billingsMoveBetweenGroups() {
+        store.put(billing(1, 1, 1, 70000));
+        store.put(billing(2, 1, 1, 20000));
+        store.put(billing(3, 2, 2, 40000));
+
+        store.replace(1, billing(1, 2, 1, 70000));
+        assertEquals(20000, maxOutstanding(byPatient, 1));
+        assertEquals(70000, maxOutstanding(byPatient, 2));
+        assertTotals();
+
+        store.replace(2, billing(2, 2, 2, 20000));
+        assertNull(summary(byPatient, 1));
+        assertEquals(70000, maxOutstanding(byDoctor, 1));
+        assertEquals(40000, maxOutstanding(byDoctor, 2));
+        assertTotals();
+
+        store.replace(1, billing(1, 3, 3, 70000));
+        assertNull(summary(byDoctor, 1));
+        assertEquals(40000, maxOutstanding(byPatient, 2));
+        assertEquals(40000, maxOutstanding(byDoctor, 2));
+        assertTotals();
+    }
+
+    @Test
+    public void totalsMatchSumsOverTheBillings() {
+        Random random = new Random(5);
+        for (int i = 0; i < 5000; i++) {
+            int id = 1 + random.nextInt(300);
+            if (random.nextInt(4) == 0) {
+                store.remove(id);
+            } else {
+                // Few distinct balances, so maximums are often shared
+                store.put(billing(id, 1 + random.nextInt(6), 1 + random.nextInt(4), 100 * random.nextInt(20)));
+            }
+            if (i % 50 == 0) {
+                assertTotals();
+            }
+        }
+        assertTotals();
+    }
+
+    @Test
+    public void summariesStayConsistentWhileBillingsChange() throws InterruptedException {
+        for (int id = 1; id <= 200; id++) {
+            store.put(billing(id, 1 + id % 2, 1, 100 * id));
+        }
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread writer = new Thread(() -> {
+            Random random = new Random(9);
+            try {
+                for (int i = 0; i < 20000; i++) {
+                    int id = 1 + random.nextInt(200);
+                    // The largest balances keep leaving and coming back
+                    store.put(billing(id, 1 + random.nextInt(2), 1, 100 * random.nextInt(250)));
+                }
+            } catch (RuntimeException | Error e) {
+                failure.set(e);
+            }
+        });
+        writer.start();
+        while (writer.isAlive()) {
+            for (BillingSummary summary : byPatient.summaries(true)) {
+                long outstanding = Money.toCents(summary.getOutstandingTotal());
+                long max = Money.toCents(summary.getMaxOutstanding());
+                assertTrue(max <= outstanding && max * summary.getCount() >= outstanding);
+            }
+        }
+        writer.join();
+        assertNull(failure.get());
+        assertTotals();
+    }
+
+    // Compares the totals of both groupings with sums over the stored billings
+    private void assertTotals() {
+        assertEquals(expected(Billing::getPatientId, true), describe(byPatient.summaries(true)));
+        assertEquals(expected(Billing::getDoctorId, false), describe(byDoctor.summaries(false)));
+    }
+
+    private List<String> expected(ToIntFunction<Billing> keyOf, boolean patients) {
+        Map<Integer, long[]> groups = new TreeMap<>();
+        for (Billing billing : store.values()) {
+            long[] totals = groups.computeIfAbsent(keyOf.applyAsInt(billing), key -> new long[5]);
+            totals[0]++;
+            totals[1] += billing.getInvoiceCents();
+            totals[2] += billing.getPaymentCents();
+            totals[3] += billing.getOutstandingCents();
+            totals[4] = totals[0] == 1 ? billing.getOutstandingCents() : Math.max(totals[4], billing.getOutstandingCents());
+        }
+        List<String> expected = new ArrayList<>();
+        for (Map.Entry<Integer, long[]> group : groups.entrySet()) {
+            long[] t = group.getValue();
+            expected.add((patients ? "patient " : "doctor ") + group.getKey() + ": " + t[0] + " " + t[1] + " " + t[2] + " " + t[3] + " " + t[4]);
+        }
+        return expected;
+    }
+
+    private static List<String> describe(List<BillingSummary> summaries) {
+        List<String> described = new ArrayList<>();
+        for (BillingSummary s : summaries) {
+            described.add((s.getPatientId() != null ? "patient " + s.getPatientId() : "doctor " + s.getDoctorId()) + ": "
+                    + s.getCount() + " " + Money.toCents(s.getInvoiceTotal()) + " " + Money.toCents(s.getPaymentTotal()) + " "
+                    + Money.toCents(s.getOutstandingTotal()) + " " + Money.toCents(s.getMaxOutstanding()));
+        }
+        return described;
+    }
+
+    private BillingSummary summary(BillingAggregates aggregates, int key) {
+        boolean patients = aggregates == byPatient;
+        for (BillingSummary summary : aggregates.summaries(patients)) {
+            if ((patients ? summary.getPatientId() : summary.getDoctorId()) == key) {
+                return summary;
+            }
+        }
+        return null;
+    }
+
+    private long maxOutstanding(BillingAggregates aggregates, int key) {
+        return Money.toCents(summary(aggregates, key).getMaxOutstanding());
+    }
+
+    private static Billing billing(int id, int patientId, int doctorId, long outstandingCents) {
+        return Billing.ofCents(id, patientId, doctorId, outstandingCents + 2500 * id, 2500 * id, outstandingCents);
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.dao;
+
+/**
+ *
+ * @author Maryam
+ */
+import csa.healthsystem.exception.InvalidDataException;
+import csa.healthsystem.exception.NotFoundException;
+import csa.healthsystem.model.Patient;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Health statuses of rejected patients take no code, so they cannot lock out new statuses.
+ */
+public class PatientDAOTest {
+    private final PatientDAO dao = new PatientDAO();
+
+    @Test
+    public void rejectedStatusesDoNotUseUpCodes() {
+        int codes = Patient.HEALTH_STATUSES.size();
+        for (int i = 0; i < 300; i++) {
+            try {
+                // No medical history
+                dao.addPatient(new Patient(0, "Rejected " + i, "1234567890", "1 Main St", "", "Rejected status " + i));
+                fail("Patient without a medical history was stored");
+            } catch (InvalidDataException e) {
+                // Expected: 400
+            }
+            try {
+                dao.updatePatient(999999, new Patient(0, "Missing", "1234567890", "1 Main St", "History", "Missing status " + i));
+                fail("Missing patient was updated");
+            } catch (NotFoundException e) {
+                // Expected: 404
+            }
+        }
+        assertEquals(codes, Patient.HEALTH_STATUSES.size());
+
+        Patient patient = new Patient(0, "New Status", "1234567890", "1 Main St", "History", "Under observation");
+        dao.addPatient(patient);
+        List<Patient> found = dao.getPatientsByStatus(Collections.singletonList("Under observation"), 0, 10);
+        assertEquals(1, found.size());
+        assertEquals(patient.getId(), found.get(0).getId());
+    }
+}
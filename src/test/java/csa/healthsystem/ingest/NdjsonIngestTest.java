@@ -0,0 +1,196 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.ingest;
+
+/**
+ *
+ * @author Maryam
+ */
+import csa.healthsystem.model.BatchResult;
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Lines are split on LF and CRLF, blank lines are skipped, malformed and overlong lines are
+ * rejected on their own with their line numbers, a failing writer stops the ingest, and a
+ * writer that falls behind stops the reader.
+ */
+public class NdjsonIngestTest {
+    @Test
+    public void linesAreReadAndRejectedOneByOne() {
+        List<Integer> stored = new ArrayList<>();
+        IngestJob job = run(stored::addAll, ""
+                + "{\"id\":1}\r\n"
+                + "\r\n"
+                + " \t \n"
+                + "{\"id\":2,\"name\":\"Panadol\"}\n"
+                + "{\"id\":3,\"name\":\"bad\"}\r\n"
+                + "{\"id\":\n"
+                + "{\"id\":4} {\"id\":6}\n"
+                + "null\n"
+                // The last line has no newline
+                + "{\"id\":5}");
+
+        assertEquals(IngestJob.State.COMPLETED, job.getState());
+        assertEquals(9, job.getLinesRead());
+        assertEquals(3, job.getAccepted());
+        assertEquals(4, job.getRejected());
+        assertEquals(Arrays.asList(1, 2, 3, 5), stored);
+        assertRejections(job, 5, "Rejected by the store", 6, "Invalid JSON", 7, "Unexpected content after the entity",
+                8, "Line holds no entity");
+    }
+
+    @Test
+    public void overlongLinesAreRejectedWithoutStoppingTheIngest() {
+        List<Integer> stored = new ArrayList<>();
+        String almostTooLong = "{\"id\":2,\"name\":\"" + repeat('a', NdjsonIngest.MAX_LINE_BYTES - 100) + "\"}";
+        String tooLong = "{\"id\":9,\"name\":\"" + repeat('b', NdjsonIngest.MAX_LINE_BYTES * 3) + "\"}";
+        IngestJob job = run(stored::addAll, "{\"id\":1}\n" + tooLong + "\r\n" + almostTooLong + "\n" + tooLong + "\n"
+                + "{\"id\":3}\n" + tooLong);
+
+        assertEquals(IngestJob.State.COMPLETED, job.getState());
+        assertEquals(6, job.getLinesRead());
+        assertEquals(Arrays.asList(1, 2, 3), stored);
+        String message = "Line is longer than " + NdjsonIngest.MAX_LINE_BYTES + " bytes";
+        assertRejections(job, 2, message, 4, message, 6, message);
+    }
+
+    @Test
+    public void aFailingWriterStopsTheIngest() {
+        List<Integer> stored = new ArrayList<>();
+        int lines = 20 * NdjsonIngest.BATCH_SIZE;
+        IngestJob job = run(ids -> {
+            if (!stored.isEmpty()) {
+                throw new IllegalStateException("disk full");
+            }
+            stored.addAll(ids);
+        }, lines(lines));
+
+        assertEquals(IngestJob.State.FAILED, job.getState());
+        assertTrue(job.getError(), job.getError().contains("disk full"));
+        assertEquals(NdjsonIngest.BATCH_SIZE, job.getAccepted());
+        assertTrue(job.getLinesRead() < lines);
+    }
+
+    @Test
+    public void aSlowWriterHoldsUpTheReader() throws InterruptedException {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Integer> stored = Collections.synchronizedList(new ArrayList<>());
+        int lines = 20 * NdjsonIngest.BATCH_SIZE;
+        IngestJob job = new IngestJob(1, "items");
+        NdjsonIngest<Item> ingest = new NdjsonIngest<>(Item.class, sink(ids -> {
+            writing.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            stored.addAll(ids);
+        }));
+        Thread reader = new Thread(() -> ingest.run(body(lines(lines)), job));
+        reader.start();
+
+        assertTrue(writing.await(10, TimeUnit.SECONDS));
+        // One batch being written, the queued ones, and one waiting to be queued
+        long held = (2L + NdjsonIngest.QUEUED_BATCHES) * NdjsonIngest.BATCH_SIZE;
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (job.getLinesRead() < held && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(200);
+        assertEquals(held, job.getLinesRead());
+
+        release.countDown();
+        reader.join(10_000);
+        assertEquals(IngestJob.State.COMPLETED, job.getState());
+        assertEquals(lines, job.getAccepted());
+        assertEquals(lines, stored.size());
+        assertTrue(job.getBackpressureMillis() >= 200);
+    }
+
+    /**
+     * Entity of the tests.
+     */
+    public static class Item {
+        public int id;
+        public String name;
+    }
+
+    private static IngestJob run(Writer writer, String body) {
+        IngestJob job = new IngestJob(1, "items");
+        new NdjsonIngest<>(Item.class, sink(writer)).run(body(body), job);
+        return job;
+    }
+
+    // Stores the IDs of the items, rejecting those named "bad"
+    private static Function<List<Item>, List<BatchResult>> sink(Writer writer) {
+        return items -> {
+            List<Integer> ids = new ArrayList<>();
+            List<BatchResult> results = new ArrayList<>();
+            for (int i = 0; i < items.size(); i++) {
+                Item item = items.get(i);
+                ids.add(item.id);
+                results.add("bad".equals(item.name) ? new BatchResult(i, 0, 400, "Rejected by the store", null)
+                        : BatchResult.succeeded(i, item.id, 201));
+            }
+            writer.write(ids);
+            return results;
+        };
+    }
+
+    // Hands out a few kilobytes per read, so lines span reads
+    private static InputStream body(String body) {
+        return new FilterInputStream(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8))) {
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                return super.read(buffer, offset, Math.min(length, 7919));
+            }
+        };
+    }
+
+    private static String lines(int count) {
+        StringBuilder lines = new StringBuilder();
+        for (int id = 1; id <= count; id++) {
+            lines.append("{\"id\":").append(id).append("}\n");
+        }
+        return lines.toString();
+    }
+
+    private static String repeat(char c, int count) {
+        char[] chars = new char[count];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+
+    // Takes pairs of a line number and the start of its error
+    private static void assertRejections(IngestJob job, Object... expected) {
+        List<IngestJob.Rejection> rejections = job.getRejections();
+        assertEquals(expected.length / 2, rejections.size());
+        for (int i = 0; i < rejections.size(); i++) {
+            IngestJob.Rejection rejection = rejections.get(i);
+            assertEquals(((Integer) expected[2 * i]).longValue(), rejection.getLine());
+            assertTrue(rejection.getError(), rejection.getError().startsWith((String) expected[2 * i + 1]));
+        }
+    }
+
+    private interface Writer {
+        void write(List<Integer> ids);
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.model;
+
+/**
+ *
+ * @author Maryam
+ */
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Whole-cent amounts convert exactly at every magnitude up to {@link Money#MAX_CENTS}, and
+ * fractions of a cent are rejected, including at magnitudes where a relative tolerance hid them.
+ */
+public class MoneyTest {
+    @Test
+    public void wholeCentsConvertExactly() {
+        assertEquals(10, Money.toCents(0.1));
+        assertEquals(29, Money.toCents(0.29));
+        assertEquals(-29, Money.toCents(-0.29));
+        assertEquals(500001, Money.toCents(5000.01));
+        assertEquals(100000000000001L, Money.toCents(1000000000000.01));
+        assertEquals(2000000000000000L, Money.toCents(20000000000000.0));
+    }
+
+    @Test
+    public void everyCentRoundTrips() {
+        long[] starts = {0, 99999000, 4294967000L, 100000000000000L, 1000000000000000L, Money.MAX_CENTS - 100000};
+        for (long start : starts) {
+            for (long cents = start; cents < start + 100000; cents++) {
+                assertEquals(cents, Money.toCents(Money.toAmount(cents)));
+                assertEquals(-cents, Money.toCents(Money.toAmount(-cents)));
+            }
+        }
+    }
+
+    @Test
+    public void fractionsOfACentAreRejected() {
+        assertRejected(0.001);
+        assertRejected(5000.004);
+        assertRejected(123456789.015);
+        // The old tolerance of a millionth of the amount accepted these
+        assertRejected(1000000000000.001);
+        assertRejected(10000000000.125);
+        assertRejected(Money.toAmount(Money.MAX_CENTS + 2));
+        assertRejected(Double.NaN);
+        assertRejected(Double.POSITIVE_INFINITY);
+        assertRejected(Double.NEGATIVE_INFINITY);
+        // What a JSON amount of -1e400 parses to
+        assertRejected(Double.parseDouble("-1e400"));
+        assertRejected(-Money.toAmount(Money.MAX_CENTS + 2));
+    }
+
+    private static void assertRejected(double amount) {
+        try {
+            Money.toCents(amount);
+            fail("Accepted " + amount);
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+    }
+}
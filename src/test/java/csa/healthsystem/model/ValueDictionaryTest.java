@@ -0,0 +1,37 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.model;
+
+/**
+ *
+ * @author Maryam
+ */
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * The dictionary stops growing at its limits, and values past them get the unknown code.
+ */
+public class ValueDictionaryTest {
+    @Test
+    public void valuesPastTheLimitsAreNotAdded() {
+        ValueDictionary dictionary = new ValueDictionary(3, 10);
+        int critical = dictionary.encode("Critical");
+        assertEquals(ValueDictionary.UNKNOWN_CODE, dictionary.encode("Much too long a status"));
+        dictionary.encode("Stable");
+        dictionary.encode("Recovering");
+        assertEquals(ValueDictionary.UNKNOWN_CODE, dictionary.encode("Discharged"));
+        assertEquals(ValueDictionary.UNKNOWN_CODE, dictionary.code("Discharged"));
+
+        // Values already held still encode, and the unknown code decodes like null
+        assertEquals(critical, dictionary.encode("Critical"));
+        assertEquals("Critical", dictionary.decode(critical));
+        assertEquals(ValueDictionary.NULL_CODE, dictionary.encode(null));
+        assertNull(dictionary.decode(ValueDictionary.UNKNOWN_CODE));
+        assertEquals(3, dictionary.size());
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.resource;
+
+/**
+ *
+ * @author Maryam
+ */
+import csa.healthsystem.dao.PatientDAO;
+import csa.healthsystem.exception.InvalidDataException;
+import csa.healthsystem.exception.PayloadTooLargeException;
+import csa.healthsystem.model.BatchResult;
+import csa.healthsystem.model.Patient;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import javax.ws.rs.core.Response;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Items of a batch that cannot be read fail on their own, in arrays and NDJSON alike, and
+ * oversized batches are refused.
+ */
+public class BatchRequestsTest {
+    private static final String PATIENT = "{\"name\":\"Batch Patient\",\"contactInformation\":\"1234567890\","
+            + "\"address\":\"1 Main St\",\"medicalHistory\":\"None\",\"currentHealthStatus\":\"Stable\"}";
+    private static final String WRONG_TYPE = "{\"name\":\"Wrong\",\"id\":\"not a number\"}";
+
+    private final PatientResource resource = new PatientResource();
+
+    @Test
+    public void unreadableArrayItemsFailOnTheirOwn() {
+        List<BatchResult> results = results(resource.addPatients(body("[" + PATIENT + ", " + WRONG_TYPE + ", null, " + PATIENT + "]")));
+        assertEquals(4, results.size());
+        assertStatuses(results, 201, 400, 400, 201);
+        assertTrue(new PatientDAO().patientExists(results.get(3).getId()));
+    }
+
+    @Test
+    public void malformedLinesFailOnTheirOwn() {
+        String body = PATIENT + "\r\n\n{\"name\": \n" + WRONG_TYPE + "\n" + PATIENT + " trailing\n   \n" + PATIENT;
+        List<BatchResult> results = results(resource.addPatients(body(body)));
+        assertStatuses(results, 201, 400, 400, 400, 201);
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(i, results.get(i).getIndex());
+        }
+    }
+
+    @Test
+    public void unreadableIdsFailOnTheirOwn() {
+        List<BatchResult> results = results(resource.deletePatients(body("[999998, \"x\", {}, 999999]")));
+        assertStatuses(results, 404, 400, 400, 404);
+        assertEquals(999999, results.get(3).getId());
+    }
+
+    @Test
+    public void invalidArraysAreRejectedAsAWhole() {
+        try {
+            BatchRequests.read(body("[" + PATIENT + ", {\"name\": ]"), Patient.class);
+            fail("Invalid array was read");
+        } catch (InvalidDataException e) {
+            // Expected: 400
+        }
+    }
+
+    @Test
+    public void oversizedBatchesAreRefused() {
+        StringBuilder ids = new StringBuilder();
+        for (int i = 0; i <= BatchRequests.MAX_ITEMS; i++) {
+            ids.append(i).append('\n');
+        }
+        try {
+            BatchRequests.readIds(body(ids.toString()));
+            fail("Oversized batch was read");
+        } catch (PayloadTooLargeException e) {
+            // Expected: 413
+        }
+        assertEquals(BatchRequests.MAX_ITEMS, BatchRequests.readIds(body(ids.substring(ids.indexOf("\n") + 1))).size());
+    }
+
+    private static void assertStatuses(List<BatchResult> results, int... statuses) {
+        assertEquals(statuses.length, results.size());
+        for (int i = 0; i < statuses.length; i++) {
+            assertEquals("Item " + i + ": " + results.get(i).getError(), statuses[i], results.get(i).getStatus());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<BatchResult> results(Response response) {
+        assertEquals(200, response.getStatus());
+        return (List<BatchResult>) response.getEntity();
+    }
+
+    private static InputStream body(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
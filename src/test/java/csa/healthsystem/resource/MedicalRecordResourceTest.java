@@ -0,0 +1,30 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.resource;
+
+/**
+ *
+ * @author Maryam
+ */
+import javax.ws.rs.core.Response;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Search pages past the deepest allowed offset are rejected, however large the offset.
+ */
+public class MedicalRecordResourceTest {
+    private final MedicalRecordResource resource = new MedicalRecordResource();
+
+    @Test
+    public void searchRejectsOffsetsPastTheLimit() {
+        assertEquals(400, resource.searchMedicalRecords("asthma", Integer.MAX_VALUE, null, true, null).getStatus());
+        assertEquals(400, resource.searchMedicalRecords("asthma", Integer.MAX_VALUE - 10, 100, true, null).getStatus());
+        assertEquals(400, resource.searchMedicalRecords("asthma", CollectionResponses.MAX_LIMIT, 1, true, null).getStatus());
+        Response last = resource.searchMedicalRecords("asthma", CollectionResponses.MAX_LIMIT - 1, 1, true, null);
+        assertEquals(200, last.getStatus());
+    }
+}
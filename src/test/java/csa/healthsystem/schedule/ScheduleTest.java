@@ -0,0 +1,132 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.schedule;
+
+/**
+ *
+ * @author Maryam
+ */
+import csa.healthsystem.exception.ConflictException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Bookings may touch but not overlap, an appointment can move within its own slot, and free
+ * slots and the next free start account for bookings that began before the range.
+ */
+public class ScheduleTest {
+    private static final int DOCTOR = 2;
+    // Nine o'clock; the tests book minutes after it
+    private static final int NINE = EpochMinutes.of("2099-03-10", "09:00");
+
+    private final Schedule schedule = new Schedule();
+
+    @Test
+    public void adjacentBookingsAreAllowed() {
+        reserve(60, 90, 1);
+        reserve(90, 120, 2);
+        reserve(30, 60, 3);
+        assertSlots(schedule.freeSlots(DOCTOR, NINE, NINE + 180, 1), 0, 30, 120, 180);
+    }
+
+    @Test
+    public void overlapOnEitherSideIsAConflict() {
+        reserve(60, 90, 1);
+        assertConflict(55, 61);
+        assertConflict(89, 120);
+        assertConflict(70, 80);
+        assertConflict(0, 200);
+        assertConflict(60, 90);
+        // Another doctor is free
+        schedule.reserve(DOCTOR + 1, NINE + 60, NINE + 90, 5);
+
+        try {
+            schedule.reserve(DOCTOR, NINE + 80, NINE + 110, 6);
+            fail("Booked over another appointment");
+        } catch (ConflictException e) {
+            assertTrue(e.getMessage(), e.getMessage().endsWith("next free slot starts at " + EpochMinutes.format(NINE + 90)));
+        }
+    }
+
+    @Test
+    public void bookingsStartedBeforeTheRangeAreSkipped() {
+        reserve(60, 120, 1);
+        reserve(150, 160, 2);
+        assertSlots(schedule.freeSlots(DOCTOR, NINE + 90, NINE + 200, 1), 120, 150, 160, 200);
+        assertEquals(NINE + 120, schedule.nextFree(DOCTOR, NINE + 90, 30));
+        // Too short a gap before the next booking
+        assertEquals(NINE + 160, schedule.nextFree(DOCTOR, NINE + 90, 31));
+        assertEquals(NINE + 30, schedule.nextFree(DOCTOR, NINE + 30, 30));
+        assertEquals(NINE + 120, schedule.nextFree(DOCTOR, NINE + 31, 30));
+        // The range ends inside a booking
+        assertSlots(schedule.freeSlots(DOCTOR, NINE + 70, NINE + 100, 1));
+        assertSlots(schedule.freeSlots(DOCTOR, NINE + 30, NINE + 100, 1), 30, 60);
+    }
+
+    @Test
+    public void shortGapsAreLeftOut() {
+        reserve(60, 90, 1);
+        reserve(100, 130, 2);
+        reserve(200, 230, 3);
+        assertSlots(schedule.freeSlots(DOCTOR, NINE, NINE + 300, 15), 0, 60, 130, 200, 230, 300);
+        assertSlots(schedule.freeSlots(DOCTOR, NINE, NINE + 300, 10), 0, 60, 90, 100, 130, 200, 230, 300);
+        assertSlots(schedule.freeSlots(DOCTOR, NINE, NINE + 300, 70), 130, 200, 230, 300);
+        assertSlots(schedule.freeSlots(DOCTOR + 1, NINE, NINE + 300, 300), 0, 300);
+        assertSlots(schedule.freeSlots(DOCTOR + 1, NINE, NINE + 300, 301));
+        assertEquals(NINE + 130, schedule.nextFree(DOCTOR, NINE + 60, 15));
+        assertEquals(NINE, schedule.nextFree(DOCTOR + 1, NINE, 15));
+    }
+
+    @Test
+    public void anAppointmentMovesWithinItsOwnSlot() {
+        reserve(60, 90, 1);
+        reserve(105, 135, 2);
+        reserve(75, 105, 1);
+        assertSlots(schedule.freeSlots(DOCTOR, NINE, NINE + 180, 1), 0, 75, 135, 180);
+
+        // Still a conflict with another appointment, and the booking stays where it was
+        assertConflict(90, 120);
+        assertSlots(schedule.freeSlots(DOCTOR, NINE, NINE + 180, 1), 0, 75, 135, 180);
+
+        // Released only by its own appointment
+        schedule.release(DOCTOR, NINE + 75, 2);
+        schedule.release(DOCTOR, NINE + 60, 1);
+        assertSlots(schedule.freeSlots(DOCTOR, NINE, NINE + 180, 1), 0, 75, 135, 180);
+        schedule.release(DOCTOR, NINE + 75, 1);
+        assertSlots(schedule.freeSlots(DOCTOR, NINE, NINE + 180, 1), 0, 105, 135, 180);
+    }
+
+    private void reserve(int start, int end, int appointmentId) {
+        schedule.reserve(DOCTOR, NINE + start, NINE + end, appointmentId);
+    }
+
+    // Tries to book the interval for a new appointment
+    private void assertConflict(int start, int end) {
+        try {
+            reserve(start, end, 99);
+            fail("Booked " + start + "-" + end + " over another appointment");
+        } catch (ConflictException e) {
+            // Expected: 409
+        }
+    }
+
+    // Takes the start and end of each expected slot, in minutes after nine
+    private static void assertSlots(List<int[]> slots, int... expected) {
+        List<String> actual = new ArrayList<>();
+        for (int[] slot : slots) {
+            actual.add((slot[0] - NINE) + "-" + (slot[1] - NINE));
+        }
+        List<String> wanted = new ArrayList<>();
+        for (int i = 0; i < expected.length; i += 2) {
+            wanted.add(expected[i] + "-" + expected[i + 1]);
+        }
+        assertEquals(wanted, actual);
+    }
+}
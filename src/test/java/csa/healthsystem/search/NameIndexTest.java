@@ -0,0 +1,71 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.search;
+
+/**
+ *
+ * @author Maryam
+ */
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+
+/**
+ * Typeahead results come best match first: exact words, then prefixes by word length, then
+ * words within a typo. Updates and removals are followed.
+ */
+public class NameIndexTest {
+    private static final int JONES = 1;
+    private static final int JOHNSON = 2;
+    private static final int JOHN = 3;
+    private static final int JO = 4;
+    private static final int MARY = 5;
+
+    @Test
+    public void prefixMatchesComeShorterWordsFirst() {
+        NameIndex index = people();
+        assertArrayEquals(new int[] {JO, JOHN, JONES, JOHNSON}, index.search("jo", 10));
+        // Too few start with the query, so words within a typo follow
+        assertArrayEquals(new int[] {JOHN, JOHNSON, JONES}, index.search("john", 10));
+        assertArrayEquals(new int[] {JOHN, JOHNSON}, index.search("john", 2));
+        assertArrayEquals(new int[] {JO, JOHN}, index.search("Jo", 2));
+        // Every query word must start a word of the name, in any order
+        assertArrayEquals(new int[] {JOHNSON}, index.search("smi joh", 10));
+        assertArrayEquals(new int[] {JONES, MARY}, index.search("555-01", 10));
+    }
+
+    @Test
+    public void typosAreToleratedWhenTooFewMatch() {
+        NameIndex index = people();
+        assertArrayEquals(new int[] {JOHN, JOHNSON, JONES}, index.search("jhon", 10));
+        assertArrayEquals(new int[] {JOHNSON}, index.search("jhonson", 10));
+        // Exact prefix matches come before words within a typo
+        assertArrayEquals(new int[] {JOHNSON, JOHN}, index.search("johns", 10));
+        // Too short to guess at
+        assertArrayEquals(new int[0], index.search("xo", 10));
+    }
+
+    @Test
+    public void updatesAndRemovalsAreFollowed() {
+        NameIndex index = people();
+        index.remove(JO);
+        index.update(JOHN, "Jonathan Price", "555-0300");
+        assertArrayEquals(new int[] {JONES, JOHNSON, JOHN}, index.search("jo", 10));
+        assertArrayEquals(new int[] {JOHNSON, JOHN, JONES}, index.search("john", 10));
+        assertArrayEquals(new int[] {JOHN}, index.search("price", 10));
+        assertArrayEquals(new int[] {JOHN}, index.search("555-03", 10));
+        assertArrayEquals(new int[0], index.search("555-0400", 10));
+    }
+
+    private static NameIndex people() {
+        NameIndex index = new NameIndex();
+        index.update(JONES, "Jones Marr", "555-0100");
+        index.update(JOHNSON, "Peter Johnson-Smith", "555-0200");
+        index.update(JOHN, "John Doe", "555-0300");
+        index.update(JO, "Jo Brown", "555-0400");
+        index.update(MARY, "Mary Poppins", "555-0110");
+        return index;
+    }
+}
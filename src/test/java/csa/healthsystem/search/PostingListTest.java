@@ -0,0 +1,105 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.search;
+
+/**
+ *
+ * @author Maryam
+ */
+import java.util.Random;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Cursors read back every posting, jump to targets across blocks, and report the score bounds of
+ * the block they are in.
+ */
+public class PostingListTest {
+    private static final int POSTINGS = 5 * PostingList.BLOCK_SIZE + 17;
+
+    private final int[] docs = new int[POSTINGS];
+    private final int[] freqs = new int[POSTINGS];
+    private final int[] lengths = new int[POSTINGS];
+    private final PostingList postings;
+
+    public PostingListTest() {
+        Random random = new Random(3);
+        PostingList.Builder builder = new PostingList.Builder();
+        int doc = -1;
+        for (int i = 0; i < POSTINGS; i++) {
+            // Gaps and frequencies of one and several bytes
+            doc += 1 + (i % 50 == 0 ? 100_000 + random.nextInt(1000) : random.nextInt(5));
+            docs[i] = doc;
+            freqs[i] = i % 7 == 0 ? 1 + random.nextInt(300) : 1;
+            lengths[i] = 1 + random.nextInt(100);
+            builder.add(doc, freqs[i], lengths[i]);
+        }
+        postings = builder.build();
+    }
+
+    @Test
+    public void nextReadsEveryPosting() {
+        assertEquals(POSTINGS, postings.count());
+        PostingList.Cursor cursor = postings.cursor();
+        assertEquals(-1, cursor.doc());
+        for (int i = 0; i < POSTINGS; i++) {
+            assertEquals(docs[i], cursor.next());
+            assertEquals(freqs[i], cursor.freq());
+        }
+        assertEquals(PostingList.NO_MORE_DOCS, cursor.next());
+        assertEquals(PostingList.NO_MORE_DOCS, cursor.blockLastDoc());
+    }
+
+    @Test
+    public void advanceFindsTheFirstDocumentAtOrAfterTheTarget() {
+        PostingList.Cursor cursor = postings.cursor();
+        for (int target = 0; target <= docs[POSTINGS - 1]; target += 1 + target / 3) {
+            int i = firstAtOrAfter(target);
+            // A cursor only moves forward
+            if (docs[i] < cursor.doc()) {
+                continue;
+            }
+            assertEquals("target " + target, docs[i], cursor.advance(target));
+            assertEquals(freqs[i], cursor.freq());
+            int block = i / PostingList.BLOCK_SIZE;
+            assertEquals(docs[Math.min(POSTINGS, (block + 1) * PostingList.BLOCK_SIZE) - 1], cursor.blockLastDoc());
+            assertEquals(maxFreq(block), cursor.blockMaxFreq());
+            assertEquals(minLength(block), cursor.blockMinLength());
+        }
+        assertEquals(PostingList.NO_MORE_DOCS, cursor.advance(docs[POSTINGS - 1] + 1));
+
+        // Fresh cursors straight into each block, including its first and last postings
+        for (int i = 0; i < POSTINGS; i += PostingList.BLOCK_SIZE - 1) {
+            PostingList.Cursor fresh = postings.cursor();
+            assertEquals(docs[i], fresh.advance(docs[i]));
+            assertEquals(i + 1 < POSTINGS ? docs[i + 1] : PostingList.NO_MORE_DOCS, fresh.next());
+        }
+    }
+
+    private int firstAtOrAfter(int target) {
+        int i = 0;
+        while (docs[i] < target) {
+            i++;
+        }
+        return i;
+    }
+
+    private int maxFreq(int block) {
+        int max = 0;
+        for (int i = block * PostingList.BLOCK_SIZE; i < Math.min(POSTINGS, (block + 1) * PostingList.BLOCK_SIZE); i++) {
+            max = Math.max(max, freqs[i]);
+        }
+        return max;
+    }
+
+    private int minLength(int block) {
+        int min = Integer.MAX_VALUE;
+        for (int i = block * PostingList.BLOCK_SIZE; i < Math.min(POSTINGS, (block + 1) * PostingList.BLOCK_SIZE); i++) {
+            min = Math.min(min, lengths[i]);
+        }
+        return min;
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.search;
+
+/**
+ *
+ * @author Maryam
+ */
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Searches rank by BM25 whether documents are still buffered, flushed or merged, follow updates
+ * and removals, and return the same top documents with block-max pruning as with exhaustive
+ * scoring.
+ */
+public class TextIndexTest {
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+
+    @Test
+    public void ranksByBm25FromTheBufferAndFromSegments() {
+        TextIndex index = new TextIndex("test");
+        index.update(1, "fever cough");
+        index.update(2, "fever fever fever");
+        index.update(3, "fever cough headache nausea vomiting dizziness");
+        index.update(4, "cough");
+
+        Matches buffered = index.search("fever", 10);
+        Matches bothTerms = index.search("Fever, cough", 10);
+        // Searches read the buffer as it stands instead of flushing it
+        assertEquals(0, index.segmentCount());
+        assertArrayEquals(new int[] {2, 1, 3}, ids(buffered));
+        assertArrayEquals(new int[] {1, 3}, ids(bothTerms));
+        assertTrue(buffered.score(0) > buffered.score(1) && buffered.score(1) > buffered.score(2));
+        assertEquals(0, index.search("migraine", 10).size());
+        assertEquals(0, index.search("fever migraine", 10).size());
+        assertEquals(0, index.search("the of", 10).size());
+
+        index.flush();
+        assertEquals(1, index.segmentCount());
+        Matches flushed = index.search("fever", 10);
+        assertArrayEquals(ids(buffered), ids(flushed));
+        for (int rank = 0; rank < flushed.size(); rank++) {
+            assertEquals(buffered.score(rank), flushed.score(rank), 0f);
+        }
+        assertArrayEquals(ids(bothTerms), ids(index.search("cough fever", 10)));
+
+        // Documents in the buffer and in a segment are ranked together
+        index.update(5, "fever fever");
+        assertArrayEquals(new int[] {2, 5, 1, 3}, ids(index.search("fever", 10)));
+        assertArrayEquals(new int[] {2, 5}, ids(index.search("fever", 2)));
+        assertEquals(4, index.search("fever", 2).getTotal());
+    }
+
+    @Test
+    public void followsUpdatesAndRemovalsAcrossFlushesAndMerges() throws InterruptedException {
+        TextIndex index = new TextIndex("test");
+        // Eight flushed segments of the same size are merged into one
+        for (int segment = 0; segment < 8; segment++) {
+            for (int doc = segment * 10 + 1; doc <= segment * 10 + 10; doc++) {
+                index.update(doc, "routine checkup " + (doc % 2 == 0 ? "even" : "odd"));
+            }
+            if (segment == 3) {
+                // Outdated versions left behind in older segments, and one removed
+                index.update(2, "allergy rash");
+                index.update(11, "allergy");
+                index.update(4, null);
+            }
+            if (segment == 6) {
+                index.update(2, "allergy swelling");
+            }
+            index.flush();
+        }
+        awaitSegments(index, 1);
+
+        assertEquals(79, index.size());
+        assertArrayEquals(new int[] {11, 2}, ids(index.search("allergy", 10)));
+        assertArrayEquals(new int[] {2}, ids(index.search("swelling", 10)));
+        assertEquals(0, index.search("rash", 10).size());
+        Matches routine = index.search("routine", 100);
+        assertEquals(77, routine.getTotal());
+        assertTrue(routine.isTotalExact());
+        List<Integer> found = idList(routine);
+        assertFalse(found.contains(2) || found.contains(4) || found.contains(11));
+        assertEquals(38, index.search("routine even", 100).getTotal());
+
+        // Changes after the merge, some flushed and some still buffered
+        index.update(3, "allergy");
+        index.update(80, null);
+        index.flush();
+        index.update(11, null);
+        index.update(81, "allergy allergy");
+        assertEquals(2, index.segmentCount());
+        assertArrayEquals(new int[] {81, 3, 2}, ids(index.search("allergy", 10)));
+        assertEquals(75, index.search("routine", 100).getTotal());
+        assertEquals(78, index.size());
+    }
+
+    @Test
+    public void flushesTheBufferAfterAWhile() throws InterruptedException {
+        TextIndex index = new TextIndex("test");
+        index.update(1, "fever");
+        awaitSegments(index, 1);
+        assertArrayEquals(new int[] {1}, ids(index.search("fever", 10)));
+    }
+
+    @Test
+    public void pruningReturnsTheSameTopDocumentsAsExhaustiveScoring() {
+        TextIndex index = new TextIndex("test");
+        Random random = new Random(7);
+        int documents = 3 * TextIndex.TOTAL_HITS_THRESHOLD;
+        int[] pain = new int[documents + 1];
+        int[] chronic = new int[documents + 1];
+        int[] lengths = new int[documents + 1];
+        long totalLength = 0;
+        for (int doc = 1; doc <= documents; doc++) {
+            // A few documents stand out, so most blocks cannot reach the top
+            pain[doc] = doc % 997 == 0 ? 4 + random.nextInt(4) : 1 + random.nextInt(2);
+            chronic[doc] = doc % 3 == 0 ? 1 + random.nextInt(3) : 0;
+            int filler = random.nextInt(30);
+            StringBuilder text = new StringBuilder();
+            for (int i = 0; i < pain[doc]; i++) {
+                text.append("pain ");
+            }
+            for (int i = 0; i < chronic[doc]; i++) {
+                text.append("chronic ");
+            }
+            for (int i = 0; i < filler; i++) {
+                text.append("word").append(random.nextInt(50)).append(' ');
+            }
+            lengths[doc] = pain[doc] + chronic[doc] + filler;
+            totalLength += lengths[doc];
+            index.update(doc, text.toString());
+        }
+        index.flush();
+
+        float averageLength = (float) totalLength / documents;
+        Matches pruned = index.search("pain", 10);
+        assertFalse(pruned.isTotalExact());
+        assertTrue(pruned.getTotal() >= TextIndex.TOTAL_HITS_THRESHOLD);
+        assertTop(exhaustive(new int[][] {pain}, lengths, averageLength, 10), pruned);
+
+        Matches both = index.search("chronic pain", 10);
+        assertTop(exhaustive(new int[][] {pain, chronic}, lengths, averageLength, 10), both);
+
+        // Below the threshold every match is counted
+        Matches all = index.search("pain", documents);
+        assertTrue(all.isTotalExact());
+        assertEquals(documents, all.getTotal());
+        assertTop(exhaustive(new int[][] {pain}, lengths, averageLength, documents), all);
+    }
+
+    // Scores every document holding all the terms, given their frequencies per document
+    private static List<float[]> exhaustive(int[][] freqs, int[] lengths, float averageLength, int count) {
+        int documents = lengths.length - 1;
+        float[] idf = new float[freqs.length];
+        for (int t = 0; t < freqs.length; t++) {
+            long df = Arrays.stream(freqs[t]).filter(freq -> freq > 0).count();
+            idf[t] = (float) Math.log(1 + (documents - df + 0.5) / (df + 0.5));
+        }
+        List<float[]> scored = new ArrayList<>();
+        for (int doc = 1; doc <= documents; doc++) {
+            float score = 0;
+            for (int t = 0; t < freqs.length && score >= 0; t++) {
+                int freq = freqs[t][doc];
+                score = freq == 0 ? -1
+                        : score + idf[t] * freq * (K1 + 1) / (freq + K1 * (1 - B + B * lengths[doc] / averageLength));
+            }
+            if (score >= 0) {
+                scored.add(new float[] {doc, score});
+            }
+        }
+        Collections.sort(scored, (a, b) -> a[1] != b[1] ? Float.compare(b[1], a[1]) : Float.compare(a[0], b[0]));
+        return scored.subList(0, Math.min(count, scored.size()));
+    }
+
+    private static void assertTop(List<float[]> expected, Matches matches) {
+        assertEquals(expected.size(), matches.size());
+        for (int rank = 0; rank < expected.size(); rank++) {
+            assertEquals("rank " + rank, (int) expected.get(rank)[0], matches.id(rank));
+            assertEquals("rank " + rank, expected.get(rank)[1], matches.score(rank), 1e-5f);
+        }
+    }
+
+    private static void awaitSegments(TextIndex index, int segments) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (index.segmentCount() != segments && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(segments, index.segmentCount());
+    }
+
+    private static int[] ids(Matches matches) {
+        int[] ids = new int[matches.size()];
+        for (int rank = 0; rank < ids.length; rank++) {
+            ids[rank] = matches.id(rank);
+        }
+        return ids;
+    }
+
+    private static List<Integer> idList(Matches matches) {
+        List<Integer> ids = new ArrayList<>();
+        for (int id : ids(matches)) {
+            ids.add(id);
+        }
+        return ids;
+    }
+}
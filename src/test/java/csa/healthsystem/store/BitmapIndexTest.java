@@ -0,0 +1,61 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.store;
+
+/**
+ *
+ * @author Maryam
+ */
+import csa.healthsystem.model.ValueDictionary;
+import csa.healthsystem.store.WriteAheadLogTest.Entry;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * The index finds entities by value, including values the dictionary has no room for, and follows
+ * updates and removals.
+ */
+public class BitmapIndexTest {
+    @Test
+    public void valuesWithoutACodeAreFoundByTheirText() {
+        ValueDictionary dictionary = new ValueDictionary(2, 10);
+        EntityStore<Entry> store = new EntityStore<>(entry -> entry.id);
+        BitmapIndex<Entry> index = BitmapIndex.attach(store, dictionary, entry -> entry.name);
+        for (int id = 1; id <= 40; id++) {
+            String[] names = {"Critical", "Stable", "Recovering", "A status much too long"};
+            store.put(new Entry(id, names[id % 4]));
+        }
+        assertEquals(2, dictionary.size());
+
+        assertEquals(ids(3, 7, 11, 15, 19, 23, 27, 31, 35, 39), ids(index.find(Arrays.asList("A status much too long"), 0, 100)));
+        assertEquals(ids(2, 6, 10), ids(index.find(Arrays.asList("Recovering"), 0, 3)));
+        assertEquals(ids(14, 15, 18, 19), ids(index.find(Arrays.asList("Recovering", "A status much too long", "Unused"), 13, 4)));
+        assertEquals(ids(), ids(index.find(Arrays.asList("Unused"), 0, 100)));
+
+        // Moves between a coded value and one without a code, and removals from both
+        store.replace(2, new Entry(2, "Critical"));
+        store.replace(4, new Entry(4, "Recovering"));
+        store.remove(6);
+        store.remove(5);
+        assertEquals(ids(4, 10, 14), ids(index.find(Arrays.asList("Recovering"), 0, 3)));
+        assertEquals(ids(1, 2, 8), ids(index.find(Arrays.asList("Stable", "Critical"), 0, 3)));
+    }
+
+    private static List<Integer> ids(List<Entry> entries) {
+        List<Integer> ids = new ArrayList<>();
+        for (Entry entry : entries) {
+            ids.add(entry.id);
+        }
+        return ids;
+    }
+
+    private static List<Integer> ids(Integer... ids) {
+        return Arrays.asList(ids);
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.store;
+
+/**
+ *
+ * @author Maryam
+ */
+import csa.healthsystem.exception.VersionConflictException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Concurrent writers and readers on one store: version-checked increments, churn that grows
+ * and compacts the segments, and readers that must never see a torn or inconsistent state.
+ */
+public class EntityStoreConcurrencyTest {
+    private static final int COUNTERS = 64;
+    private static final int KEYS = 4;
+    private static final int INCREMENTERS = 4;
+    private static final int INCREMENTS = 20000;
+    private static final int CHURN = 100000;
+
+    @Test
+    public void concurrentCrudKeepsTheStoreConsistent() throws InterruptedException {
+        EntityStore<Item> store = new EntityStore<>(Item::getId);
+        SecondaryIndex<Item> byKey = store.addIndex(Item::getKey);
+        for (int id = 1; id <= COUNTERS; id++) {
+            store.put(new Item(id, 0));
+        }
+        AtomicIntegerArray expected = new AtomicIntegerArray(COUNTERS + 1);
+        Queue<Throwable> errors = new ConcurrentLinkedQueue<>();
+        AtomicBoolean writing = new AtomicBoolean(true);
+
+        List<Thread> writers = new ArrayList<>();
+        for (int t = 0; t < INCREMENTERS; t++) {
+            writers.add(thread(errors, () -> {
+                for (int i = 0; i < INCREMENTS; i++) {
+                    int id = 1 + ThreadLocalRandom.current().nextInt(COUNTERS);
+                    increment(store, id);
+                    expected.incrementAndGet(id);
+                }
+            }));
+        }
+        // Adds and removes entities above the counters, so segments resize and compact under the readers
+        writers.add(thread(errors, () -> {
+            for (int i = 0; i < CHURN; i++) {
+                int id = COUNTERS + 1 + i;
+                store.put(new Item(id, i));
+                if (i % 3 != 0) {
+                    store.remove(id - i % 3);
+                }
+                if (i % 1000 == 0) {
+                    List<Item> batch = new ArrayList<>();
+                    for (int j = 0; j < 50; j++) {
+                        batch.add(new Item(COUNTERS + CHURN + i + j, j));
+                    }
+                    store.putAll(batch);
+                }
+            }
+        }));
+        List<Thread> readers = new ArrayList<>();
+        for (int t = 0; t < 2; t++) {
+            readers.add(thread(errors, () -> {
+                while (writing.get()) {
+                    int id = 1 + ThreadLocalRandom.current().nextInt(COUNTERS);
+                    Item item = store.get(id);
+                    assertTrue("Counter " + id + " missing", item != null && item.getId() == id);
+                    int previous = 0;
+                    for (Item paged : store.page(0, 500)) {
+                        assertTrue("Page out of order", paged.getId() > previous);
+                        previous = paged.getId();
+                    }
+                    int key = ThreadLocalRandom.current().nextInt(KEYS);
+                    for (Item found : byKey.find(key)) {
+                        assertEquals(key, found.getKey());
+                    }
+                }
+            }));
+        }
+        for (Thread thread : readers) {
+            thread.start();
+        }
+        for (Thread thread : writers) {
+            thread.start();
+        }
+        for (Thread thread : writers) {
+            thread.join();
+        }
+        writing.set(false);
+        for (Thread thread : readers) {
+            thread.join();
+        }
+        assertTrue("Errors in worker threads: " + errors, errors.isEmpty());
+
+        for (int id = 1; id <= COUNTERS; id++) {
+            assertEquals("Lost update to " + id, expected.get(id), store.get(id).getCount());
+        }
+        List<Item> values = store.values();
+        assertEquals(store.size(), values.size());
+        Set<Integer> ids = new HashSet<>();
+        int previous = 0;
+        for (Item item : values) {
+            assertTrue("Values out of order", item.getId() > previous);
+            previous = item.getId();
+            assertEquals(item, store.get(item.getId()));
+            ids.add(item.getId());
+        }
+        assertEquals(values, store.page(0, values.size()));
+        Set<Integer> indexed = new HashSet<>();
+        for (int key = 0; key < KEYS; key++) {
+            for (Item item : byKey.find(key)) {
+                assertEquals(key, item.getKey());
+                assertTrue("Indexed twice: " + item.getId(), indexed.add(item.getId()));
+            }
+        }
+        assertEquals(ids, indexed);
+    }
+
+    private static void increment(EntityStore<Item> store, int id) {
+        while (true) {
+            Versioned<Item> current = store.getVersioned(id);
+            try {
+                store.replace(id, new Item(id, current.getEntity().getCount() + 1), current.getVersion());
+                return;
+            } catch (VersionConflictException e) {
+                // Another writer got there first; read again
+            }
+        }
+    }
+
+    private static Thread thread(Queue<Throwable> errors, Runnable work) {
+        return new Thread(() -> {
+            try {
+                work.run();
+            } catch (Throwable e) {
+                errors.add(e);
+            }
+        });
+    }
+
+    static final class Item {
+        private final int id;
+        private final int count;
+
+        Item(int id, int count) {
+            this.id = id;
+            this.count = count;
+        }
+
+        int getId() {
+            return id;
+        }
+
+        int getCount() {
+            return count;
+        }
+
+        int getKey() {
+            return count % KEYS;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.store;
+
+/**
+ *
+ * @author Maryam
+ */
+import java.util.Random;
+import java.util.TreeSet;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The set holds the same IDs as a {@link TreeSet} while its chunks turn from arrays into bitmaps
+ * and back, and pages through them across chunks.
+ */
+public class IdBitmapTest {
+    // IDs of one chunk share their upper 16 bits
+    private static final int CHUNK = 1 << 16;
+
+    @Test
+    public void chunksTurnIntoBitmapsAndBack() {
+        IdBitmap bitmap = new IdBitmap();
+        TreeSet<Integer> expected = new TreeSet<>();
+        // Past the 4,096 IDs an array chunk holds, then below the 2,048 a bitmap chunk keeps
+        for (int id = 0; id < 5000; id++) {
+            assertTrue(bitmap.add(CHUNK + id * 3));
+            expected.add(CHUNK + id * 3);
+        }
+        assertFalse(bitmap.add(CHUNK + 4095 * 3));
+        assertFalse(bitmap.add(CHUNK + 4096 * 3));
+        assertHolds(expected, bitmap);
+
+        for (int id = 0; id < 4000; id++) {
+            assertTrue(bitmap.remove(CHUNK + id * 3));
+            expected.remove(CHUNK + id * 3);
+        }
+        assertFalse(bitmap.remove(CHUNK));
+        assertFalse(bitmap.remove(CHUNK + 1));
+        assertHolds(expected, bitmap);
+
+        // Grown into a bitmap again from an array that shrank
+        for (int id = 0; id < 5000; id++) {
+            bitmap.add(CHUNK + id);
+            expected.add(CHUNK + id);
+        }
+        assertHolds(expected, bitmap);
+    }
+
+    @Test
+    public void emptyChunksAreDropped() {
+        IdBitmap bitmap = new IdBitmap();
+        for (int key = 0; key < 10; key++) {
+            bitmap.add(key * CHUNK + 7);
+        }
+        for (int key = 0; key < 10; key += 2) {
+            assertTrue(bitmap.remove(key * CHUNK + 7));
+        }
+        assertFalse(bitmap.remove(2 * CHUNK + 7));
+        assertEquals(5, bitmap.cardinality());
+        assertArrayEquals(new int[] {CHUNK + 7, 3 * CHUNK + 7, 5 * CHUNK + 7, 7 * CHUNK + 7, 9 * CHUNK + 7}, bitmap.page(0, 10));
+
+        for (int key = 1; key < 10; key += 2) {
+            bitmap.remove(key * CHUNK + 7);
+        }
+        assertTrue(bitmap.isEmpty());
+        assertArrayEquals(new int[0], bitmap.page(0, 10));
+    }
+
+    @Test
+    public void pagesFollowTheCursorAcrossChunks() {
+        IdBitmap bitmap = new IdBitmap();
+        TreeSet<Integer> expected = new TreeSet<>();
+        Random random = new Random(42);
+        // A dense chunk between sparse ones, and IDs at both ends of a chunk
+        for (int i = 0; i < 6000; i++) {
+            int id = 2 * CHUNK + random.nextInt(CHUNK);
+            bitmap.add(id);
+            expected.add(id);
+        }
+        for (int id : new int[] {1, CHUNK - 1, CHUNK, 3 * CHUNK - 1, 3 * CHUNK, 100 * CHUNK + 5, Integer.MAX_VALUE}) {
+            bitmap.add(id);
+            expected.add(id);
+        }
+        assertHolds(expected, bitmap);
+
+        for (int afterId : new int[] {0, 1, CHUNK - 2, CHUNK - 1, 2 * CHUNK + 100, 3 * CHUNK - 2, 3 * CHUNK, 50 * CHUNK}) {
+            for (int limit : new int[] {1, 7, 500}) {
+                assertArrayEquals("after " + afterId + ", limit " + limit, page(expected, afterId, limit), bitmap.page(afterId, limit));
+            }
+        }
+        assertArrayEquals(new int[] {Integer.MAX_VALUE}, bitmap.page(Integer.MAX_VALUE - 1, 10));
+        assertArrayEquals(new int[0], bitmap.page(Integer.MAX_VALUE, 10));
+        assertArrayEquals(new int[0], bitmap.page(0, 0));
+    }
+
+    private static void assertHolds(TreeSet<Integer> expected, IdBitmap bitmap) {
+        assertEquals(expected.size(), bitmap.cardinality());
+        assertArrayEquals(page(expected, Integer.MIN_VALUE, expected.size()), bitmap.page(Integer.MIN_VALUE, expected.size()));
+    }
+
+    private static int[] page(TreeSet<Integer> ids, int afterId, int limit) {
+        return ids.tailSet(afterId, false).stream().limit(limit).mapToInt(Integer::intValue).toArray();
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.store;
+
+/**
+ *
+ * @author Maryam
+ */
+import csa.healthsystem.exception.DatabaseException;
+import csa.healthsystem.store.WriteAheadLogTest.Entry;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * A store reloads to the same entities and versions from a snapshot plus the log written after it,
+ * including writes made while the snapshot was being written, and a closed store's log is complete.
+ */
+public class StoreFilesTest {
+    private static final String STORE = "entries";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void snapshotPlusLogReloadsTheStore() {
+        Path directory = folder.getRoot().toPath();
+        EntityStore<Entry> store = open(directory);
+        for (int id = 1; id <= 2000; id++) {
+            store.put(new Entry(id, "entry " + id));
+        }
+        store.removeAll(new int[] {1, 2, 3, 500});
+        store.replace(200, new Entry(200, "changed before"));
+
+        store.snapshot();
+        assertTrue(Files.exists(directory.resolve(STORE + ".snapshot")));
+        assertFalse("Covered log kept", Files.exists(directory.resolve(STORE + ".0.wal")));
+        assertTrue(Files.exists(directory.resolve(STORE + ".1.wal")));
+
+        store.put(new Entry(3000, "entry 3000"));
+        store.remove(600);
+        store.replace(201, new Entry(201, "changed after"));
+        assertSameContents(store, open(directory));
+    }
+
+    @Test
+    public void writesDuringASnapshotAreKept() throws InterruptedException {
+        Path directory = folder.getRoot().toPath();
+        EntityStore<Entry> store = open(directory);
+        for (int id = 1; id <= 20000; id++) {
+            store.put(new Entry(id, "entry " + id));
+        }
+        AtomicBoolean writing = new AtomicBoolean(true);
+        Thread writer = new Thread(() -> {
+            for (int round = 0; writing.get() || round < 100; round++) {
+                int id = 1 + round % 20000;
+                if (round % 2 == 0) {
+                    store.replace(id, new Entry(id, "round " + round));
+                } else {
+                    store.remove(id);
+                    store.put(new Entry(id, "back " + round));
+                }
+            }
+        });
+        writer.start();
+        store.snapshot();
+        store.snapshot();
+        writing.set(false);
+        writer.join();
+        assertSameContents(store, open(directory));
+    }
+
+    @Test
+    public void closingWritesOutTheLogAndRefusesWrites() {
+        Path directory = folder.getRoot().toPath();
+        EntityStore<Entry> store = open(directory);
+        for (int id = 1; id <= 1000; id++) {
+            store.put(new Entry(id, "entry " + id));
+        }
+        store.close();
+        try {
+            store.put(new Entry(1001, "entry 1001"));
+            fail("Write accepted after close");
+        } catch (DatabaseException e) {
+            // Expected
+        }
+        assertFalse(store.contains(1001));
+        store.close();
+        assertSameContents(store, open(directory));
+    }
+
+    private static void assertSameContents(EntityStore<Entry> expected, EntityStore<Entry> actual) {
+        assertTrue(actual.isRestored());
+        assertEquals(expected.size(), actual.size());
+        List<Entry> values = expected.values();
+        for (Entry entry : values) {
+            Versioned<Entry> reloaded = actual.getVersioned(entry.id);
+            Versioned<Entry> original = expected.getVersioned(entry.id);
+            assertEquals(entry.name, reloaded.getEntity().name);
+            assertEquals(original.getVersion(), reloaded.getVersion());
+            assertEquals(original.getLastModified(), reloaded.getLastModified());
+        }
+        assertEquals(expected.version(), actual.version());
+    }
+
+    private static EntityStore<Entry> open(Path directory) {
+        return new EntityStore<>(STORE, Entry.class, entry -> entry.id, directory);
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package csa.healthsystem.store;
+
+/**
+ *
+ * @author Maryam
+ */
+import csa.healthsystem.exception.DatabaseException;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Durability of the store's log: acknowledged writes survive a killed process, a torn record
+ * at the end is cut off, and writes whose records cannot be written are reverted.
+ */
+public class WriteAheadLogTest {
+    private static final String STORE = "entries";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void acknowledgedWritesSurviveAKilledProcess() throws Exception {
+        Path directory = folder.newFolder().toPath();
+        String classPath = System.getProperty("surefire.test.class.path", System.getProperty("java.class.path"));
+        Process writer = new ProcessBuilder(Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+                "-cp", classPath, WriteAheadLogTest.class.getName(), directory.toString())
+                .redirectErrorStream(false)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        List<Integer> acknowledged = new ArrayList<>();
+        try (BufferedReader out = new BufferedReader(new InputStreamReader(writer.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while (acknowledged.size() < 500 && (line = out.readLine()) != null) {
+                acknowledged.add(Integer.parseInt(line.trim()));
+            }
+            // Killed while it keeps writing
+            writer.destroyForcibly();
+            writer.waitFor();
+        }
+        assertEquals(500, acknowledged.size());
+
+        EntityStore<Entry> reopened = open(directory);
+        assertTrue(reopened.isRestored());
+        for (int id : acknowledged) {
+            Entry entry = reopened.get(id);
+            assertNotNull("Lost acknowledged write " + id, entry);
+            assertEquals("entry " + id, entry.name);
+        }
+    }
+
+    @Test
+    public void tornRecordAtTheEndIsCutOff() throws IOException {
+        Path directory = folder.newFolder().toPath();
+        EntityStore<Entry> store = open(directory);
+        for (int id = 1; id <= 10; id++) {
+            store.put(new Entry(id, "entry " + id));
+        }
+        Path log = directory.resolve(STORE + ".0.wal");
+        long intact = Files.size(log);
+        // Half a record, as a crash in the middle of a write leaves it
+        Files.write(log, new byte[] {0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        EntityStore<Entry> reopened = open(directory);
+        assertEquals(10, reopened.size());
+        assertEquals(intact, Files.size(log));
+        reopened.put(new Entry(11, "entry 11"));
+        assertEquals(11, open(directory).size());
+    }
+
+    @Test
+    public void writesThatCannotBeLoggedAreRevertedUntilTheLogRecovers() throws IOException {
+        Path full = Paths.get("/dev/full");
+        assumeTrue("Needs /dev/full to fail writes", Files.isWritable(full));
+        Path directory = folder.newFolder().toPath();
+        Path log = directory.resolve(STORE + ".0.wal");
+        Files.createSymbolicLink(log, full);
+        EntityStore<Entry> store = open(directory);
+
+        try {
+            store.put(new Entry(1, "entry 1"));
+            fail("Write to a full disk was acknowledged");
+        } catch (DatabaseException e) {
+            assertNull(store.get(1));
+        }
+        try {
+            store.putAll(Arrays.asList(new Entry(2, "first"), new Entry(2, "second"), new Entry(3, "entry 3")));
+            fail("Write to a full disk was acknowledged");
+        } catch (DatabaseException e) {
+            assertNull(store.get(2));
+            assertNull(store.get(3));
+            assertEquals(0, store.size());
+        }
+
+        // The writer thread reopens the file for the next write
+        Files.delete(log);
+        store.put(new Entry(4, "entry 4"));
+        assertEquals("entry 4", store.get(4).name);
+        EntityStore<Entry> reopened = open(directory);
+        assertEquals(1, reopened.size());
+        assertEquals("entry 4", reopened.get(4).name);
+    }
+
+    @Test
+    public void healthFollowsTheLastWrite() throws IOException {
+        Path full = Paths.get("/dev/full");
+        assumeTrue("Needs /dev/full to fail writes", Files.isWritable(full));
+        Path path = folder.newFolder().toPath().resolve("health.wal");
+        Files.createSymbolicLink(path, full);
+        WriteAheadLog<Entry> log = WriteAheadLog.open(path, Entry.class, new IgnoringTarget());
+        List<Integer> reverted = new ArrayList<>();
+
+        WriteAheadLog.Commit failing = new WriteAheadLog.Commit();
+        log.appendPut(failing, 1, 1, 1, log.encode(new Entry(1, "entry 1")), () -> reverted.add(1));
+        try {
+            log.awaitDurable(failing);
+            fail("Write to a full disk was acknowledged");
+        } catch (DatabaseException e) {
+            assertFalse(log.isHealthy());
+            assertEquals(1, log.failures());
+            assertEquals(Arrays.asList(1), reverted);
+        }
+
+        Files.delete(path);
+        WriteAheadLog.Commit succeeding = new WriteAheadLog.Commit();
+        log.appendPut(succeeding, 2, 2, 2, log.encode(new Entry(2, "entry 2")), () -> reverted.add(2));
+        log.awaitDurable(succeeding);
+        assertTrue(log.isHealthy());
+        assertEquals(1, log.failures());
+        log.close();
+        try {
+            log.appendRemove(new WriteAheadLog.Commit(), 2, 3, 3, () -> reverted.add(3));
+            fail("Closed log accepted a record");
+        } catch (DatabaseException e) {
+            assertEquals(Arrays.asList(1), reverted);
+        }
+    }
+
+    private static EntityStore<Entry> open(Path directory) {
+        return new EntityStore<>(STORE, Entry.class, entry -> entry.id, directory);
+    }
+
+    /**
+     * Writes entries to a store in the given directory and prints each ID once the write is acknowledged.
+     * @param args The data directory
+     */
+    public static void main(String[] args) {
+        EntityStore<Entry> store = open(new File(args[0]).toPath());
+        for (int id = 1; ; id++) {
+            store.put(new Entry(id, "entry " + id));
+            System.out.println(id);
+            System.out.flush();
+        }
+    }
+
+    public static final class Entry {
+        public int id;
+        public String name;
+
+        public Entry() {}
+
+        Entry(int id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+    }
+
+    private static final class IgnoringTarget implements WriteAheadLog.ReplayTarget<Entry> {
+        @Override
+        public void put(int id, long version, long modified, Entry entity) {
+        }
+
+        @Override
+        public void remove(int id, long version, long modified) {
+        }
+    }
+}